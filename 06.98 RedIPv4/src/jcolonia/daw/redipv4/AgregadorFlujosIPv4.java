@@ -0,0 +1,309 @@
+package jcolonia.daw.redipv4;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agregador de tráfico por red para la contabilidad por subred: recibe flujos
+ * —dirección, bytes y paquetes— y acumula sus contadores por la red a la que
+ * pertenece cada dirección. La red puede ser la de un prefijo fijo —véase
+ * {@link #porPrefijo(int)}— o la ruta más específica de una {@link RedIPv4}
+ * —véase {@link #porRuta(RedIPv4)}—.
+ *
+ * <div>Seguridad entre hilos: pensado para muchos productores simultáneos.
+ * <ul>
+ * <li>Cada hilo acumula en su propia tabla de {@link ContadoresIPv4}, protegida
+ * por un cerrojo que solo se disputa al consultar, de modo que los productores
+ * no compiten entre sí.</li>
+ * <li>Las consultas —{@link #fusionar()}— suman las tablas de todos los hilos
+ * en una tabla nueva. Se serializan entre sí.</li>
+ * <li>Cada tabla recuerda su hilo mediante una referencia débil. Al consultar
+ * o vaciar, las tablas de los hilos que han terminado se suman a una tabla
+ * común de retirados y se descartan, de modo que no se acumulan con hilos de
+ * vida corta y su tráfico no se pierde.</li>
+ * <li>Los registros por lotes toman el cerrojo una sola vez por lote: son la
+ * forma más rápida de alimentar el agregador.</li>
+ * </ul>
+ * </div>
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class AgregadorFlujosIPv4 {
+	/**
+	 * Tabla de contadores de un hilo productor.
+	 */
+	private static final class TablaHilo {
+		/** Hilo propietario, sin impedir que se libere al terminar. */
+		private final WeakReference<Thread> propietario;
+		/** Contadores del hilo, protegidos por su propio monitor. */
+		private final ContadoresIPv4 contadores;
+
+		/**
+		 * Crea la tabla del hilo actual.
+		 */
+		private TablaHilo() {
+			propietario = new WeakReference<>(Thread.currentThread());
+			contadores = new ContadoresIPv4();
+		}
+
+		/**
+		 * Indica si el hilo propietario ha terminado, de modo que ya no puede
+		 * registrar más tráfico en la tabla.
+		 *
+		 * @return si ha terminado
+		 */
+		private boolean huérfana() {
+			Thread hilo = propietario.get();
+			return hilo == null || !hilo.isAlive();
+		}
+	}
+
+	/**
+	 * Longitud del prefijo de agrupación, o -1 si se agrupa por rutas.
+	 */
+	private final int máscaraCIDR;
+
+	/**
+	 * Colección cuyas rutas definen los grupos, o <code>null</code> si se agrupa
+	 * por prefijo.
+	 */
+	private final RedIPv4 rutas;
+
+	/**
+	 * Tabla de contadores de cada hilo.
+	 */
+	private final ThreadLocal<ContadoresIPv4> tablaLocal;
+
+	/**
+	 * Tablas de los hilos que han registrado tráfico, salvo las ya retiradas.
+	 */
+	private final Queue<TablaHilo> tablas;
+
+	/**
+	 * Suma de las tablas de los hilos terminados. Su monitor serializa además las
+	 * consultas y el vaciado.
+	 */
+	private final ContadoresIPv4 retirados;
+
+	/**
+	 * Bytes de las direcciones que no pertenecen a ninguna ruta.
+	 */
+	private final LongAdder bytesSinRuta;
+
+	/**
+	 * Paquetes de las direcciones que no pertenecen a ninguna ruta.
+	 */
+	private final LongAdder paquetesSinRuta;
+
+	/**
+	 * Crea un agregador.
+	 *
+	 * @param máscaraCIDR la longitud del prefijo, o -1 si se agrupa por rutas
+	 * @param rutas       la colección de rutas, o <code>null</code>
+	 */
+	private AgregadorFlujosIPv4(int máscaraCIDR, RedIPv4 rutas) {
+		this.máscaraCIDR = máscaraCIDR;
+		this.rutas = rutas;
+		tablas = new ConcurrentLinkedQueue<>();
+		retirados = new ContadoresIPv4();
+		tablaLocal = ThreadLocal.withInitial(() -> {
+			TablaHilo tabla = new TablaHilo();
+			tablas.add(tabla);
+			return tabla.contadores;
+		});
+		bytesSinRuta = new LongAdder();
+		paquetesSinRuta = new LongAdder();
+	}
+
+	/**
+	 * Crea un agregador que agrupa las direcciones por su red con un prefijo
+	 * fijo: por ejemplo, por redes <code>/24</code>.
+	 *
+	 * @param máscaraCIDR la longitud del prefijo, de 0 a 32
+	 * @return el agregador
+	 * @throws NúmeroIPv4Exception si la máscara está fuera de rango
+	 */
+	public static AgregadorFlujosIPv4 porPrefijo(int máscaraCIDR) {
+		EnteroIPv4.verificarMáscaraCIDR(máscaraCIDR);
+		return new AgregadorFlujosIPv4(máscaraCIDR, null);
+	}
+
+	/**
+	 * Crea un agregador que agrupa las direcciones por la ruta más específica que
+	 * las contiene en una colección. Las búsquedas usan
+	 * {@link RedIPv4#buscarRutaCompilada(int)}, así que conviene activar
+	 * antes el modo de rutas compiladas. El tráfico de las direcciones sin ruta se
+	 * acumula aparte: véase {@link #getBytesSinRuta()}.
+	 *
+	 * @param rutas la colección de rutas
+	 * @return el agregador
+	 */
+	public static AgregadorFlujosIPv4 porRuta(RedIPv4 rutas) {
+		return new AgregadorFlujosIPv4(-1, Objects.requireNonNull(rutas));
+	}
+
+	/**
+	 * Registra el tráfico de un flujo.
+	 *
+	 * @param dirección la dirección empaquetada
+	 * @param bytes     los bytes del flujo
+	 * @param paquetes  los paquetes del flujo
+	 */
+	public void registrar(int dirección, long bytes, long paquetes) {
+		ContadoresIPv4 tabla = tablaLocal.get();
+
+		synchronized (tabla) {
+			acumular(tabla, dirección, bytes, paquetes);
+		}
+	}
+
+	/**
+	 * Registra el tráfico de un flujo. Véase {@link #registrar(int, long, long)}.
+	 *
+	 * @param dirección la dirección
+	 * @param bytes     los bytes del flujo
+	 * @param paquetes  los paquetes del flujo
+	 */
+	public void registrar(NúmeroIPv4 dirección, long bytes, long paquetes) {
+		registrar(dirección.valor(), bytes, paquetes);
+	}
+
+	/**
+	 * Registra el tráfico de un lote de flujos, dados en tablas paralelas.
+	 *
+	 * @param direcciones las direcciones empaquetadas
+	 * @param bytes       los bytes de cada flujo
+	 * @param paquetes    los paquetes de cada flujo
+	 * @param desde       la primera posición, incluida
+	 * @param hasta       la última posición, excluida
+	 * @throws IndexOutOfBoundsException si el tramo no está dentro de alguna de
+	 *                                   las tablas
+	 */
+	public void registrar(int[] direcciones, long[] bytes, long[] paquetes, int desde, int hasta) {
+		ContadoresIPv4 tabla = tablaLocal.get();
+
+		Objects.checkFromToIndex(desde, hasta, direcciones.length);
+		Objects.checkFromToIndex(desde, hasta, bytes.length);
+		Objects.checkFromToIndex(desde, hasta, paquetes.length);
+		synchronized (tabla) {
+			for (int i = desde; i < hasta; i++) {
+				acumular(tabla, direcciones[i], bytes[i], paquetes[i]);
+			}
+		}
+	}
+
+	/**
+	 * Suma los contadores de todos los hilos en una tabla nueva. Los productores
+	 * pueden seguir registrando tráfico mientras tanto: cada tabla se suma
+	 * completa, antes o después de cada registro o lote.
+	 *
+	 * @return la tabla con los totales por red
+	 */
+	public ContadoresIPv4 fusionar() {
+		ContadoresIPv4 total = new ContadoresIPv4();
+
+		synchronized (retirados) {
+			retirarHuérfanas(true);
+			total.fusionar(retirados);
+			for (TablaHilo tabla : tablas) {
+				synchronized (tabla.contadores) {
+					total.fusionar(tabla.contadores);
+				}
+			}
+		}
+
+		return total;
+	}
+
+	/**
+	 * Elimina los contadores de todos los hilos y los del tráfico sin ruta, y
+	 * descarta las tablas de los hilos terminados.
+	 */
+	public void vaciar() {
+		synchronized (retirados) {
+			retirarHuérfanas(false);
+			retirados.vaciar();
+			for (TablaHilo tabla : tablas) {
+				synchronized (tabla.contadores) {
+					tabla.contadores.vaciar();
+				}
+			}
+		}
+		bytesSinRuta.reset();
+		paquetesSinRuta.reset();
+	}
+
+	/**
+	 * Consulta el total de bytes de las direcciones que no pertenecen a ninguna
+	 * ruta. Siempre es 0 al agrupar por prefijo.
+	 *
+	 * @return el total de bytes
+	 */
+	public long getBytesSinRuta() {
+		return bytesSinRuta.sum();
+	}
+
+	/**
+	 * Consulta el total de paquetes de las direcciones que no pertenecen a
+	 * ninguna ruta. Siempre es 0 al agrupar por prefijo.
+	 *
+	 * @return el total de paquetes
+	 */
+	public long getPaquetesSinRuta() {
+		return paquetesSinRuta.sum();
+	}
+
+	/**
+	 * Descarta las tablas de los hilos terminados, sumando antes su tráfico a
+	 * {@link #retirados} si se indica. Debe llamarse con el monitor de
+	 * {@link #retirados}.
+	 *
+	 * @param conservar si se suma su tráfico o se descarta sin más
+	 */
+	private void retirarHuérfanas(boolean conservar) {
+		TablaHilo tabla;
+
+		for (Iterator<TablaHilo> it = tablas.iterator(); it.hasNext();) {
+			tabla = it.next();
+			if (tabla.huérfana()) {
+				if (conservar) {
+					synchronized (tabla.contadores) {
+						retirados.fusionar(tabla.contadores);
+					}
+				}
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Suma el tráfico de un flujo a la red que le corresponde.
+	 *
+	 * @param tabla     la tabla del hilo actual, ya bloqueada
+	 * @param dirección la dirección empaquetada
+	 * @param bytes     los bytes del flujo
+	 * @param paquetes  los paquetes del flujo
+	 */
+	private void acumular(ContadoresIPv4 tabla, int dirección, long bytes, long paquetes) {
+		IdentificaciónIPv4 ruta;
+		int máscara;
+
+		if (rutas == null) {
+			tabla.sumar(RegistroIPv4.of(EnteroIPv4.red(dirección, máscaraCIDR), máscaraCIDR), bytes, paquetes);
+		} else {
+			ruta = rutas.buscarRutaCompilada(dirección);
+			if (ruta == null) {
+				bytesSinRuta.add(bytes);
+				paquetesSinRuta.add(paquetes);
+			} else {
+				máscara = ruta.getMáscaraCIDR();
+				tabla.sumar(RegistroIPv4.of(RegistroIPv4.red(ruta.getRegistro()), máscara), bytes, paquetes);
+			}
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package jcolonia.daw.redipv4;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Analizador de direcciones IPv4 en notación decimal con puntos
+ * —«192.168.1.10»— escrito a mano, sin expresiones regulares ni textos
+ * intermedios. Trabaja directamente sobre fragmentos de {@link CharSequence},
+ * <code>char[]</code>, <code>byte[]</code> o {@link ByteBuffer} —texto ASCII o
+ * UTF-8— y devuelve el valor empaquetado descrito en {@link EnteroIPv4}.
+ *
+ * <div>Cada octeto debe tener entre uno y tres dígitos con valor en el rango
+ * [0,255]. Se rechazan los ceros a la izquierda —«010»— para evitar la
+ * ambigüedad con la notación octal. No se admiten espacios. Ante cualquier
+ * error se lanza una {@link NúmeroIPv4Exception} indicando la posición del
+ * carácter problemático, contada desde el inicio del texto completo.</div>
+ *
+ * <div>El estado del análisis se guarda en un único entero largo —octetos ya
+ * completados, octeto en curso, número de dígitos y número de puntos—, de
+ * modo que no se crea ningún objeto salvo en caso de error.</div>
+ *
+ * @version 0.3 (20261018002)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class AnalizadorIPv4 {
+	/**
+	 * Desplazamiento en el estado del octeto en curso (8 bits).
+	 */
+	private static final int DESPL_OCTETO = 32;
+	/**
+	 * Desplazamiento en el estado del número de dígitos del octeto en curso (2
+	 * bits).
+	 */
+	private static final int DESPL_DÍGITOS = 40;
+	/**
+	 * Desplazamiento en el estado del número de puntos leídos (2 bits).
+	 */
+	private static final int DESPL_PUNTOS = 42;
+
+	/**
+	 * Clase de utilidad: no se crean objetos.
+	 */
+	private AnalizadorIPv4() {
+	}
+
+	/**
+	 * Analiza un texto completo.
+	 *
+	 * @param texto el texto a analizar
+	 * @return la dirección empaquetada
+	 * @throws NúmeroIPv4Exception si el texto no es una dirección IPv4 válida
+	 */
+	public static int analizar(CharSequence texto) {
+		return analizar(texto, 0, texto.length());
+	}
+
+	/**
+	 * Analiza un fragmento de texto.
+	 *
+	 * @param texto el texto a analizar
+	 * @param desde la posición inicial, incluida
+	 * @param hasta la posición final, excluida
+	 * @return la dirección empaquetada
+	 * @throws NúmeroIPv4Exception si el fragmento no es una dirección IPv4 válida
+	 */
+	public static int analizar(CharSequence texto, int desde, int hasta) {
+		long estado = 0;
+
+		Objects.checkFromToIndex(desde, hasta, texto.length());
+		for (int i = desde; i < hasta; i++) {
+			estado = avanzar(estado, texto.charAt(i), i);
+		}
+		return finalizar(estado, hasta);
+	}
+
+	/**
+	 * Analiza un fragmento de una tabla de caracteres.
+	 *
+	 * @param texto la tabla de caracteres
+	 * @param desde la posición inicial, incluida
+	 * @param hasta la posición final, excluida
+	 * @return la dirección empaquetada
+	 * @throws NúmeroIPv4Exception si el fragmento no es una dirección IPv4 válida
+	 */
+	public static int analizar(char[] texto, int desde, int hasta) {
+		long estado = 0;
+
+		Objects.checkFromToIndex(desde, hasta, texto.length);
+		for (int i = desde; i < hasta; i++) {
+			estado = avanzar(estado, texto[i], i);
+		}
+		return finalizar(estado, hasta);
+	}
+
+	/**
+	 * Analiza un fragmento de una tabla de bytes en ASCII o UTF-8. Cualquier byte
+	 * fuera del rango ASCII se considera un carácter no válido.
+	 *
+	 * @param texto la tabla de bytes
+	 * @param desde la posición inicial, incluida
+	 * @param hasta la posición final, excluida
+	 * @return la dirección empaquetada
+	 * @throws NúmeroIPv4Exception si el fragmento no es una dirección IPv4 válida
+	 */
+	public static int analizar(byte[] texto, int desde, int hasta) {
+		long estado = 0;
+
+		Objects.checkFromToIndex(desde, hasta, texto.length);
+		for (int i = desde; i < hasta; i++) {
+			estado = avanzar(estado, texto[i] & 0xFF, i);
+		}
+		return finalizar(estado, hasta);
+	}
+
+	/**
+	 * Analiza un fragmento de un búfer de bytes en ASCII o UTF-8 empleando
+	 * posiciones absolutas, sin alterar la posición ni el límite del búfer.
+	 *
+	 * @param texto el búfer de bytes
+	 * @param desde la posición inicial, incluida
+	 * @param hasta la posición final, excluida
+	 * @return la dirección empaquetada
+	 * @throws NúmeroIPv4Exception si el fragmento no es una dirección IPv4 válida
+	 */
+	public static int analizar(ByteBuffer texto, int desde, int hasta) {
+		long estado = 0;
+
+		Objects.checkFromToIndex(desde, hasta, texto.limit());
+		for (int i = desde; i < hasta; i++) {
+			estado = avanzar(estado, texto.get(i) & 0xFF, i);
+		}
+		return finalizar(estado, hasta);
+	}
+
+	/**
+	 * Procesa un carácter y calcula el nuevo estado del análisis.
+	 *
+	 * @param estado   el estado actual
+	 * @param carácter el carácter a procesar
+	 * @param posición la posición del carácter, para los mensajes de error
+	 * @return el nuevo estado
+	 * @throws NúmeroIPv4Exception si el carácter no encaja en esa posición
+	 */
+	private static long avanzar(long estado, int carácter, int posición) {
+		int valor = (int) estado;
+		int octeto = (int) (estado >>> DESPL_OCTETO) & 0xFF;
+		int dígitos = (int) (estado >>> DESPL_DÍGITOS) & 0x3;
+		int puntos = (int) (estado >>> DESPL_PUNTOS) & 0x3;
+
+		if (carácter >= '0' && carácter <= '9') {
+			if (dígitos == 3 || (dígitos == 1 && octeto == 0)) {
+				throw error("Octeto demasiado largo o con ceros a la izquierda", carácter, posición);
+			}
+			octeto = octeto * 10 + (carácter - '0');
+			if (octeto > 255) {
+				throw error("Octeto fuera de rango", carácter, posición);
+			}
+			dígitos++;
+		} else if (carácter == '.') {
+			if (dígitos == 0 || puntos == 3) {
+				throw error("Punto inesperado", carácter, posición);
+			}
+			valor = valor << 8 | octeto;
+			octeto = 0;
+			dígitos = 0;
+			puntos++;
+		} else {
+			throw error("Carácter no válido", carácter, posición);
+		}
+
+		return (valor & 0xFFFF_FFFFL) | (long) octeto << DESPL_OCTETO | (long) dígitos << DESPL_DÍGITOS
+				| (long) puntos << DESPL_PUNTOS;
+	}
+
+	/**
+	 * Comprueba que el análisis haya terminado con los cuatro octetos completos.
+	 *
+	 * @param estado   el estado final
+	 * @param posición la posición de fin del fragmento, para los mensajes de error
+	 * @return la dirección empaquetada
+	 * @throws NúmeroIPv4Exception si faltan octetos
+	 */
+	private static int finalizar(long estado, int posición) {
+		int valor = (int) estado;
+		int octeto = (int) (estado >>> DESPL_OCTETO) & 0xFF;
+		int dígitos = (int) (estado >>> DESPL_DÍGITOS) & 0x3;
+		int puntos = (int) (estado >>> DESPL_PUNTOS) & 0x3;
+
+		if (dígitos == 0 || puntos != 3) {
+			throw new NúmeroIPv4Exception(String.format("Dirección IPv4 incompleta en la posición %d", posición),
+					posición);
+		}
+
+		return valor << 8 | octeto;
+	}
+
+	/**
+	 * Prepara la excepción correspondiente a un carácter erróneo. Solo se emplea
+	 * en caso de error, por lo que el coste del formateo no afecta al análisis.
+	 *
+	 * @param motivo   la descripción del problema
+	 * @param carácter el carácter erróneo
+	 * @param posición la posición del carácter
+	 * @return la excepción preparada
+	 */
+	private static NúmeroIPv4Exception error(String motivo, int carácter, int posición) {
+		String mensaje;
+
+		mensaje = String.format("%s: «%c» en la posición %d", motivo, (char) carácter, posición);
+		return new NúmeroIPv4Exception(mensaje, posición);
+	}
+}
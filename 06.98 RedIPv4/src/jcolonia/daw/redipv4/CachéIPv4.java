@@ -0,0 +1,259 @@
+package jcolonia.daw.redipv4;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché de capacidad limitada de objetos {@link NúmeroIPv4}, para servicios que
+ * repiten sin cesar las mismas pocas miles de direcciones: devuelve siempre el
+ * mismo objeto para cada valor mientras siga en la caché, en lugar de crear uno
+ * nuevo en cada ocasión. Las máscaras no ocupan espacio en ella, pues
+ * {@link NúmeroIPv4#máscara(int)} ya devuelve instancias únicas.
+ *
+ * <div>Es una tabla de dispersión de direccionamiento abierto sin cerrojos:
+ * cada valor se busca en una ventana de {@value #VENTANA} posiciones
+ * consecutivas. Si la ventana está llena, se desaloja una entrada con el
+ * algoritmo del reloj: las entradas consultadas desde la última pasada tienen
+ * una segunda oportunidad y se desaloja la primera que no se haya
+ * consultado.</div>
+ *
+ * <div>Seguridad entre hilos: todos los métodos pueden usarse a la vez desde
+ * varios hilos sin bloquearse. Si dos hilos incorporan el mismo valor a la vez,
+ * pueden recibir objetos distintos; son iguales según
+ * {@link NúmeroIPv4#equals(Object)}, así que la caché sigue siendo
+ * transparente: solo se pierde parte del ahorro.</div>
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class CachéIPv4 {
+	/**
+	 * Número de posiciones consecutivas donde puede estar cada valor.
+	 */
+	private static final int VENTANA = 8;
+
+	/**
+	 * Multiplicador de la dispersión de Fibonacci: 2<sup>32</sup> entre la razón
+	 * áurea.
+	 */
+	private static final int DISPERSIÓN = 0x9E37_79B9;
+
+	/**
+	 * Entradas de la caché; <code>null</code> en las posiciones libres.
+	 */
+	private final AtomicReferenceArray<NúmeroIPv4> entradas;
+
+	/**
+	 * Marca de uso de cada posición para el algoritmo del reloj: 1 si se ha
+	 * consultado desde la última pasada.
+	 */
+	private final AtomicIntegerArray usadas;
+
+	/**
+	 * Desplazamiento que reduce la dispersión a una posición de la tabla: 32 menos
+	 * el logaritmo de la capacidad.
+	 */
+	private final int desplazamiento;
+
+	/**
+	 * Número de consultas resueltas con un objeto de la caché.
+	 */
+	private final LongAdder aciertos;
+
+	/**
+	 * Número de consultas que han tenido que crear un objeto.
+	 */
+	private final LongAdder fallos;
+
+	/**
+	 * Número de entradas desalojadas para dejar sitio a otras.
+	 */
+	private final LongAdder desalojos;
+
+	/**
+	 * Crea una caché vacía.
+	 *
+	 * @param capacidad el número máximo de entradas; se redondea a la siguiente
+	 *                  potencia de dos, con un mínimo de {@value #VENTANA}
+	 * @throws IllegalArgumentException si la capacidad no es positiva o supera
+	 *                                  2<sup>30</sup>
+	 */
+	public CachéIPv4(int capacidad) {
+		int tamaño;
+
+		if (capacidad <= 0 || capacidad > 1 << 30) {
+			throw new IllegalArgumentException(String.format("Capacidad de caché no válida: %d", capacidad));
+		}
+		tamaño = Math.max(VENTANA, Integer.highestOneBit(capacidad - 1) << 1);
+
+		entradas = new AtomicReferenceArray<>(tamaño);
+		usadas = new AtomicIntegerArray(tamaño);
+		desplazamiento = Integer.SIZE - Integer.numberOfTrailingZeros(tamaño);
+		aciertos = new LongAdder();
+		fallos = new LongAdder();
+		desalojos = new LongAdder();
+	}
+
+	/**
+	 * Facilita el número IPv4 de un valor empaquetado, preferentemente desde la
+	 * caché.
+	 *
+	 * @param valor el valor empaquetado
+	 * @return el número IPv4 correspondiente
+	 */
+	public NúmeroIPv4 of(int valor) {
+		int máscara = entradas.length() - 1;
+		int inicio = (valor * DISPERSIÓN) >>> desplazamiento;
+		int pos, libre = -1;
+		NúmeroIPv4 entrada, resultado = null;
+
+		for (int i = 0; i < VENTANA && resultado == null; i++) {
+			pos = (inicio + i) & máscara;
+			entrada = entradas.get(pos);
+			if (entrada == null) {
+				if (libre < 0) {
+					libre = pos;
+				}
+			} else if (entrada.valor() == valor) {
+				if (usadas.get(pos) == 0) {
+					usadas.lazySet(pos, 1);
+				}
+				resultado = entrada;
+			}
+		}
+
+		if (resultado != null) {
+			aciertos.increment();
+		} else {
+			fallos.increment();
+			resultado = new NúmeroIPv4(valor);
+			if (libre < 0 || !entradas.compareAndSet(libre, null, resultado)) {
+				desalojar(inicio, resultado);
+			}
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Facilita el número IPv4 de un texto, preferentemente desde la caché. El
+	 * análisis del texto no crea objetos.
+	 *
+	 * @param texto el texto a analizar, por ejemplo «192.168.32.11»
+	 * @return el número IPv4 correspondiente
+	 * @throws NúmeroIPv4Exception si el texto no es válido
+	 * @see AnalizadorIPv4
+	 */
+	public NúmeroIPv4 of(CharSequence texto) {
+		return of(AnalizadorIPv4.analizar(texto));
+	}
+
+	/**
+	 * Facilita la máscara de una longitud dada. Equivale a
+	 * {@link NúmeroIPv4#máscara(int)}, que ya devuelve instancias únicas.
+	 *
+	 * @param máscaraCIDR el número de bits de la parte de red
+	 * @return la máscara correspondiente
+	 * @throws NúmeroIPv4Exception si la longitud está fuera del rango [0,32]
+	 */
+	public NúmeroIPv4 máscara(int máscaraCIDR) {
+		return NúmeroIPv4.máscara(máscaraCIDR);
+	}
+
+	/**
+	 * Devuelve el número de consultas resueltas desde la caché.
+	 *
+	 * @return el número de aciertos
+	 */
+	public long getAciertos() {
+		return aciertos.sum();
+	}
+
+	/**
+	 * Devuelve el número de consultas que han creado un objeto nuevo.
+	 *
+	 * @return el número de fallos
+	 */
+	public long getFallos() {
+		return fallos.sum();
+	}
+
+	/**
+	 * Devuelve el número de entradas desalojadas.
+	 *
+	 * @return el número de desalojos
+	 */
+	public long getDesalojos() {
+		return desalojos.sum();
+	}
+
+	/**
+	 * Calcula la proporción de consultas resueltas desde la caché.
+	 *
+	 * @return la tasa de aciertos, de 0 a 1; 0 si no ha habido consultas
+	 */
+	public double getTasaAciertos() {
+		long a = aciertos.sum(), total = a + fallos.sum();
+		return (total == 0) ? 0 : (double) a / total;
+	}
+
+	/**
+	 * Devuelve el número máximo de entradas.
+	 *
+	 * @return la capacidad
+	 */
+	public int getCapacidad() {
+		return entradas.length();
+	}
+
+	/**
+	 * Vacía la caché y pone a cero los contadores.
+	 */
+	public void vaciar() {
+		for (int i = 0; i < entradas.length(); i++) {
+			entradas.set(i, null);
+			usadas.set(i, 0);
+		}
+		aciertos.reset();
+		fallos.reset();
+		desalojos.reset();
+	}
+
+	/**
+	 * Sustituye una entrada de la ventana por otra nueva, según el algoritmo del
+	 * reloj: recorre la ventana quitando la marca de uso a las entradas marcadas
+	 * y desaloja la primera sin marca. Si otro hilo modifica la posición elegida
+	 * entretanto, desiste: la nueva entrada no se guarda, pero el resultado sigue
+	 * siendo correcto.
+	 *
+	 * @param inicio la primera posición de la ventana
+	 * @param nueva  la entrada a guardar
+	 */
+	private void desalojar(int inicio, NúmeroIPv4 nueva) {
+		int máscara = entradas.length() - 1;
+		int pos, víctima = -1;
+		NúmeroIPv4 vieja;
+
+		// Dos vueltas: en la segunda solo quedan marcas si otros hilos las ponen
+		for (int i = 0; i < 2 * VENTANA && víctima < 0; i++) {
+			pos = (inicio + i % VENTANA) & máscara;
+			if (usadas.get(pos) == 0) {
+				víctima = pos;
+			} else {
+				usadas.lazySet(pos, 0);
+			}
+		}
+		if (víctima < 0) {
+			víctima = inicio & máscara;
+		}
+
+		vieja = entradas.get(víctima);
+		if (entradas.compareAndSet(víctima, vieja, nueva)) {
+			usadas.lazySet(víctima, 0);
+			if (vieja != null) {
+				desalojos.increment();
+			}
+		}
+	}
+}
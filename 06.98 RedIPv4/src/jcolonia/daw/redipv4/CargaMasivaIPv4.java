@@ -0,0 +1,473 @@
+package jcolonia.daw.redipv4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Carga masiva en paralelo de identificaciones IPv4 en el formato pseudo-CSV de
+ * {@link IdentificaciónIPv4#toStringCSV()}, desde un archivo o desde una tabla
+ * de líneas.
+ *
+ * <div>La entrada se divide en fragmentos —en los archivos, rangos de bytes
+ * ajustados a finales de línea— que se analizan a la vez en un
+ * {@link ForkJoinPool}. Cada tarea analiza sus líneas directamente sobre los
+ * bytes leídos, sin crear textos intermedios, y acumula los resultados en su
+ * propia tabla de {@link RegistroIPv4 registros empaquetados}; al terminar, las
+ * tablas parciales se concatenan en el orden de la entrada. Las líneas se
+ * analizan con {@link CódecCSVIPv4}.</div>
+ *
+ * <div>Cada línea contiene la dirección y la máscara separadas por «#»; la
+ * máscara puede indicarse como longitud —«24»— o en notación decimal con
+ * puntos —«255.255.255.0»—. Los campos adicionales se ignoran, al igual que las
+ * líneas vacías. Si alguna línea está mal formada se lanza una
+ * {@link LíneaCSVException} con la primera de ellas en el orden de la entrada y
+ * no se incorpora nada.</div>
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class CargaMasivaIPv4 {
+	/**
+	 * Tamaño aproximado de cada fragmento de archivo, en bytes.
+	 */
+	private static final int TAMAÑO_FRAGMENTO = 8 * 1024 * 1024;
+
+	/**
+	 * Número de líneas de cada fragmento de una tabla.
+	 */
+	private static final int LÍNEAS_FRAGMENTO = 64 * 1024;
+
+	/**
+	 * Tamaño del búfer empleado para localizar finales de línea.
+	 */
+	private static final int TAMAÑO_EXPLORACIÓN = 512;
+
+	/**
+	 * Longitud media estimada de una línea, para dimensionar las tablas
+	 * parciales.
+	 */
+	private static final int LONGITUD_ESTIMADA_LÍNEA = 16;
+
+	/**
+	 * Resultado del análisis de un fragmento.
+	 */
+	private static final class Parcial {
+		/**
+		 * Registros analizados, ocupados desde el principio hasta {@link #tamaño}.
+		 */
+		private long[] registros;
+
+		/**
+		 * Número de registros analizados.
+		 */
+		private int tamaño;
+
+		/**
+		 * Posición de la primera línea mal formada —desplazamiento en el archivo o
+		 * índice en la tabla—, o -1 si no hay ninguna.
+		 */
+		private long error = -1;
+
+		/**
+		 * Error producido al leer el fragmento, o <code>null</code> si no hay
+		 * ninguno.
+		 */
+		private IOException errorLectura;
+
+		/**
+		 * Crea un resultado vacío.
+		 *
+		 * @param capacidad la capacidad inicial estimada
+		 */
+		private Parcial(int capacidad) {
+			registros = new long[Math.max(capacidad, 16)];
+		}
+
+		/**
+		 * Añade un registro, ampliando la tabla si hace falta.
+		 *
+		 * @param registro el registro empaquetado
+		 */
+		private void añadir(long registro) {
+			if (tamaño == registros.length) {
+				registros = Arrays.copyOf(registros, tamaño + (tamaño >> 1));
+			}
+			registros[tamaño++] = registro;
+		}
+	}
+
+	/**
+	 * Clase de utilidad: no se crean objetos.
+	 */
+	private CargaMasivaIPv4() {
+	}
+
+	/**
+	 * Analiza en paralelo un archivo en UTF-8 empleando el
+	 * {@link ForkJoinPool#commonPool() conjunto común} de hilos.
+	 *
+	 * @param archivo la ruta del archivo
+	 * @return los registros empaquetados, en el orden del archivo
+	 * @throws IOException        si se produce algún error de lectura
+	 * @throws LíneaCSVException si alguna línea está mal formada
+	 * @see #analizar(Path, ForkJoinPool)
+	 */
+	public static long[] analizar(Path archivo) throws IOException {
+		return analizar(archivo, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Analiza en paralelo un archivo en UTF-8. Cada fragmento se lee con
+	 * lecturas posicionales independientes sobre el mismo canal.
+	 *
+	 * @param archivo  la ruta del archivo
+	 * @param piscina  el conjunto de hilos donde analizar los fragmentos
+	 * @return los registros empaquetados, en el orden del archivo
+	 * @throws IOException        si se produce algún error de lectura
+	 * @throws LíneaCSVException si alguna línea está mal formada
+	 */
+	public static long[] analizar(Path archivo, ForkJoinPool piscina) throws IOException {
+		List<ForkJoinTask<Parcial>> tareas;
+		List<Parcial> parciales;
+		long longitud, inicio, fin;
+
+		try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+			longitud = canal.size();
+			tareas = new ArrayList<>();
+			for (inicio = 0; inicio < longitud; inicio = fin) {
+				fin = Math.min(inicio + TAMAÑO_FRAGMENTO, longitud);
+				if (fin < longitud) {
+					fin = finDeLínea(canal, fin - 1, longitud);
+				}
+				long desde = inicio;
+				int tamaño = (int) (fin - inicio);
+				tareas.add(piscina.submit(() -> analizarFragmento(canal, desde, tamaño)));
+			}
+
+			parciales = new ArrayList<>(tareas.size());
+			for (ForkJoinTask<Parcial> tarea : tareas) {
+				parciales.add(tarea.join());
+			}
+
+			for (Parcial parcial : parciales) {
+				if (parcial.errorLectura != null) {
+					throw parcial.errorLectura;
+				}
+				if (parcial.error >= 0) {
+					throw errorArchivo(canal, parcial.error, longitud);
+				}
+			}
+		}
+
+		return concatenar(parciales);
+	}
+
+	/**
+	 * Analiza en paralelo una tabla de líneas.
+	 *
+	 * @param líneas   las líneas a analizar
+	 * @param piscina  el conjunto de hilos donde analizar los fragmentos
+	 * @return los registros empaquetados, en el orden de la tabla
+	 * @throws LíneaCSVException si alguna línea está mal formada; el número de
+	 *                            línea es su posición en la tabla contando desde 1
+	 */
+	public static long[] analizar(CharSequence[] líneas, ForkJoinPool piscina) {
+		List<ForkJoinTask<Parcial>> tareas;
+		List<Parcial> parciales;
+
+		tareas = new ArrayList<>();
+		for (int inicio = 0; inicio < líneas.length; inicio += LÍNEAS_FRAGMENTO) {
+			int desde = inicio, hasta = Math.min(inicio + LÍNEAS_FRAGMENTO, líneas.length);
+			tareas.add(piscina.submit(() -> analizarFragmento(líneas, desde, hasta)));
+		}
+
+		parciales = new ArrayList<>(tareas.size());
+		for (ForkJoinTask<Parcial> tarea : tareas) {
+			parciales.add(tarea.join());
+		}
+
+		for (Parcial parcial : parciales) {
+			if (parcial.error >= 0) {
+				try {
+					CódecCSVIPv4.analizar(líneas[(int) parcial.error]);
+				} catch (NúmeroIPv4Exception e) {
+					throw new LíneaCSVException(parcial.error + 1, e);
+				}
+			}
+		}
+
+		return concatenar(parciales);
+	}
+
+	/**
+	 * Analiza en paralelo un archivo e incorpora sus identificaciones a una
+	 * colección. Las identificaciones se crean también en paralelo y se
+	 * incorporan de una sola vez con {@link RedIPv4#agregarElementos}, que prepara
+	 * el lote en el mismo conjunto de hilos y publica el resultado una sola
+	 * vez.
+	 *
+	 * @param red      la colección de destino
+	 * @param archivo  la ruta del archivo
+	 * @param piscina  el conjunto de hilos a emplear
+	 * @return el número de identificaciones incorporadas
+	 * @throws IOException        si se produce algún error de lectura
+	 * @throws LíneaCSVException si alguna línea está mal formada; en ese caso no
+	 *                            se incorpora ninguna
+	 */
+	public static int cargar(RedIPv4 red, Path archivo, ForkJoinPool piscina) throws IOException {
+		return incorporar(red, analizar(archivo, piscina), piscina);
+	}
+
+	/**
+	 * Analiza en paralelo una tabla de líneas e incorpora sus identificaciones a
+	 * una colección.
+	 *
+	 * @param red      la colección de destino
+	 * @param líneas   las líneas a analizar
+	 * @param piscina  el conjunto de hilos a emplear
+	 * @return el número de identificaciones incorporadas
+	 * @throws LíneaCSVException si alguna línea está mal formada; en ese caso no
+	 *                            se incorpora ninguna
+	 * @see #cargar(RedIPv4, Path, ForkJoinPool)
+	 */
+	public static int cargar(RedIPv4 red, CharSequence[] líneas, ForkJoinPool piscina) {
+		return incorporar(red, analizar(líneas, piscina), piscina);
+	}
+
+	/**
+	 * Crea en paralelo las identificaciones de una tabla de registros y las
+	 * incorpora a una colección.
+	 *
+	 * @param red       la colección de destino
+	 * @param registros los registros empaquetados
+	 * @param piscina   el conjunto de hilos a emplear
+	 * @return el número de identificaciones incorporadas
+	 */
+	private static int incorporar(RedIPv4 red, long[] registros, ForkJoinPool piscina) {
+		IdentificaciónIPv4[] elementos = new IdentificaciónIPv4[registros.length];
+
+		// Dentro de la tarea, la ejecución en paralelo —creación, ordenación del
+		// lote— emplea el mismo conjunto
+		piscina.submit(() -> {
+			Arrays.parallelSetAll(elementos, i -> IdentificaciónIPv4.ofRegistro(registros[i]));
+			red.agregarElementos(elementos);
+		}).join();
+
+		return elementos.length;
+	}
+
+	/**
+	 * Lee y analiza un fragmento de archivo. Los errores de lectura se guardan en
+	 * el resultado para comunicarlos desde el hilo que espera a la tarea.
+	 *
+	 * @param canal    el canal del archivo
+	 * @param inicio   el desplazamiento inicial del fragmento
+	 * @param longitud la longitud del fragmento
+	 * @return el resultado del fragmento
+	 */
+	private static Parcial analizarFragmento(FileChannel canal, long inicio, int longitud) {
+		Parcial parcial;
+
+		try {
+			parcial = analizarFragmento(leer(canal, inicio, longitud), inicio);
+		} catch (IOException e) {
+			parcial = new Parcial(0);
+			parcial.errorLectura = e;
+		}
+
+		return parcial;
+	}
+
+	/**
+	 * Analiza las líneas de un fragmento de archivo ya leído.
+	 *
+	 * @param texto  los bytes del fragmento
+	 * @param inicio el desplazamiento del fragmento en el archivo
+	 * @return el resultado del fragmento
+	 */
+	private static Parcial analizarFragmento(byte[] texto, long inicio) {
+		Parcial parcial;
+		int desde = 0, hasta, fin;
+
+		parcial = new Parcial(texto.length / LONGITUD_ESTIMADA_LÍNEA);
+		while (desde < texto.length && parcial.error < 0) {
+			fin = desde;
+			while (fin < texto.length && texto[fin] != '\n') {
+				fin++;
+			}
+			hasta = (fin > desde && texto[fin - 1] == '\r') ? fin - 1 : fin;
+
+			if (hasta > desde) {
+				try {
+					parcial.añadir(CódecCSVIPv4.analizar(texto, desde, hasta));
+				} catch (NúmeroIPv4Exception e) {
+					parcial.error = inicio + desde;
+				}
+			}
+			desde = fin + 1;
+		}
+
+		return parcial;
+	}
+
+	/**
+	 * Analiza un fragmento de una tabla de líneas.
+	 *
+	 * @param líneas la tabla de líneas
+	 * @param desde  la primera línea, incluida
+	 * @param hasta  la última línea, excluida
+	 * @return el resultado del fragmento
+	 */
+	private static Parcial analizarFragmento(CharSequence[] líneas, int desde, int hasta) {
+		Parcial parcial;
+
+		parcial = new Parcial(hasta - desde);
+		for (int i = desde; i < hasta && parcial.error < 0; i++) {
+			if (líneas[i].length() > 0) {
+				try {
+					parcial.añadir(CódecCSVIPv4.analizar(líneas[i]));
+				} catch (NúmeroIPv4Exception e) {
+					parcial.error = i;
+				}
+			}
+		}
+
+		return parcial;
+	}
+
+	/**
+	 * Une los resultados parciales en una sola tabla, en su orden.
+	 *
+	 * @param parciales los resultados parciales
+	 * @return la tabla de registros completa
+	 */
+	private static long[] concatenar(List<Parcial> parciales) {
+		long[] resultado;
+		long total = 0;
+		int pos = 0;
+
+		for (Parcial parcial : parciales) {
+			total += parcial.tamaño;
+		}
+		if (total > Integer.MAX_VALUE - 8) {
+			throw new OutOfMemoryError(String.format("Demasiados registros: %d", total));
+		}
+
+		resultado = new long[(int) total];
+		for (Parcial parcial : parciales) {
+			System.arraycopy(parcial.registros, 0, resultado, pos, parcial.tamaño);
+			pos += parcial.tamaño;
+			parcial.registros = null; // Se libera cuanto antes
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Localiza el final de la línea que contiene una posición.
+	 *
+	 * @param canal    el canal del archivo
+	 * @param desde    la posición desde la que buscar
+	 * @param longitud la longitud del archivo
+	 * @return la posición siguiente al salto de línea, o la longitud del archivo
+	 *         si no hay más saltos
+	 * @throws IOException si se produce algún error de lectura
+	 */
+	private static long finDeLínea(FileChannel canal, long desde, long longitud) throws IOException {
+		ByteBuffer búfer = ByteBuffer.allocate(TAMAÑO_EXPLORACIÓN);
+		long pos = desde, resultado = -1;
+
+		while (resultado < 0 && pos < longitud) {
+			búfer.clear();
+			if (canal.read(búfer, pos) < 0) {
+				break;
+			}
+			for (int i = 0; i < búfer.position() && resultado < 0; i++) {
+				if (búfer.get(i) == '\n') {
+					resultado = pos + i + 1;
+				}
+			}
+			pos += búfer.position();
+		}
+
+		return (resultado < 0) ? longitud : resultado;
+	}
+
+	/**
+	 * Lee un fragmento completo de un archivo con lecturas posicionales, que no
+	 * interfieren con las de otros hilos.
+	 *
+	 * @param canal    el canal del archivo
+	 * @param inicio   el desplazamiento inicial
+	 * @param longitud el número de bytes a leer
+	 * @return los bytes leídos
+	 * @throws IOException si se produce algún error de lectura o el archivo se
+	 *                     acorta mientras tanto
+	 */
+	private static byte[] leer(FileChannel canal, long inicio, int longitud) throws IOException {
+		byte[] texto = new byte[longitud];
+		ByteBuffer búfer = ByteBuffer.wrap(texto);
+
+		while (búfer.hasRemaining()) {
+			if (canal.read(búfer, inicio + búfer.position()) < 0) {
+				throw new IOException("El archivo ha cambiado durante la lectura");
+			}
+		}
+
+		return texto;
+	}
+
+	/**
+	 * Prepara la excepción correspondiente a una línea mal formada de un archivo,
+	 * volviendo a analizarla por separado para obtener la posición del error
+	 * dentro de la línea. Solo se emplea en caso de error.
+	 *
+	 * @param canal    el canal del archivo
+	 * @param inicio   el desplazamiento del inicio de la línea
+	 * @param longitud la longitud del archivo
+	 * @return la excepción preparada
+	 * @throws IOException si se produce algún error de lectura
+	 */
+	private static LíneaCSVException errorArchivo(FileChannel canal, long inicio, long longitud)
+			throws IOException {
+		ByteBuffer búfer = ByteBuffer.allocate(TAMAÑO_EXPLORACIÓN);
+		byte[] línea;
+		long númeroLínea = 1, fin;
+		int hasta;
+
+		for (long pos = 0; pos < inicio; pos += búfer.position()) {
+			búfer.clear();
+			búfer.limit((int) Math.min(TAMAÑO_EXPLORACIÓN, inicio - pos));
+			if (canal.read(búfer, pos) < 0) {
+				throw new IOException("El archivo ha cambiado durante la lectura");
+			}
+			for (int i = 0; i < búfer.position(); i++) {
+				if (búfer.get(i) == '\n') {
+					númeroLínea++;
+				}
+			}
+		}
+
+		fin = finDeLínea(canal, inicio, longitud);
+		línea = leer(canal, inicio, (int) (fin - inicio));
+		hasta = línea.length;
+		while (hasta > 0 && (línea[hasta - 1] == '\n' || línea[hasta - 1] == '\r')) {
+			hasta--;
+		}
+
+		try {
+			CódecCSVIPv4.analizar(línea, 0, hasta);
+		} catch (NúmeroIPv4Exception e) {
+			return new LíneaCSVException(númeroLínea, e);
+		}
+		throw new IOException("El archivo ha cambiado durante la lectura");
+	}
+}
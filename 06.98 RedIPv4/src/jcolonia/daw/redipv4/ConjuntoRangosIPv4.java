@@ -0,0 +1,534 @@
+package jcolonia.daw.redipv4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Conjunto inmutable de direcciones IPv4 representado como rangos disjuntos.
+ * Sirve para combinar listas de redes permitidas o denegadas: unión,
+ * intersección, diferencia y complemento en tiempo lineal, agregación de redes
+ * contiguas —dos «/24» consecutivas forman una «/23»— y conversión a la lista
+ * mínima de redes en formato CIDR.
+ *
+ * <div>Los rangos se guardan en una única tabla de enteros empaquetados sin
+ * signo —inicio y fin incluidos, alternados—, ordenados, sin solapes y sin
+ * rangos contiguos, que se funden al construir el conjunto. Así la
+ * representación de cada conjunto es única y no se crea ningún objeto por
+ * rango.</div>
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class ConjuntoRangosIPv4 {
+	/**
+	 * Interfaz para recorrer los rangos sin crear objetos.
+	 */
+	@FunctionalInterface
+	public interface ConsumidorRango {
+		/**
+		 * Recibe un rango.
+		 *
+		 * @param inicio la primera dirección empaquetada del rango
+		 * @param fin    la última dirección empaquetada del rango
+		 */
+		void aceptar(int inicio, int fin);
+	}
+
+	/**
+	 * Conjunto vacío.
+	 */
+	public static final ConjuntoRangosIPv4 VACÍO = new ConjuntoRangosIPv4(new int[0]);
+
+	/**
+	 * Conjunto de todas las direcciones IPv4.
+	 */
+	public static final ConjuntoRangosIPv4 COMPLETO = new ConjuntoRangosIPv4(new int[] { 0, -1 });
+
+	/**
+	 * Última dirección, como entero largo sin signo.
+	 */
+	private static final long ÚLTIMA = EnteroIPv4.MÁXIMO;
+
+	/**
+	 * Límites de los rangos: inicio y fin, incluidos, de cada rango.
+	 */
+	private final int[] límites;
+
+	/**
+	 * Acumulador de rangos en orden creciente de inicio, que funde los que se
+	 * solapan o son contiguos.
+	 */
+	private static final class Acumulador {
+		/**
+		 * Límites acumulados, ocupados hasta {@link #n}.
+		 */
+		private int[] límites;
+
+		/**
+		 * Número de posiciones ocupadas: el doble del número de rangos.
+		 */
+		private int n;
+
+		/**
+		 * Crea un acumulador vacío.
+		 *
+		 * @param capacidad el número de rangos previsto
+		 */
+		private Acumulador(int capacidad) {
+			límites = new int[Math.max(2, capacidad * 2)];
+		}
+
+		/**
+		 * Añade un rango cuyo inicio no es menor que el de ninguno de los
+		 * anteriores.
+		 *
+		 * @param inicio el inicio del rango, como entero largo sin signo
+		 * @param fin    el fin del rango, como entero largo sin signo
+		 */
+		private void añadir(long inicio, long fin) {
+			if (n > 0 && inicio <= EnteroIPv4.toLong(límites[n - 1]) + 1) {
+				if (fin > EnteroIPv4.toLong(límites[n - 1])) {
+					límites[n - 1] = (int) fin;
+				}
+			} else {
+				if (n == límites.length) {
+					límites = Arrays.copyOf(límites, n * 2);
+				}
+				límites[n++] = (int) inicio;
+				límites[n++] = (int) fin;
+			}
+		}
+
+		/**
+		 * Crea el conjunto con los rangos acumulados.
+		 *
+		 * @return el conjunto correspondiente
+		 */
+		private ConjuntoRangosIPv4 crear() {
+			return (n == 0) ? VACÍO : new ConjuntoRangosIPv4(Arrays.copyOf(límites, n));
+		}
+	}
+
+	/**
+	 * Crea el conjunto sobre unos límites ya normalizados.
+	 *
+	 * @param límites los límites de los rangos
+	 */
+	private ConjuntoRangosIPv4(int[] límites) {
+		this.límites = límites;
+	}
+
+	/**
+	 * Crea un conjunto con un único rango.
+	 *
+	 * @param inicio la primera dirección empaquetada
+	 * @param fin    la última dirección empaquetada
+	 * @return el conjunto correspondiente
+	 * @throws NúmeroIPv4Exception si el inicio es posterior al fin
+	 */
+	public static ConjuntoRangosIPv4 of(int inicio, int fin) {
+		verificarRango(inicio, fin);
+		return new ConjuntoRangosIPv4(new int[] { inicio, fin });
+	}
+
+	/**
+	 * Crea un conjunto con las direcciones de una red.
+	 *
+	 * @param dirección   una dirección cualquiera de la red
+	 * @param máscaraCIDR la longitud de la máscara
+	 * @return el conjunto correspondiente
+	 * @throws NúmeroIPv4Exception si la longitud de máscara está fuera de rango
+	 */
+	public static ConjuntoRangosIPv4 ofRed(int dirección, int máscaraCIDR) {
+		return new ConjuntoRangosIPv4(
+				new int[] { EnteroIPv4.red(dirección, máscaraCIDR), EnteroIPv4.difusión(dirección, máscaraCIDR) });
+	}
+
+	/**
+	 * Crea un conjunto con las direcciones de varias redes, en cualquier orden y
+	 * con solapes o repeticiones.
+	 *
+	 * @param redes las identificaciones de las redes
+	 * @return el conjunto correspondiente
+	 */
+	public static ConjuntoRangosIPv4 of(Collection<IdentificaciónIPv4> redes) {
+		long[] claves = new long[redes.size()];
+		int n = 0, ip, máscaraCIDR;
+
+		for (IdentificaciónIPv4 red : redes) {
+			ip = RegistroIPv4.dirección(red.getRegistro());
+			máscaraCIDR = red.getMáscaraCIDR();
+			claves[n++] = clave(EnteroIPv4.red(ip, máscaraCIDR), EnteroIPv4.difusión(ip, máscaraCIDR));
+		}
+
+		return crear(claves, n);
+	}
+
+	/**
+	 * Crea un conjunto con las direcciones de varias redes dadas como
+	 * {@link RegistroIPv4 registros empaquetados}.
+	 *
+	 * @param registros la tabla de registros
+	 * @param número    el número de registros de la tabla a considerar
+	 * @return el conjunto correspondiente
+	 */
+	public static ConjuntoRangosIPv4 of(long[] registros, int número) {
+		long[] claves = new long[número];
+
+		for (int i = 0; i < número; i++) {
+			claves[i] = clave(RegistroIPv4.red(registros[i]), RegistroIPv4.difusión(registros[i]));
+		}
+
+		return crear(claves, número);
+	}
+
+	/**
+	 * Crea un conjunto con rangos arbitrarios dados como pares de inicio y fin,
+	 * en cualquier orden y con solapes.
+	 *
+	 * @param pares los límites de los rangos: inicio y fin, incluidos, de cada
+	 *              uno
+	 * @return el conjunto correspondiente
+	 * @throws NúmeroIPv4Exception si el número de límites es impar o algún
+	 *                             inicio es posterior a su fin
+	 */
+	public static ConjuntoRangosIPv4 ofRangos(int... pares) {
+		long[] claves;
+
+		if (pares.length % 2 != 0) {
+			throw new NúmeroIPv4Exception("Número impar de límites de rango");
+		}
+
+		claves = new long[pares.length / 2];
+		for (int i = 0; i < claves.length; i++) {
+			verificarRango(pares[2 * i], pares[2 * i + 1]);
+			claves[i] = clave(pares[2 * i], pares[2 * i + 1]);
+		}
+
+		return crear(claves, claves.length);
+	}
+
+	/**
+	 * Comprueba que el inicio de un rango no sea posterior a su fin.
+	 *
+	 * @param inicio la primera dirección empaquetada
+	 * @param fin    la última dirección empaquetada
+	 * @throws NúmeroIPv4Exception si el inicio es posterior al fin
+	 */
+	private static void verificarRango(int inicio, int fin) {
+		if (Integer.compareUnsigned(inicio, fin) > 0) {
+			throw new NúmeroIPv4Exception(String.format("Rango invertido: %s-%s", EscritorIPv4.toString(inicio),
+					EscritorIPv4.toString(fin)));
+		}
+	}
+
+	/**
+	 * Empaqueta un rango en una clave cuyo orden con signo coincide con el orden
+	 * sin signo de los inicios.
+	 *
+	 * @param inicio la primera dirección empaquetada
+	 * @param fin    la última dirección empaquetada
+	 * @return la clave correspondiente
+	 */
+	private static long clave(int inicio, int fin) {
+		return (long) (inicio ^ Integer.MIN_VALUE) << 32 | EnteroIPv4.toLong(fin);
+	}
+
+	/**
+	 * Ordena y funde los rangos dados como claves.
+	 *
+	 * @param claves las claves de los rangos; se reordenan
+	 * @param número el número de claves a considerar
+	 * @return el conjunto correspondiente
+	 */
+	private static ConjuntoRangosIPv4 crear(long[] claves, int número) {
+		Acumulador acumulador = new Acumulador(número);
+
+		Arrays.sort(claves, 0, número);
+		for (int i = 0; i < número; i++) {
+			acumulador.añadir(EnteroIPv4.toLong((int) (claves[i] >>> 32) ^ Integer.MIN_VALUE),
+					claves[i] & ÚLTIMA);
+		}
+
+		return acumulador.crear();
+	}
+
+	/**
+	 * Calcula la unión con otro conjunto, en tiempo lineal.
+	 *
+	 * @param otro el otro conjunto
+	 * @return las direcciones que están en alguno de los dos
+	 */
+	public ConjuntoRangosIPv4 unión(ConjuntoRangosIPv4 otro) {
+		Acumulador acumulador = new Acumulador(size() + otro.size());
+		int i = 0, j = 0;
+
+		while (i < límites.length || j < otro.límites.length) {
+			if (j == otro.límites.length || (i < límites.length
+					&& Integer.compareUnsigned(límites[i], otro.límites[j]) <= 0)) {
+				acumulador.añadir(EnteroIPv4.toLong(límites[i]), EnteroIPv4.toLong(límites[i + 1]));
+				i += 2;
+			} else {
+				acumulador.añadir(EnteroIPv4.toLong(otro.límites[j]), EnteroIPv4.toLong(otro.límites[j + 1]));
+				j += 2;
+			}
+		}
+
+		return acumulador.crear();
+	}
+
+	/**
+	 * Calcula la intersección con otro conjunto, en tiempo lineal.
+	 *
+	 * @param otro el otro conjunto
+	 * @return las direcciones que están en los dos
+	 */
+	public ConjuntoRangosIPv4 intersección(ConjuntoRangosIPv4 otro) {
+		Acumulador acumulador = new Acumulador(Math.max(size(), otro.size()));
+		long inicio, fin, fin1, fin2;
+		int i = 0, j = 0;
+
+		while (i < límites.length && j < otro.límites.length) {
+			fin1 = EnteroIPv4.toLong(límites[i + 1]);
+			fin2 = EnteroIPv4.toLong(otro.límites[j + 1]);
+			inicio = Math.max(EnteroIPv4.toLong(límites[i]), EnteroIPv4.toLong(otro.límites[j]));
+			fin = Math.min(fin1, fin2);
+			if (inicio <= fin) {
+				acumulador.añadir(inicio, fin);
+			}
+
+			if (fin1 <= fin2) {
+				i += 2;
+			} else {
+				j += 2;
+			}
+		}
+
+		return acumulador.crear();
+	}
+
+	/**
+	 * Calcula el complemento, en tiempo lineal.
+	 *
+	 * @return las direcciones que no están en el conjunto
+	 */
+	public ConjuntoRangosIPv4 complemento() {
+		Acumulador acumulador = new Acumulador(size() + 1);
+		long siguiente = 0;
+
+		for (int i = 0; i < límites.length; i += 2) {
+			if (EnteroIPv4.toLong(límites[i]) > siguiente) {
+				acumulador.añadir(siguiente, EnteroIPv4.toLong(límites[i]) - 1);
+			}
+			siguiente = EnteroIPv4.toLong(límites[i + 1]) + 1;
+		}
+		if (siguiente <= ÚLTIMA) {
+			acumulador.añadir(siguiente, ÚLTIMA);
+		}
+
+		return acumulador.crear();
+	}
+
+	/**
+	 * Calcula la diferencia con otro conjunto, en tiempo lineal.
+	 *
+	 * @param otro el conjunto de direcciones a excluir
+	 * @return las direcciones que están en este conjunto y no en el otro
+	 */
+	public ConjuntoRangosIPv4 diferencia(ConjuntoRangosIPv4 otro) {
+		return intersección(otro.complemento());
+	}
+
+	/**
+	 * Comprueba si una dirección pertenece al conjunto, por búsqueda binaria.
+	 *
+	 * @param dirección la dirección empaquetada
+	 * @return si pertenece o no
+	 */
+	public boolean contiene(int dirección) {
+		int inferior = 0, superior = size(), medio;
+
+		// Último rango cuyo inicio no es posterior a la dirección
+		while (inferior < superior) {
+			medio = (inferior + superior) >>> 1;
+			if (Integer.compareUnsigned(límites[2 * medio], dirección) <= 0) {
+				inferior = medio + 1;
+			} else {
+				superior = medio;
+			}
+		}
+
+		return inferior > 0 && Integer.compareUnsigned(dirección, límites[2 * inferior - 1]) <= 0;
+	}
+
+	/**
+	 * Comprueba si una dirección pertenece al conjunto. Véase
+	 * {@link #contiene(int)}.
+	 *
+	 * @param dirección la dirección
+	 * @return si pertenece o no
+	 */
+	public boolean contiene(NúmeroIPv4 dirección) {
+		return contiene(dirección.valor());
+	}
+
+	/**
+	 * Indica si el conjunto está vacío.
+	 *
+	 * @return si está vacío o no
+	 */
+	public boolean isEmpty() {
+		return límites.length == 0;
+	}
+
+	/**
+	 * Devuelve el número de rangos disjuntos.
+	 *
+	 * @return el número de rangos
+	 */
+	public int size() {
+		return límites.length / 2;
+	}
+
+	/**
+	 * Facilita la primera dirección de un rango.
+	 *
+	 * @param pos la posición del rango
+	 * @return la dirección empaquetada
+	 */
+	public int getInicio(int pos) {
+		return límites[2 * pos];
+	}
+
+	/**
+	 * Facilita la última dirección de un rango.
+	 *
+	 * @param pos la posición del rango
+	 * @return la dirección empaquetada
+	 */
+	public int getFin(int pos) {
+		return límites[2 * pos + 1];
+	}
+
+	/**
+	 * Recorre los rangos en orden sin crear objetos.
+	 *
+	 * @param acción la acción a aplicar a cada rango
+	 */
+	public void recorrer(ConsumidorRango acción) {
+		for (int i = 0; i < límites.length; i += 2) {
+			acción.aceptar(límites[i], límites[i + 1]);
+		}
+	}
+
+	/**
+	 * Calcula el número total de direcciones del conjunto. Coincide con la suma
+	 * de {@link NúmeroIPv4#capacidadRed(int)} sobre las redes de
+	 * {@link #aRedes()}: se cuentan todas las direcciones, incluidas las de red y
+	 * difusión.
+	 *
+	 * @return el número de direcciones, hasta 2<sup>32</sup>
+	 */
+	public long númeroDirecciones() {
+		long total = 0;
+
+		for (int i = 0; i < límites.length; i += 2) {
+			total += EnteroIPv4.toLong(límites[i + 1]) - EnteroIPv4.toLong(límites[i]) + 1;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Descompone el conjunto en la lista mínima de redes en formato CIDR, como
+	 * {@link RegistroIPv4 registros empaquetados} en orden creciente.
+	 *
+	 * @return la tabla de registros
+	 */
+	public long[] aRegistros() {
+		long[] registros = new long[límites.length];
+		long inicio, fin, tamaño;
+		int bits, n = 0;
+
+		for (int i = 0; i < límites.length; i += 2) {
+			inicio = EnteroIPv4.toLong(límites[i]);
+			fin = EnteroIPv4.toLong(límites[i + 1]);
+			while (inicio <= fin) {
+				// Mayor bloque alineado en el inicio que no sobrepasa el fin
+				bits = Math.min(Long.numberOfTrailingZeros(inicio | 1L << EnteroIPv4.BITS),
+						Long.SIZE - 1 - Long.numberOfLeadingZeros(fin - inicio + 1));
+				tamaño = 1L << bits;
+
+				if (n == registros.length) {
+					registros = Arrays.copyOf(registros, n * 2);
+				}
+				registros[n++] = RegistroIPv4.of((int) inicio, EnteroIPv4.BITS - bits);
+				inicio += tamaño;
+			}
+		}
+
+		return Arrays.copyOf(registros, n);
+	}
+
+	/**
+	 * Descompone el conjunto en la lista mínima de redes en formato CIDR. Véase
+	 * {@link #aRegistros()}.
+	 *
+	 * @return la lista de identificaciones de red, en orden creciente
+	 */
+	public List<IdentificaciónIPv4> aRedes() {
+		long[] registros = aRegistros();
+		List<IdentificaciónIPv4> redes = new ArrayList<>(registros.length);
+
+		for (long registro : registros) {
+			redes.add(IdentificaciónIPv4.ofRegistro(registro));
+		}
+
+		return redes;
+	}
+
+	/**
+	 * Compara con otro conjunto: son iguales si contienen las mismas direcciones.
+	 *
+	 * @param otro el objeto a comparar
+	 * @return si son iguales o no
+	 */
+	@Override
+	public boolean equals(Object otro) {
+		return this == otro || (otro instanceof ConjuntoRangosIPv4 conjunto && Arrays.equals(límites, conjunto.límites));
+	}
+
+	/**
+	 * Calcula el código hash a partir de los rangos.
+	 *
+	 * @return el código hash
+	 */
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(límites);
+	}
+
+	/**
+	 * Facilita la lista de rangos en formato «inicio-fin», separados por comas.
+	 *
+	 * @return el texto correspondiente
+	 */
+	@Override
+	public String toString() {
+		StringJoiner texto = new StringJoiner(", ", "[", "]");
+		StringBuilder rango = new StringBuilder(2 * EscritorIPv4.MÁX_LONGITUD + 1);
+
+		for (int i = 0; i < límites.length; i += 2) {
+			rango.setLength(0);
+			EscritorIPv4.escribir(límites[i], rango);
+			rango.append('-');
+			EscritorIPv4.escribir(límites[i + 1], rango);
+			texto.add(rango);
+		}
+
+		return texto.toString();
+	}
+}
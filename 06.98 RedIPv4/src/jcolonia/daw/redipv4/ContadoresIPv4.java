@@ -0,0 +1,245 @@
+package jcolonia.daw.redipv4;
+
+import java.util.Arrays;
+
+/**
+ * Contadores de tráfico —bytes y paquetes— por red, en una tabla de dispersión
+ * de direccionamiento abierto sobre tablas de tipos primitivos: ni las claves
+ * ni los contadores se encapsulan en objetos, de modo que sumar tráfico no crea
+ * basura.
+ *
+ * <div>Cada red se identifica por un {@link RegistroIPv4 registro}
+ * empaquetado con su dirección de red y su longitud de máscara. Las colisiones
+ * se resuelven por sondeo lineal y la tabla dobla su capacidad al llegar a la
+ * mitad de ocupación.</div>
+ *
+ * <div>No es seguro entre hilos: {@link AgregadorFlujosIPv4} reparte los
+ * contadores en una tabla por hilo y las fusiona al consultarlas.</div>
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class ContadoresIPv4 {
+	/**
+	 * Capacidad inicial de la tabla. Potencia de dos.
+	 */
+	private static final int CAPACIDAD_INICIAL = 64;
+
+	/**
+	 * Marca de posición libre. Ningún registro válido tiene todos los bits a uno,
+	 * pues su longitud de máscara sería 63.
+	 */
+	private static final long LIBRE = -1L;
+
+	/**
+	 * Multiplicador de la dispersión de Fibonacci: 2<sup>64</sup> entre la razón
+	 * áurea.
+	 */
+	private static final long DISPERSIÓN = 0x9E37_79B9_7F4A_7C15L;
+
+	/**
+	 * Receptor de los contadores de cada red durante un recorrido.
+	 */
+	@FunctionalInterface
+	public interface ConsumidorContadores {
+		/**
+		 * Recibe los contadores de una red.
+		 *
+		 * @param red         la dirección de red empaquetada
+		 * @param máscaraCIDR la longitud de la máscara
+		 * @param bytes       el total de bytes
+		 * @param paquetes    el total de paquetes
+		 */
+		void aceptar(int red, int máscaraCIDR, long bytes, long paquetes);
+	}
+
+	/**
+	 * Claves de cada posición, o {@link #LIBRE}.
+	 */
+	private long[] claves;
+
+	/**
+	 * Contadores de cada posición: bytes en la posición par y paquetes en la
+	 * impar siguiente.
+	 */
+	private long[] valores;
+
+	/**
+	 * Número de redes con contadores.
+	 */
+	private int tamaño;
+
+	/**
+	 * Desplazamiento que reduce la dispersión a una posición de la tabla: 64
+	 * menos el logaritmo de la capacidad.
+	 */
+	private int desplazamiento;
+
+	/**
+	 * Crea una tabla vacía.
+	 */
+	public ContadoresIPv4() {
+		reservar(CAPACIDAD_INICIAL);
+	}
+
+	/**
+	 * Suma tráfico a los contadores de una red, creándolos si no existían.
+	 *
+	 * @param red         cualquier dirección de la red, empaquetada
+	 * @param máscaraCIDR la longitud de la máscara, de 0 a 32
+	 * @param bytes       los bytes a sumar
+	 * @param paquetes    los paquetes a sumar
+	 * @throws NúmeroIPv4Exception si la máscara está fuera de rango
+	 */
+	public void sumar(int red, int máscaraCIDR, long bytes, long paquetes) {
+		sumar(RegistroIPv4.of(EnteroIPv4.red(red, máscaraCIDR), máscaraCIDR), bytes, paquetes);
+	}
+
+	/**
+	 * Suma tráfico a los contadores de una clave ya normalizada.
+	 *
+	 * @param clave    el registro con la dirección de red y la máscara
+	 * @param bytes    los bytes a sumar
+	 * @param paquetes los paquetes a sumar
+	 */
+	void sumar(long clave, long bytes, long paquetes) {
+		int pos = posición(clave);
+
+		if (claves[pos] == LIBRE) {
+			claves[pos] = clave;
+			tamaño++;
+			valores[2 * pos] = bytes;
+			valores[2 * pos + 1] = paquetes;
+			if (2 * tamaño > claves.length) {
+				reservar(2 * claves.length);
+			}
+		} else {
+			valores[2 * pos] += bytes;
+			valores[2 * pos + 1] += paquetes;
+		}
+	}
+
+	/**
+	 * Suma a esta tabla todos los contadores de otra.
+	 *
+	 * @param otra la tabla a sumar, que no se modifica
+	 */
+	public void fusionar(ContadoresIPv4 otra) {
+		for (int i = 0; i < otra.claves.length; i++) {
+			if (otra.claves[i] != LIBRE) {
+				sumar(otra.claves[i], otra.valores[2 * i], otra.valores[2 * i + 1]);
+			}
+		}
+	}
+
+	/**
+	 * Consulta el total de bytes de una red.
+	 *
+	 * @param red         la dirección de red empaquetada
+	 * @param máscaraCIDR la longitud de la máscara, de 0 a 32
+	 * @return el total de bytes, o 0 si la red no tiene contadores
+	 */
+	public long getBytes(int red, int máscaraCIDR) {
+		int pos = posición(RegistroIPv4.of(EnteroIPv4.red(red, máscaraCIDR), máscaraCIDR));
+		return (claves[pos] == LIBRE) ? 0 : valores[2 * pos];
+	}
+
+	/**
+	 * Consulta el total de paquetes de una red.
+	 *
+	 * @param red         la dirección de red empaquetada
+	 * @param máscaraCIDR la longitud de la máscara, de 0 a 32
+	 * @return el total de paquetes, o 0 si la red no tiene contadores
+	 */
+	public long getPaquetes(int red, int máscaraCIDR) {
+		int pos = posición(RegistroIPv4.of(EnteroIPv4.red(red, máscaraCIDR), máscaraCIDR));
+		return (claves[pos] == LIBRE) ? 0 : valores[2 * pos + 1];
+	}
+
+	/**
+	 * Devuelve el número de redes con contadores.
+	 *
+	 * @return el número de redes
+	 */
+	public int size() {
+		return tamaño;
+	}
+
+	/**
+	 * Elimina todos los contadores, conservando la capacidad reservada.
+	 */
+	public void vaciar() {
+		Arrays.fill(claves, LIBRE);
+		tamaño = 0;
+	}
+
+	/**
+	 * Recorre los contadores de todas las redes en el orden natural de los
+	 * {@link RegistroIPv4 registros}: por dirección de red y, a igual red, de la
+	 * máscara más corta a la más larga.
+	 *
+	 * @param acción la acción a realizar con cada red
+	 */
+	public void recorrer(ConsumidorContadores acción) {
+		long[] ordenadas = new long[tamaño];
+		int n = 0, pos;
+
+		for (long clave : claves) {
+			if (clave != LIBRE) {
+				ordenadas[n++] = clave;
+			}
+		}
+		RegistroIPv4.ordenar(ordenadas, 0, n);
+
+		for (long clave : ordenadas) {
+			pos = posición(clave);
+			acción.aceptar(RegistroIPv4.dirección(clave), RegistroIPv4.máscaraCIDR(clave), valores[2 * pos],
+					valores[2 * pos + 1]);
+		}
+	}
+
+	/**
+	 * Localiza la posición de una clave o, si no está, la posición libre donde le
+	 * correspondería estar.
+	 *
+	 * @param clave la clave buscada
+	 * @return la posición encontrada
+	 */
+	private int posición(long clave) {
+		int máscara = claves.length - 1;
+		int pos = (int) ((clave * DISPERSIÓN) >>> desplazamiento);
+
+		while (claves[pos] != LIBRE && claves[pos] != clave) {
+			pos = (pos + 1) & máscara;
+		}
+
+		return pos;
+	}
+
+	/**
+	 * Reserva una tabla nueva con la capacidad indicada y reubica en ella los
+	 * contadores existentes.
+	 *
+	 * @param capacidad la nueva capacidad, potencia de dos
+	 */
+	private void reservar(int capacidad) {
+		long[] clavesAntiguas = claves, valoresAntiguos = valores;
+		int pos;
+
+		claves = new long[capacidad];
+		valores = new long[2 * capacidad];
+		desplazamiento = Long.SIZE - Integer.numberOfTrailingZeros(capacidad);
+		Arrays.fill(claves, LIBRE);
+
+		if (clavesAntiguas != null) {
+			for (int i = 0; i < clavesAntiguas.length; i++) {
+				if (clavesAntiguas[i] != LIBRE) {
+					pos = posición(clavesAntiguas[i]);
+					claves[pos] = clavesAntiguas[i];
+					valores[2 * pos] = valoresAntiguos[2 * i];
+					valores[2 * pos + 1] = valoresAntiguos[2 * i + 1];
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,403 @@
+package jcolonia.daw.redipv4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Codificación y decodificación de las líneas pseudo-CSV de
+ * {@link IdentificaciónIPv4#toStringCSV()} —«192.168.32.11#24»— directamente
+ * sobre registros empaquetados de {@link RegistroIPv4}, sin expresiones
+ * regulares ni textos intermedios.
+ *
+ * <div>La decodificación trabaja sobre fragmentos de {@link CharSequence},
+ * <code>char[]</code>, <code>byte[]</code> o {@link ByteBuffer}, de modo que
+ * un mismo búfer puede reutilizarse para todas las líneas de un archivo. La
+ * máscara puede darse como longitud —«24»— o con la notación de puntos
+ * —«255.255.255.0»—. Se admiten campos extra tras la máscara, pero se ignora
+ * lo que sobre. Ante cualquier error se lanza una {@link NúmeroIPv4Exception}
+ * indicando la posición del carácter problemático, contada desde el inicio del
+ * texto completo.</div>
+ *
+ * <div>La codificación escribe siempre la longitud de la máscara, en un
+ * máximo de {@value #MÁX_LONGITUD} caracteres ASCII. Las variantes sobre
+ * <code>byte[]</code>, <code>char[]</code>, {@link ByteBuffer} y
+ * {@link StringBuilder} no crean ningún objeto.</div>
+ *
+ * @version 0.3 (20261018002)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class CódecCSVIPv4 {
+	/**
+	 * Separador de los campos: «#» (almohadilla, número…).
+	 */
+	public static final char SEPARADOR = '#';
+
+	/**
+	 * Longitud máxima de una línea codificada: «255.255.255.255#32».
+	 */
+	public static final int MÁX_LONGITUD = EscritorIPv4.MÁX_LONGITUD + 3;
+
+	/**
+	 * Clase de utilidad: no se crean objetos.
+	 */
+	private CódecCSVIPv4() {
+	}
+
+	/**
+	 * Analiza un texto completo.
+	 *
+	 * @param texto el texto a analizar
+	 * @return el registro empaquetado
+	 * @throws NúmeroIPv4Exception si el texto está mal formado
+	 */
+	public static long analizar(CharSequence texto) {
+		return analizar(texto, 0, texto.length());
+	}
+
+	/**
+	 * Analiza un fragmento de texto.
+	 *
+	 * @param texto el texto a analizar
+	 * @param desde la posición inicial, incluida
+	 * @param hasta la posición final, excluida
+	 * @return el registro empaquetado
+	 * @throws NúmeroIPv4Exception si el fragmento está mal formado
+	 */
+	public static long analizar(CharSequence texto, int desde, int hasta) {
+		int separador, finMáscara, máscaraCIDR, carácter;
+		boolean conPuntos = false;
+
+		Objects.checkFromToIndex(desde, hasta, texto.length());
+		separador = desde;
+		while (separador < hasta && texto.charAt(separador) != SEPARADOR) {
+			separador++;
+		}
+		verificarSeparador(separador, hasta);
+
+		finMáscara = separador + 1;
+		while (finMáscara < hasta && (carácter = texto.charAt(finMáscara)) != SEPARADOR) {
+			conPuntos |= carácter == '.';
+			finMáscara++;
+		}
+
+		if (conPuntos) {
+			máscaraCIDR = EnteroIPv4.longitudPrefijo(AnalizadorIPv4.analizar(texto, separador + 1, finMáscara));
+		} else {
+			máscaraCIDR = analizarLongitud(texto, separador + 1, finMáscara);
+		}
+
+		return RegistroIPv4.of(AnalizadorIPv4.analizar(texto, desde, separador), máscaraCIDR);
+	}
+
+	/**
+	 * Analiza un fragmento de una tabla de caracteres.
+	 *
+	 * @param texto la tabla de caracteres
+	 * @param desde la posición inicial, incluida
+	 * @param hasta la posición final, excluida
+	 * @return el registro empaquetado
+	 * @throws NúmeroIPv4Exception si el fragmento está mal formado
+	 */
+	public static long analizar(char[] texto, int desde, int hasta) {
+		int separador, finMáscara, máscaraCIDR, carácter;
+		boolean conPuntos = false;
+
+		Objects.checkFromToIndex(desde, hasta, texto.length);
+		separador = desde;
+		while (separador < hasta && texto[separador] != SEPARADOR) {
+			separador++;
+		}
+		verificarSeparador(separador, hasta);
+
+		finMáscara = separador + 1;
+		while (finMáscara < hasta && (carácter = texto[finMáscara]) != SEPARADOR) {
+			conPuntos |= carácter == '.';
+			finMáscara++;
+		}
+
+		if (conPuntos) {
+			máscaraCIDR = EnteroIPv4.longitudPrefijo(AnalizadorIPv4.analizar(texto, separador + 1, finMáscara));
+		} else {
+			máscaraCIDR = 0;
+			for (int i = separador + 1; i < finMáscara; i++) {
+				máscaraCIDR = acumularDígito(máscaraCIDR, texto[i], i, separador + 1);
+			}
+			verificarLongitud(máscaraCIDR, separador + 1, finMáscara);
+		}
+
+		return RegistroIPv4.of(AnalizadorIPv4.analizar(texto, desde, separador), máscaraCIDR);
+	}
+
+	/**
+	 * Analiza un fragmento de una tabla de bytes en ASCII o UTF-8.
+	 *
+	 * @param texto la tabla de bytes
+	 * @param desde la posición inicial, incluida
+	 * @param hasta la posición final, excluida
+	 * @return el registro empaquetado
+	 * @throws NúmeroIPv4Exception si el fragmento está mal formado
+	 */
+	public static long analizar(byte[] texto, int desde, int hasta) {
+		int separador, finMáscara, máscaraCIDR, carácter;
+		boolean conPuntos = false;
+
+		Objects.checkFromToIndex(desde, hasta, texto.length);
+		separador = desde;
+		while (separador < hasta && (texto[separador] & 0xFF) != SEPARADOR) {
+			separador++;
+		}
+		verificarSeparador(separador, hasta);
+
+		finMáscara = separador + 1;
+		while (finMáscara < hasta && (carácter = (texto[finMáscara] & 0xFF)) != SEPARADOR) {
+			conPuntos |= carácter == '.';
+			finMáscara++;
+		}
+
+		if (conPuntos) {
+			máscaraCIDR = EnteroIPv4.longitudPrefijo(AnalizadorIPv4.analizar(texto, separador + 1, finMáscara));
+		} else {
+			máscaraCIDR = 0;
+			for (int i = separador + 1; i < finMáscara; i++) {
+				máscaraCIDR = acumularDígito(máscaraCIDR, (texto[i] & 0xFF), i, separador + 1);
+			}
+			verificarLongitud(máscaraCIDR, separador + 1, finMáscara);
+		}
+
+		return RegistroIPv4.of(AnalizadorIPv4.analizar(texto, desde, separador), máscaraCIDR);
+	}
+
+	/**
+	 * Analiza un fragmento de un búfer de bytes en ASCII o UTF-8 empleando
+	 * posiciones absolutas, sin alterar la posición ni el límite del búfer.
+	 *
+	 * @param texto el búfer de bytes
+	 * @param desde la posición inicial, incluida
+	 * @param hasta la posición final, excluida
+	 * @return el registro empaquetado
+	 * @throws NúmeroIPv4Exception si el fragmento está mal formado
+	 */
+	public static long analizar(ByteBuffer texto, int desde, int hasta) {
+		int separador, finMáscara, máscaraCIDR, carácter;
+		boolean conPuntos = false;
+
+		Objects.checkFromToIndex(desde, hasta, texto.limit());
+		separador = desde;
+		while (separador < hasta && (texto.get(separador) & 0xFF) != SEPARADOR) {
+			separador++;
+		}
+		verificarSeparador(separador, hasta);
+
+		finMáscara = separador + 1;
+		while (finMáscara < hasta && (carácter = (texto.get(finMáscara) & 0xFF)) != SEPARADOR) {
+			conPuntos |= carácter == '.';
+			finMáscara++;
+		}
+
+		if (conPuntos) {
+			máscaraCIDR = EnteroIPv4.longitudPrefijo(AnalizadorIPv4.analizar(texto, separador + 1, finMáscara));
+		} else {
+			máscaraCIDR = 0;
+			for (int i = separador + 1; i < finMáscara; i++) {
+				máscaraCIDR = acumularDígito(máscaraCIDR, (texto.get(i) & 0xFF), i, separador + 1);
+			}
+			verificarLongitud(máscaraCIDR, separador + 1, finMáscara);
+		}
+
+		return RegistroIPv4.of(AnalizadorIPv4.analizar(texto, desde, separador), máscaraCIDR);
+	}
+
+	/**
+	 * Escribe un registro en una tabla de bytes ASCII.
+	 *
+	 * @param registro el registro empaquetado
+	 * @param destino  la tabla de bytes, con al menos {@value #MÁX_LONGITUD}
+	 *                 posiciones libres a partir de <code>desde</code> para
+	 *                 cualquier registro
+	 * @param desde    la posición donde empezar a escribir
+	 * @return la posición siguiente al último byte escrito
+	 * @throws ArrayIndexOutOfBoundsException si no cabe el texto
+	 */
+	public static int escribir(long registro, byte[] destino, int desde) {
+		int posición, máscaraCIDR = RegistroIPv4.máscaraCIDR(registro);
+
+		posición = EscritorIPv4.escribir(RegistroIPv4.dirección(registro), destino, desde);
+		destino[posición++] = SEPARADOR;
+		if (máscaraCIDR >= 10) {
+			destino[posición++] = (byte) ('0' + máscaraCIDR / 10);
+		}
+		destino[posición++] = (byte) ('0' + máscaraCIDR % 10);
+
+		return posición;
+	}
+
+	/**
+	 * Escribe un registro en una tabla de caracteres.
+	 *
+	 * @param registro el registro empaquetado
+	 * @param destino  la tabla de caracteres, con al menos {@value #MÁX_LONGITUD}
+	 *                 posiciones libres a partir de <code>desde</code> para
+	 *                 cualquier registro
+	 * @param desde    la posición donde empezar a escribir
+	 * @return la posición siguiente al último carácter escrito
+	 * @throws ArrayIndexOutOfBoundsException si no cabe el texto
+	 */
+	public static int escribir(long registro, char[] destino, int desde) {
+		int posición, máscaraCIDR = RegistroIPv4.máscaraCIDR(registro);
+
+		posición = EscritorIPv4.escribir(RegistroIPv4.dirección(registro), destino, desde);
+		destino[posición++] = SEPARADOR;
+		if (máscaraCIDR >= 10) {
+			destino[posición++] = (char) ('0' + máscaraCIDR / 10);
+		}
+		destino[posición++] = (char) ('0' + máscaraCIDR % 10);
+
+		return posición;
+	}
+
+	/**
+	 * Escribe un registro en un búfer de bytes empleando posiciones absolutas,
+	 * sin alterar la posición ni el límite del búfer.
+	 *
+	 * @param registro el registro empaquetado
+	 * @param destino  el búfer de bytes
+	 * @param desde    la posición donde empezar a escribir
+	 * @return la posición siguiente al último byte escrito
+	 * @throws IndexOutOfBoundsException si no cabe el texto
+	 */
+	public static int escribir(long registro, ByteBuffer destino, int desde) {
+		int posición, máscaraCIDR = RegistroIPv4.máscaraCIDR(registro);
+
+		posición = EscritorIPv4.escribir(RegistroIPv4.dirección(registro), destino, desde);
+		destino.put(posición++, (byte) SEPARADOR);
+		if (máscaraCIDR >= 10) {
+			destino.put(posición++, (byte) ('0' + máscaraCIDR / 10));
+		}
+		destino.put(posición++, (byte) ('0' + máscaraCIDR % 10));
+
+		return posición;
+	}
+
+	/**
+	 * Añade un registro al final de un {@link StringBuilder}.
+	 *
+	 * @param registro el registro empaquetado
+	 * @param destino  el texto donde añadirlo
+	 * @return el mismo <code>destino</code>, para encadenar llamadas
+	 */
+	public static StringBuilder escribir(long registro, StringBuilder destino) {
+		EscritorIPv4.escribir(RegistroIPv4.dirección(registro), destino);
+		return destino.append(SEPARADOR).append(RegistroIPv4.máscaraCIDR(registro));
+	}
+
+	/**
+	 * Añade un registro a cualquier destino de caracteres: un
+	 * {@link java.io.Writer Writer}, un {@link java.nio.CharBuffer CharBuffer}…
+	 * Con destinos sincronizados conviene más escribir la línea completa en una
+	 * tabla con {@link #escribir(long, char[], int)} y pasarla de una vez.
+	 *
+	 * @param registro el registro empaquetado
+	 * @param destino  el destino donde añadirlo
+	 * @return el mismo <code>destino</code>, para encadenar llamadas
+	 * @throws IOException si se produce algún error de escritura
+	 */
+	public static Appendable escribir(long registro, Appendable destino) throws IOException {
+		int máscaraCIDR = RegistroIPv4.máscaraCIDR(registro);
+
+		EscritorIPv4.escribir(RegistroIPv4.dirección(registro), destino);
+		destino.append(SEPARADOR);
+		if (máscaraCIDR >= 10) {
+			destino.append((char) ('0' + máscaraCIDR / 10));
+		}
+		destino.append((char) ('0' + máscaraCIDR % 10));
+
+		return destino;
+	}
+
+	/**
+	 * Facilita el texto de un registro. Crea únicamente el texto resultante.
+	 *
+	 * @param registro el registro empaquetado
+	 * @return el texto correspondiente
+	 */
+	public static String toString(long registro) {
+		byte[] texto = new byte[MÁX_LONGITUD];
+		int longitud;
+
+		longitud = escribir(registro, texto, 0);
+		return new String(texto, 0, longitud, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Analiza la longitud de una máscara en formato CIDR: de uno a dos dígitos
+	 * ASCII, sin signo ni ceros a la izquierda, con un valor de 0 a 32.
+	 *
+	 * @param texto el texto a analizar
+	 * @param desde la posición inicial, incluida
+	 * @param hasta la posición final, excluida
+	 * @return la longitud de la máscara
+	 * @throws NúmeroIPv4Exception si el fragmento no es una longitud válida
+	 */
+	static int analizarLongitud(CharSequence texto, int desde, int hasta) {
+		int máscaraCIDR = 0;
+
+		Objects.checkFromToIndex(desde, hasta, texto.length());
+		for (int i = desde; i < hasta; i++) {
+			máscaraCIDR = acumularDígito(máscaraCIDR, texto.charAt(i), i, desde);
+		}
+		verificarLongitud(máscaraCIDR, desde, hasta);
+
+		return máscaraCIDR;
+	}
+
+	/**
+	 * Comprueba que se haya encontrado el separador entre la dirección y la
+	 * máscara.
+	 *
+	 * @param separador la posición del separador
+	 * @param hasta     el final del fragmento
+	 * @throws NúmeroIPv4Exception si se ha llegado al final sin encontrarlo
+	 */
+	private static void verificarSeparador(int separador, int hasta) {
+		if (separador == hasta) {
+			throw new NúmeroIPv4Exception(String.format("Falta la máscara en la posición %d", hasta), hasta);
+		}
+	}
+
+	/**
+	 * Incorpora un dígito a una longitud de máscara en formato CIDR.
+	 *
+	 * @param valor    el valor acumulado
+	 * @param carácter el carácter a incorporar
+	 * @param posición la posición del carácter
+	 * @param inicio   la posición del primer dígito
+	 * @return el nuevo valor acumulado
+	 * @throws NúmeroIPv4Exception si el carácter no es un dígito o la longitud
+	 *                             tiene ceros a la izquierda o más de dos cifras
+	 */
+	private static int acumularDígito(int valor, int carácter, int posición, int inicio) {
+		if (carácter < '0' || carácter > '9' || posición - inicio > 1 || (posición > inicio && valor == 0)) {
+			throw new NúmeroIPv4Exception(
+					String.format("Longitud de máscara no válida: «%c» en la posición %d", (char) carácter, posición),
+					posición);
+		}
+		return valor * 10 + (carácter - '0');
+	}
+
+	/**
+	 * Comprueba una longitud de máscara en formato CIDR ya acumulada.
+	 *
+	 * @param valor  el valor acumulado
+	 * @param inicio la posición del primer dígito
+	 * @param fin    la posición siguiente al último dígito
+	 * @throws NúmeroIPv4Exception si no hay dígitos o el valor está fuera de rango
+	 */
+	private static void verificarLongitud(int valor, int inicio, int fin) {
+		if (fin == inicio || valor > EnteroIPv4.BITS) {
+			throw new NúmeroIPv4Exception(String.format("Longitud de máscara no válida en la posición %d", inicio),
+					inicio);
+		}
+	}
+}
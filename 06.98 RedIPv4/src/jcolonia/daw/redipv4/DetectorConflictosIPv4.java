@@ -0,0 +1,420 @@
+package jcolonia.daw.redipv4;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Detector de conflictos en inventarios de identificaciones IPv4, para revisar
+ * una colección antes de enviarla a los equipos de red: redes duplicadas, redes
+ * contenidas en otras más amplias —que las solapan y, en las listas de primera
+ * coincidencia, las ensombrecen— y direcciones con bits de equipo fuera de su
+ * máscara.
+ *
+ * <div>En lugar de comparar todas las parejas, ordena los elementos por red
+ * —véase {@link RegistroIPv4}— y los recorre una sola vez con una pila de las
+ * redes abiertas: en ese orden, las redes que contienen a un elemento son
+ * exactamente las que siguen en la pila al llegar a él. El coste total es
+ * <i>O(n log n)</i> por la ordenación, más un recorrido lineal.</div>
+ *
+ * <div>Los conflictos se facilitan como un flujo perezoso, en el orden de las
+ * redes. En modo paralelo, la ordenación y el recorrido se reparten entre los
+ * hilos de la piscina común: cada tramo reconstruye su pila inicial con una
+ * búsqueda binaria por cada longitud de máscara.</div>
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class DetectorConflictosIPv4 {
+	/**
+	 * Número de registros por debajo del cual no se divide el trabajo en modo
+	 * paralelo.
+	 */
+	private static final int UMBRAL_PARALELO = 1 << 14;
+
+	/**
+	 * Tipo de conflicto.
+	 */
+	public enum TipoConflicto {
+		/**
+		 * Dos elementos con la misma red y la misma máscara.
+		 */
+		DUPLICADA,
+		/**
+		 * Un elemento cuya red está contenida en la de otro con máscara más corta.
+		 */
+		CONTENIDA,
+		/**
+		 * Un elemento cuya dirección tiene bits de equipo: no es su dirección de
+		 * red.
+		 */
+		BITS_HOST
+	}
+
+	/**
+	 * Conflicto detectado entre un elemento y otro relacionado.
+	 *
+	 * @param tipo        el tipo de conflicto
+	 * @param registro    el elemento afectado, empaquetado
+	 * @param relacionado según el tipo: la primera aparición de la misma red, la
+	 *                    red más específica que contiene al elemento o el propio
+	 *                    elemento corregido con su dirección de red
+	 */
+	public record Conflicto(TipoConflicto tipo, long registro, long relacionado) {
+		/**
+		 * Facilita el elemento afectado.
+		 *
+		 * @return el elemento correspondiente
+		 */
+		public IdentificaciónIPv4 elemento() {
+			return identificación(registro);
+		}
+
+		/**
+		 * Facilita el elemento relacionado.
+		 *
+		 * @return el elemento correspondiente
+		 */
+		public IdentificaciónIPv4 elementoRelacionado() {
+			return identificación(relacionado);
+		}
+
+		/**
+		 * Describe el conflicto.
+		 *
+		 * @return el texto descriptivo
+		 */
+		@Override
+		public String toString() {
+			return switch (tipo) {
+			case DUPLICADA -> String.format("%s: duplica %s", elemento(), elementoRelacionado());
+			case CONTENIDA -> String.format("%s: contenida en %s", elemento(), elementoRelacionado());
+			case BITS_HOST -> String.format("%s: bits de equipo fuera de la máscara, red %s", elemento(),
+					elementoRelacionado());
+			};
+		}
+
+		/**
+		 * Crea la identificación de un registro.
+		 *
+		 * @param registro el registro empaquetado
+		 * @return la identificación correspondiente
+		 */
+		private static IdentificaciónIPv4 identificación(long registro) {
+			return IdentificaciónIPv4.ofRegistro(registro);
+		}
+	}
+
+	/**
+	 * Recorrido de un tramo de registros ordenados con una pila de las redes
+	 * abiertas. Cada registro produce como mucho dos conflictos.
+	 */
+	private static final class Barrido implements Spliterator<Conflicto> {
+		/**
+		 * Registros ordenados.
+		 */
+		private final long[] registros;
+
+		/**
+		 * Siguiente posición a procesar.
+		 */
+		private int pos;
+
+		/**
+		 * Última posición del tramo, excluida.
+		 */
+		private final int fin;
+
+		/**
+		 * Redes abiertas, de la más amplia a la más específica. Como cada una
+		 * contiene a la siguiente, no hay más de 33.
+		 */
+		private final long[] pila;
+
+		/**
+		 * Número de redes abiertas.
+		 */
+		private int altura;
+
+		/**
+		 * Si ya se ha reconstruido la pila inicial del tramo.
+		 */
+		private boolean iniciado;
+
+		/**
+		 * Conflictos producidos y aún no entregados.
+		 */
+		private final Conflicto[] pendientes;
+
+		/**
+		 * Número de conflictos pendientes.
+		 */
+		private int númeroPendientes;
+
+		/**
+		 * Crea el recorrido de un tramo.
+		 *
+		 * @param registros los registros ordenados
+		 * @param desde     la primera posición, incluida
+		 * @param hasta     la última posición, excluida
+		 */
+		private Barrido(long[] registros, int desde, int hasta) {
+			this.registros = registros;
+			pos = desde;
+			fin = hasta;
+			pila = new long[EnteroIPv4.BITS + 1];
+			pendientes = new Conflicto[2];
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Conflicto> acción) {
+			Conflicto conflicto;
+			boolean entregado = false;
+
+			if (!iniciado) {
+				iniciar();
+			}
+			while (númeroPendientes == 0 && pos < fin) {
+				procesar(registros[pos++]);
+			}
+
+			if (númeroPendientes > 0) {
+				conflicto = pendientes[0];
+				pendientes[0] = pendientes[1];
+				pendientes[1] = null;
+				númeroPendientes--;
+				acción.accept(conflicto);
+				entregado = true;
+			}
+
+			return entregado;
+		}
+
+		@Override
+		public Spliterator<Conflicto> trySplit() {
+			Barrido prefijo = null;
+			int medio;
+
+			if (!iniciado && fin - pos > UMBRAL_PARALELO) {
+				medio = (pos + fin) >>> 1;
+				prefijo = new Barrido(registros, pos, medio);
+				pos = medio;
+			}
+
+			return prefijo;
+		}
+
+		@Override
+		public long estimateSize() {
+			return fin - pos;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL | IMMUTABLE;
+		}
+
+		/**
+		 * Reconstruye la pila de las redes que contienen al primer registro del
+		 * tramo y están antes de él.
+		 */
+		private void iniciar() {
+			long primero;
+			int red, anterior;
+
+			iniciado = true;
+			if (pos > 0 && pos < fin) {
+				primero = registros[pos];
+				for (int longitud = 0; longitud <= RegistroIPv4.máscaraCIDR(primero); longitud++) {
+					red = EnteroIPv4.red(RegistroIPv4.dirección(primero), longitud);
+					anterior = límiteRed(registros, pos, red, longitud);
+					if (anterior < pos && RegistroIPv4.compararRed(registros[anterior], red, longitud) == 0) {
+						pila[altura++] = registros[anterior];
+					}
+				}
+			}
+		}
+
+		/**
+		 * Procesa un registro: cierra las redes abiertas que ya no lo contienen y
+		 * anota sus conflictos.
+		 *
+		 * @param registro el registro
+		 */
+		private void procesar(long registro) {
+			int red = RegistroIPv4.red(registro), máscaraCIDR = RegistroIPv4.máscaraCIDR(registro);
+			long contenedora;
+
+			while (altura > 0 && Integer.compareUnsigned(RegistroIPv4.difusión(pila[altura - 1]), red) < 0) {
+				altura--;
+			}
+
+			if (RegistroIPv4.dirección(registro) != red) {
+				pendientes[númeroPendientes++] = new Conflicto(TipoConflicto.BITS_HOST, registro,
+						RegistroIPv4.of(red, máscaraCIDR));
+			}
+
+			if (altura == 0) {
+				pila[altura++] = registro;
+			} else {
+				contenedora = pila[altura - 1];
+				if (RegistroIPv4.compararRed(contenedora, red, máscaraCIDR) == 0) {
+					pendientes[númeroPendientes++] = new Conflicto(TipoConflicto.DUPLICADA, registro, contenedora);
+				} else {
+					pendientes[númeroPendientes++] = new Conflicto(TipoConflicto.CONTENIDA, registro, contenedora);
+					pila[altura++] = registro;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Ordenación paralela por mezcla: cada mitad se ordena en otra tarea y
+	 * después se mezclan.
+	 */
+	private static final class Ordenación extends RecursiveAction {
+		/**
+		 * Número de versión para la serialización.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Registros a ordenar.
+		 */
+		private final long[] registros;
+
+		/**
+		 * Tabla auxiliar del mismo tamaño para las mezclas.
+		 */
+		private final long[] auxiliar;
+
+		/**
+		 * Primera posición del tramo, incluida.
+		 */
+		private final int desde;
+
+		/**
+		 * Última posición del tramo, excluida.
+		 */
+		private final int hasta;
+
+		/**
+		 * Crea la tarea de ordenación de un tramo.
+		 *
+		 * @param registros los registros
+		 * @param auxiliar  la tabla auxiliar
+		 * @param desde     la primera posición, incluida
+		 * @param hasta     la última posición, excluida
+		 */
+		private Ordenación(long[] registros, long[] auxiliar, int desde, int hasta) {
+			this.registros = registros;
+			this.auxiliar = auxiliar;
+			this.desde = desde;
+			this.hasta = hasta;
+		}
+
+		@Override
+		protected void compute() {
+			int medio, i, j;
+
+			if (hasta - desde <= UMBRAL_PARALELO) {
+				RegistroIPv4.ordenar(registros, desde, hasta);
+			} else {
+				medio = (desde + hasta) >>> 1;
+				invokeAll(new Ordenación(registros, auxiliar, desde, medio),
+						new Ordenación(registros, auxiliar, medio, hasta));
+
+				System.arraycopy(registros, desde, auxiliar, desde, hasta - desde);
+				i = desde;
+				j = medio;
+				for (int k = desde; k < hasta; k++) {
+					if (j == hasta || (i < medio && RegistroIPv4.comparar(auxiliar[i], auxiliar[j]) <= 0)) {
+						registros[k] = auxiliar[i++];
+					} else {
+						registros[k] = auxiliar[j++];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Clase de utilidad: no se crean objetos.
+	 */
+	private DetectorConflictosIPv4() {
+	}
+
+	/**
+	 * Detecta los conflictos de los elementos actuales de una colección.
+	 *
+	 * @param red      la colección
+	 * @param paralelo si se reparte el trabajo entre varios hilos
+	 * @return el flujo perezoso de conflictos, en el orden de las redes
+	 */
+	public static Stream<Conflicto> detectar(RedIPv4 red, boolean paralelo) {
+		long[] registros = red.generarRegistros();
+		return detectarOrdenando(registros, paralelo);
+	}
+
+	/**
+	 * Detecta los conflictos de una tabla de registros, que no se modifica.
+	 *
+	 * @param registros los registros, en cualquier orden
+	 * @param número    el número de registros a tomar desde el principio
+	 * @param paralelo  si se reparte el trabajo entre varios hilos
+	 * @return el flujo perezoso de conflictos, en el orden de las redes
+	 * @throws IndexOutOfBoundsException si el número excede el tamaño de la tabla
+	 */
+	public static Stream<Conflicto> detectar(long[] registros, int número, boolean paralelo) {
+		Objects.checkFromIndexSize(0, número, registros.length);
+		return detectarOrdenando(Arrays.copyOf(registros, número), paralelo);
+	}
+
+	/**
+	 * Ordena una tabla propia y crea el flujo de conflictos sobre ella.
+	 *
+	 * @param registros la tabla, que se ordena en el mismo lugar
+	 * @param paralelo  si se reparte el trabajo entre varios hilos
+	 * @return el flujo de conflictos
+	 */
+	private static Stream<Conflicto> detectarOrdenando(long[] registros, boolean paralelo) {
+		if (paralelo && registros.length > UMBRAL_PARALELO) {
+			ForkJoinPool.commonPool().invoke(new Ordenación(registros, new long[registros.length], 0,
+					registros.length));
+		} else {
+			RegistroIPv4.ordenar(registros, 0, registros.length);
+		}
+
+		return StreamSupport.stream(new Barrido(registros, 0, registros.length), paralelo);
+	}
+
+	/**
+	 * Localiza la primera posición anterior a un límite cuya red no va delante de
+	 * una red dada.
+	 *
+	 * @param registros   los registros ordenados
+	 * @param hasta       el límite de la búsqueda, excluido
+	 * @param red         la dirección de red empaquetada
+	 * @param máscaraCIDR la longitud de la máscara
+	 * @return la posición encontrada, entre 0 y el límite
+	 */
+	private static int límiteRed(long[] registros, int hasta, int red, int máscaraCIDR) {
+		int inferior = 0, superior = hasta, medio;
+
+		while (inferior < superior) {
+			medio = (inferior + superior) >>> 1;
+			if (RegistroIPv4.compararRed(registros[medio], red, máscaraCIDR) < 0) {
+				inferior = medio + 1;
+			} else {
+				superior = medio;
+			}
+		}
+
+		return inferior;
+	}
+}
@@ -0,0 +1,676 @@
+package jcolonia.daw.redipv4;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Almacén de los elementos de una {@link RedIPv4}: una lista en orden de
+ * incorporación que admite repetidos y localiza cada elemento por su valor
+ * sin recorrerla entera.
+ *
+ * <div>Los elementos ocupan casillas consecutivas de una tabla. Al eliminar uno
+ * su casilla queda marcada como lápida —<code>null</code>— y los demás no se
+ * mueven, de modo que el orden se conserva. Cuando las lápidas llegan a la
+ * mitad de las casillas ocupadas, o cuando hay que ampliar la tabla, se compacta
+ * desplazando los elementos vivos al principio.</div>
+ *
+ * <div>Índices auxiliares:
+ * <ul>
+ * <li>Mientras hay lápidas, un árbol de Fenwick cuenta los elementos vivos de
+ * cada tramo de casillas y traduce una posición de la lista a su casilla en
+ * tiempo logarítmico. Sin lápidas la posición es directamente la casilla y el
+ * árbol no existe.</li>
+ * <li>Los elementos con la misma ruta —igual red y longitud de máscara— forman
+ * una cadena doblemente enlazada, en orden de casilla, sobre dos tablas de
+ * enteros. Una tabla de dispersión de direccionamiento abierto sobre tipos
+ * primitivos asocia cada ruta con la primera y la última casilla de su
+ * cadena.</li>
+ * </ul>
+ * </div>
+ *
+ * <div>Costes: incorporar un elemento es constante amortizado —logarítmico si
+ * hay lápidas—; eliminarlo es proporcional al número de elementos con su misma
+ * ruta, que se recorren buscando uno igual; consultar una posición es
+ * constante sin lápidas y logarítmico con ellas.</div>
+ *
+ * <div>Las cargas masivas se preparan en dos fases: {@link #preparar} ordena en
+ * paralelo el lote por ruta y enlaza sus cadenas sin tocar el almacén, y
+ * {@link #agregar(Lote)} lo incorpora con una copia de tablas y una operación
+ * del índice por cada ruta distinta, no por cada elemento.</div>
+ *
+ * <div>No es seguro entre hilos: {@link RedIPv4} lo protege con su
+ * cerrojo.</div>
+ *
+ * @version 0.1 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+final class ElementosRedIPv4 {
+	/**
+	 * Capacidad inicial de la tabla de elementos.
+	 */
+	private static final int CAPACIDAD_INICIAL = 6;
+
+	/**
+	 * Capacidad inicial del índice de rutas. Potencia de dos.
+	 */
+	private static final int CAPACIDAD_INICIAL_RUTAS = 16;
+
+	/**
+	 * Marca de enlace inexistente en las cadenas de rutas.
+	 */
+	private static final int NINGUNA = -1;
+
+	/**
+	 * Marca de posición libre en el índice de rutas. Ninguna clave válida tiene
+	 * todos los bits a uno, pues su longitud de máscara sería 63.
+	 */
+	private static final long LIBRE = -1L;
+
+	/**
+	 * Multiplicador de la dispersión de Fibonacci: 2<sup>64</sup> entre la razón
+	 * áurea.
+	 */
+	private static final long DISPERSIÓN = 0x9E37_79B9_7F4A_7C15L;
+
+	/**
+	 * Número máximo de elementos de un {@link Lote}: sus posiciones deben caber en
+	 * los 26 bits bajos de las claves de ordenación.
+	 */
+	static final int MÁX_LOTE = 1 << 26;
+
+	/**
+	 * Lote de elementos preparado para incorporarse de una vez. Todas las
+	 * posiciones son relativas al principio del lote.
+	 */
+	static final class Lote {
+		/** Los elementos, en su orden. */
+		final IdentificaciónIPv4[] elementos;
+		/**
+		 * Siguiente elemento del lote con la misma ruta,
+		 * o {@link ElementosRedIPv4#NINGUNA}.
+		 */
+		final int[] siguiente;
+		/**
+		 * Elemento anterior del lote con la misma ruta,
+		 * o {@link ElementosRedIPv4#NINGUNA}.
+		 */
+		final int[] anterior;
+		/** Rutas distintas del lote, en el orden natural de los registros. */
+		final long[] rutas;
+		/** Primer elemento del lote con cada ruta. */
+		final int[] primeros;
+		/** Último elemento del lote con cada ruta: su destino en la tabla. */
+		final int[] últimos;
+		/** Número de rutas distintas. */
+		int númeroRutas;
+
+		/**
+		 * Crea un lote vacío para los elementos indicados.
+		 *
+		 * @param elementos los elementos
+		 */
+		private Lote(IdentificaciónIPv4[] elementos) {
+			this.elementos = elementos;
+			siguiente = new int[elementos.length];
+			anterior = new int[elementos.length];
+			rutas = new long[elementos.length];
+			primeros = new int[elementos.length];
+			últimos = new int[elementos.length];
+		}
+	}
+
+	/**
+	 * Casillas de los elementos, ocupadas desde el principio hasta {@link #fin};
+	 * las lápidas valen <code>null</code>.
+	 */
+	private IdentificaciónIPv4[] elementos;
+
+	/**
+	 * Siguiente casilla de la cadena de cada elemento, o {@link #NINGUNA}.
+	 */
+	private int[] siguiente;
+
+	/**
+	 * Casilla anterior de la cadena de cada elemento, o {@link #NINGUNA}.
+	 */
+	private int[] anterior;
+
+	/**
+	 * Número de casillas ocupadas, incluidas las lápidas.
+	 */
+	private int fin;
+
+	/**
+	 * Número de elementos vivos.
+	 */
+	private int tamaño;
+
+	/**
+	 * Árbol de Fenwick con los elementos vivos de cada tramo de casillas, o
+	 * <code>null</code> si no hay lápidas. La entrada <var>i</var> cuenta las
+	 * casillas de <var>i</var> - (<var>i</var> &amp; -<var>i</var>) a
+	 * <var>i</var> - 1.
+	 */
+	private int[] vivos;
+
+	/**
+	 * Claves de ruta del índice, o {@link #LIBRE}.
+	 */
+	private long[] claves;
+
+	/**
+	 * Extremos de la cadena de cada ruta del índice: primera casilla en los 32
+	 * bits altos y última en los bajos.
+	 */
+	private long[] extremos;
+
+	/**
+	 * Número de rutas del índice.
+	 */
+	private int rutas;
+
+	/**
+	 * Desplazamiento que reduce la dispersión a una posición del índice: 64
+	 * menos el logaritmo de su capacidad.
+	 */
+	private int desplazamiento;
+
+	/**
+	 * Crea un almacén vacío.
+	 */
+	ElementosRedIPv4() {
+		vaciar();
+	}
+
+	/**
+	 * Elimina todos los elementos y libera el espacio reservado.
+	 */
+	void vaciar() {
+		elementos = new IdentificaciónIPv4[CAPACIDAD_INICIAL];
+		siguiente = new int[CAPACIDAD_INICIAL];
+		anterior = new int[CAPACIDAD_INICIAL];
+		fin = 0;
+		tamaño = 0;
+		vivos = null;
+		claves = null;
+		rutas = 0;
+		reservarRutas(CAPACIDAD_INICIAL_RUTAS);
+	}
+
+	/**
+	 * Devuelve el número de elementos vivos.
+	 *
+	 * @return el número de elementos
+	 */
+	int size() {
+		return tamaño;
+	}
+
+	/**
+	 * Facilita la tabla de casillas para una lectura directa sin cerrojo. Solo
+	 * sirve si {@link #sinLápidas()}; el resultado debe validarse después.
+	 *
+	 * @return la tabla de casillas actual
+	 */
+	IdentificaciónIPv4[] casillas() {
+		return elementos;
+	}
+
+	/**
+	 * Indica si las posiciones de la lista coinciden con las casillas.
+	 *
+	 * @return si no hay lápidas
+	 */
+	boolean sinLápidas() {
+		return vivos == null;
+	}
+
+	/**
+	 * Localiza un elemento por su posición en la lista.
+	 *
+	 * @param pos la posición, de 0 a {@link #size()} - 1
+	 * @return el elemento correspondiente
+	 */
+	IdentificaciónIPv4 get(int pos) {
+		return elementos[(vivos == null) ? pos : casilla(pos)];
+	}
+
+	/**
+	 * Copia los elementos vivos en su orden.
+	 *
+	 * @return la copia, sin lápidas
+	 */
+	IdentificaciónIPv4[] copiar() {
+		IdentificaciónIPv4[] copia;
+		int n = 0;
+
+		if (vivos == null) {
+			copia = Arrays.copyOf(elementos, tamaño);
+		} else {
+			copia = new IdentificaciónIPv4[tamaño];
+			for (int i = 0; i < fin; i++) {
+				if (elementos[i] != null) {
+					copia[n++] = elementos[i];
+				}
+			}
+		}
+		return copia;
+	}
+
+	/**
+	 * Incorpora un elemento al final de la lista.
+	 *
+	 * @param nuevo el elemento a incorporar, no nulo
+	 */
+	void agregar(IdentificaciónIPv4 nuevo) {
+		long clave = clave(nuevo);
+		int pos, último;
+
+		if (fin == elementos.length) {
+			reservar(tamaño + 1);
+		}
+		elementos[fin] = nuevo;
+		siguiente[fin] = NINGUNA;
+		if (vivos != null) {
+			sumarVivo(fin, 1);
+		}
+
+		pos = posiciónRuta(clave);
+		if (claves[pos] == LIBRE) {
+			claves[pos] = clave;
+			extremos[pos] = extremos(fin, fin);
+			anterior[fin] = NINGUNA;
+			if (2 * ++rutas > claves.length) {
+				reservarRutas(2 * claves.length);
+			}
+		} else {
+			último = (int) extremos[pos];
+			siguiente[último] = fin;
+			anterior[fin] = último;
+			extremos[pos] = extremos((int) (extremos[pos] >>> 32), fin);
+		}
+
+		fin++;
+		tamaño++;
+	}
+
+	/**
+	 * Prepara un lote sin tocar ningún almacén, de modo que puede hacerse fuera
+	 * del cerrojo. Ordena en paralelo claves que empaquetan la red —con el bit de
+	 * signo invertido, para ordenar sin signo—, la longitud de máscara y la
+	 * posición en el lote; así los elementos de cada ruta quedan juntos y en su
+	 * orden.
+	 *
+	 * @param nuevos los elementos, como mucho {@link #MÁX_LOTE}
+	 * @return el lote preparado
+	 * @throws NullPointerException si algún elemento es nulo
+	 */
+	static Lote preparar(IdentificaciónIPv4[] nuevos) {
+		Lote lote = new Lote(nuevos);
+		long[] orden = new long[nuevos.length];
+		long clave, ruta;
+		int pos, anterior = NINGUNA;
+
+		if (nuevos.length > MÁX_LOTE) {
+			throw new IllegalArgumentException(String.format("Lote demasiado grande: %d", nuevos.length));
+		}
+
+		Arrays.parallelSetAll(orden, i -> {
+			long registro = clave(Objects.requireNonNull(nuevos[i], "Elemento nulo"));
+			return (registro ^ Long.MIN_VALUE) & ~0xFFFF_FFFFL | (registro & 0xFFFF_FFFFL) << 26 | i;
+		});
+		Arrays.parallelSort(orden);
+
+		for (int i = 0; i < orden.length; i++) {
+			clave = orden[i];
+			ruta = (clave ^ Long.MIN_VALUE) & ~0xFFFF_FFFFL | (clave & 0xFFFF_FFFFL) >>> 26;
+			pos = (int) clave & (MÁX_LOTE - 1);
+
+			if (lote.númeroRutas > 0 && lote.rutas[lote.númeroRutas - 1] == ruta) {
+				lote.siguiente[anterior] = pos;
+				lote.anterior[pos] = anterior;
+			} else {
+				lote.rutas[lote.númeroRutas] = ruta;
+				lote.primeros[lote.númeroRutas] = pos;
+				lote.númeroRutas++;
+				lote.anterior[pos] = NINGUNA;
+			}
+			lote.siguiente[pos] = NINGUNA;
+			lote.últimos[lote.númeroRutas - 1] = pos;
+			anterior = pos;
+		}
+
+		return lote;
+	}
+
+	/**
+	 * Incorpora un lote preparado al final de la lista.
+	 *
+	 * @param lote el lote
+	 */
+	void agregar(Lote lote) {
+		int n = lote.elementos.length, base, pos, primera, última;
+
+		if (fin + n > elementos.length) {
+			reservar(tamaño + n);
+		}
+		base = fin;
+
+		System.arraycopy(lote.elementos, 0, elementos, base, n);
+		for (int i = 0; i < n; i++) {
+			siguiente[base + i] = (lote.siguiente[i] == NINGUNA) ? NINGUNA : base + lote.siguiente[i];
+			anterior[base + i] = (lote.anterior[i] == NINGUNA) ? NINGUNA : base + lote.anterior[i];
+		}
+		fin += n;
+		tamaño += n;
+
+		if (vivos != null) {
+			if ((long) n * Integer.SIZE < fin) {
+				for (int i = base; i < fin; i++) {
+					sumarVivo(i, 1);
+				}
+			} else {
+				construirVivos();
+			}
+		}
+
+		if (2 * (rutas + lote.númeroRutas) > claves.length) {
+			reservarRutas(Integer.highestOneBit(2 * (rutas + lote.númeroRutas) - 1) << 1);
+		}
+		for (int j = 0; j < lote.númeroRutas; j++) {
+			primera = base + lote.primeros[j];
+			última = base + lote.últimos[j];
+			pos = posiciónRuta(lote.rutas[j]);
+			if (claves[pos] == LIBRE) {
+				claves[pos] = lote.rutas[j];
+				extremos[pos] = extremos(primera, última);
+				rutas++;
+			} else {
+				siguiente[(int) extremos[pos]] = primera;
+				anterior[primera] = (int) extremos[pos];
+				extremos[pos] = extremos((int) (extremos[pos] >>> 32), última);
+			}
+		}
+	}
+
+	/**
+	 * Elimina la primera aparición de un elemento igual al indicado, es decir, con
+	 * el mismo {@link IdentificaciónIPv4#getRegistro() registro}. La cadena de su
+	 * ruta ya agrupa los de igual red y máscara, así que basta comparar los
+	 * registros de sus elementos.
+	 *
+	 * @param viejo el elemento a retirar
+	 * @return si estaba en la lista o no
+	 */
+	boolean eliminar(IdentificaciónIPv4 viejo) {
+		long clave = clave(viejo), registro = viejo.getRegistro();
+		int pos, casilla, primera, última;
+		boolean encontrado = false;
+
+		pos = posiciónRuta(clave);
+		if (claves[pos] != LIBRE) {
+			casilla = (int) (extremos[pos] >>> 32);
+			while (casilla != NINGUNA && elementos[casilla].getRegistro() != registro) {
+				casilla = siguiente[casilla];
+			}
+
+			if (casilla != NINGUNA) {
+				encontrado = true;
+				primera = (int) (extremos[pos] >>> 32);
+				última = (int) extremos[pos];
+				if (primera == última) {
+					retirarRuta(pos);
+				} else {
+					if (casilla == primera) {
+						primera = siguiente[casilla];
+						anterior[primera] = NINGUNA;
+					} else if (casilla == última) {
+						última = anterior[casilla];
+						siguiente[última] = NINGUNA;
+					} else {
+						siguiente[anterior[casilla]] = siguiente[casilla];
+						anterior[siguiente[casilla]] = anterior[casilla];
+					}
+					extremos[pos] = extremos(primera, última);
+				}
+
+				if (vivos == null) {
+					construirVivos();
+				}
+				sumarVivo(casilla, -1);
+				elementos[casilla] = null;
+				tamaño--;
+
+				if (2 * (fin - tamaño) > fin) {
+					reservar(tamaño);
+				}
+			}
+		}
+
+		return encontrado;
+	}
+
+	/**
+	 * Localiza el elemento incorporado en último lugar entre los que tienen una
+	 * ruta: es el destino de esa ruta en la tabla de rutas.
+	 *
+	 * @param red         la dirección de red empaquetada
+	 * @param máscaraCIDR la longitud de la máscara
+	 * @return el elemento correspondiente, o <code>null</code> si no queda ninguno
+	 *         con esa ruta
+	 */
+	IdentificaciónIPv4 destinoRuta(int red, int máscaraCIDR) {
+		int pos = posiciónRuta(RegistroIPv4.of(red, máscaraCIDR));
+		return (claves[pos] == LIBRE) ? null : elementos[(int) extremos[pos]];
+	}
+
+	/**
+	 * Calcula la clave que identifica la ruta de un elemento: un
+	 * {@link RegistroIPv4 registro} con su dirección de red y su longitud de
+	 * máscara.
+	 *
+	 * @param elemento el elemento a consultar
+	 * @return la clave correspondiente
+	 */
+	static long clave(IdentificaciónIPv4 elemento) {
+		long registro = elemento.getRegistro();
+		return RegistroIPv4.of(RegistroIPv4.red(registro), RegistroIPv4.máscaraCIDR(registro));
+	}
+
+	/**
+	 * Empaqueta los extremos de una cadena.
+	 *
+	 * @param primera la primera casilla
+	 * @param última  la última casilla
+	 * @return los extremos empaquetados
+	 */
+	private static long extremos(int primera, int última) {
+		return (long) primera << 32 | (última & 0xFFFF_FFFFL);
+	}
+
+	/**
+	 * Traduce una posición de la lista a su casilla descendiendo por el árbol de
+	 * Fenwick.
+	 *
+	 * @param pos la posición, de 0 a {@link #size()} - 1
+	 * @return la casilla correspondiente
+	 */
+	private int casilla(int pos) {
+		int casilla = 0, restantes = pos + 1;
+
+		for (int paso = Integer.highestOneBit(vivos.length - 1); paso > 0; paso >>= 1) {
+			if (casilla + paso < vivos.length && vivos[casilla + paso] < restantes) {
+				casilla += paso;
+				restantes -= vivos[casilla];
+			}
+		}
+		return casilla;
+	}
+
+	/**
+	 * Suma una cantidad a la cuenta de elementos vivos de una casilla.
+	 *
+	 * @param casilla  la casilla
+	 * @param cantidad la cantidad a sumar
+	 */
+	private void sumarVivo(int casilla, int cantidad) {
+		for (int i = casilla + 1; i < vivos.length; i += i & -i) {
+			vivos[i] += cantidad;
+		}
+	}
+
+	/**
+	 * Construye el árbol de Fenwick a partir de las casillas, en tiempo lineal.
+	 */
+	private void construirVivos() {
+		int j;
+
+		vivos = new int[elementos.length + 1];
+		for (int i = 1; i < vivos.length; i++) {
+			if (i <= fin && elementos[i - 1] != null) {
+				vivos[i]++;
+			}
+			j = i + (i & -i);
+			if (j < vivos.length) {
+				vivos[j] += vivos[i];
+			}
+		}
+	}
+
+	/**
+	 * Compacta las casillas desplazando los elementos vivos al principio, en su
+	 * orden, sobre una tabla con capacidad suficiente para el número de elementos
+	 * indicado. Renumera las cadenas y el índice de rutas y descarta el árbol de
+	 * Fenwick.
+	 *
+	 * <div>La tabla se amplía a vez y media lo necesario si, tras compactar, no
+	 * quedaría libre al menos una cuarta parte. Así entre dos compactaciones hay
+	 * siempre un número de incorporaciones o eliminaciones proporcional al tamaño
+	 * y su coste se reparte entre ellas.</div>
+	 *
+	 * @param necesarios el número de elementos que deben caber
+	 */
+	private void reservar(int necesarios) {
+		IdentificaciónIPv4[] nuevos;
+		int[] nuevaCasilla = null, nuevoSiguiente, nuevoAnterior;
+		int capacidad = elementos.length, n = 0;
+
+		if (4L * necesarios > 3L * capacidad) {
+			capacidad = necesarios + (necesarios >> 1);
+		}
+		nuevos = new IdentificaciónIPv4[capacidad];
+		nuevoSiguiente = new int[capacidad];
+		nuevoAnterior = new int[capacidad];
+
+		if (tamaño < fin) {
+			nuevaCasilla = new int[fin];
+		}
+		for (int i = 0; i < fin; i++) {
+			if (elementos[i] != null) {
+				nuevos[n] = elementos[i];
+				if (nuevaCasilla != null) {
+					nuevaCasilla[i] = n;
+				}
+				n++;
+			}
+		}
+		for (int i = 0; i < fin; i++) {
+			if (elementos[i] != null) {
+				nuevoSiguiente[renumerar(nuevaCasilla, i)] = renumerar(nuevaCasilla, siguiente[i]);
+				nuevoAnterior[renumerar(nuevaCasilla, i)] = renumerar(nuevaCasilla, anterior[i]);
+			}
+		}
+		if (nuevaCasilla != null) {
+			for (int i = 0; i < claves.length; i++) {
+				if (claves[i] != LIBRE) {
+					extremos[i] = extremos(nuevaCasilla[(int) (extremos[i] >>> 32)],
+							nuevaCasilla[(int) extremos[i]]);
+				}
+			}
+		}
+
+		elementos = nuevos;
+		siguiente = nuevoSiguiente;
+		anterior = nuevoAnterior;
+		fin = tamaño;
+		vivos = null;
+	}
+
+	/**
+	 * Traduce una casilla de una cadena a su número tras compactar.
+	 *
+	 * @param nuevaCasilla la traducción de cada casilla, o <code>null</code> si
+	 *                     no cambian
+	 * @param casilla      la casilla anterior, o {@link #NINGUNA}
+	 * @return la casilla nueva, o {@link #NINGUNA}
+	 */
+	private static int renumerar(int[] nuevaCasilla, int casilla) {
+		return (nuevaCasilla == null || casilla == NINGUNA) ? casilla : nuevaCasilla[casilla];
+	}
+
+	/**
+	 * Localiza la posición de una clave en el índice de rutas o, si no está, la
+	 * posición libre donde le correspondería estar.
+	 *
+	 * @param clave la clave buscada
+	 * @return la posición encontrada
+	 */
+	private int posiciónRuta(long clave) {
+		int máscara = claves.length - 1;
+		int pos = (int) ((clave * DISPERSIÓN) >>> desplazamiento);
+
+		while (claves[pos] != LIBRE && claves[pos] != clave) {
+			pos = (pos + 1) & máscara;
+		}
+
+		return pos;
+	}
+
+	/**
+	 * Retira una ruta del índice desplazando hacia atrás las claves siguientes de
+	 * su secuencia de sondeo, para no dejar huecos que la corten.
+	 *
+	 * @param pos la posición de la ruta
+	 */
+	private void retirarRuta(int pos) {
+		int máscara = claves.length - 1;
+		int hueco = pos, ideal;
+
+		for (int i = (pos + 1) & máscara; claves[i] != LIBRE; i = (i + 1) & máscara) {
+			ideal = (int) ((claves[i] * DISPERSIÓN) >>> desplazamiento);
+			if (((i - ideal) & máscara) >= ((i - hueco) & máscara)) {
+				claves[hueco] = claves[i];
+				extremos[hueco] = extremos[i];
+				hueco = i;
+			}
+		}
+		claves[hueco] = LIBRE;
+		rutas--;
+	}
+
+	/**
+	 * Reserva un índice de rutas nuevo con la capacidad indicada y reubica en él
+	 * las rutas existentes.
+	 *
+	 * @param capacidad la nueva capacidad, potencia de dos
+	 */
+	private void reservarRutas(int capacidad) {
+		long[] clavesAntiguas = claves, extremosAntiguos = extremos;
+		int pos;
+
+		claves = new long[capacidad];
+		extremos = new long[capacidad];
+		desplazamiento = Long.SIZE - Integer.numberOfTrailingZeros(capacidad);
+		Arrays.fill(claves, LIBRE);
+
+		if (clavesAntiguas != null) {
+			for (int i = 0; i < clavesAntiguas.length; i++) {
+				if (clavesAntiguas[i] != LIBRE) {
+					pos = posiciónRuta(clavesAntiguas[i]);
+					claves[pos] = clavesAntiguas[i];
+					extremos[pos] = extremosAntiguos[i];
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package jcolonia.daw.redipv4;
+
+/**
+ * Operaciones sobre direcciones o máscaras IPv4 empaquetadas en un único entero
+ * de 32 bits. El valor se interpreta siempre sin signo: el primer byte por la
+ * izquierda ocupa los ocho bits más significativos. Así, por ejemplo,
+ * «192.168.1.10» corresponde a <code>0xC0A8010A</code>.
+ *
+ * <div>Todas las operaciones trabajan con tipos primitivos y no crean objetos,
+ * de modo que pueden emplearse sobre grandes volúmenes de direcciones sin
+ * presión sobre el recolector de basura. {@link NúmeroIPv4} es una vista sobre
+ * este mismo valor.</div>
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class EnteroIPv4 {
+	/**
+	 * Número de bits de una dirección IPv4.
+	 */
+	public static final int BITS = 32;
+
+	/**
+	 * Valor sin signo máximo de una dirección IPv4 en un entero largo:
+	 * «255.255.255.255».
+	 */
+	public static final long MÁXIMO = 0xFFFF_FFFFL;
+
+	/**
+	 * Las 33 máscaras canónicas empaquetadas, indexadas por su longitud en formato
+	 * CIDR: de «/0» a «/32».
+	 */
+	private static final int[] MÁSCARAS;
+
+	static {
+		MÁSCARAS = new int[BITS + 1];
+		// Desplazar 32 posiciones no tiene efecto en Java: caso /0 aparte
+		MÁSCARAS[0] = 0;
+		for (int i = 1; i <= BITS; i++) {
+			MÁSCARAS[i] = -1 << (BITS - i);
+		}
+	}
+
+	/**
+	 * Clase de utilidad: no se crean objetos.
+	 */
+	private EnteroIPv4() {
+	}
+
+	/**
+	 * Empaqueta los cuatro bytes de un número IPv4, verificando que cada uno esté
+	 * en el rango [0,255].
+	 *
+	 * @param byte1 primer byte por la izquierda, el más significativo
+	 * @param byte2 segundo byte por la izquierda
+	 * @param byte3 tercer byte por la izquierda
+	 * @param byte4 cuarto byte por la izquierda, el menos significativo
+	 * @return el valor empaquetado
+	 * @throws NúmeroIPv4Exception si alguno de los bytes está fuera de rango
+	 */
+	public static int of(int byte1, int byte2, int byte3, int byte4) {
+		String mensaje;
+		int byteMal = 0;
+
+		// Rango [0,255]: ¿Bytes sin signo?
+		if (0 != (byte1 & 0xFFFFFF00)) {
+			byteMal = 1;
+		} else if (0 != (byte2 & 0xFFFFFF00)) {
+			byteMal = 2;
+		} else if (0 != (byte3 & 0xFFFFFF00)) {
+			byteMal = 3;
+		} else if (0 != (byte4 & 0xFFFFFF00)) {
+			byteMal = 4;
+		}
+
+		if (byteMal != 0) {
+			mensaje = String.format("Byte %d en «%d-%d-%d-%d» fuera de rango", byteMal, byte1, byte2, byte3, byte4);
+			throw new NúmeroIPv4Exception(mensaje);
+		}
+
+		return byte1 << 24 | byte2 << 16 | byte3 << 8 | byte4;
+	}
+
+	/**
+	 * Extrae uno de los cuatro bytes de un valor empaquetado.
+	 *
+	 * @param valor    el valor empaquetado
+	 * @param posición la posición del byte, de 1 —el más significativo— a 4
+	 * @return el byte correspondiente, en el rango [0,255]
+	 */
+	public static int getByte(int valor, int posición) {
+		return (valor >>> (8 * (4 - posición))) & 0xFF;
+	}
+
+	/**
+	 * Facilita una máscara de red empaquetada a partir de su longitud en formato
+	 * CIDR. Se toma de una tabla precalculada.
+	 *
+	 * @param máscaraCIDR el número de bits de la parte de red, de 0 a 32
+	 * @return la máscara empaquetada
+	 * @throws NúmeroIPv4Exception si la longitud está fuera de rango
+	 */
+	public static int máscara(int máscaraCIDR) {
+		verificarMáscaraCIDR(máscaraCIDR);
+		return MÁSCARAS[máscaraCIDR];
+	}
+
+	/**
+	 * Calcula la longitud en formato CIDR de una máscara empaquetada: el número de
+	 * unos consecutivos por la izquierda. Es la operación inversa de
+	 * {@link #máscara(int)}.
+	 *
+	 * @param máscara la máscara empaquetada
+	 * @return el número de bits de la parte de red, de 0 a 32
+	 * @throws NúmeroIPv4Exception si la máscara no es contigua, es decir, si tras
+	 *                             el primer cero queda algún uno
+	 */
+	public static int longitudPrefijo(int máscara) {
+		int longitud;
+
+		longitud = Integer.numberOfLeadingZeros(~máscara);
+		if (máscara != MÁSCARAS[longitud]) {
+			throw new NúmeroIPv4Exception(String.format("Máscara «%s» no contigua", new NúmeroIPv4(máscara)));
+		}
+
+		return longitud;
+	}
+
+	/**
+	 * Comprueba si un valor empaquetado es una máscara de red contigua válida.
+	 *
+	 * @param máscara el valor a comprobar
+	 * @return si es una de las 33 máscaras canónicas o no
+	 */
+	public static boolean esMáscara(int máscara) {
+		return máscara == MÁSCARAS[Integer.numberOfLeadingZeros(~máscara)];
+	}
+
+	/**
+	 * Verifica que una longitud de máscara en formato CIDR esté en el rango
+	 * [0,32].
+	 *
+	 * @param máscaraCIDR el valor a comprobar
+	 * @throws NúmeroIPv4Exception si está fuera de rango
+	 */
+	public static void verificarMáscaraCIDR(int máscaraCIDR) {
+		if (máscaraCIDR < 0 || máscaraCIDR > BITS) {
+			throw new NúmeroIPv4Exception(String.format("Máscara «/%d» fuera de rango", máscaraCIDR));
+		}
+	}
+
+	/**
+	 * Aplica una máscara de red ya empaquetada. Véase
+	 * {@link NúmeroIPv4#aplicarMáscara(NúmeroIPv4)}.
+	 *
+	 * @param valor   la dirección empaquetada
+	 * @param máscara la máscara empaquetada
+	 * @return la dirección de red empaquetada
+	 */
+	public static int aplicarMáscara(int valor, int máscara) {
+		return valor & máscara;
+	}
+
+	/**
+	 * Calcula la dirección de red —la primera del rango— correspondiente a una
+	 * dirección y una máscara en formato CIDR.
+	 *
+	 * @param valor       la dirección empaquetada
+	 * @param máscaraCIDR el número de bits de la parte de red
+	 * @return la dirección de red empaquetada
+	 */
+	public static int red(int valor, int máscaraCIDR) {
+		return valor & máscara(máscaraCIDR);
+	}
+
+	/**
+	 * Calcula la dirección de difusión —la última del rango— correspondiente a una
+	 * dirección y una máscara en formato CIDR.
+	 *
+	 * @param valor       la dirección empaquetada
+	 * @param máscaraCIDR el número de bits de la parte de red
+	 * @return la dirección de difusión empaquetada
+	 */
+	public static int difusión(int valor, int máscaraCIDR) {
+		return valor | ~máscara(máscaraCIDR);
+	}
+
+	/**
+	 * Comprueba si dos direcciones pertenecen a la misma red.
+	 *
+	 * @param valor1      la primera dirección empaquetada
+	 * @param valor2      la segunda dirección empaquetada
+	 * @param máscaraCIDR el número de bits de la parte de red
+	 * @return si coinciden ambas partes de red o no
+	 */
+	public static boolean mismaRed(int valor1, int valor2, int máscaraCIDR) {
+		return ((valor1 ^ valor2) & máscara(máscaraCIDR)) == 0;
+	}
+
+	/**
+	 * Compara dos direcciones empaquetadas como números sin signo.
+	 *
+	 * @param valor1 la primera dirección empaquetada
+	 * @param valor2 la segunda dirección empaquetada
+	 * @return un valor negativo, cero o positivo si la primera es menor, igual o
+	 *         mayor que la segunda
+	 * @see Integer#compareUnsigned(int, int)
+	 */
+	public static int comparar(int valor1, int valor2) {
+		return Integer.compareUnsigned(valor1, valor2);
+	}
+
+	/**
+	 * Desplaza una dirección un número de posiciones hacia delante o hacia atrás.
+	 *
+	 * @param valor      la dirección empaquetada
+	 * @param incremento el número de posiciones, positivo o negativo
+	 * @return la dirección empaquetada resultante
+	 * @throws NúmeroIPv4Exception si el resultado queda fuera del rango IPv4
+	 */
+	public static int sumar(int valor, long incremento) {
+		long total;
+
+		total = toLong(valor) + incremento;
+		if (total < 0 || total > MÁXIMO) {
+			throw new NúmeroIPv4Exception(String.format("Desplazamiento %d fuera de rango", incremento));
+		}
+
+		return (int) total;
+	}
+
+	/**
+	 * Facilita el valor sin signo de una dirección empaquetada. Para soportar
+	 * valores positivos de 32 bits requiere emplear enteros de tipo
+	 * <code>long</code>.
+	 *
+	 * @param valor la dirección empaquetada
+	 * @return el valor correspondiente, en el rango [0,{@value #MÁXIMO}]
+	 */
+	public static long toLong(int valor) {
+		return Integer.toUnsignedLong(valor);
+	}
+}
@@ -0,0 +1,201 @@
+package jcolonia.daw.redipv4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escritura de direcciones IPv4 empaquetadas en su representación tradicional
+ * —«192.168.32.11»— sin pasar por {@link String#format(String, Object...)}. Es
+ * la operación inversa de {@link AnalizadorIPv4}.
+ *
+ * <div>Los dígitos de los 256 valores posibles de cada octeto se precalculan
+ * una sola vez en una tabla, de modo que escribir una dirección consiste en
+ * copiar como mucho quince caracteres ASCII. Las variantes sobre
+ * <code>byte[]</code>, <code>char[]</code>, {@link ByteBuffer} y
+ * {@link StringBuilder} no crean ningún objeto.</div>
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class EscritorIPv4 {
+	/**
+	 * Longitud máxima del texto de una dirección: «255.255.255.255».
+	 */
+	public static final int MÁX_LONGITUD = 15;
+
+	/**
+	 * Dígitos ASCII de cada octeto. Cada uno ocupa cuatro posiciones: la longitud
+	 * —de 1 a 3— seguida de los dígitos, de izquierda a derecha.
+	 */
+	private static final byte[] DÍGITOS;
+
+	static {
+		String texto;
+
+		DÍGITOS = new byte[256 * 4];
+		for (int octeto = 0; octeto < 256; octeto++) {
+			texto = Integer.toString(octeto);
+			DÍGITOS[octeto * 4] = (byte) texto.length();
+			for (int i = 0; i < texto.length(); i++) {
+				DÍGITOS[octeto * 4 + 1 + i] = (byte) texto.charAt(i);
+			}
+		}
+	}
+
+	/**
+	 * Clase de utilidad: no se crean objetos.
+	 */
+	private EscritorIPv4() {
+	}
+
+	/**
+	 * Escribe una dirección en una tabla de bytes ASCII.
+	 *
+	 * @param valor   la dirección empaquetada
+	 * @param destino la tabla de bytes, con al menos {@value #MÁX_LONGITUD}
+	 *                posiciones libres a partir de <code>desde</code> para
+	 *                cualquier dirección
+	 * @param desde   la posición donde empezar a escribir
+	 * @return la posición siguiente al último byte escrito
+	 * @throws ArrayIndexOutOfBoundsException si no cabe el texto
+	 */
+	public static int escribir(int valor, byte[] destino, int desde) {
+		int posición = desde;
+		int índice, longitud;
+
+		for (int desplazamiento = 24; desplazamiento >= 0; desplazamiento -= 8) {
+			índice = ((valor >>> desplazamiento) & 0xFF) * 4;
+			longitud = DÍGITOS[índice];
+			for (int i = 1; i <= longitud; i++) {
+				destino[posición++] = DÍGITOS[índice + i];
+			}
+			if (desplazamiento > 0) {
+				destino[posición++] = '.';
+			}
+		}
+
+		return posición;
+	}
+
+	/**
+	 * Escribe una dirección en una tabla de caracteres.
+	 *
+	 * @param valor   la dirección empaquetada
+	 * @param destino la tabla de caracteres, con al menos {@value #MÁX_LONGITUD}
+	 *                posiciones libres a partir de <code>desde</code> para
+	 *                cualquier dirección
+	 * @param desde   la posición donde empezar a escribir
+	 * @return la posición siguiente al último carácter escrito
+	 * @throws ArrayIndexOutOfBoundsException si no cabe el texto
+	 */
+	public static int escribir(int valor, char[] destino, int desde) {
+		int posición = desde;
+		int índice, longitud;
+
+		for (int desplazamiento = 24; desplazamiento >= 0; desplazamiento -= 8) {
+			índice = ((valor >>> desplazamiento) & 0xFF) * 4;
+			longitud = DÍGITOS[índice];
+			for (int i = 1; i <= longitud; i++) {
+				destino[posición++] = (char) DÍGITOS[índice + i];
+			}
+			if (desplazamiento > 0) {
+				destino[posición++] = '.';
+			}
+		}
+
+		return posición;
+	}
+
+	/**
+	 * Escribe una dirección en un búfer de bytes empleando posiciones absolutas,
+	 * sin alterar la posición ni el límite del búfer.
+	 *
+	 * @param valor   la dirección empaquetada
+	 * @param destino el búfer de bytes
+	 * @param desde   la posición donde empezar a escribir
+	 * @return la posición siguiente al último byte escrito
+	 * @throws IndexOutOfBoundsException si no cabe el texto
+	 */
+	public static int escribir(int valor, ByteBuffer destino, int desde) {
+		int posición = desde;
+		int índice, longitud;
+
+		for (int desplazamiento = 24; desplazamiento >= 0; desplazamiento -= 8) {
+			índice = ((valor >>> desplazamiento) & 0xFF) * 4;
+			longitud = DÍGITOS[índice];
+			for (int i = 1; i <= longitud; i++) {
+				destino.put(posición++, DÍGITOS[índice + i]);
+			}
+			if (desplazamiento > 0) {
+				destino.put(posición++, (byte) '.');
+			}
+		}
+
+		return posición;
+	}
+
+	/**
+	 * Añade una dirección al final de un {@link StringBuilder}.
+	 *
+	 * @param valor   la dirección empaquetada
+	 * @param destino el texto donde añadirla
+	 * @return el mismo <code>destino</code>, para encadenar llamadas
+	 */
+	public static StringBuilder escribir(int valor, StringBuilder destino) {
+		int índice, longitud;
+
+		for (int desplazamiento = 24; desplazamiento >= 0; desplazamiento -= 8) {
+			índice = ((valor >>> desplazamiento) & 0xFF) * 4;
+			longitud = DÍGITOS[índice];
+			for (int i = 1; i <= longitud; i++) {
+				destino.append((char) DÍGITOS[índice + i]);
+			}
+			if (desplazamiento > 0) {
+				destino.append('.');
+			}
+		}
+
+		return destino;
+	}
+
+	/**
+	 * Añade una dirección a cualquier destino de caracteres: un
+	 * {@link java.io.Writer Writer}, un {@link java.nio.CharBuffer CharBuffer}…
+	 *
+	 * @param valor   la dirección empaquetada
+	 * @param destino el destino donde añadirla
+	 * @return el mismo <code>destino</code>, para encadenar llamadas
+	 * @throws IOException si se produce algún error de escritura
+	 */
+	public static Appendable escribir(int valor, Appendable destino) throws IOException {
+		int índice, longitud;
+
+		for (int desplazamiento = 24; desplazamiento >= 0; desplazamiento -= 8) {
+			índice = ((valor >>> desplazamiento) & 0xFF) * 4;
+			longitud = DÍGITOS[índice];
+			for (int i = 1; i <= longitud; i++) {
+				destino.append((char) DÍGITOS[índice + i]);
+			}
+			if (desplazamiento > 0) {
+				destino.append('.');
+			}
+		}
+
+		return destino;
+	}
+
+	/**
+	 * Facilita el texto de una dirección. Crea únicamente el texto resultante.
+	 *
+	 * @param valor la dirección empaquetada
+	 * @return el texto correspondiente
+	 */
+	public static String toString(int valor) {
+		byte[] texto = new byte[MÁX_LONGITUD];
+		int longitud;
+
+		longitud = escribir(valor, texto, 0);
+		return new String(texto, 0, longitud, StandardCharsets.ISO_8859_1);
+	}
+}
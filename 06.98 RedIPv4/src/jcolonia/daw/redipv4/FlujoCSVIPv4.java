@@ -0,0 +1,379 @@
+package jcolonia.daw.redipv4;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Importación y exportación en flujo de identificaciones IPv4 en el formato
+ * pseudo-CSV de {@link IdentificaciónIPv4#toStringCSV()}: una identificación
+ * por línea con los campos separados por «#».
+ *
+ * <div>A diferencia de {@link RedIPv4#generarListadoCSV()}, nunca se reúne el
+ * archivo completo en memoria: cada línea se procesa y se entrega según se lee
+ * —a una acción o a través de un {@link Stream}, para poder filtrar cuanto
+ * antes— o se escribe según se genera. El consumo de memoria no depende así del
+ * tamaño del archivo. Las líneas se leen y se escriben con {@link CódecCSVIPv4}
+ * sobre una tabla de caracteres reutilizable, sin crear un texto por
+ * línea.</div>
+ *
+ * <div>Las líneas vacías se ignoran. Una línea mal formada detiene la
+ * importación con una {@link LíneaCSVException} que indica su número.</div>
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class FlujoCSVIPv4 {
+	/**
+	 * Tamaño de los búferes de lectura y escritura, en caracteres.
+	 */
+	private static final int TAMAÑO_BÚFER = 64 * 1024;
+
+	/**
+	 * Clase de utilidad: no se crean objetos.
+	 */
+	private FlujoCSVIPv4() {
+	}
+
+	/**
+	 * Lee todas las identificaciones de un flujo de caracteres y las entrega una
+	 * a una a una acción. No cierra el flujo.
+	 *
+	 * @param entrada el flujo de caracteres
+	 * @param destino la acción que recibe cada identificación
+	 * @return el número de identificaciones leídas
+	 * @throws IOException        si se produce algún error de lectura
+	 * @throws LíneaCSVException si alguna línea está mal formada
+	 */
+	public static long importar(Reader entrada, Consumer<? super IdentificaciónIPv4> destino) throws IOException {
+		LectorLíneas lector;
+		long total = 0;
+
+		lector = new LectorLíneas(entrada);
+		while (lector.siguiente()) {
+			destino.accept(lector.analizar());
+			total++;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Lee todas las identificaciones de un flujo de bytes en UTF-8. No cierra el
+	 * flujo.
+	 *
+	 * @param entrada el flujo de bytes
+	 * @param destino la acción que recibe cada identificación
+	 * @return el número de identificaciones leídas
+	 * @throws IOException        si se produce algún error de lectura
+	 * @throws LíneaCSVException si alguna línea está mal formada
+	 * @see #importar(Reader, Consumer)
+	 */
+	public static long importar(InputStream entrada, Consumer<? super IdentificaciónIPv4> destino)
+			throws IOException {
+		return importar(new InputStreamReader(entrada, StandardCharsets.UTF_8), destino);
+	}
+
+	/**
+	 * Lee todas las identificaciones de un archivo en UTF-8.
+	 *
+	 * @param archivo la ruta del archivo
+	 * @param destino la acción que recibe cada identificación
+	 * @return el número de identificaciones leídas
+	 * @throws IOException        si se produce algún error de lectura
+	 * @throws LíneaCSVException si alguna línea está mal formada
+	 * @see #importar(Reader, Consumer)
+	 */
+	public static long importar(Path archivo, Consumer<? super IdentificaciónIPv4> destino) throws IOException {
+		long total;
+
+		try (Reader entrada = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+			total = importar(entrada, destino);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Facilita las identificaciones de un flujo de caracteres como un
+	 * {@link Stream} perezoso: cada línea se lee y se analiza solo cuando se pide
+	 * el elemento correspondiente. Los errores de lectura se comunican como
+	 * {@link UncheckedIOException}. Cerrar el {@link Stream} cierra el flujo.
+	 *
+	 * @param entrada el flujo de caracteres
+	 * @return el {@link Stream} de identificaciones
+	 */
+	public static Stream<IdentificaciónIPv4> leer(Reader entrada) {
+		LectorLíneas lector;
+		Spliterator<IdentificaciónIPv4> divisor;
+
+		lector = new LectorLíneas(entrada);
+		divisor = new Spliterators.AbstractSpliterator<IdentificaciónIPv4>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super IdentificaciónIPv4> acción) {
+				boolean avance;
+
+				try {
+					avance = lector.siguiente();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+
+				if (avance) {
+					acción.accept(lector.analizar());
+				}
+				return avance;
+			}
+		};
+
+		return StreamSupport.stream(divisor, false).onClose(() -> {
+			try {
+				entrada.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/**
+	 * Facilita las identificaciones de un archivo en UTF-8 como un
+	 * {@link Stream} perezoso. Debe cerrarse el {@link Stream} para cerrar el
+	 * archivo.
+	 *
+	 * @param archivo la ruta del archivo
+	 * @return el {@link Stream} de identificaciones
+	 * @throws IOException si no se puede abrir el archivo
+	 * @see #leer(Reader)
+	 */
+	public static Stream<IdentificaciónIPv4> leer(Path archivo) throws IOException {
+		return leer(Files.newBufferedReader(archivo, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Escribe una línea por cada identificación en un flujo de caracteres. Vacía
+	 * el búfer al terminar, pero no cierra el flujo.
+	 *
+	 * @param elementos las identificaciones a escribir
+	 * @param salida    el flujo de caracteres
+	 * @return el número de líneas escritas
+	 * @throws IOException si se produce algún error de escritura
+	 */
+	public static long exportar(Iterable<IdentificaciónIPv4> elementos, Writer salida) throws IOException {
+		BufferedWriter escritor;
+		char[] línea = new char[CódecCSVIPv4.MÁX_LONGITUD];
+		long total = 0;
+
+		escritor = (salida instanceof BufferedWriter) ? (BufferedWriter) salida
+				: new BufferedWriter(salida, TAMAÑO_BÚFER);
+		for (IdentificaciónIPv4 elemento : elementos) {
+			escritor.write(línea, 0, CódecCSVIPv4.escribir(elemento.getRegistro(), línea, 0));
+			escritor.newLine();
+			total++;
+		}
+		escritor.flush();
+
+		return total;
+	}
+
+	/**
+	 * Escribe una línea por cada identificación en un flujo de bytes, en UTF-8.
+	 * No cierra el flujo.
+	 *
+	 * @param elementos las identificaciones a escribir
+	 * @param salida    el flujo de bytes
+	 * @return el número de líneas escritas
+	 * @throws IOException si se produce algún error de escritura
+	 */
+	public static long exportar(Iterable<IdentificaciónIPv4> elementos, OutputStream salida) throws IOException {
+		return exportar(elementos, new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Escribe una línea por cada identificación en un archivo en UTF-8,
+	 * sustituyendo su contenido anterior.
+	 *
+	 * @param elementos las identificaciones a escribir
+	 * @param archivo   la ruta del archivo
+	 * @return el número de líneas escritas
+	 * @throws IOException si se produce algún error de escritura
+	 */
+	public static long exportar(Iterable<IdentificaciónIPv4> elementos, Path archivo) throws IOException {
+		long total;
+
+		try (Writer salida = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+			total = exportar(elementos, salida);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Lector de líneas sobre una tabla de caracteres reutilizable: las líneas se
+	 * analizan directamente en la tabla, sin crear un texto por línea. La tabla
+	 * solo crece si alguna línea no cabe en ella.
+	 */
+	private static final class LectorLíneas {
+		/**
+		 * Flujo de caracteres de origen.
+		 */
+		private final Reader entrada;
+
+		/**
+		 * Caracteres leídos y aún no consumidos.
+		 */
+		private char[] búfer;
+
+		/**
+		 * Posición del primer carácter no consumido.
+		 */
+		private int posición;
+
+		/**
+		 * Número de caracteres válidos en la tabla.
+		 */
+		private int ocupado;
+
+		/**
+		 * Si se ha alcanzado el final del flujo.
+		 */
+		private boolean agotado;
+
+		/**
+		 * Inicio de la línea actual, incluido.
+		 */
+		private int inicio;
+
+		/**
+		 * Final de la línea actual, excluido el fin de línea.
+		 */
+		private int fin;
+
+		/**
+		 * Número de la línea actual, contando desde 1.
+		 */
+		private long númeroLínea;
+
+		/**
+		 * Crea un lector sobre un flujo de caracteres.
+		 *
+		 * @param entrada el flujo de caracteres
+		 */
+		LectorLíneas(Reader entrada) {
+			this.entrada = entrada;
+			búfer = new char[TAMAÑO_BÚFER];
+		}
+
+		/**
+		 * Avanza hasta la siguiente línea no vacía.
+		 *
+		 * @return si la hay o se ha llegado al final del flujo
+		 * @throws IOException si se produce algún error de lectura
+		 */
+		boolean siguiente() throws IOException {
+			boolean hay;
+
+			do {
+				hay = avanzar();
+			} while (hay && inicio == fin);
+
+			return hay;
+		}
+
+		/**
+		 * Analiza la línea actual, añadiendo el número de línea a cualquier
+		 * incidencia. En caso de error la línea se analiza de nuevo por separado,
+		 * para que la posición indicada se cuente desde su inicio.
+		 *
+		 * @return la identificación correspondiente
+		 * @throws LíneaCSVException si la línea está mal formada
+		 */
+		IdentificaciónIPv4 analizar() {
+			long registro;
+
+			try {
+				registro = CódecCSVIPv4.analizar(búfer, inicio, fin);
+			} catch (NúmeroIPv4Exception e) {
+				try {
+					CódecCSVIPv4.analizar(CharBuffer.wrap(búfer, inicio, fin - inicio));
+				} catch (NúmeroIPv4Exception relativa) {
+					e = relativa;
+				}
+				throw new LíneaCSVException(númeroLínea, e);
+			}
+
+			return IdentificaciónIPv4.ofRegistro(registro);
+		}
+
+		/**
+		 * Avanza hasta la siguiente línea, vacía o no.
+		 *
+		 * @return si la hay o se ha llegado al final del flujo
+		 * @throws IOException si se produce algún error de lectura
+		 */
+		private boolean avanzar() throws IOException {
+			int i = posición;
+			boolean hay;
+
+			// Hasta el fin de línea o, si no lo hay, hasta el final del flujo
+			while (i < ocupado ? búfer[i] != '\n' : !agotado) {
+				if (i < ocupado) {
+					i++;
+				} else {
+					i -= posición;
+					rellenar();
+				}
+			}
+
+			hay = i < ocupado || i > posición;
+			if (hay) {
+				inicio = posición;
+				fin = (i > inicio && búfer[i - 1] == '\r') ? i - 1 : i;
+				posición = Math.min(i + 1, ocupado);
+				númeroLínea++;
+			}
+			return hay;
+		}
+
+		/**
+		 * Lleva los caracteres no consumidos al principio de la tabla, duplicando
+		 * su tamaño si ya la ocupan entera, y lee más del flujo.
+		 *
+		 * @throws IOException si se produce algún error de lectura
+		 */
+		private void rellenar() throws IOException {
+			int pendientes = ocupado - posición, leídos;
+
+			if (pendientes == búfer.length) {
+				búfer = Arrays.copyOf(búfer, búfer.length * 2);
+			} else {
+				System.arraycopy(búfer, posición, búfer, 0, pendientes);
+			}
+			posición = 0;
+			ocupado = pendientes;
+
+			leídos = entrada.read(búfer, ocupado, búfer.length - ocupado);
+			if (leídos < 0) {
+				agotado = true;
+			} else {
+				ocupado += leídos;
+			}
+		}
+	}
+}
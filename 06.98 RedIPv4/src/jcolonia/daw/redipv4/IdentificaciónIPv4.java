@@ -1,181 +1,260 @@
 package jcolonia.daw.redipv4;
 
 /**
- * Modelo: Identificación de un nodo, red o dirección IP incorporando la máscara de red.
- * 
- * @version 0.1 (20240503001)
+ * Modelo: Identificación de un nodo, red o dirección IP incorporando la máscara
+ * de red.
+ *
+ * <div>Es un valor inmutable: la dirección y la longitud de la máscara se
+ * guardan empaquetadas en un único entero largo, con el mismo formato que
+ * {@link RegistroIPv4}. Los métodos de creación verifican los datos una sola
+ * vez; a partir de ahí, {@link #equals(Object)}, {@link #hashCode()} y
+ * {@link #compareTo(IdentificaciónIPv4)} se resuelven con operaciones sobre ese
+ * entero, sin crear objetos ni volver a comprobar nada.</div>
+ *
+ * <div>El orden natural es el de {@link RegistroIPv4#comparar(long, long)}:
+ * primero por dirección de red sin signo, después por longitud de máscara y,
+ * por último, por dirección completa. Es coherente con
+ * {@link #equals(Object)}.</div>
+ *
+ * @version 0.3 (20261018002)
  * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
  */
-public class IdentificaciónIPv4 {
+public final class IdentificaciónIPv4 implements Comparable<IdentificaciónIPv4> {
 	/**
-	 * Separador empleado en la exportación pseudo-CSV: «#» (almohadilla, número…).
-	 * 
-	 * @see #toStringCSV()
-	 * @see #of(String)
+	 * Dirección y longitud de máscara empaquetadas, ya verificadas.
+	 *
+	 * @see RegistroIPv4
 	 */
-	private static final String SEPARADOR = "#";
+	private final long registro;
 
 	/**
-	 * Dirección IPv4.
+	 * Crea una identificación a partir de un registro ya verificado.
+	 *
+	 * @param registro el registro empaquetado
 	 */
-	private NúmeroIPv4 dirección;
+	private IdentificaciónIPv4(long registro) {
+		this.registro = registro;
+	}
+
+	/**
+	 * Crea una identificación a partir de una dirección y una longitud de máscara.
+	 *
+	 * @param dirección   la dirección IPv4
+	 * @param máscaraCIDR la longitud de la máscara, de 0 a 32
+	 * @return la identificación correspondiente
+	 * @throws NúmeroIPv4Exception si la longitud de máscara está fuera de rango
+	 */
+	public static IdentificaciónIPv4 of(NúmeroIPv4 dirección, int máscaraCIDR) {
+		return new IdentificaciónIPv4(RegistroIPv4.of(dirección.valor(), máscaraCIDR));
+	}
+
 	/**
-	 * Máscara IPv4.
+	 * Crea una identificación a partir de una dirección y una máscara.
+	 *
+	 * @param dirección la dirección IPv4
+	 * @param máscara   la máscara de red
+	 * @return la identificación correspondiente
+	 * @throws NúmeroIPv4Exception si la máscara no es contigua
 	 */
-	private NúmeroIPv4 máscara;
-	
+	public static IdentificaciónIPv4 of(NúmeroIPv4 dirección, NúmeroIPv4 máscara) {
+		return new IdentificaciónIPv4(RegistroIPv4.of(dirección.valor(), máscara.longitudPrefijo()));
+	}
+
 	/**
-	 * Resultado 1-X-2 del partido.
+	 * Crea una identificación a partir del texto de una dirección y una longitud
+	 * de máscara.
+	 *
+	 * @param txtDirección la dirección, por ejemplo «192.168.32.11»
+	 * @param máscaraCIDR  la longitud de la máscara, de 0 a 32
+	 * @return la identificación correspondiente
+	 * @throws NúmeroIPv4Exception si la dirección no es válida o la longitud de
+	 *                             máscara está fuera de rango
 	 */
-	private Resultado1X2 resultado;
+	public static IdentificaciónIPv4 of(String txtDirección, int máscaraCIDR) {
+		return new IdentificaciónIPv4(RegistroIPv4.of(AnalizadorIPv4.analizar(txtDirección), máscaraCIDR));
+	}
 
 	/**
-	 * Inicializa una lista de valores vacía y pone el contador de valores a cero.
+	 * Crea una identificación a partir de los textos de una dirección y una
+	 * máscara. La máscara puede darse como longitud —«24»— o con la notación de
+	 * puntos —«255.255.255.0»—.
+	 *
+	 * @param txtDirección la dirección, por ejemplo «192.168.32.11»
+	 * @param txtMáscara   la máscara
+	 * @return la identificación correspondiente
+	 * @throws NúmeroIPv4Exception si alguno de los textos no es válido
 	 */
-	public IdentificaciónIPv4() {
+	public static IdentificaciónIPv4 of(String txtDirección, String txtMáscara) {
+		return new IdentificaciónIPv4(
+				RegistroIPv4.of(AnalizadorIPv4.analizar(txtDirección), analizarMáscara(txtMáscara)));
 	}
 
 	/**
-	 * Construye un partido a partir de una línea de texto. La línea de texto debe
-	 * contener, al menos, tres textos válidos en un formato pseudo-CSV empleando el
-	 * carácter definido como {@link #SEPARADOR separador}.
-	 * 
+	 * Construye una identificación a partir de una línea de texto en el formato
+	 * pseudo-CSV de {@link #toStringCSV()}: la dirección y la máscara separadas
+	 * por el carácter definido como {@link CódecCSVIPv4#SEPARADOR separador}. La
+	 * máscara puede darse como longitud o con la notación de puntos; se admiten
+	 * campos extra, pero se ignora lo que sobre.
+	 *
 	 * <div>Se facilita este método estático como alternativa a la posibilidad de
 	 * disponer un método setDatos(String), evitando así tener que gestionar las
 	 * recargas sobre objetos parcialmente rellenados en el inicio. También se evita
 	 * así el caso de que el objeto quedara incompleto si se produce una incidencia
 	 * fatal a mitad de la carga.</div>
-	 * 
-	 * @param líneaCSV la línea de texto
-	 * @throws DatoPartido1X2Exception si alguno de los datos no encaja en la
-	 *                                 posición correspondiente
-	 * @return el nuevo partido creado
-	 */
-	public static IdentificaciónIPv4 of(String líneaCSV) throws DatoPartido1X2Exception {
-		IdentificaciónIPv4 nuevoPartido;
-		nuevoPartido = new IdentificaciónIPv4();
-	
-		String[] partes = líneaCSV.split(SEPARADOR);
-	
-		if (partes.length < MÁX_CAMPOS) { // Excepción temprana si faltan campos
-			throw new NúmeroIPv4Exception("Línea CSV mal formada");
-		}
-	
-		for (String pieza : partes) {
-			// Admitimos campos extra, pero ignoramos lo que sobre.
-			if (nuevoPartido.estáCerrada()) {
-				break;
-			}
-	
-			nuevoPartido.setDato(pieza); // Atención: excepción si el dato no encaja
+	 *
+	 * @param líneaCSV la línea de texto, por ejemplo «192.168.32.11#24»
+	 * @return la identificación correspondiente
+	 * @throws NúmeroIPv4Exception si la línea está mal formada, indicando la
+	 *                             posición del error
+	 * @see CódecCSVIPv4#analizar(CharSequence)
+	 */
+	public static IdentificaciónIPv4 of(String líneaCSV) {
+		return new IdentificaciónIPv4(CódecCSVIPv4.analizar(líneaCSV));
+	}
+
+	/**
+	 * Crea una identificación a partir de un registro empaquetado.
+	 *
+	 * @param registro el registro empaquetado
+	 * @return la identificación correspondiente
+	 * @throws NúmeroIPv4Exception si el registro no tiene el formato de
+	 *                             {@link RegistroIPv4}
+	 */
+	public static IdentificaciónIPv4 ofRegistro(long registro) {
+		if ((registro & 0xFFFF_FFFFL) > EnteroIPv4.BITS) {
+			throw new NúmeroIPv4Exception(String.format("Registro IPv4 no válido: %016X", registro));
 		}
-	
-		return nuevoPartido;
+		return new IdentificaciónIPv4(registro);
 	}
 
 	/**
-	 * Construye un partido a partir de los datos del mismo.
-	 * 
-	 * @param nombreLocal      el nombre del primer equipo, el equipo local
-	 * @param nombreVisitante  el nombre del segundo equipo, el equipo visitante
-	 * @param resultadoPartido el resultado 1-X-2 del partido
-	 * @throws DatoPartido1X2Exception si alguno de los datos no encaja en la
-	 *                                 posición correspondiente
-	 * @return el nuevo partido creado
+	 * Facilita la dirección IPv4.
+	 *
+	 * @return la dirección
 	 */
-	public static IdentificaciónIPv4 of(String nombreLocal, String nombreVisitante, String resultadoPartido)
-			throws DatoPartido1X2Exception {
-		IdentificaciónIPv4 nuevoPartido;
-		nuevoPartido = new IdentificaciónIPv4();
-	
-		nuevoPartido.setDato(nombreLocal);
-		nuevoPartido.setDato(nombreVisitante);
-		nuevoPartido.setDato(resultadoPartido);
-	
-		return nuevoPartido;
+	public NúmeroIPv4 getIP() {
+		return new NúmeroIPv4(RegistroIPv4.dirección(registro));
 	}
 
 	/**
-	 * Verifica que se haya proporcionado un texto.
-	 * 
-	 * @param texto el dato a comprobar
-	 * @throws DatoPartido1X2Exception si el texto es nulo o está vacío
+	 * Facilita la máscara de red. Siempre es una de las instancias únicas de
+	 * {@link NúmeroIPv4#máscara(int)}.
+	 *
+	 * @return la máscara
 	 */
-	public void verificarTextoNoNulo(String texto) throws IPv4Exception {
-		if (texto == null || texto.length() == 0) {
-			throw new IPv4Exception("Dato vacío");
-		}
+	public NúmeroIPv4 getMáscara() {
+		return NúmeroIPv4.máscara(RegistroIPv4.máscaraCIDR(registro));
+	}
+
+	/**
+	 * Facilita la longitud de la máscara de red en formato CIDR.
+	 *
+	 * @return la longitud, de 0 a 32
+	 */
+	public int getMáscaraCIDR() {
+		return RegistroIPv4.máscaraCIDR(registro);
 	}
 
 	/**
-	 * Proporciona una representación en texto formateada del partido. En la primera
-	 * columna van los dos equipos -con puntos de relleno- y en la segunda los
-	 * resultados. Ambas columnas son de ancho fijo para obtener composiciones
-	 * alineadas que formen una tabla.
-	 * 
+	 * Facilita la dirección de red: la dirección con la máscara aplicada.
+	 *
+	 * @return la dirección de red
+	 */
+	public NúmeroIPv4 getRed() {
+		return new NúmeroIPv4(RegistroIPv4.red(registro));
+	}
+
+	/**
+	 * Facilita la dirección y la longitud de máscara empaquetadas.
+	 *
+	 * @return el registro empaquetado
+	 * @see RegistroIPv4
+	 */
+	public long getRegistro() {
+		return registro;
+	}
+
+	/**
+	 * Compara con otra identificación según el orden de las redes. Véase
+	 * {@link RegistroIPv4#comparar(long, long)}.
+	 *
+	 * @param otra la identificación a comparar
+	 * @return un valor negativo, cero o positivo si esta va delante, coincide o
+	 *         va detrás
+	 */
+	@Override
+	public int compareTo(IdentificaciónIPv4 otra) {
+		return RegistroIPv4.comparar(registro, otra.registro);
+	}
+
+	/**
+	 * Comprueba si otro objeto es una identificación con la misma dirección y la
+	 * misma máscara.
+	 *
+	 * @param obj el objeto a comparar
+	 * @return si son iguales o no
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		return this == obj || obj instanceof IdentificaciónIPv4 otra && registro == otra.registro;
+	}
+
+	/**
+	 * Calcula el código de dispersión a partir del registro empaquetado.
+	 *
+	 * @return el código correspondiente
+	 */
+	@Override
+	public int hashCode() {
+		return Long.hashCode(registro);
+	}
+
+	/**
+	 * Proporciona la representación habitual en texto: la dirección y la longitud
+	 * de la máscara separadas por una barra, por ejemplo «192.168.32.11/24».
+	 *
 	 * @return el texto correspondiente
 	 */
 	@Override
 	public String toString() {
-		String mensaje;
-		String textoNombres, textoLocal, textoVisitante;
-		String textoResultado;
+		StringBuilder texto = new StringBuilder(CódecCSVIPv4.MÁX_LONGITUD);
 
-		textoLocal = (equipoLocal == null) ? "¿?" : equipoLocal;
-		textoVisitante = (equipoVisitante == null) ? "¿?" : equipoVisitante;
-		textoNombres = String.format("%s - %s", textoLocal, textoVisitante);
+		EscritorIPv4.escribir(RegistroIPv4.dirección(registro), texto);
+		texto.append('/').append(RegistroIPv4.máscaraCIDR(registro));
 
-		textoNombres = normalizarAncho(TXT_ANCHO_NOMBRES, textoNombres, '.');
-
-		textoResultado = (resultado == null) ? Resultado1X2.toNullString() : resultado.to1X2String();
-		mensaje = String.format("%s %s", textoNombres, textoResultado);
-		return mensaje;
+		return texto.toString();
 	}
 
 	/**
-	 * Coloca en una línea todos los datos del partido separados por el carácter
-	 * definido como {@link #SEPARADOR separador}. Se utiliza para montar el archivo
-	 * en formato pseudo CSV.
-	 * 
+	 * Coloca en una línea la dirección y la longitud de la máscara separadas por
+	 * el carácter definido como {@link CódecCSVIPv4#SEPARADOR separador}. Se
+	 * utiliza para montar el archivo en formato pseudo CSV.
+	 *
 	 * @return la línea completa
+	 * @see #of(String)
+	 * @see CódecCSVIPv4#escribir(long, Appendable)
 	 */
 	public String toStringCSV() {
-		verificarCerrada();
-		StringBuffer texto = new StringBuffer();
-
-		texto.append(equipoLocal);
-		texto.append(SEPARADOR);
-		texto.append(equipoVisitante);
-		texto.append(SEPARADOR);
-		texto.append(resultado);
-
-		return texto.toString();
+		return CódecCSVIPv4.toString(registro);
 	}
 
 	/**
-	 * Proporciona una representación en texto de los puntos conseguidos por cada
-	 * equipo. El ganador recibe tres puntos y en caso de empate se reparte un punto
-	 * a cada uno.
-	 * 
-	 * @return el texto correspondiente
+	 * Analiza el texto de una máscara, dada como longitud —solo dígitos ASCII,
+	 * sin signo ni ceros a la izquierda— o con la notación de puntos.
+	 *
+	 * @param txtMáscara el texto a analizar
+	 * @return la longitud de la máscara
+	 * @throws NúmeroIPv4Exception si el texto no es una máscara válida
 	 */
-	public String toStringPuntos() {
-		String mensaje;
-
-		switch (resultado) {
-		case Local1:
-			mensaje = String.format("↑ %s (%d)", equipoLocal, 3);
-			break;
-		case Visitante2:
-			mensaje = String.format("↓ %s (%d)", equipoVisitante, 3);
-			break;
-		case EmpateX:
-			mensaje = String.format("= %s (%3$d) - %s (%3$d)", equipoLocal, equipoVisitante, 1);
-			break;
-		default: // No debe ocurrir, datos incompletos
-			mensaje = "- - - -";
-			break;
+	private static int analizarMáscara(String txtMáscara) {
+		int máscaraCIDR;
+
+		if (txtMáscara.indexOf('.') >= 0) {
+			máscaraCIDR = EnteroIPv4.longitudPrefijo(AnalizadorIPv4.analizar(txtMáscara));
+		} else {
+			máscaraCIDR = CódecCSVIPv4.analizarLongitud(txtMáscara, 0, txtMáscara.length());
 		}
-		return mensaje;
+
+		return máscaraCIDR;
 	}
 }
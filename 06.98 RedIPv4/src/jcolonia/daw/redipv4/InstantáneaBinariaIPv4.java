@@ -0,0 +1,440 @@
+package jcolonia.daw.redipv4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Instantánea binaria de solo lectura de una colección de identificaciones
+ * IPv4, pensada para arrancar al instante con inventarios grandes. El archivo se
+ * proyecta en memoria con {@link FileChannel#map} y todas las consultas se
+ * resuelven directamente sobre la proyección, sin crear objetos
+ * {@link IdentificaciónIPv4}; varios procesos que abran el mismo archivo
+ * comparten además las mismas páginas de la caché del sistema.
+ *
+ * <div>Formato del archivo, con los enteros en orden de red (big-endian):
+ * <ul>
+ * <li>Cabecera de {@value #TAMAÑO_CABECERA} bytes: firma «RIP4», versión del
+ * formato (2 bytes), tamaño de cada registro (2 bytes), número de registros (8
+ * bytes) y mapa de bits de las longitudes de máscara presentes (8 bytes).</li>
+ * <li>Registros de {@value #TAMAÑO_REGISTRO} bytes: dirección (4 bytes) y
+ * longitud de máscara (1 byte), ordenados según
+ * {@link RegistroIPv4#comparar(long, long)}.</li>
+ * </ul>
+ * </div>
+ *
+ * <div>Una sola proyección admite hasta 2 GB, es decir, algo más de 429 millones
+ * de registros.</div>
+ *
+ * @version 0.3 (20261018002)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class InstantáneaBinariaIPv4 {
+	/**
+	 * Interfaz para recorrer los registros sin crear objetos.
+	 */
+	@FunctionalInterface
+	public interface ConsumidorRegistro {
+		/**
+		 * Recibe un registro.
+		 *
+		 * @param dirección   la dirección empaquetada
+		 * @param máscaraCIDR la longitud de la máscara
+		 */
+		void aceptar(int dirección, int máscaraCIDR);
+	}
+
+	/**
+	 * Firma de los archivos: los caracteres «RIP4».
+	 */
+	public static final int FIRMA = 0x5249_5034;
+
+	/**
+	 * Versión del formato escrito por esta clase.
+	 */
+	public static final short VERSIÓN_FORMATO = 1;
+
+	/**
+	 * Tamaño de la cabecera, en bytes.
+	 */
+	public static final int TAMAÑO_CABECERA = 24;
+
+	/**
+	 * Tamaño de cada registro, en bytes.
+	 */
+	public static final int TAMAÑO_REGISTRO = 5;
+
+	/**
+	 * Número máximo de registros que admite una proyección.
+	 */
+	private static final int MÁX_REGISTROS = (Integer.MAX_VALUE - TAMAÑO_CABECERA) / TAMAÑO_REGISTRO;
+
+	/**
+	 * Tamaño del búfer de escritura, en bytes. Múltiplo del tamaño de registro.
+	 */
+	private static final int TAMAÑO_BÚFER = 13_107 * TAMAÑO_REGISTRO;
+
+	/**
+	 * Contenido proyectado del archivo. Solo se usan accesos absolutos, por lo
+	 * que puede consultarse desde varios hilos a la vez.
+	 */
+	private final ByteBuffer datos;
+
+	/**
+	 * Número de registros.
+	 */
+	private final int tamaño;
+
+	/**
+	 * Mapa de bits de las longitudes de máscara presentes: el bit <i>n</i> indica
+	 * si hay algún registro «/<i>n</i>».
+	 */
+	private final long longitudes;
+
+	/**
+	 * Crea la instantánea sobre un contenido con la cabecera ya validada.
+	 *
+	 * @param datos      el contenido proyectado
+	 * @param tamaño     el número de registros
+	 * @param longitudes el mapa de longitudes presentes
+	 */
+	private InstantáneaBinariaIPv4(ByteBuffer datos, int tamaño, long longitudes) {
+		this.datos = datos;
+		this.tamaño = tamaño;
+		this.longitudes = longitudes;
+	}
+
+	/**
+	 * Escribe una instantánea con los registros indicados, sustituyendo el
+	 * contenido anterior del archivo. Los registros se ordenan sobre una copia;
+	 * la tabla original no se modifica.
+	 *
+	 * @param registros la tabla de registros empaquetados
+	 * @param número    el número de registros de la tabla a escribir
+	 * @param archivo   la ruta del archivo
+	 * @throws IOException si se produce algún error de escritura
+	 * @see RegistroIPv4
+	 */
+	public static void guardar(long[] registros, int número, Path archivo) throws IOException {
+		long[] ordenados;
+		ByteBuffer búfer;
+		long mapaLongitudes = 0;
+
+		if (número > MÁX_REGISTROS) {
+			throw new IOException(String.format("Demasiados registros: %d (máximo %d)", número, MÁX_REGISTROS));
+		}
+		ordenados = Arrays.copyOf(registros, número);
+		RegistroIPv4.ordenar(ordenados, 0, número);
+		for (long registro : ordenados) {
+			mapaLongitudes |= 1L << RegistroIPv4.máscaraCIDR(registro);
+		}
+
+		try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			búfer = ByteBuffer.allocateDirect(TAMAÑO_BÚFER);
+			búfer.putInt(FIRMA).putShort(VERSIÓN_FORMATO).putShort((short) TAMAÑO_REGISTRO);
+			búfer.putLong(número).putLong(mapaLongitudes);
+
+			for (long registro : ordenados) {
+				if (búfer.remaining() < TAMAÑO_REGISTRO) {
+					escribir(canal, búfer);
+				}
+				búfer.putInt(RegistroIPv4.dirección(registro));
+				búfer.put((byte) RegistroIPv4.máscaraCIDR(registro));
+			}
+			escribir(canal, búfer);
+		}
+	}
+
+	/**
+	 * Abre una instantánea proyectando el archivo en memoria, comprobando solo la
+	 * cabecera. Véase {@link #abrir(Path, boolean)}.
+	 *
+	 * @param archivo la ruta del archivo
+	 * @return la instantánea correspondiente
+	 * @throws IOException si no se puede leer el archivo o su cabecera no es
+	 *                     válida
+	 */
+	public static InstantáneaBinariaIPv4 abrir(Path archivo) throws IOException {
+		return abrir(archivo, false);
+	}
+
+	/**
+	 * Abre una instantánea proyectando el archivo en memoria. El archivo se
+	 * cierra enseguida: la proyección sigue siendo válida hasta que deja de
+	 * usarse la instantánea.
+	 *
+	 * <div>La cabecera se comprueba siempre: firma, versión, número de registros
+	 * acorde con el tamaño del archivo y mapa de longitudes entre 0 y 32. Los
+	 * registros solo se recorren si se pide, pues leerlos todos supone tocar cada
+	 * página del archivo y anula el arranque instantáneo; en ese caso cada
+	 * longitud de máscara debe estar entre 0 y 32, figurar en el mapa de la
+	 * cabecera y los registros deben estar ordenados. Sin esa comprobación, un
+	 * archivo dañado con una cabecera correcta puede dar después respuestas
+	 * erróneas.</div>
+	 *
+	 * @param archivo la ruta del archivo
+	 * @param validar si se comprueban también todos los registros
+	 * @return la instantánea correspondiente
+	 * @throws IOException si no se puede leer el archivo o su formato no es
+	 *                     válido
+	 */
+	public static InstantáneaBinariaIPv4 abrir(Path archivo, boolean validar) throws IOException {
+		ByteBuffer datos;
+		long longitudArchivo, número, mapaLongitudes;
+
+		try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+			longitudArchivo = canal.size();
+			if (longitudArchivo < TAMAÑO_CABECERA || longitudArchivo > Integer.MAX_VALUE) {
+				throw new IOException(String.format("Tamaño de instantánea no válido: %d bytes", longitudArchivo));
+			}
+			datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, longitudArchivo);
+		}
+
+		if (datos.getInt(0) != FIRMA) {
+			throw new IOException("El archivo no es una instantánea binaria IPv4");
+		}
+		if (datos.getShort(4) != VERSIÓN_FORMATO || datos.getShort(6) != TAMAÑO_REGISTRO) {
+			throw new IOException(String.format("Versión de formato no admitida: %d", datos.getShort(4)));
+		}
+		número = datos.getLong(8);
+		if (número < 0 || número > MÁX_REGISTROS
+				|| TAMAÑO_CABECERA + número * TAMAÑO_REGISTRO != longitudArchivo) {
+			throw new IOException(String.format("Instantánea truncada o dañada: %d registros en %d bytes", número,
+					longitudArchivo));
+		}
+		mapaLongitudes = datos.getLong(16);
+		if (mapaLongitudes >>> EnteroIPv4.BITS + 1 != 0 || (mapaLongitudes == 0) != (número == 0)) {
+			throw new IOException(String.format("Instantánea dañada: mapa de longitudes %x con %d registros",
+					mapaLongitudes, número));
+		}
+
+		if (validar) {
+			validarRegistros(datos, (int) número, mapaLongitudes);
+		}
+		return new InstantáneaBinariaIPv4(datos, (int) número, mapaLongitudes);
+	}
+
+	/**
+	 * Comprueba los registros de una instantánea recién proyectada.
+	 *
+	 * @param datos        el contenido proyectado, con la cabecera ya validada
+	 * @param número       el número de registros
+	 * @param mapaCabecera el mapa de longitudes de máscara de la cabecera
+	 * @throws IOException si algún registro no es válido, no está en orden o el
+	 *                     mapa de la cabecera no coincide con los registros
+	 */
+	private static void validarRegistros(ByteBuffer datos, int número, long mapaCabecera) throws IOException {
+		long mapaLongitudes = 0, registro, anterior = 0;
+		int desplazamiento = TAMAÑO_CABECERA, máscaraCIDR;
+
+		for (int i = 0; i < número; i++, desplazamiento += TAMAÑO_REGISTRO) {
+			máscaraCIDR = datos.get(desplazamiento + Integer.BYTES);
+			if (máscaraCIDR < 0 || máscaraCIDR > EnteroIPv4.BITS) {
+				throw new IOException(String.format("Instantánea dañada: longitud de máscara %d en el registro %d",
+						máscaraCIDR, i));
+			}
+			registro = RegistroIPv4.of(datos.getInt(desplazamiento), máscaraCIDR);
+			if (i > 0 && RegistroIPv4.comparar(anterior, registro) > 0) {
+				throw new IOException(String.format("Instantánea dañada: registro %d fuera de orden", i));
+			}
+			mapaLongitudes |= 1L << máscaraCIDR;
+			anterior = registro;
+		}
+
+		if (mapaLongitudes != mapaCabecera) {
+			throw new IOException(String.format("Instantánea dañada: mapa de longitudes %x en lugar de %x",
+					mapaCabecera, mapaLongitudes));
+		}
+	}
+
+	/**
+	 * Devuelve el número de registros.
+	 *
+	 * @return el número de registros
+	 */
+	public int size() {
+		return tamaño;
+	}
+
+	/**
+	 * Lee la dirección de un registro.
+	 *
+	 * @param pos la posición del registro
+	 * @return la dirección empaquetada
+	 * @throws IndexOutOfBoundsException si la posición no existe
+	 */
+	public int getDirección(int pos) {
+		return datos.getInt(desplazamiento(pos));
+	}
+
+	/**
+	 * Lee la longitud de máscara de un registro.
+	 *
+	 * @param pos la posición del registro
+	 * @return la longitud de la máscara
+	 * @throws IndexOutOfBoundsException si la posición no existe
+	 */
+	public int getMáscaraCIDR(int pos) {
+		return datos.get(desplazamiento(pos) + Integer.BYTES);
+	}
+
+	/**
+	 * Lee un registro completo.
+	 *
+	 * @param pos la posición del registro
+	 * @return el registro empaquetado
+	 * @throws IndexOutOfBoundsException si la posición no existe
+	 * @see RegistroIPv4
+	 */
+	public long getRegistro(int pos) {
+		int desplazamiento = desplazamiento(pos);
+		return (long) datos.getInt(desplazamiento) << 32 | datos.get(desplazamiento + Integer.BYTES);
+	}
+
+	/**
+	 * Localiza por búsqueda binaria el primer registro con una red y máscara
+	 * dadas.
+	 *
+	 * @param red         la dirección de red empaquetada
+	 * @param máscaraCIDR la longitud de la máscara
+	 * @return la posición del registro, o -1 si no hay ninguno
+	 */
+	public int buscarExacta(int red, int máscaraCIDR) {
+		int pos = -1;
+
+		if ((longitudes & 1L << máscaraCIDR) != 0) {
+			pos = límiteInferior(red, máscaraCIDR);
+			if (pos == tamaño || RegistroIPv4.compararRed(getRegistro(pos), red, máscaraCIDR) != 0) {
+				pos = -1;
+			}
+		}
+
+		return pos;
+	}
+
+	/**
+	 * Localiza el registro cuya red es la más específica entre las que contienen
+	 * una dirección. Realiza una búsqueda binaria por cada longitud de máscara
+	 * presente, de la más larga a la más corta, y se detiene en la primera que
+	 * encuentra.
+	 *
+	 * @param dirección la dirección empaquetada a consultar
+	 * @return la posición del registro, o -1 si ninguna red contiene la dirección
+	 */
+	public int buscarRuta(int dirección) {
+		long pendientes = longitudes;
+		int longitud, pos = -1;
+
+		while (pendientes != 0 && pos < 0) {
+			longitud = Long.SIZE - 1 - Long.numberOfLeadingZeros(pendientes);
+			pendientes &= ~(1L << longitud);
+			pos = buscarExacta(EnteroIPv4.red(dirección, longitud), longitud);
+		}
+
+		return pos;
+	}
+
+	/**
+	 * Localiza el registro de la red más específica que contiene una dirección.
+	 * Véase {@link #buscarRuta(int)}.
+	 *
+	 * @param dirección la dirección a consultar
+	 * @return la posición del registro, o -1 si ninguna red contiene la dirección
+	 */
+	public int buscarRuta(NúmeroIPv4 dirección) {
+		return buscarRuta(dirección.valor());
+	}
+
+	/**
+	 * Recorre todos los registros en orden sin crear objetos.
+	 *
+	 * @param acción la acción a aplicar a cada registro
+	 */
+	public void recorrer(ConsumidorRegistro acción) {
+		int desplazamiento = TAMAÑO_CABECERA;
+
+		for (int i = 0; i < tamaño; i++, desplazamiento += TAMAÑO_REGISTRO) {
+			acción.aceptar(datos.getInt(desplazamiento), datos.get(desplazamiento + Integer.BYTES));
+		}
+	}
+
+	/**
+	 * Facilita los registros empaquetados como un flujo perezoso de enteros
+	 * largos, apto para procesarse en paralelo.
+	 *
+	 * @return el flujo de registros
+	 * @see RegistroIPv4
+	 */
+	public LongStream registros() {
+		return IntStream.range(0, tamaño).mapToLong(this::getRegistro);
+	}
+
+	/**
+	 * Crea la identificación correspondiente a un registro. Es la única operación
+	 * que crea objetos, para cuando se necesitan de forma puntual.
+	 *
+	 * @param pos la posición del registro
+	 * @return la identificación correspondiente
+	 * @throws IndexOutOfBoundsException si la posición no existe
+	 */
+	public IdentificaciónIPv4 getElemento(int pos) {
+		return IdentificaciónIPv4.ofRegistro(RegistroIPv4.of(getDirección(pos), getMáscaraCIDR(pos)));
+	}
+
+	/**
+	 * Localiza por búsqueda binaria la primera posición cuyo registro no va
+	 * delante de una red dada.
+	 *
+	 * @param red         la dirección de red empaquetada
+	 * @param máscaraCIDR la longitud de la máscara
+	 * @return la posición encontrada, o {@link #tamaño} si todos van delante
+	 */
+	private int límiteInferior(int red, int máscaraCIDR) {
+		int inferior = 0, superior = tamaño, medio;
+
+		while (inferior < superior) {
+			medio = (inferior + superior) >>> 1;
+			if (RegistroIPv4.compararRed(getRegistro(medio), red, máscaraCIDR) < 0) {
+				inferior = medio + 1;
+			} else {
+				superior = medio;
+			}
+		}
+
+		return inferior;
+	}
+
+	/**
+	 * Calcula el desplazamiento de un registro dentro del archivo.
+	 *
+	 * @param pos la posición del registro
+	 * @return el desplazamiento en bytes
+	 * @throws IndexOutOfBoundsException si la posición no existe
+	 */
+	private int desplazamiento(int pos) {
+		return TAMAÑO_CABECERA + Objects.checkIndex(pos, tamaño) * TAMAÑO_REGISTRO;
+	}
+
+	/**
+	 * Vuelca el contenido de un búfer en un canal y lo deja listo para volver a
+	 * llenarse.
+	 *
+	 * @param canal el canal de destino
+	 * @param búfer el búfer con los datos
+	 * @throws IOException si se produce algún error de escritura
+	 */
+	private static void escribir(FileChannel canal, ByteBuffer búfer) throws IOException {
+		búfer.flip();
+		while (búfer.hasRemaining()) {
+			canal.write(búfer);
+		}
+		búfer.clear();
+	}
+}
@@ -16,11 +16,16 @@ public class LanzadorRedIPv4 {
 	 * @param args no se usa
 	 */
 	public static void main(String[] args) {
+		StringBuilder tabla = new StringBuilder();
+
 		System.out.println(new NúmeroIPv4(192, 168, 332, 10));
 
+		// Se compone toda la tabla y se escribe de una vez
 		for (int i = 0; i <= 32; i++) {
-			System.out.printf("/%d → %s (%d direcciones)%n", i, NúmeroIPv4.máscara(i), NúmeroIPv4.capacidadRed(i));
+			tabla.append('/').append(i).append(" → ").append(NúmeroIPv4.máscara(i)).append(" (")
+					.append(NúmeroIPv4.capacidadRed(i)).append(" direcciones)").append(System.lineSeparator());
 		}
+		System.out.print(tabla);
 
 		var ip = new NúmeroIPv4(10, 192, 35, 252);
 		int máscara = 22;
@@ -0,0 +1,255 @@
+package jcolonia.daw.redipv4;
+
+import java.nio.IntBuffer;
+import java.util.Objects;
+
+/**
+ * Operaciones por lotes sobre tablas de direcciones IPv4 empaquetadas:
+ * aplicación de máscaras —en el mismo lugar o sobre otra tabla— y
+ * comprobaciones de red cuyo resultado es una máscara de bits, un bit por
+ * dirección.
+ *
+ * <div>Evitan crear un {@link NúmeroIPv4} por dirección y recorren las tablas
+ * con bucles simples, sin saltos condicionales ni desplazamientos variables en
+ * su interior: la máscara de red sale de la tabla precalculada de
+ * {@link EnteroIPv4#máscara(int)} y el bit de cada dirección dentro de su
+ * palabra, de otra tabla de 64 posiciones, de modo que cada vuelta se reduce a
+ * enmascarar, comparar y combinar. Así el compilador JIT de HotSpot puede
+ * convertirlos en instrucciones vectoriales (SSE, AVX, NEON) sin necesidad de
+ * la API de vectores incubada en el JDK. Los {@link IntBuffer} directos o
+ * proyectados permiten trabajar igualmente con datos fuera del montículo,
+ * aunque su acceso posición a posición no siempre se vectoriza.</div>
+ *
+ * <div>En las máscaras de bits resultantes, el bit <code>j % 64</code> de la
+ * palabra <code>j / 64</code> corresponde a la dirección <code>j</code> del
+ * lote, contada desde su inicio; los bits sobrantes de la última palabra
+ * quedan a cero.</div>
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class LotesIPv4 {
+	/**
+	 * Bit de cada posición dentro de una palabra de la máscara de bits:
+	 * <code>1L &lt;&lt; j</code>.
+	 */
+	private static final long[] BIT_POSICIÓN;
+
+	static {
+		BIT_POSICIÓN = new long[Long.SIZE];
+		for (int j = 0; j < Long.SIZE; j++) {
+			BIT_POSICIÓN[j] = 1L << j;
+		}
+	}
+
+	/**
+	 * Clase de utilidad: no se crean objetos.
+	 */
+	private LotesIPv4() {
+	}
+
+	/**
+	 * Aplica una máscara de red a un tramo de direcciones, sustituyendo cada una
+	 * por su dirección de red.
+	 *
+	 * @param direcciones las direcciones empaquetadas
+	 * @param desde       la primera posición, incluida
+	 * @param hasta       la última posición, excluida
+	 * @param máscaraCIDR la longitud del prefijo, de 0 a 32
+	 * @throws NúmeroIPv4Exception       si la máscara está fuera de rango
+	 * @throws IndexOutOfBoundsException si el tramo no está dentro de la tabla
+	 */
+	public static void aplicarMáscara(int[] direcciones, int desde, int hasta, int máscaraCIDR) {
+		int máscara = EnteroIPv4.máscara(máscaraCIDR);
+
+		Objects.checkFromToIndex(desde, hasta, direcciones.length);
+		for (int i = desde; i < hasta; i++) {
+			direcciones[i] &= máscara;
+		}
+	}
+
+	/**
+	 * Aplica una máscara de red a un tramo de direcciones, guardando las
+	 * direcciones de red en otra tabla —o en otro tramo de la misma—.
+	 *
+	 * @param origen       las direcciones empaquetadas
+	 * @param desdeOrigen  la primera posición de origen
+	 * @param destino      la tabla de destino
+	 * @param desdeDestino la primera posición de destino
+	 * @param número       el número de direcciones
+	 * @param máscaraCIDR  la longitud del prefijo, de 0 a 32
+	 * @throws NúmeroIPv4Exception       si la máscara está fuera de rango
+	 * @throws IndexOutOfBoundsException si algún tramo no está dentro de su tabla
+	 */
+	public static void aplicarMáscara(int[] origen, int desdeOrigen, int[] destino, int desdeDestino, int número,
+			int máscaraCIDR) {
+		int máscara = EnteroIPv4.máscara(máscaraCIDR);
+
+		Objects.checkFromIndexSize(desdeOrigen, número, origen.length);
+		Objects.checkFromIndexSize(desdeDestino, número, destino.length);
+		for (int i = 0; i < número; i++) {
+			destino[desdeDestino + i] = origen[desdeOrigen + i] & máscara;
+		}
+	}
+
+	/**
+	 * Aplica una máscara de red a las direcciones pendientes de un búfer —de su
+	 * posición a su límite—, en el mismo lugar. No modifica la posición del
+	 * búfer.
+	 *
+	 * @param direcciones el búfer de direcciones empaquetadas
+	 * @param máscaraCIDR la longitud del prefijo, de 0 a 32
+	 * @throws NúmeroIPv4Exception si la máscara está fuera de rango
+	 */
+	public static void aplicarMáscara(IntBuffer direcciones, int máscaraCIDR) {
+		int máscara = EnteroIPv4.máscara(máscaraCIDR);
+		int desde = direcciones.position(), hasta = direcciones.limit();
+
+		if (direcciones.hasArray()) {
+			aplicarMáscara(direcciones.array(), direcciones.arrayOffset() + desde,
+					direcciones.arrayOffset() + hasta, máscaraCIDR);
+		} else {
+			for (int i = desde; i < hasta; i++) {
+				direcciones.put(i, direcciones.get(i) & máscara);
+			}
+		}
+	}
+
+	/**
+	 * Comprueba qué direcciones de un tramo pertenecen a una red.
+	 *
+	 * @param direcciones las direcciones empaquetadas
+	 * @param desde       la primera posición, incluida
+	 * @param hasta       la última posición, excluida
+	 * @param red         cualquier dirección de la red, empaquetada
+	 * @param máscaraCIDR la longitud del prefijo de la red, de 0 a 32
+	 * @param resultado   la máscara de bits donde marcar las direcciones de la
+	 *                    red, con al menos <code>(hasta - desde + 63) / 64</code>
+	 *                    palabras
+	 * @return el número de direcciones de la red
+	 * @throws NúmeroIPv4Exception       si la máscara está fuera de rango
+	 * @throws IndexOutOfBoundsException si el tramo no está dentro de la tabla o
+	 *                                   el resultado es demasiado pequeño
+	 */
+	public static int enRed(int[] direcciones, int desde, int hasta, int red, int máscaraCIDR, long[] resultado) {
+		int máscara = EnteroIPv4.máscara(máscaraCIDR);
+		int número = hasta - desde, total = 0, fin;
+		long palabra;
+
+		Objects.checkFromToIndex(desde, hasta, direcciones.length);
+		Objects.checkFromIndexSize(0, palabras(número), resultado.length);
+		red &= máscara;
+		for (int base = 0; base < número; base += Long.SIZE) {
+			palabra = 0;
+			fin = Math.min(Long.SIZE, número - base);
+			for (int j = 0; j < fin; j++) {
+				palabra |= coincide(direcciones[desde + base + j] & máscara, red) & BIT_POSICIÓN[j];
+			}
+			resultado[base >>> 6] = palabra;
+			total += Long.bitCount(palabra);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Comprueba qué direcciones pendientes de un búfer —de su posición a su
+	 * límite— pertenecen a una red. No modifica la posición del búfer. Véase
+	 * {@link #enRed(int[], int, int, int, int, long[])}.
+	 *
+	 * @param direcciones el búfer de direcciones empaquetadas
+	 * @param red         cualquier dirección de la red, empaquetada
+	 * @param máscaraCIDR la longitud del prefijo de la red, de 0 a 32
+	 * @param resultado   la máscara de bits donde marcar las direcciones de la
+	 *                    red
+	 * @return el número de direcciones de la red
+	 */
+	public static int enRed(IntBuffer direcciones, int red, int máscaraCIDR, long[] resultado) {
+		int máscara = EnteroIPv4.máscara(máscaraCIDR);
+		int desde = direcciones.position(), número = direcciones.remaining(), total = 0, fin;
+		long palabra;
+
+		if (direcciones.hasArray()) {
+			total = enRed(direcciones.array(), direcciones.arrayOffset() + desde,
+					direcciones.arrayOffset() + desde + número, red, máscaraCIDR, resultado);
+		} else {
+			Objects.checkFromIndexSize(0, palabras(número), resultado.length);
+			red &= máscara;
+			for (int base = 0; base < número; base += Long.SIZE) {
+				palabra = 0;
+				fin = Math.min(Long.SIZE, número - base);
+				for (int j = 0; j < fin; j++) {
+					palabra |= coincide(direcciones.get(desde + base + j) & máscara, red) & BIT_POSICIÓN[j];
+				}
+				resultado[base >>> 6] = palabra;
+				total += Long.bitCount(palabra);
+			}
+		}
+
+		return total;
+	}
+
+	/**
+	 * Compara por parejas las direcciones de dos tramos y comprueba cuáles
+	 * pertenecen a la misma red: por ejemplo, el origen y el destino de cada
+	 * flujo de tráfico.
+	 *
+	 * @param direcciones1 las primeras direcciones empaquetadas
+	 * @param desde1       la primera posición del primer tramo
+	 * @param direcciones2 las segundas direcciones empaquetadas
+	 * @param desde2       la primera posición del segundo tramo
+	 * @param número       el número de parejas
+	 * @param máscaraCIDR  la longitud del prefijo, de 0 a 32
+	 * @param resultado    la máscara de bits donde marcar las parejas de la misma
+	 *                     red, con al menos <code>(número + 63) / 64</code>
+	 *                     palabras
+	 * @return el número de parejas de la misma red
+	 * @throws NúmeroIPv4Exception       si la máscara está fuera de rango
+	 * @throws IndexOutOfBoundsException si algún tramo no está dentro de su tabla
+	 *                                   o el resultado es demasiado pequeño
+	 */
+	public static int mismaRed(int[] direcciones1, int desde1, int[] direcciones2, int desde2, int número,
+			int máscaraCIDR, long[] resultado) {
+		int máscara = EnteroIPv4.máscara(máscaraCIDR);
+		int total = 0, fin;
+		long palabra;
+
+		Objects.checkFromIndexSize(desde1, número, direcciones1.length);
+		Objects.checkFromIndexSize(desde2, número, direcciones2.length);
+		Objects.checkFromIndexSize(0, palabras(número), resultado.length);
+		for (int base = 0; base < número; base += Long.SIZE) {
+			palabra = 0;
+			fin = Math.min(Long.SIZE, número - base);
+			for (int j = 0; j < fin; j++) {
+				palabra |= coincide((direcciones1[desde1 + base + j] ^ direcciones2[desde2 + base + j]) & máscara, 0)
+						& BIT_POSICIÓN[j];
+			}
+			resultado[base >>> 6] = palabra;
+			total += Long.bitCount(palabra);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Calcula el número de palabras de una máscara de bits.
+	 *
+	 * @param número el número de bits
+	 * @return el número de palabras de 64 bits necesarias
+	 */
+	public static int palabras(int número) {
+		return (número + Long.SIZE - 1) >>> 6;
+	}
+
+	/**
+	 * Compara dos valores sin saltos condicionales.
+	 *
+	 * @param a el primer valor
+	 * @param b el segundo valor
+	 * @return -1 —todos los bits a uno— si son iguales, 0 si no
+	 */
+	private static long coincide(int a, int b) {
+		// Solo cero menos uno resulta negativo al operar sin signo en 64 bits
+		return (Integer.toUnsignedLong(a ^ b) - 1) >> 63;
+	}
+}
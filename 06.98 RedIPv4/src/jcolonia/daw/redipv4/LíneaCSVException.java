@@ -0,0 +1,42 @@
+package jcolonia.daw.redipv4;
+
+/**
+ * Excepción ligera usada en la aplicación «Red IPv4» al importar archivos en
+ * formato pseudo-CSV. Indica el número de la línea mal formada y, si se conoce,
+ * la posición del error dentro de ella.
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public class LíneaCSVException extends NúmeroIPv4Exception {
+	/**
+	 * Número de serie, asociado a la versión de la clase.
+	 */
+	private static final long serialVersionUID = 20261018000L;
+
+	/**
+	 * Número de la línea mal formada, contando desde 1.
+	 */
+	private final long númeroLínea;
+
+	/**
+	 * Crea una excepción a partir de la incidencia detectada al analizar una
+	 * línea. El texto descriptivo antepone el número de línea al de la causa.
+	 *
+	 * @param númeroLínea el número de la línea, contando desde 1
+	 * @param causa       la excepción producida al analizar la línea
+	 */
+	public LíneaCSVException(long númeroLínea, NúmeroIPv4Exception causa) {
+		super(String.format("Línea %d: %s", númeroLínea, causa.getMessage()), causa.getPosición(), causa);
+		this.númeroLínea = númeroLínea;
+	}
+
+	/**
+	 * Facilita el número de la línea mal formada.
+	 *
+	 * @return el número de línea, contando desde 1
+	 */
+	public long getNúmeroLínea() {
+		return númeroLínea;
+	}
+}
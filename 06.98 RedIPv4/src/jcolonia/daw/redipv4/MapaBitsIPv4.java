@@ -0,0 +1,1698 @@
+package jcolonia.daw.redipv4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Conjunto compacto de direcciones IPv4 sueltas, para listas de bloqueo con
+ * millones de direcciones. Sigue el esquema de los mapas de bits «roaring»:
+ * las direcciones se agrupan por sus 16 bits altos y cada grupo guarda los 16
+ * bits bajos en el contenedor que ocupe menos:
+ * <ul>
+ * <li>una tabla ordenada de valores, hasta {@value #MÁX_TABLA} direcciones (2
+ * bytes por dirección);</li>
+ * <li>un mapa de 65&nbsp;536 bits, con más direcciones (8&nbsp;KB fijos);</li>
+ * <li>una lista de rachas de valores consecutivos —inicio y longitud—, cuando
+ * las direcciones forman rangos.</li>
+ * </ul>
+ *
+ * <div>Las operaciones de conjunto —{@link #unión}, {@link #intersección} y
+ * {@link #diferencia}— recorren los grupos de ambos mapas en paralelo y operan
+ * contenedor a contenedor, palabra a palabra en el caso de los mapas de bits.
+ * Las rachas solo se eligen al {@link #optimizar() optimizar}, al guardar y
+ * al {@link #añadirRango(int, int) añadir rangos}.</div>
+ *
+ * <div>El mapa puede {@link #guardar(Path) guardarse} y {@link #abrir(Path)
+ * abrirse} proyectado en memoria: las consultas leen directamente de la
+ * proyección y solo se copian a memoria propia los contenedores que se
+ * modifican.</div>
+ *
+ * <div>No es seguro entre hilos: las consultas simultáneas son posibles, pero
+ * no mientras otro hilo lo modifica. Tampoco debe modificarse mientras se
+ * recorre.</div>
+ *
+ * @version 0.3 (20261018002)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class MapaBitsIPv4 {
+	/**
+	 * Firma de los archivos: los caracteres «RBM4».
+	 */
+	public static final int FIRMA = 0x5242_4D34;
+
+	/**
+	 * Versión del formato escrito por esta clase.
+	 */
+	public static final short VERSIÓN_FORMATO = 1;
+
+	/**
+	 * Número máximo de valores de un contenedor de tipo tabla.
+	 */
+	private static final int MÁX_TABLA = 4096;
+
+	/**
+	 * Número de palabras de 64 bits de un contenedor de tipo mapa de bits.
+	 */
+	private static final int PALABRAS = 1024;
+
+	/**
+	 * Tamaño de la cabecera del archivo: firma, versión, reserva y número de
+	 * contenedores.
+	 */
+	private static final int TAMAÑO_CABECERA = 12;
+
+	/**
+	 * Tamaño de cada entrada del directorio del archivo: clave, tipo, reserva,
+	 * cardinalidad y desplazamiento.
+	 */
+	private static final int TAMAÑO_ENTRADA = 12;
+
+	/**
+	 * Tamaño del búfer de escritura, en bytes.
+	 */
+	private static final int TAMAÑO_BÚFER = 64 * 1024;
+
+	/**
+	 * Código de los contenedores de tipo tabla en el archivo.
+	 */
+	private static final byte TIPO_TABLA = 1;
+
+	/**
+	 * Código de los contenedores de tipo mapa de bits en el archivo.
+	 */
+	private static final byte TIPO_BITS = 2;
+
+	/**
+	 * Código de los contenedores de tipo rachas en el archivo.
+	 */
+	private static final byte TIPO_RACHAS = 3;
+
+	/**
+	 * Claves de los grupos —los 16 bits altos de sus direcciones—, ordenadas y
+	 * ocupadas hasta {@link #tamaño}.
+	 */
+	private char[] claves;
+
+	/**
+	 * Contenedor de cada grupo, en el orden de {@link #claves}.
+	 */
+	private Contenedor[] contenedores;
+
+	/**
+	 * Número de grupos no vacíos.
+	 */
+	private int tamaño;
+
+	/**
+	 * Contenedor de los 16 bits bajos de las direcciones de un grupo. Las
+	 * operaciones de modificación devuelven el contenedor que debe ocupar su
+	 * lugar, que puede ser de otro tipo, o <code>null</code> si queda vacío.
+	 */
+	private abstract static class Contenedor {
+		/**
+		 * Devuelve el número de valores.
+		 *
+		 * @return el número de valores
+		 */
+		abstract int cardinalidad();
+
+		/**
+		 * Comprueba si contiene un valor.
+		 *
+		 * @param valor el valor, de 0 a 65535
+		 * @return si lo contiene o no
+		 */
+		abstract boolean contiene(int valor);
+
+		/**
+		 * Localiza el primer valor no menor que uno dado.
+		 *
+		 * @param desde el valor inicial, de 0 a 65536
+		 * @return el valor encontrado, o -1 si no hay ninguno
+		 */
+		abstract int siguiente(int desde);
+
+		/**
+		 * Añade un valor.
+		 *
+		 * @param valor el valor, de 0 a 65535
+		 * @return el contenedor resultante
+		 */
+		abstract Contenedor añadir(int valor);
+
+		/**
+		 * Elimina un valor.
+		 *
+		 * @param valor el valor, de 0 a 65535
+		 * @return el contenedor resultante, o <code>null</code> si queda vacío
+		 */
+		abstract Contenedor eliminar(int valor);
+
+		/**
+		 * Marca los valores del contenedor en un mapa de {@value #PALABRAS}
+		 * palabras.
+		 *
+		 * @param palabras el mapa de bits de destino
+		 */
+		abstract void marcarEn(long[] palabras);
+
+		/**
+		 * Cuenta las rachas de valores consecutivos.
+		 *
+		 * @return el número de rachas
+		 */
+		abstract int rachas();
+
+		/**
+		 * Crea una copia modificable en memoria propia.
+		 *
+		 * @return la copia
+		 */
+		abstract Contenedor copiar();
+
+		/**
+		 * Facilita el código del tipo de contenedor en el archivo.
+		 *
+		 * @return el código del tipo
+		 */
+		abstract byte tipo();
+
+		/**
+		 * Calcula el tamaño del contenido en el archivo.
+		 *
+		 * @return el tamaño en bytes
+		 */
+		abstract int tamañoSerializado();
+
+		/**
+		 * Escribe el contenido en un búfer, en la posición actual.
+		 *
+		 * @param destino el búfer de destino
+		 */
+		abstract void escribir(ByteBuffer destino);
+
+		/**
+		 * Crea un mapa de bits con los valores del contenedor.
+		 *
+		 * @return el mapa de {@value #PALABRAS} palabras
+		 */
+		long[] aBits() {
+			long[] palabras = new long[PALABRAS];
+			marcarEn(palabras);
+			return palabras;
+		}
+	}
+
+	/**
+	 * Contenedor de tipo tabla: valores ordenados, hasta {@value #MÁX_TABLA}.
+	 */
+	private static final class ContenedorTabla extends Contenedor {
+		/**
+		 * Valores ordenados, ocupados hasta {@link #n}.
+		 */
+		private char[] valores;
+
+		/**
+		 * Número de valores.
+		 */
+		private int n;
+
+		/**
+		 * Crea una tabla con unos valores ya ordenados.
+		 *
+		 * @param valores los valores
+		 * @param n       el número de valores ocupados
+		 */
+		private ContenedorTabla(char[] valores, int n) {
+			this.valores = valores;
+			this.n = n;
+		}
+
+		@Override
+		int cardinalidad() {
+			return n;
+		}
+
+		@Override
+		boolean contiene(int valor) {
+			return Arrays.binarySearch(valores, 0, n, (char) valor) >= 0;
+		}
+
+		@Override
+		int siguiente(int desde) {
+			int pos = -1;
+
+			if (desde <= Character.MAX_VALUE) {
+				pos = Arrays.binarySearch(valores, 0, n, (char) desde);
+				if (pos < 0) {
+					pos = -pos - 1;
+				}
+			}
+
+			return (pos >= 0 && pos < n) ? valores[pos] : -1;
+		}
+
+		@Override
+		Contenedor añadir(int valor) {
+			Contenedor resultado = this;
+			int pos;
+
+			pos = Arrays.binarySearch(valores, 0, n, (char) valor);
+			if (pos < 0) {
+				if (n == MÁX_TABLA) {
+					resultado = new ContenedorBits(aBits(), n).añadir(valor);
+				} else {
+					pos = -pos - 1;
+					if (n == valores.length) {
+						valores = Arrays.copyOf(valores, Math.min(MÁX_TABLA, Math.max(4, n * 2)));
+					}
+					System.arraycopy(valores, pos, valores, pos + 1, n - pos);
+					valores[pos] = (char) valor;
+					n++;
+				}
+			}
+
+			return resultado;
+		}
+
+		@Override
+		Contenedor eliminar(int valor) {
+			int pos;
+
+			pos = Arrays.binarySearch(valores, 0, n, (char) valor);
+			if (pos >= 0) {
+				System.arraycopy(valores, pos + 1, valores, pos, n - pos - 1);
+				n--;
+			}
+
+			return (n == 0) ? null : this;
+		}
+
+		@Override
+		void marcarEn(long[] palabras) {
+			for (int i = 0; i < n; i++) {
+				palabras[valores[i] >>> 6] |= 1L << valores[i];
+			}
+		}
+
+		@Override
+		int rachas() {
+			int total = 0;
+
+			for (int i = 0; i < n; i++) {
+				if (i == 0 || valores[i] != valores[i - 1] + 1) {
+					total++;
+				}
+			}
+
+			return total;
+		}
+
+		@Override
+		Contenedor copiar() {
+			return new ContenedorTabla(Arrays.copyOf(valores, n), n);
+		}
+
+		@Override
+		byte tipo() {
+			return TIPO_TABLA;
+		}
+
+		@Override
+		int tamañoSerializado() {
+			return n * Character.BYTES;
+		}
+
+		@Override
+		void escribir(ByteBuffer destino) {
+			for (int i = 0; i < n; i++) {
+				destino.putChar(valores[i]);
+			}
+		}
+	}
+
+	/**
+	 * Contenedor de tipo mapa de bits: un bit por cada valor posible.
+	 */
+	private static final class ContenedorBits extends Contenedor {
+		/**
+		 * Mapa de {@value #PALABRAS} palabras.
+		 */
+		private final long[] palabras;
+
+		/**
+		 * Número de bits activos.
+		 */
+		private int n;
+
+		/**
+		 * Crea el contenedor sobre un mapa ya calculado.
+		 *
+		 * @param palabras el mapa de bits
+		 * @param n        el número de bits activos
+		 */
+		private ContenedorBits(long[] palabras, int n) {
+			this.palabras = palabras;
+			this.n = n;
+		}
+
+		@Override
+		int cardinalidad() {
+			return n;
+		}
+
+		@Override
+		boolean contiene(int valor) {
+			return (palabras[valor >>> 6] & 1L << valor) != 0;
+		}
+
+		@Override
+		int siguiente(int desde) {
+			int pos, resultado = -1;
+			long palabra;
+
+			if (desde <= Character.MAX_VALUE) {
+				pos = desde >>> 6;
+				palabra = palabras[pos] & -1L << desde;
+				while (palabra == 0 && ++pos < PALABRAS) {
+					palabra = palabras[pos];
+				}
+				if (palabra != 0) {
+					resultado = pos << 6 | Long.numberOfTrailingZeros(palabra);
+				}
+			}
+
+			return resultado;
+		}
+
+		@Override
+		Contenedor añadir(int valor) {
+			if (!contiene(valor)) {
+				palabras[valor >>> 6] |= 1L << valor;
+				n++;
+			}
+			return this;
+		}
+
+		@Override
+		Contenedor eliminar(int valor) {
+			Contenedor resultado = this;
+
+			if (contiene(valor)) {
+				palabras[valor >>> 6] &= ~(1L << valor);
+				n--;
+				if (n <= MÁX_TABLA) {
+					resultado = desdeBits(palabras);
+				}
+			}
+
+			return resultado;
+		}
+
+		@Override
+		void marcarEn(long[] destino) {
+			for (int i = 0; i < PALABRAS; i++) {
+				destino[i] |= palabras[i];
+			}
+		}
+
+		@Override
+		long[] aBits() {
+			return palabras.clone();
+		}
+
+		@Override
+		int rachas() {
+			return contarRachas(palabras);
+		}
+
+		@Override
+		Contenedor copiar() {
+			return new ContenedorBits(palabras.clone(), n);
+		}
+
+		@Override
+		byte tipo() {
+			return TIPO_BITS;
+		}
+
+		@Override
+		int tamañoSerializado() {
+			return PALABRAS * Long.BYTES;
+		}
+
+		@Override
+		void escribir(ByteBuffer destino) {
+			for (long palabra : palabras) {
+				destino.putLong(palabra);
+			}
+		}
+	}
+
+	/**
+	 * Contenedor de tipo rachas: pares de inicio y longitud menos uno de cada
+	 * secuencia de valores consecutivos. Se convierte en tabla o mapa de bits al
+	 * modificarlo.
+	 */
+	private static final class ContenedorRachas extends Contenedor {
+		/**
+		 * Inicio y longitud menos uno de cada racha, alternados y ordenados.
+		 */
+		private final char[] rachas;
+
+		/**
+		 * Número de valores.
+		 */
+		private final int n;
+
+		/**
+		 * Crea el contenedor sobre unas rachas ya calculadas.
+		 *
+		 * @param rachas las rachas
+		 * @param n      el número total de valores
+		 */
+		private ContenedorRachas(char[] rachas, int n) {
+			this.rachas = rachas;
+			this.n = n;
+		}
+
+		/**
+		 * Crea el contenedor con las rachas de un mapa de bits.
+		 *
+		 * @param palabras el mapa de bits
+		 * @param n        el número de bits activos
+		 * @return el contenedor correspondiente
+		 */
+		private static ContenedorRachas deBits(long[] palabras, int n) {
+			char[] rachas = new char[2 * contarRachas(palabras)];
+			int inicio, fin = 0, pos = 0;
+
+			while ((inicio = primerBit(palabras, fin, true)) >= 0) {
+				fin = primerBit(palabras, inicio, false);
+				if (fin < 0) {
+					fin = Character.MAX_VALUE + 1;
+				}
+				rachas[pos++] = (char) inicio;
+				rachas[pos++] = (char) (fin - inicio - 1);
+			}
+
+			return new ContenedorRachas(rachas, n);
+		}
+
+		/**
+		 * Localiza la racha que empieza en el valor indicado o antes.
+		 *
+		 * @param valor el valor
+		 * @return la posición de la racha, o -1 si todas empiezan después
+		 */
+		private int racha(int valor) {
+			int inferior = 0, superior = rachas.length / 2, medio;
+
+			while (inferior < superior) {
+				medio = (inferior + superior) >>> 1;
+				if (rachas[2 * medio] <= valor) {
+					inferior = medio + 1;
+				} else {
+					superior = medio;
+				}
+			}
+
+			return inferior - 1;
+		}
+
+		@Override
+		int cardinalidad() {
+			return n;
+		}
+
+		@Override
+		boolean contiene(int valor) {
+			int pos = racha(valor);
+			return pos >= 0 && valor <= rachas[2 * pos] + rachas[2 * pos + 1];
+		}
+
+		@Override
+		int siguiente(int desde) {
+			int pos, resultado = -1;
+
+			if (desde <= Character.MAX_VALUE) {
+				pos = racha(desde);
+				if (pos >= 0 && desde <= rachas[2 * pos] + rachas[2 * pos + 1]) {
+					resultado = desde;
+				} else if (2 * (pos + 1) < rachas.length) {
+					resultado = rachas[2 * (pos + 1)];
+				}
+			}
+
+			return resultado;
+		}
+
+		@Override
+		Contenedor añadir(int valor) {
+			return contiene(valor) ? this : desdeBits(aBits()).añadir(valor);
+		}
+
+		@Override
+		Contenedor eliminar(int valor) {
+			return contiene(valor) ? desdeBits(aBits()).eliminar(valor) : this;
+		}
+
+		@Override
+		void marcarEn(long[] palabras) {
+			for (int i = 0; i < rachas.length; i += 2) {
+				marcarRango(palabras, rachas[i], rachas[i] + rachas[i + 1]);
+			}
+		}
+
+		@Override
+		int rachas() {
+			return rachas.length / 2;
+		}
+
+		@Override
+		Contenedor copiar() {
+			return this; // Inmutable
+		}
+
+		@Override
+		byte tipo() {
+			return TIPO_RACHAS;
+		}
+
+		@Override
+		int tamañoSerializado() {
+			return rachas.length * Character.BYTES;
+		}
+
+		@Override
+		void escribir(ByteBuffer destino) {
+			for (char valor : rachas) {
+				destino.putChar(valor);
+			}
+		}
+	}
+
+	/**
+	 * Contenedor de solo lectura que consulta directamente un archivo proyectado
+	 * en memoria. Al modificarlo se copia a un contenedor en memoria propia.
+	 */
+	private static final class ContenedorProyectado extends Contenedor {
+		/**
+		 * Contenido proyectado del archivo completo.
+		 */
+		private final ByteBuffer datos;
+
+		/**
+		 * Desplazamiento del contenido del contenedor.
+		 */
+		private final int desplazamiento;
+
+		/**
+		 * Tipo del contenedor original.
+		 */
+		private final byte tipo;
+
+		/**
+		 * Número de valores.
+		 */
+		private final int n;
+
+		/**
+		 * Número de elementos de la tabla o de rachas, según el tipo.
+		 */
+		private final int elementos;
+
+		/**
+		 * Crea el contenedor sobre una zona ya validada del archivo.
+		 *
+		 * @param datos          el contenido proyectado
+		 * @param desplazamiento el desplazamiento del contenido del contenedor
+		 * @param tipo           el tipo del contenedor original
+		 * @param n              el número de valores
+		 * @param elementos      el número de elementos de la tabla o de rachas
+		 */
+		private ContenedorProyectado(ByteBuffer datos, int desplazamiento, byte tipo, int n, int elementos) {
+			this.datos = datos;
+			this.desplazamiento = desplazamiento;
+			this.tipo = tipo;
+			this.n = n;
+			this.elementos = elementos;
+		}
+
+		/**
+		 * Lee un valor de 16 bits del contenido.
+		 *
+		 * @param pos la posición del valor
+		 * @return el valor leído
+		 */
+		private int valor(int pos) {
+			return datos.getChar(desplazamiento + pos * Character.BYTES);
+		}
+
+		/**
+		 * Lee una palabra de un mapa de bits.
+		 *
+		 * @param pos la posición de la palabra
+		 * @return la palabra leída
+		 */
+		private long palabra(int pos) {
+			return datos.getLong(desplazamiento + pos * Long.BYTES);
+		}
+
+		/**
+		 * Localiza por búsqueda binaria la primera posición de la tabla —o el primer
+		 * inicio de racha— mayor que un valor.
+		 *
+		 * @param valor el valor buscado
+		 * @param paso  la distancia entre los valores a comparar: 1 en las tablas, 2
+		 *              en las rachas
+		 * @return el número de elementos no mayores que el valor
+		 */
+		private int límiteSuperior(int valor, int paso) {
+			int inferior = 0, superior = elementos, medio;
+
+			while (inferior < superior) {
+				medio = (inferior + superior) >>> 1;
+				if (valor(medio * paso) <= valor) {
+					inferior = medio + 1;
+				} else {
+					superior = medio;
+				}
+			}
+
+			return inferior;
+		}
+
+		@Override
+		int cardinalidad() {
+			return n;
+		}
+
+		@Override
+		boolean contiene(int valor) {
+			boolean resultado;
+			int pos;
+
+			if (tipo == TIPO_BITS) {
+				resultado = (palabra(valor >>> 6) & 1L << valor) != 0;
+			} else if (tipo == TIPO_TABLA) {
+				pos = límiteSuperior(valor, 1) - 1;
+				resultado = pos >= 0 && valor(pos) == valor;
+			} else {
+				pos = límiteSuperior(valor, 2) - 1;
+				resultado = pos >= 0 && valor <= valor(2 * pos) + valor(2 * pos + 1);
+			}
+
+			return resultado;
+		}
+
+		@Override
+		int siguiente(int desde) {
+			int resultado = -1, pos;
+			long palabra;
+
+			if (desde > Character.MAX_VALUE) {
+				resultado = -1;
+			} else if (tipo == TIPO_BITS) {
+				pos = desde >>> 6;
+				palabra = palabra(pos) & -1L << desde;
+				while (palabra == 0 && ++pos < PALABRAS) {
+					palabra = palabra(pos);
+				}
+				if (palabra != 0) {
+					resultado = pos << 6 | Long.numberOfTrailingZeros(palabra);
+				}
+			} else if (tipo == TIPO_TABLA) {
+				pos = límiteSuperior(desde - 1, 1);
+				resultado = (pos < elementos) ? valor(pos) : -1;
+			} else {
+				pos = límiteSuperior(desde, 2) - 1;
+				if (pos >= 0 && desde <= valor(2 * pos) + valor(2 * pos + 1)) {
+					resultado = desde;
+				} else if (pos + 1 < elementos) {
+					resultado = valor(2 * (pos + 1));
+				}
+			}
+
+			return resultado;
+		}
+
+		@Override
+		Contenedor añadir(int valor) {
+			return contiene(valor) ? this : copiar().añadir(valor);
+		}
+
+		@Override
+		Contenedor eliminar(int valor) {
+			return contiene(valor) ? copiar().eliminar(valor) : this;
+		}
+
+		@Override
+		void marcarEn(long[] palabras) {
+			if (tipo == TIPO_BITS) {
+				for (int i = 0; i < PALABRAS; i++) {
+					palabras[i] |= palabra(i);
+				}
+			} else if (tipo == TIPO_TABLA) {
+				for (int i = 0; i < elementos; i++) {
+					palabras[valor(i) >>> 6] |= 1L << valor(i);
+				}
+			} else {
+				for (int i = 0; i < elementos; i++) {
+					marcarRango(palabras, valor(2 * i), valor(2 * i) + valor(2 * i + 1));
+				}
+			}
+		}
+
+		@Override
+		int rachas() {
+			return (tipo == TIPO_RACHAS) ? elementos : copiar().rachas();
+		}
+
+		@Override
+		Contenedor copiar() {
+			Contenedor resultado;
+			char[] valores;
+
+			if (tipo == TIPO_BITS) {
+				resultado = new ContenedorBits(aBits(), n);
+			} else {
+				valores = new char[(tipo == TIPO_TABLA) ? elementos : 2 * elementos];
+				for (int i = 0; i < valores.length; i++) {
+					valores[i] = (char) valor(i);
+				}
+				resultado = (tipo == TIPO_TABLA) ? new ContenedorTabla(valores, n) : new ContenedorRachas(valores, n);
+			}
+
+			return resultado;
+		}
+
+		@Override
+		byte tipo() {
+			return tipo;
+		}
+
+		@Override
+		int tamañoSerializado() {
+			return copiar().tamañoSerializado();
+		}
+
+		@Override
+		void escribir(ByteBuffer destino) {
+			copiar().escribir(destino);
+		}
+	}
+
+	/**
+	 * Crea un mapa vacío.
+	 */
+	public MapaBitsIPv4() {
+		this(new char[4], new Contenedor[4], 0);
+	}
+
+	/**
+	 * Crea un mapa con unos grupos ya calculados.
+	 *
+	 * @param claves       las claves de los grupos
+	 * @param contenedores los contenedores de los grupos
+	 * @param tamaño       el número de grupos
+	 */
+	private MapaBitsIPv4(char[] claves, Contenedor[] contenedores, int tamaño) {
+		this.claves = claves;
+		this.contenedores = contenedores;
+		this.tamaño = tamaño;
+	}
+
+	/**
+	 * Crea un mapa con las direcciones de un conjunto de rangos.
+	 *
+	 * @param rangos el conjunto de rangos
+	 * @return el mapa correspondiente
+	 */
+	public static MapaBitsIPv4 of(ConjuntoRangosIPv4 rangos) {
+		MapaBitsIPv4 resultado = new MapaBitsIPv4();
+		rangos.recorrer(resultado::añadirRango);
+		return resultado;
+	}
+
+	/**
+	 * Añade una dirección.
+	 *
+	 * @param dirección la dirección empaquetada
+	 * @return si se ha añadido o ya estaba
+	 */
+	public boolean añadir(int dirección) {
+		int pos, antes;
+		Contenedor contenedor;
+		boolean añadida;
+
+		pos = buscar(dirección >>> 16);
+		if (pos < 0) {
+			insertar(-pos - 1, dirección >>> 16, new ContenedorTabla(new char[] { (char) dirección }, 1));
+			añadida = true;
+		} else {
+			contenedor = contenedores[pos];
+			antes = contenedor.cardinalidad();
+			contenedores[pos] = contenedor.añadir(dirección & 0xFFFF);
+			añadida = contenedores[pos].cardinalidad() > antes;
+		}
+
+		return añadida;
+	}
+
+	/**
+	 * Añade una dirección. Véase {@link #añadir(int)}.
+	 *
+	 * @param dirección la dirección
+	 * @return si se ha añadido o ya estaba
+	 */
+	public boolean añadir(NúmeroIPv4 dirección) {
+		return añadir(dirección.valor());
+	}
+
+	/**
+	 * Añade todas las direcciones de un rango. Los grupos completos se guardan
+	 * como una única racha; los que ya tenían direcciones pasan a rachas si, una
+	 * vez añadido el rango, es el contenedor que ocupa menos.
+	 *
+	 * @param inicio la primera dirección empaquetada
+	 * @param fin    la última dirección empaquetada
+	 * @throws NúmeroIPv4Exception si el inicio es posterior al fin
+	 */
+	public void añadirRango(int inicio, int fin) {
+		int pos, desde, hasta;
+		long[] palabras;
+
+		if (Integer.compareUnsigned(inicio, fin) > 0) {
+			throw new NúmeroIPv4Exception(String.format("Rango invertido: %s-%s", EscritorIPv4.toString(inicio),
+					EscritorIPv4.toString(fin)));
+		}
+
+		for (int clave = inicio >>> 16; clave <= fin >>> 16; clave++) {
+			desde = (clave == inicio >>> 16) ? inicio & 0xFFFF : 0;
+			hasta = (clave == fin >>> 16) ? fin & 0xFFFF : Character.MAX_VALUE;
+			pos = buscar(clave);
+
+			if (pos < 0) {
+				insertar(-pos - 1, clave, rachaÚnica(desde, hasta));
+			} else if (desde == 0 && hasta == Character.MAX_VALUE) {
+				contenedores[pos] = rachaÚnica(desde, hasta);
+			} else {
+				palabras = contenedores[pos].aBits();
+				marcarRango(palabras, desde, hasta);
+				contenedores[pos] = desdeBitsConRachas(palabras);
+			}
+		}
+	}
+
+	/**
+	 * Comprueba si contiene una dirección.
+	 *
+	 * @param dirección la dirección empaquetada
+	 * @return si la contiene o no
+	 */
+	public boolean contiene(int dirección) {
+		int pos = buscar(dirección >>> 16);
+		return pos >= 0 && contenedores[pos].contiene(dirección & 0xFFFF);
+	}
+
+	/**
+	 * Comprueba si contiene una dirección. Véase {@link #contiene(int)}.
+	 *
+	 * @param dirección la dirección
+	 * @return si la contiene o no
+	 */
+	public boolean contiene(NúmeroIPv4 dirección) {
+		return contiene(dirección.valor());
+	}
+
+	/**
+	 * Elimina una dirección.
+	 *
+	 * @param dirección la dirección empaquetada
+	 * @return si estaba o no
+	 */
+	public boolean eliminar(int dirección) {
+		int pos, antes;
+		Contenedor resultado;
+		boolean eliminada = false;
+
+		pos = buscar(dirección >>> 16);
+		if (pos >= 0) {
+			antes = contenedores[pos].cardinalidad();
+			resultado = contenedores[pos].eliminar(dirección & 0xFFFF);
+			if (resultado == null) {
+				retirar(pos);
+				eliminada = true;
+			} else {
+				contenedores[pos] = resultado;
+				eliminada = resultado.cardinalidad() < antes;
+			}
+		}
+
+		return eliminada;
+	}
+
+	/**
+	 * Elimina una dirección. Véase {@link #eliminar(int)}.
+	 *
+	 * @param dirección la dirección
+	 * @return si estaba o no
+	 */
+	public boolean eliminar(NúmeroIPv4 dirección) {
+		return eliminar(dirección.valor());
+	}
+
+	/**
+	 * Calcula el número de direcciones.
+	 *
+	 * @return el número de direcciones, hasta 2<sup>32</sup>
+	 */
+	public long cardinalidad() {
+		long total = 0;
+
+		for (int i = 0; i < tamaño; i++) {
+			total += contenedores[i].cardinalidad();
+		}
+
+		return total;
+	}
+
+	/**
+	 * Indica si el mapa está vacío.
+	 *
+	 * @return si está vacío o no
+	 */
+	public boolean isEmpty() {
+		return tamaño == 0;
+	}
+
+	/**
+	 * Calcula la unión con otro mapa.
+	 *
+	 * @param otro el otro mapa
+	 * @return un mapa nuevo con las direcciones de alguno de los dos
+	 */
+	public MapaBitsIPv4 unión(MapaBitsIPv4 otro) {
+		MapaBitsIPv4 resultado = new MapaBitsIPv4(new char[tamaño + otro.tamaño],
+				new Contenedor[tamaño + otro.tamaño], 0);
+		int i = 0, j = 0;
+
+		while (i < tamaño || j < otro.tamaño) {
+			if (j == otro.tamaño || (i < tamaño && claves[i] < otro.claves[j])) {
+				resultado.agregarAlFinal(claves[i], contenedores[i].copiar());
+				i++;
+			} else if (i == tamaño || otro.claves[j] < claves[i]) {
+				resultado.agregarAlFinal(otro.claves[j], otro.contenedores[j].copiar());
+				j++;
+			} else {
+				resultado.agregarAlFinal(claves[i], unir(contenedores[i], otro.contenedores[j]));
+				i++;
+				j++;
+			}
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Calcula la intersección con otro mapa.
+	 *
+	 * @param otro el otro mapa
+	 * @return un mapa nuevo con las direcciones de los dos
+	 */
+	public MapaBitsIPv4 intersección(MapaBitsIPv4 otro) {
+		MapaBitsIPv4 resultado = new MapaBitsIPv4(new char[Math.min(tamaño, otro.tamaño)],
+				new Contenedor[Math.min(tamaño, otro.tamaño)], 0);
+		int i = 0, j = 0;
+
+		while (i < tamaño && j < otro.tamaño) {
+			if (claves[i] < otro.claves[j]) {
+				i++;
+			} else if (otro.claves[j] < claves[i]) {
+				j++;
+			} else {
+				resultado.agregarAlFinal(claves[i], intersecar(contenedores[i], otro.contenedores[j]));
+				i++;
+				j++;
+			}
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Calcula la diferencia con otro mapa.
+	 *
+	 * @param otro el mapa con las direcciones a excluir
+	 * @return un mapa nuevo con las direcciones de este que no están en el otro
+	 */
+	public MapaBitsIPv4 diferencia(MapaBitsIPv4 otro) {
+		MapaBitsIPv4 resultado = new MapaBitsIPv4(new char[tamaño], new Contenedor[tamaño], 0);
+		int i = 0, j = 0;
+
+		while (i < tamaño) {
+			while (j < otro.tamaño && otro.claves[j] < claves[i]) {
+				j++;
+			}
+			if (j < otro.tamaño && otro.claves[j] == claves[i]) {
+				resultado.agregarAlFinal(claves[i], restar(contenedores[i], otro.contenedores[j]));
+			} else {
+				resultado.agregarAlFinal(claves[i], contenedores[i].copiar());
+			}
+			i++;
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Convierte cada contenedor al tipo que ocupe menos, incluidas las rachas.
+	 * No cambia las direcciones contenidas.
+	 */
+	public void optimizar() {
+		for (int i = 0; i < tamaño; i++) {
+			contenedores[i] = optimizado(contenedores[i]);
+		}
+	}
+
+	/**
+	 * Facilita las direcciones empaquetadas en orden creciente sin signo, como un
+	 * flujo perezoso: cada dirección se localiza solo cuando se pide.
+	 *
+	 * @return el flujo de direcciones
+	 */
+	public IntStream direcciones() {
+		PrimitiveIterator.OfInt iterador = new PrimitiveIterator.OfInt() {
+			/** Posición del grupo en curso. */
+			private int grupo = 0;
+
+			/** Siguiente valor del grupo en curso, o -1 si no hay más. */
+			private int valor = (tamaño > 0) ? contenedores[0].siguiente(0) : -1;
+
+			@Override
+			public boolean hasNext() {
+				return valor >= 0;
+			}
+
+			@Override
+			public int nextInt() {
+				int resultado;
+
+				if (valor < 0) {
+					throw new NoSuchElementException();
+				}
+				resultado = claves[grupo] << 16 | valor;
+
+				valor = contenedores[grupo].siguiente(valor + 1);
+				while (valor < 0 && ++grupo < tamaño) {
+					valor = contenedores[grupo].siguiente(0);
+				}
+				return resultado;
+			}
+		};
+
+		return StreamSupport.intStream(Spliterators.spliterator(iterador, cardinalidad(),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Facilita las direcciones en orden creciente como un flujo perezoso de
+	 * objetos {@link NúmeroIPv4}, creados según se piden.
+	 *
+	 * @return el flujo de direcciones
+	 */
+	public Stream<NúmeroIPv4> números() {
+		return direcciones().mapToObj(NúmeroIPv4::new);
+	}
+
+	/**
+	 * Calcula el tamaño del mapa en su formato de archivo, con los contenedores
+	 * actuales.
+	 *
+	 * @return el tamaño en bytes
+	 */
+	public long tamañoSerializado() {
+		long total = TAMAÑO_CABECERA + (long) tamaño * TAMAÑO_ENTRADA;
+
+		for (int i = 0; i < tamaño; i++) {
+			total += contenedores[i].tamañoSerializado();
+		}
+
+		return total;
+	}
+
+	/**
+	 * Guarda el mapa en un archivo apto para {@link #abrir(Path)}, sustituyendo su
+	 * contenido anterior. Antes se {@link #optimizar() optimizan} los
+	 * contenedores.
+	 *
+	 * <div>Formato, con los enteros en orden de red (big-endian): cabecera con la
+	 * firma «RBM4», la versión del formato (2 bytes), 2 bytes de reserva y el
+	 * número de grupos (4 bytes); un directorio con la clave (2 bytes), el tipo
+	 * de contenedor (1 byte), 1 byte de reserva, el número de direcciones (4
+	 * bytes) y el desplazamiento del contenido (4 bytes) de cada grupo; y el
+	 * contenido de los contenedores: valores de 2 bytes en las tablas, palabras
+	 * de 8 bytes en los mapas de bits y pares de valores de 2 bytes —inicio y
+	 * longitud menos uno— en las rachas.</div>
+	 *
+	 * @param archivo la ruta del archivo
+	 * @throws IOException si se produce algún error de escritura
+	 */
+	public void guardar(Path archivo) throws IOException {
+		ByteBuffer búfer;
+		long desplazamiento;
+
+		optimizar();
+		if (tamañoSerializado() > Integer.MAX_VALUE) {
+			throw new IOException("Mapa demasiado grande para proyectarlo en memoria");
+		}
+
+		try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			búfer = ByteBuffer.allocateDirect(TAMAÑO_BÚFER);
+			búfer.putInt(FIRMA).putShort(VERSIÓN_FORMATO).putShort((short) 0).putInt(tamaño);
+
+			desplazamiento = TAMAÑO_CABECERA + (long) tamaño * TAMAÑO_ENTRADA;
+			for (int i = 0; i < tamaño; i++) {
+				if (búfer.remaining() < TAMAÑO_ENTRADA) {
+					escribir(canal, búfer);
+				}
+				búfer.putChar(claves[i]).put(contenedores[i].tipo()).put((byte) 0);
+				búfer.putInt(contenedores[i].cardinalidad()).putInt((int) desplazamiento);
+				desplazamiento += contenedores[i].tamañoSerializado();
+			}
+
+			for (int i = 0; i < tamaño; i++) {
+				if (búfer.remaining() < contenedores[i].tamañoSerializado()) {
+					escribir(canal, búfer);
+				}
+				contenedores[i].escribir(búfer);
+			}
+			escribir(canal, búfer);
+		}
+	}
+
+	/**
+	 * Abre un mapa guardado con {@link #guardar(Path)} proyectando el archivo en
+	 * memoria. Las consultas leen directamente de la proyección; los grupos que
+	 * se modifican pasan a memoria propia sin alterar el archivo.
+	 *
+	 * <div>Antes de aceptarlo se recorre una vez todo el archivo, para que uno
+	 * dañado no provoque después lecturas fuera de la proyección ni respuestas
+	 * erróneas: las claves deben ir en orden, los contenidos de los grupos
+	 * seguidos y sin huecos tras el directorio, las tablas no superar
+	 * {@value #MÁX_TABLA} valores y cada contenedor estar ordenado y sumar las
+	 * direcciones que indica el directorio.</div>
+	 *
+	 * @param archivo la ruta del archivo
+	 * @return el mapa correspondiente
+	 * @throws IOException si no se puede leer el archivo o su formato no es
+	 *                     válido
+	 */
+	public static MapaBitsIPv4 abrir(Path archivo) throws IOException {
+		ByteBuffer datos;
+		char[] claves;
+		Contenedor[] contenedores;
+		int número, entrada, cardinalidad, desplazamiento, elementos, tamañoContenido;
+		long finAnterior;
+		byte tipo;
+
+		try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+			if (canal.size() < TAMAÑO_CABECERA || canal.size() > Integer.MAX_VALUE) {
+				throw new IOException(String.format("Tamaño de mapa no válido: %d bytes", canal.size()));
+			}
+			datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+		}
+
+		if (datos.getInt(0) != FIRMA || datos.getShort(4) != VERSIÓN_FORMATO) {
+			throw new IOException("El archivo no es un mapa de bits IPv4 de una versión admitida");
+		}
+		número = datos.getInt(8);
+		if (número < 0 || número > Character.MAX_VALUE + 1
+				|| TAMAÑO_CABECERA + (long) número * TAMAÑO_ENTRADA > datos.limit()) {
+			throw new IOException(String.format("Directorio del mapa dañado: %d grupos", número));
+		}
+
+		claves = new char[número];
+		contenedores = new Contenedor[número];
+		finAnterior = TAMAÑO_CABECERA + (long) número * TAMAÑO_ENTRADA;
+		for (int i = 0; i < número; i++) {
+			entrada = TAMAÑO_CABECERA + i * TAMAÑO_ENTRADA;
+			claves[i] = datos.getChar(entrada);
+			tipo = datos.get(entrada + 2);
+			cardinalidad = datos.getInt(entrada + 4);
+			desplazamiento = datos.getInt(entrada + 8);
+
+			if (tipo == TIPO_BITS) {
+				elementos = PALABRAS;
+				tamañoContenido = PALABRAS * Long.BYTES;
+			} else if (tipo == TIPO_TABLA) {
+				elementos = cardinalidad;
+				tamañoContenido = cardinalidad * Character.BYTES;
+			} else if (tipo == TIPO_RACHAS) {
+				tamañoContenido = siguienteEntrada(datos, i, número) - desplazamiento;
+				elementos = (tamañoContenido % (2 * Character.BYTES) == 0) ? tamañoContenido / (2 * Character.BYTES)
+						: -1;
+			} else {
+				throw new IOException(String.format("Tipo de contenedor desconocido: %d", tipo));
+			}
+
+			if ((i > 0 && claves[i] <= claves[i - 1]) || cardinalidad <= 0
+					|| cardinalidad > Character.MAX_VALUE + 1 || (tipo == TIPO_TABLA && cardinalidad > MÁX_TABLA)
+					|| desplazamiento != finAnterior || elementos <= 0
+					|| (long) desplazamiento + tamañoContenido > datos.limit()
+					|| !contenidoVálido(datos, desplazamiento, tipo, cardinalidad, elementos)) {
+				throw new IOException(String.format("Grupo %d del mapa dañado", i));
+			}
+			contenedores[i] = new ContenedorProyectado(datos, desplazamiento, tipo, cardinalidad, elementos);
+			finAnterior = (long) desplazamiento + tamañoContenido;
+		}
+		if (finAnterior != datos.limit()) {
+			throw new IOException(String.format("Mapa dañado: %d bytes sobrantes", datos.limit() - finAnterior));
+		}
+
+		return new MapaBitsIPv4(claves, contenedores, número);
+	}
+
+	/**
+	 * Comprueba el contenido de un contenedor proyectado: valores de las tablas
+	 * en orden creciente, rachas ordenadas, sin solaparse ni pasar de 65535, y un
+	 * total de valores igual a la cardinalidad del directorio.
+	 *
+	 * @param datos          el contenido proyectado
+	 * @param desplazamiento el desplazamiento del contenido, ya dentro del archivo
+	 * @param tipo           el tipo del contenedor
+	 * @param cardinalidad   el número de valores según el directorio
+	 * @param elementos      el número de elementos de la tabla o de rachas
+	 * @return si el contenido es válido
+	 */
+	private static boolean contenidoVálido(ByteBuffer datos, int desplazamiento, byte tipo, int cardinalidad,
+			int elementos) {
+		boolean válido = true;
+		int total = 0, anterior = -1, valor, fin;
+
+		if (tipo == TIPO_BITS) {
+			for (int i = 0; i < PALABRAS; i++) {
+				total += Long.bitCount(datos.getLong(desplazamiento + i * Long.BYTES));
+			}
+		} else if (tipo == TIPO_TABLA) {
+			for (int i = 0; i < elementos && válido; i++) {
+				valor = datos.getChar(desplazamiento + i * Character.BYTES);
+				válido = valor > anterior;
+				anterior = valor;
+			}
+			total = elementos;
+		} else {
+			for (int i = 0; i < elementos && válido; i++) {
+				valor = datos.getChar(desplazamiento + 2 * i * Character.BYTES);
+				fin = valor + datos.getChar(desplazamiento + (2 * i + 1) * Character.BYTES);
+				válido = valor > anterior && fin <= Character.MAX_VALUE;
+				total += fin - valor + 1;
+				anterior = fin;
+			}
+		}
+
+		return válido && total == cardinalidad;
+	}
+
+	/**
+	 * Facilita el desplazamiento donde termina el contenido de un grupo: el
+	 * inicio del siguiente o el final del archivo.
+	 *
+	 * @param datos  el contenido proyectado
+	 * @param pos    la posición del grupo
+	 * @param número el número de grupos
+	 * @return el desplazamiento final del contenido
+	 */
+	private static int siguienteEntrada(ByteBuffer datos, int pos, int número) {
+		return (pos + 1 < número) ? datos.getInt(TAMAÑO_CABECERA + (pos + 1) * TAMAÑO_ENTRADA + 8) : datos.limit();
+	}
+
+	/**
+	 * Localiza un grupo por su clave.
+	 *
+	 * @param clave la clave, de 0 a 65535
+	 * @return la posición del grupo, o <code>-(posición de inserción) - 1</code>
+	 *         si no existe
+	 */
+	private int buscar(int clave) {
+		return Arrays.binarySearch(claves, 0, tamaño, (char) clave);
+	}
+
+	/**
+	 * Inserta un grupo nuevo.
+	 *
+	 * @param pos        la posición de inserción
+	 * @param clave      la clave del grupo
+	 * @param contenedor el contenedor del grupo
+	 */
+	private void insertar(int pos, int clave, Contenedor contenedor) {
+		if (tamaño == claves.length) {
+			claves = Arrays.copyOf(claves, tamaño * 2);
+			contenedores = Arrays.copyOf(contenedores, tamaño * 2);
+		}
+		System.arraycopy(claves, pos, claves, pos + 1, tamaño - pos);
+		System.arraycopy(contenedores, pos, contenedores, pos + 1, tamaño - pos);
+		claves[pos] = (char) clave;
+		contenedores[pos] = contenedor;
+		tamaño++;
+	}
+
+	/**
+	 * Retira un grupo que ha quedado vacío.
+	 *
+	 * @param pos la posición del grupo
+	 */
+	private void retirar(int pos) {
+		System.arraycopy(claves, pos + 1, claves, pos, tamaño - pos - 1);
+		System.arraycopy(contenedores, pos + 1, contenedores, pos, tamaño - pos - 1);
+		tamaño--;
+		contenedores[tamaño] = null;
+	}
+
+	/**
+	 * Añade un grupo al final durante las operaciones de conjunto, salvo que esté
+	 * vacío. El espacio ya está reservado.
+	 *
+	 * @param clave      la clave del grupo
+	 * @param contenedor el contenedor del grupo, o <code>null</code> si está vacío
+	 */
+	private void agregarAlFinal(char clave, Contenedor contenedor) {
+		if (contenedor != null) {
+			claves[tamaño] = clave;
+			contenedores[tamaño] = contenedor;
+			tamaño++;
+		}
+	}
+
+	/**
+	 * Calcula la unión de dos contenedores.
+	 *
+	 * @param a el primer contenedor
+	 * @param b el segundo contenedor
+	 * @return un contenedor nuevo con la unión
+	 */
+	private static Contenedor unir(Contenedor a, Contenedor b) {
+		Contenedor resultado;
+		long[] palabras;
+
+		if (a instanceof ContenedorTabla ta && b instanceof ContenedorTabla tb && ta.n + tb.n <= MÁX_TABLA) {
+			char[] valores = new char[ta.n + tb.n];
+			int i = 0, j = 0, n = 0;
+			while (i < ta.n || j < tb.n) {
+				if (j == tb.n || (i < ta.n && ta.valores[i] < tb.valores[j])) {
+					valores[n++] = ta.valores[i++];
+				} else if (i == ta.n || tb.valores[j] < ta.valores[i]) {
+					valores[n++] = tb.valores[j++];
+				} else {
+					valores[n++] = ta.valores[i++];
+					j++;
+				}
+			}
+			resultado = new ContenedorTabla(valores, n);
+		} else {
+			palabras = a.aBits();
+			b.marcarEn(palabras);
+			resultado = desdeBits(palabras);
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Calcula la intersección de dos contenedores. Si alguno es una tabla, se
+	 * filtran sus valores; si no, se combinan los mapas palabra a palabra.
+	 *
+	 * @param a el primer contenedor
+	 * @param b el segundo contenedor
+	 * @return un contenedor nuevo con la intersección, o <code>null</code> si es
+	 *         vacía
+	 */
+	private static Contenedor intersecar(Contenedor a, Contenedor b) {
+		Contenedor resultado;
+		long[] palabras, otras;
+
+		if (a instanceof ContenedorTabla ta) {
+			resultado = filtrar(ta, b, true);
+		} else if (b instanceof ContenedorTabla tb) {
+			resultado = filtrar(tb, a, true);
+		} else {
+			palabras = a.aBits();
+			otras = b.aBits();
+			for (int i = 0; i < PALABRAS; i++) {
+				palabras[i] &= otras[i];
+			}
+			resultado = desdeBits(palabras);
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Calcula la diferencia de dos contenedores.
+	 *
+	 * @param a el contenedor de partida
+	 * @param b el contenedor con los valores a excluir
+	 * @return un contenedor nuevo con la diferencia, o <code>null</code> si es
+	 *         vacía
+	 */
+	private static Contenedor restar(Contenedor a, Contenedor b) {
+		Contenedor resultado;
+		long[] palabras, otras;
+
+		if (a instanceof ContenedorTabla ta) {
+			resultado = filtrar(ta, b, false);
+		} else {
+			palabras = a.aBits();
+			otras = b.aBits();
+			for (int i = 0; i < PALABRAS; i++) {
+				palabras[i] &= ~otras[i];
+			}
+			resultado = desdeBits(palabras);
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Selecciona los valores de una tabla que están —o que no están— en otro
+	 * contenedor.
+	 *
+	 * @param tabla     la tabla de partida
+	 * @param otro      el otro contenedor
+	 * @param presentes si se seleccionan los valores presentes en el otro
+	 *                  contenedor o los ausentes
+	 * @return una tabla nueva con los valores seleccionados, o <code>null</code>
+	 *         si no hay ninguno
+	 */
+	private static Contenedor filtrar(ContenedorTabla tabla, Contenedor otro, boolean presentes) {
+		char[] valores = new char[tabla.n];
+		int n = 0;
+
+		for (int i = 0; i < tabla.n; i++) {
+			if (otro.contiene(tabla.valores[i]) == presentes) {
+				valores[n++] = tabla.valores[i];
+			}
+		}
+
+		return (n == 0) ? null : new ContenedorTabla(valores, n);
+	}
+
+	/**
+	 * Crea el contenedor adecuado para un mapa de bits: tabla o mapa según el
+	 * número de valores.
+	 *
+	 * @param palabras el mapa de bits; pasa a pertenecer al contenedor
+	 * @return el contenedor correspondiente, o <code>null</code> si está vacío
+	 */
+	private static Contenedor desdeBits(long[] palabras) {
+		Contenedor resultado;
+		char[] valores;
+		int n = 0, pos = 0;
+		long palabra;
+
+		for (long p : palabras) {
+			n += Long.bitCount(p);
+		}
+
+		if (n == 0) {
+			resultado = null;
+		} else if (n > MÁX_TABLA) {
+			resultado = new ContenedorBits(palabras, n);
+		} else {
+			valores = new char[n];
+			for (int i = 0; i < PALABRAS; i++) {
+				palabra = palabras[i];
+				while (palabra != 0) {
+					valores[pos++] = (char) (i << 6 | Long.numberOfTrailingZeros(palabra));
+					palabra &= palabra - 1;
+				}
+			}
+			resultado = new ContenedorTabla(valores, n);
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Crea el contenedor con una única racha de valores consecutivos.
+	 *
+	 * @param desde el primer valor
+	 * @param hasta el último valor
+	 * @return el contenedor correspondiente
+	 */
+	private static ContenedorRachas rachaÚnica(int desde, int hasta) {
+		return new ContenedorRachas(new char[] { (char) desde, (char) (hasta - desde) }, hasta - desde + 1);
+	}
+
+	/**
+	 * Crea el contenedor que ocupe menos para un mapa de bits, incluidas las
+	 * rachas.
+	 *
+	 * @param palabras el mapa de bits; pasa a pertenecer al contenedor
+	 * @return el contenedor correspondiente, o <code>null</code> si está vacío
+	 */
+	private static Contenedor desdeBitsConRachas(long[] palabras) {
+		int n = 0;
+
+		for (long p : palabras) {
+			n += Long.bitCount(p);
+		}
+		return (n > 0 && convienenRachas(n, contarRachas(palabras))) ? ContenedorRachas.deBits(palabras, n)
+				: desdeBits(palabras);
+	}
+
+	/**
+	 * Decide si un contenedor ocupa menos como lista de rachas que como tabla o
+	 * mapa de bits.
+	 *
+	 * @param n      el número de valores
+	 * @param rachas el número de rachas
+	 * @return si conviene guardarlo como rachas
+	 */
+	private static boolean convienenRachas(int n, int rachas) {
+		int tamañoTabla, tamañoBits, tamañoRachas;
+
+		tamañoTabla = (n <= MÁX_TABLA) ? n * Character.BYTES : Integer.MAX_VALUE;
+		tamañoBits = PALABRAS * Long.BYTES;
+		tamañoRachas = 2 * rachas * Character.BYTES;
+
+		return tamañoRachas < Math.min(tamañoTabla, tamañoBits);
+	}
+
+	/**
+	 * Convierte un contenedor al tipo que ocupe menos.
+	 *
+	 * @param contenedor el contenedor
+	 * @return el contenedor optimizado
+	 */
+	private static Contenedor optimizado(Contenedor contenedor) {
+		Contenedor resultado = contenedor;
+		int n = contenedor.cardinalidad();
+
+		if (convienenRachas(n, contenedor.rachas())) {
+			if (contenedor.tipo() != TIPO_RACHAS || contenedor instanceof ContenedorProyectado) {
+				resultado = ContenedorRachas.deBits(contenedor.aBits(), n);
+			}
+		} else if (contenedor.tipo() == TIPO_RACHAS || contenedor instanceof ContenedorProyectado) {
+			resultado = desdeBits(contenedor.aBits());
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Cuenta las rachas de bits activos consecutivos de un mapa.
+	 *
+	 * @param palabras el mapa de bits
+	 * @return el número de rachas
+	 */
+	private static int contarRachas(long[] palabras) {
+		int total = 0;
+		long anterior = 0;
+
+		for (long palabra : palabras) {
+			// Bits activos cuyo bit anterior —el último de la palabra previa para el
+			// bit 0— está inactivo
+			total += Long.bitCount(palabra & ~(palabra << 1 | anterior >>> 63));
+			anterior = palabra;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Localiza el primer bit con un valor dado a partir de una posición.
+	 *
+	 * @param palabras el mapa de bits
+	 * @param desde    la posición inicial
+	 * @param activo   si se busca un bit activo o inactivo
+	 * @return la posición encontrada, o -1 si no hay ninguna
+	 */
+	private static int primerBit(long[] palabras, int desde, boolean activo) {
+		int pos, resultado = -1;
+		long palabra;
+
+		if (desde <= Character.MAX_VALUE) {
+			pos = desde >>> 6;
+			palabra = (activo ? palabras[pos] : ~palabras[pos]) & -1L << desde;
+			while (palabra == 0 && ++pos < PALABRAS) {
+				palabra = activo ? palabras[pos] : ~palabras[pos];
+			}
+			if (palabra != 0) {
+				resultado = pos << 6 | Long.numberOfTrailingZeros(palabra);
+			}
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Activa los bits de un rango de valores.
+	 *
+	 * @param palabras el mapa de bits
+	 * @param desde    el primer valor, incluido
+	 * @param hasta    el último valor, incluido
+	 */
+	private static void marcarRango(long[] palabras, int desde, int hasta) {
+		int primera = desde >>> 6, última = hasta >>> 6;
+
+		if (primera == última) {
+			palabras[primera] |= (-1L << desde) & (-1L >>> (63 - (hasta & 63)));
+		} else {
+			palabras[primera] |= -1L << desde;
+			for (int i = primera + 1; i < última; i++) {
+				palabras[i] = -1L;
+			}
+			palabras[última] |= -1L >>> (63 - (hasta & 63));
+		}
+	}
+
+	/**
+	 * Vuelca el contenido de un búfer en un canal y lo deja listo para volver a
+	 * llenarse.
+	 *
+	 * @param canal el canal de destino
+	 * @param búfer el búfer con los datos
+	 * @throws IOException si se produce algún error de escritura
+	 */
+	private static void escribir(FileChannel canal, ByteBuffer búfer) throws IOException {
+		búfer.flip();
+		while (búfer.hasRemaining()) {
+			canal.write(búfer);
+		}
+		búfer.clear();
+	}
+}
@@ -1,59 +1,130 @@
 package jcolonia.daw.redipv4;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 /**
  * Grupo de cuatro número enteros para direcciones o máscaras IP de versión 4.
+ * Internamente se almacenan empaquetados en un único entero de 32 bits sin
+ * signo; las operaciones primitivas sobre ese valor están en
+ * {@link EnteroIPv4}.
  * 
- * @param byte1 Primer byte por la izquierda, el más significativo
- * @param byte2 Segundo byte por la izquierda, el segundo más significativo
- * @param byte3 Tercer byte por la izquierda, el segundo menos significativo
- * @param byte4 Cuarto byte por la izquierda, el menos significativo
+ * @param valor los cuatro bytes empaquetados, el primero por la izquierda en los
+ *              bits más significativos
  * 
  * @version 0.1 (20240503001)
  * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
  */
-public record NúmeroIPv4(int byte1, int byte2, int byte3, int byte4) {
-
+public record NúmeroIPv4(int valor) {
 	/**
-	 * Verificación previa de los cuatro valores facilitados para el número IPv4.
+	 * Las 33 máscaras canónicas, indexadas por su longitud en formato CIDR: de
+	 * «/0» a «/32». Se crean una sola vez.
 	 */
-	public NúmeroIPv4 {
-		String mensaje;
-		int byteMal = 0;
+	private static final NúmeroIPv4[] MÁSCARAS;
 
-		// Rango [0,255]: ¿Bytes sin signo?
-		if (0 != (byte1 & 0xFFFFFF00)) {
-			byteMal = 1;
-		} else if (0 != (byte2 & 0xFFFFFF00)) {
-			byteMal = 2;
-		} else if (0 != (byte3 & 0xFFFFFF00)) {
-			byteMal = 3;
-		} else if (0 != (byte4 & 0xFFFFFF00)) {
-			byteMal = 4;
+	static {
+		MÁSCARAS = new NúmeroIPv4[EnteroIPv4.BITS + 1];
+		for (int i = 0; i < MÁSCARAS.length; i++) {
+			MÁSCARAS[i] = new NúmeroIPv4(EnteroIPv4.máscara(i));
 		}
+	}
 
-		if (byteMal != 0) {
-			mensaje = String.format("Byte %d en «%d-%d-%d-%d» fuera de rango", byteMal, byte1, byte2, byte3, byte4);
-			throw new NúmeroIPv4Exception(mensaje);
-		}
-		// Constructor compacto → constructor canónico
+	/**
+	 * Crea un número IPv4 a partir de sus cuatro bytes, verificando previamente
+	 * que estén en el rango [0,255].
+	 * 
+	 * @param byte1 Primer byte por la izquierda, el más significativo
+	 * @param byte2 Segundo byte por la izquierda, el segundo más significativo
+	 * @param byte3 Tercer byte por la izquierda, el segundo menos significativo
+	 * @param byte4 Cuarto byte por la izquierda, el menos significativo
+	 * @throws NúmeroIPv4Exception si alguno de los bytes está fuera de rango
+	 */
+	public NúmeroIPv4(int byte1, int byte2, int byte3, int byte4) {
+		this(EnteroIPv4.of(byte1, byte2, byte3, byte4));
+	}
+
+	/**
+	 * Crea un número IPv4 a partir de su representación tradicional, los cuatro
+	 * bytes en decimal separados por puntos.
+	 *
+	 * @param texto el texto a analizar, por ejemplo «192.168.32.11»
+	 * @return el número IPv4 correspondiente
+	 * @throws NúmeroIPv4Exception si el texto no es válido, indicando la posición
+	 *                             del error
+	 * @see AnalizadorIPv4
+	 */
+	public static NúmeroIPv4 of(CharSequence texto) {
+		return new NúmeroIPv4(AnalizadorIPv4.analizar(texto));
 	}
 
 	/**
-	 * Crea una máscara de dirección IPv4.
+	 * Facilita el primer byte por la izquierda, el más significativo.
+	 * 
+	 * @return el valor correspondiente, en el rango [0,255]
+	 */
+	public int byte1() {
+		return EnteroIPv4.getByte(valor, 1);
+	}
+
+	/**
+	 * Facilita el segundo byte por la izquierda, el segundo más significativo.
+	 * 
+	 * @return el valor correspondiente, en el rango [0,255]
+	 */
+	public int byte2() {
+		return EnteroIPv4.getByte(valor, 2);
+	}
+
+	/**
+	 * Facilita el tercer byte por la izquierda, el segundo menos significativo.
+	 * 
+	 * @return el valor correspondiente, en el rango [0,255]
+	 */
+	public int byte3() {
+		return EnteroIPv4.getByte(valor, 3);
+	}
+
+	/**
+	 * Facilita el cuarto byte por la izquierda, el menos significativo.
+	 * 
+	 * @return el valor correspondiente, en el rango [0,255]
+	 */
+	public int byte4() {
+		return EnteroIPv4.getByte(valor, 4);
+	}
+
+	/**
+	 * Facilita una máscara de dirección IPv4. Se toma de una tabla precalculada,
+	 * por lo que siempre devuelve la misma instancia para cada longitud.
 	 * 
 	 * @param máscaraCIDR el número de bits de la parte de red
 	 * @return el número IPv4 correspondiente
+	 * @throws NúmeroIPv4Exception si la longitud está fuera del rango [0,32]
 	 */
 	public static NúmeroIPv4 máscara(int máscaraCIDR) {
-		NúmeroIPv4 máscara;
-		int bytes[] = new int[4];
+		EnteroIPv4.verificarMáscaraCIDR(máscaraCIDR);
+		return MÁSCARAS[máscaraCIDR];
+	}
 
-		for (int posición = 0; posición < máscaraCIDR; posición++) {
-			bytes[posición / 8] += 1 << (7 - posición % 8);
-		}
+	/**
+	 * Calcula la longitud en formato CIDR de este número tomado como máscara de
+	 * red. Es la operación inversa de {@link #máscara(int)}.
+	 * 
+	 * @return el número de bits de la parte de red, de 0 a 32
+	 * @throws NúmeroIPv4Exception si no es una máscara contigua
+	 * @see EnteroIPv4#longitudPrefijo(int)
+	 */
+	public int longitudPrefijo() {
+		return EnteroIPv4.longitudPrefijo(valor);
+	}
 
-		máscara = new NúmeroIPv4(bytes[0], bytes[1], bytes[2], bytes[3]);
-		return máscara;
+	/**
+	 * Comprueba si este número es una máscara de red contigua válida.
+	 * 
+	 * @return si lo es o no
+	 */
+	public boolean esMáscara() {
+		return EnteroIPv4.esMáscara(valor);
 	}
 
 	/**
@@ -67,16 +138,7 @@ public record NúmeroIPv4(int byte1, int byte2, int byte3, int byte4) {
 	 * @return el número IPv4 resultante
 	 */
 	public NúmeroIPv4 aplicarMáscara(NúmeroIPv4 máscara) {
-		NúmeroIPv4 red;
-		long red32, dirección32, máscara32;
-
-		dirección32 = this.toInt32();
-		máscara32 = máscara.toInt32();
-		red32 = dirección32 & máscara32;
-
-		red = toIPv4(red32);
-
-		return red;
+		return new NúmeroIPv4(EnteroIPv4.aplicarMáscara(valor, máscara.valor));
 	}
 
 	/**
@@ -87,7 +149,7 @@ public record NúmeroIPv4(int byte1, int byte2, int byte3, int byte4) {
 	 * @return el número IPv4 resultante
 	 */
 	public NúmeroIPv4 aplicarMáscara(int máscaraCIDR) {
-		return aplicarMáscara(máscara(máscaraCIDR));
+		return new NúmeroIPv4(EnteroIPv4.red(valor, máscaraCIDR));
 	}
 
 	/**
@@ -97,11 +159,13 @@ public record NúmeroIPv4(int byte1, int byte2, int byte3, int byte4) {
 	 * 
 	 * @param máscaraCIDR la máscara a consultar, en formato CIDR
 	 * @return el valor correspondiente
+	 * @throws NúmeroIPv4Exception si la longitud está fuera del rango [0,32]
 	 */
 	public static long capacidadRed(int máscaraCIDR) {
 		long capacidad;
 		int bitsNodos = 32 - máscaraCIDR;
 
+		EnteroIPv4.verificarMáscaraCIDR(máscaraCIDR);
 		capacidad = 1L << bitsNodos;
 
 		return capacidad;
@@ -114,38 +178,56 @@ public record NúmeroIPv4(int byte1, int byte2, int byte3, int byte4) {
 	 * 
 	 * @return el valor correspondiente
 	 */
-	private long toInt32() {
-		long total;
-
-		total = (long) byte4;
-		total += (long) byte3 << 8;
-		total += (long) byte2 << 16;
-		total += (long) byte1 << 24;
-
-		return total;
+	public long toLong() {
+		return EnteroIPv4.toLong(valor);
 	}
 
 	/**
-	 * Crea un número IPv4 a partir de una representación como valor entero de 32
-	 * bits. Para soportar valores positivos de 32 bits requiere emplear enteros de
-	 * tipo <code>long</code>.
+	 * Añade la representación tradicional de este número al final de un
+	 * {@link StringBuilder}, sin crear textos intermedios.
 	 * 
-	 * @param n el valor entero de 32 bits
-	 * @return el número IPv4 resultante
+	 * @param destino el texto donde añadirla
+	 * @return el mismo <code>destino</code>, para encadenar llamadas
+	 * @see EscritorIPv4
 	 */
-	private static NúmeroIPv4 toIPv4(long n) {
-		NúmeroIPv4 ip4;
+	public StringBuilder escribirEn(StringBuilder destino) {
+		return EscritorIPv4.escribir(valor, destino);
+	}
 
-		int NÚM_BYTES = 4;
-		long ventana = 0xFFL;
-		int bytes[] = new int[NÚM_BYTES];
+	/**
+	 * Añade la representación tradicional de este número a cualquier destino de
+	 * caracteres.
+	 * 
+	 * @param destino el destino donde añadirla
+	 * @return el mismo <code>destino</code>, para encadenar llamadas
+	 * @throws IOException si se produce algún error de escritura
+	 */
+	public Appendable escribirEn(Appendable destino) throws IOException {
+		return EscritorIPv4.escribir(valor, destino);
+	}
 
-		for (int i = 0; i < NÚM_BYTES; i++, ventana <<= 8) {
-			bytes[i] = (int) ((n & ventana) >> (8 * i));
-		}
+	/**
+	 * Escribe la representación tradicional de este número en ASCII sobre una
+	 * tabla de bytes.
+	 * 
+	 * @param destino la tabla de bytes
+	 * @param desde   la posición donde empezar a escribir
+	 * @return la posición siguiente al último byte escrito
+	 */
+	public int escribirEn(byte[] destino, int desde) {
+		return EscritorIPv4.escribir(valor, destino, desde);
+	}
 
-		ip4 = new NúmeroIPv4(bytes[3], bytes[2], bytes[1], bytes[0]);
-		return ip4;
+	/**
+	 * Escribe la representación tradicional de este número en ASCII sobre un
+	 * búfer de bytes, con posiciones absolutas.
+	 * 
+	 * @param destino el búfer de bytes
+	 * @param desde   la posición donde empezar a escribir
+	 * @return la posición siguiente al último byte escrito
+	 */
+	public int escribirEn(ByteBuffer destino, int desde) {
+		return EscritorIPv4.escribir(valor, destino, desde);
 	}
 
 	/**
@@ -158,11 +240,11 @@ public record NúmeroIPv4(int byte1, int byte2, int byte3, int byte4) {
 	 * </pre>
 	 * 
 	 * </div>
+	 * 
+	 * @see EscritorIPv4#toString(int)
 	 */
 	@Override
 	public final String toString() {
-		String texto;
-		texto = String.format("%d.%d.%d.%d", byte1, byte2, byte3, byte4);
-		return texto;
+		return EscritorIPv4.toString(valor);
 	}
 }
@@ -11,13 +11,20 @@ public class NúmeroIPv4Exception extends RuntimeException {
 	/**
 	 * Número de serie, asociado a la versión de la clase.
 	 */
-	private static final long serialVersionUID = 20240503000L;
+	private static final long serialVersionUID = 20261018000L;
+
+	/**
+	 * Posición en el texto analizado donde se detectó el error, o -1 si no
+	 * procede.
+	 */
+	private final int posición;
 
 	/**
 	 * Crea una excepción sin ninguna información adicional.
 	 */
 	public NúmeroIPv4Exception() {
 		super();
+		posición = -1;
 	}
 
 	/**
@@ -27,6 +34,19 @@ public class NúmeroIPv4Exception extends RuntimeException {
 	 */
 	public NúmeroIPv4Exception(String mensaje) {
 		super(mensaje);
+		posición = -1;
+	}
+
+	/**
+	 * Crea una excepción con un texto descriptivo y la posición del texto
+	 * analizado donde se produjo el error.
+	 * 
+	 * @param mensaje  el texto correspondiente
+	 * @param posición la posición del carácter erróneo
+	 */
+	public NúmeroIPv4Exception(String mensaje, int posición) {
+		super(mensaje);
+		this.posición = posición;
 	}
 
 	/**
@@ -36,6 +56,7 @@ public class NúmeroIPv4Exception extends RuntimeException {
 	 */
 	public NúmeroIPv4Exception(Throwable causa) {
 		super(causa);
+		posición = -1;
 	}
 
 	/**
@@ -47,5 +68,29 @@ public class NúmeroIPv4Exception extends RuntimeException {
 	 */
 	public NúmeroIPv4Exception(String mensaje, Throwable causa) {
 		super(mensaje, causa);
+		posición = -1;
+	}
+
+	/**
+	 * Crea una excepción secundaria almacenando otra excepción de referencia, un
+	 * texto descriptivo y la posición del texto analizado donde se produjo el
+	 * error.
+	 * 
+	 * @param mensaje  el texto correspondiente
+	 * @param posición la posición del carácter erróneo
+	 * @param causa    la excepción –o {@link Throwable}– correspondiente
+	 */
+	public NúmeroIPv4Exception(String mensaje, int posición, Throwable causa) {
+		super(mensaje, causa);
+		this.posición = posición;
+	}
+
+	/**
+	 * Facilita la posición del texto analizado donde se detectó el error.
+	 * 
+	 * @return la posición correspondiente, o -1 si no procede
+	 */
+	public int getPosición() {
+		return posición;
 	}
 }
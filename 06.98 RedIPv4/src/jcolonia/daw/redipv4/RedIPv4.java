@@ -1,26 +1,112 @@
 package jcolonia.daw.redipv4;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Vector;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.StampedLock;
 
 /**
- * Modelo: Colección básica de resultados deportivos en formato de quiniela 1X2.
+ * Modelo: Colección básica de identificaciones IPv4. Además de la lista de
+ * elementos, mantiene una {@link TablaRutasIPv4 tabla de rutas} indexada por red
+ * y máscara para localizar la entrada más específica que contiene una
+ * dirección.
+ * 
+ * <div>Opcionalmente puede activarse un modo de rutas compiladas —véase
+ * {@link #activarRutasCompiladas(Executor)}— que mantiene además una
+ * {@link TablaRutasCompiladaIPv4} reconstruida en segundo plano tras cada
+ * cambio.</div>
+ * 
+ * <div>Seguridad entre hilos: todos los métodos públicos pueden usarse a la vez
+ * desde varios hilos.
+ * <ul>
+ * <li>Las modificaciones se serializan con un {@link StampedLock} en modo
+ * escritura.</li>
+ * <li>Las consultas —{@link #getElemento(int)}, {@link #size()}, los listados y
+ * {@link #instantánea()}— emplean lecturas optimistas: no bloquean ni se
+ * bloquean entre sí y solo recurren al cerrojo de lectura si coinciden con una
+ * modificación.</li>
+ * <li>Las búsquedas de rutas no usan el cerrojo en ningún caso y ven el estado
+ * posterior a la última modificación terminada.</li>
+ * <li>Para recorrer la colección de forma coherente mientras otros hilos la
+ * modifican debe usarse {@link #instantánea()}.</li>
+ * </ul>
+ * </div>
+ * 
+ * <div>Como en cualquier lista, los elementos se conservan en su orden de
+ * incorporación y pueden repetirse; al eliminar uno, los siguientes avanzan una
+ * posición. La eliminación localiza el elemento por su valor —véase
+ * {@link IdentificaciónIPv4#equals(Object)}— entre los que comparten su red y
+ * máscara, sin recorrer la lista entera. Los detalles y
+ * costes de cada operación se describen en {@link ElementosRedIPv4}.</div>
  * 
  * @version 0.1 (20240503001)
  * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
  */
 public class RedIPv4 {
 	/**
-	 * Lista donde se almacenan los elementos.
+	 * Cerrojo que protege la tabla de elementos y los índices asociados.
+	 */
+	private final StampedLock cerrojo;
+
+	/**
+	 * Elementos de la lista, con sus índices por posición y por ruta.
+	 */
+	private final ElementosRedIPv4 elementos;
+
+	/**
+	 * Tabla de rutas con los mismos elementos de la lista, indexados por su red.
+	 * Si varios elementos comparten red y máscara, la ruta apunta al último
+	 * incorporado.
+	 */
+	private final TablaRutasIPv4<IdentificaciónIPv4> rutas;
+
+	/**
+	 * Última versión compilada de la tabla de rutas, o <code>null</code> si el
+	 * modo de rutas compiladas no está activo o aún no ha terminado la primera
+	 * compilación.
+	 */
+	private final AtomicReference<TablaRutasCompiladaIPv4<IdentificaciónIPv4>> rutasCompiladas;
+
+	/**
+	 * Ejecutor donde se realizan las compilaciones, o <code>null</code> si el modo
+	 * de rutas compiladas no está activo.
+	 */
+	private volatile Executor compilador;
+
+	/**
+	 * Indica si hay una compilación encargada que aún no ha empezado. Permite
+	 * agrupar en una sola compilación varios cambios seguidos.
+	 */
+	private final AtomicBoolean compilaciónPendiente;
+
+	/**
+	 * Época del modo de rutas compiladas: aumenta cada vez que se activa o
+	 * desactiva. Una compilación solo publica su resultado si la época no ha
+	 * cambiado desde que empezó.
 	 */
-	List<IdentificaciónIPv4> lista;
+	private final AtomicLong época;
 
 	/**
 	 * Crea una lista inicialmente vacía.
 	 */
 	public RedIPv4() {
-		lista = new Vector<IdentificaciónIPv4>(6);
+		cerrojo = new StampedLock();
+		elementos = new ElementosRedIPv4();
+		rutas = new TablaRutasIPv4<IdentificaciónIPv4>();
+		rutasCompiladas = new AtomicReference<>();
+		compilador = null;
+		compilaciónPendiente = new AtomicBoolean(false);
+		época = new AtomicLong();
 	}
 
 	/**
@@ -28,29 +114,273 @@ public class RedIPv4 {
 	 * 
 	 * @param pos la posición a consultar
 	 * @return el elemento correspondiente
+	 * @throws IndexOutOfBoundsException si la posición no está ocupada
 	 */
 	public IdentificaciónIPv4 getElemento(int pos) {
-		IdentificaciónIPv4 resultado;
-		resultado = lista.get(pos);
+		IdentificaciónIPv4 resultado = null;
+		IdentificaciónIPv4[] tabla;
+		boolean directa;
+		int n;
+		long sello;
+
+		// Sin lápidas, la posición es la casilla y se lee sin cerrojo
+		sello = cerrojo.tryOptimisticRead();
+		directa = elementos.sinLápidas();
+		tabla = elementos.casillas();
+		n = elementos.size();
+		if (directa && pos >= 0 && pos < n && pos < tabla.length) {
+			resultado = tabla[pos];
+		}
+
+		if (!directa || !cerrojo.validate(sello)) {
+			sello = cerrojo.readLock();
+			try {
+				n = elementos.size();
+				resultado = (pos >= 0 && pos < n) ? elementos.get(pos) : null;
+			} finally {
+				cerrojo.unlockRead(sello);
+			}
+		}
+
+		Objects.checkIndex(pos, n);
 		return resultado;
 	}
 
 	/**
-	 * Incorpora un elemento al final de la lista.
+	 * Incorpora un elemento al final de la lista. Pasa a ser el destino de su
+	 * ruta aunque otro elemento anterior tenga la misma red y máscara.
 	 * 
 	 * @param nuevo el elemento a incorporar
 	 */
 	public void agregarElemento(IdentificaciónIPv4 nuevo) {
-		lista.add(nuevo);
+		int red, máscaraCIDR;
+		long sello;
+
+		Objects.requireNonNull(nuevo, "Elemento nulo");
+		red = red(nuevo);
+		máscaraCIDR = máscaraCIDR(nuevo);
+
+		sello = cerrojo.writeLock();
+		try {
+			elementos.agregar(nuevo);
+			rutas.agregar(red, máscaraCIDR, nuevo);
+		} finally {
+			cerrojo.unlockWrite(sello);
+		}
+
+		encargarCompilación();
+	}
+
+	/**
+	 * Incorpora de una sola vez varios elementos al final de la lista, en su
+	 * orden. Es la forma adecuada de realizar cargas masivas: casi todo el
+	 * trabajo se hace en paralelo y fuera del cerrojo.
+	 * <ol>
+	 * <li>Se ordenan los elementos por ruta y se enlazan las cadenas de los que
+	 * la comparten.</li>
+	 * <li>Se construye de una pasada una tabla de rutas con las del lote, cada
+	 * una apuntando a su último elemento.</li>
+	 * <li>Con el cerrojo, se copian los elementos, se actualiza el índice una vez
+	 * por ruta distinta y se funde la tabla del lote con la de rutas, que se
+	 * publica una sola vez.</li>
+	 * </ol>
+	 * 
+	 * @param nuevos los elementos a incorporar
+	 * @see CargaMasivaIPv4
+	 */
+	public void agregarElementos(IdentificaciónIPv4[] nuevos) {
+		IdentificaciónIPv4[] fragmento;
+		TablaRutasIPv4<IdentificaciónIPv4> rutasLote;
+		long sello;
+
+		// Los lotes enormes se incorporan por fragmentos
+		for (int desde = 0; desde < nuevos.length; desde += ElementosRedIPv4.MÁX_LOTE) {
+			fragmento = (nuevos.length <= ElementosRedIPv4.MÁX_LOTE) ? nuevos
+					: Arrays.copyOfRange(nuevos, desde, Math.min(desde + ElementosRedIPv4.MÁX_LOTE, nuevos.length));
+			ElementosRedIPv4.Lote lote = ElementosRedIPv4.preparar(fragmento);
+			rutasLote = TablaRutasIPv4.construir(lote.rutas, lote.númeroRutas, i -> lote.elementos[lote.últimos[i]]);
+
+			sello = cerrojo.writeLock();
+			try {
+				elementos.agregar(lote);
+				rutas.agregarTodas(rutasLote);
+			} finally {
+				cerrojo.unlockWrite(sello);
+			}
+		}
+
+		if (nuevos.length > 0) {
+			encargarCompilación();
+		}
 	}
 
 	/**
-	 * Elimina un elemento de la lista.
+	 * Elimina la primera aparición de un elemento igual al indicado según
+	 * {@link IdentificaciónIPv4#equals(Object)}, aunque sea otra instancia; los
+	 * siguientes avanzan una posición. Si era el destino de su
+	 * ruta y queda otro elemento con la misma red y máscara, la ruta pasa al
+	 * último incorporado de ellos.
 	 * 
 	 * @param viejo el elemento retirado
+	 * @return si estaba en la lista o no
+	 */
+	public boolean eliminarElemento(IdentificaciónIPv4 viejo) {
+		IdentificaciónIPv4 destino;
+		boolean eliminado;
+		int red, máscaraCIDR;
+		long sello;
+
+		Objects.requireNonNull(viejo, "Elemento nulo");
+		red = red(viejo);
+		máscaraCIDR = máscaraCIDR(viejo);
+
+		sello = cerrojo.writeLock();
+		try {
+			eliminado = elementos.eliminar(viejo);
+			if (eliminado) {
+				destino = elementos.destinoRuta(red, máscaraCIDR);
+				if (destino == null) {
+					rutas.eliminar(red, máscaraCIDR);
+				} else if (rutas.buscarExacta(red, máscaraCIDR) != destino) {
+					rutas.agregar(red, máscaraCIDR, destino);
+				}
+			}
+		} finally {
+			cerrojo.unlockWrite(sello);
+		}
+
+		if (eliminado) {
+			encargarCompilación();
+		}
+		return eliminado;
+	}
+
+	/**
+	 * Localiza el elemento cuya red es la más específica —la de máscara más
+	 * larga— entre las que contienen una dirección. Es la ruta que se aplicaría a
+	 * esa dirección. No bloquea.
+	 * 
+	 * @param dirección la dirección a consultar
+	 * @return el elemento correspondiente, o <code>null</code> si ninguna red
+	 *         contiene la dirección
+	 */
+	public IdentificaciónIPv4 buscarRuta(NúmeroIPv4 dirección) {
+		return rutas.buscar(dirección.valor());
+	}
+
+	/**
+	 * Activa el modo de rutas compiladas: compila la tabla de rutas en el
+	 * ejecutor facilitado y vuelve a hacerlo, también en segundo plano, cada vez
+	 * que cambian los elementos. Cada compilación terminada sustituye a la
+	 * anterior de forma atómica.
+	 * 
+	 * @param ejecutor el ejecutor donde realizar las compilaciones
+	 * @see #buscarRutaCompilada(NúmeroIPv4)
+	 */
+	public void activarRutasCompiladas(Executor ejecutor) {
+		compilador = ejecutor;
+		época.incrementAndGet();
+		encargarCompilación();
+	}
+
+	/**
+	 * Desactiva el modo de rutas compiladas y libera la tabla compilada. Las
+	 * compilaciones en curso terminan sin publicar su resultado.
 	 */
-	public void eliminarElemento(IdentificaciónIPv4 viejo) {
-		lista.remove(viejo);
+	public void desactivarRutasCompiladas() {
+		compilador = null;
+		época.incrementAndGet();
+		rutasCompiladas.set(null);
+	}
+
+	/**
+	 * Localiza la ruta a aplicar a una dirección sobre la última tabla compilada,
+	 * con uno o dos accesos a memoria. Mientras se compila una tabla nueva se
+	 * sigue consultando la anterior, de modo que los cambios más recientes pueden
+	 * tardar en reflejarse. Si no hay ninguna tabla compilada, se consulta
+	 * directamente la tabla de rutas como en {@link #buscarRuta(NúmeroIPv4)}.
+	 * 
+	 * @param dirección la dirección a consultar
+	 * @return el elemento correspondiente, o <code>null</code> si ninguna red
+	 *         contiene la dirección
+	 */
+	public IdentificaciónIPv4 buscarRutaCompilada(NúmeroIPv4 dirección) {
+		return buscarRutaCompilada(dirección.valor());
+	}
+
+	/**
+	 * Localiza la ruta a aplicar a una dirección empaquetada sobre la última
+	 * tabla compilada, sin crear ningún objeto. Véase
+	 * {@link #buscarRutaCompilada(NúmeroIPv4)}.
+	 * 
+	 * @param dirección la dirección empaquetada a consultar
+	 * @return el elemento correspondiente, o <code>null</code> si ninguna red
+	 *         contiene la dirección
+	 */
+	public IdentificaciónIPv4 buscarRutaCompilada(int dirección) {
+		TablaRutasCompiladaIPv4<IdentificaciónIPv4> compilada;
+		IdentificaciónIPv4 resultado;
+
+		compilada = rutasCompiladas.get();
+		if (compilada == null) {
+			resultado = rutas.buscar(dirección);
+		} else {
+			resultado = compilada.buscar(dirección);
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Encarga una compilación de la tabla de rutas si el modo de rutas compiladas
+	 * está activo y no hay ya otra pendiente de empezar. Si el ejecutor rechaza la
+	 * tarea —por ejemplo, porque se ha detenido—, se desactiva el modo para no
+	 * seguir consultando una tabla compilada desfasada.
+	 */
+	private void encargarCompilación() {
+		Executor ejecutor = compilador;
+
+		if (ejecutor != null && compilaciónPendiente.compareAndSet(false, true)) {
+			try {
+				ejecutor.execute(this::compilarRutas);
+			} catch (RejectedExecutionException e) {
+				compilaciónPendiente.set(false);
+				desactivarRutasCompiladas();
+			}
+		}
+	}
+
+	/**
+	 * Compila la tabla de rutas y publica el resultado, salvo que entretanto se
+	 * haya publicado una versión más reciente o haya cambiado la
+	 * {@link #época}. La publicación se condiciona a la época en cada intento; si
+	 * aun así la época cambia justo después de publicar, la tabla se retira para
+	 * no servirla indefinidamente.
+	 */
+	private void compilarRutas() {
+		TablaRutasCompiladaIPv4<IdentificaciónIPv4> nueva, actual;
+		boolean publicada = false, descartada = false;
+		long inicial;
+
+		// Los cambios posteriores a este punto encargarán otra compilación
+		compilaciónPendiente.set(false);
+		inicial = época.get();
+
+		if (compilador != null) {
+			nueva = TablaRutasCompiladaIPv4.compilar(rutas);
+			while (!publicada && !descartada) {
+				actual = rutasCompiladas.get();
+				if (época.get() != inicial || (actual != null && actual.getVersión() >= nueva.getVersión())) {
+					descartada = true;
+				} else {
+					publicada = rutasCompiladas.compareAndSet(actual, nueva);
+				}
+			}
+
+			if (publicada && época.get() != inicial) {
+				rutasCompiladas.compareAndSet(nueva, null);
+			}
+		}
 	}
 
 	/**
@@ -59,14 +389,49 @@ public class RedIPv4 {
 	 * @return el número de elementos
 	 */
 	public int size() {
-		return lista.size();
+		int n;
+		long sello;
+
+		sello = cerrojo.tryOptimisticRead();
+		n = elementos.size();
+		if (!cerrojo.validate(sello)) {
+			sello = cerrojo.readLock();
+			try {
+				n = elementos.size();
+			} finally {
+				cerrojo.unlockRead(sello);
+			}
+		}
+
+		return n;
 	}
 
 	/**
 	 * Elimina todos los elementos de la lista.
 	 */
 	public void vaciar() {
-		lista.clear();
+		long sello;
+
+		sello = cerrojo.writeLock();
+		try {
+			elementos.vaciar();
+			rutas.vaciar();
+		} finally {
+			cerrojo.unlockWrite(sello);
+		}
+
+		encargarCompilación();
+	}
+
+	/**
+	 * Facilita una copia inmutable de los elementos en su orden actual. Es la
+	 * forma de recorrer la colección de forma coherente mientras otros hilos la
+	 * modifican.
+	 * 
+	 * @return la lista de elementos correspondiente
+	 */
+	public List<IdentificaciónIPv4> instantánea() {
+		return List.of(copiarElementos());
 	}
 
 	/**
@@ -77,10 +442,13 @@ public class RedIPv4 {
 	 * @return la lista de textos correspondiente
 	 */
 	public List<String> generarListado() {
+		IdentificaciónIPv4[] copia;
 		List<String> listaTextos;
-		listaTextos = new ArrayList<String>(lista.size());
 
-		for (IdentificaciónIPv4 resultado : lista) {
+		copia = copiarElementos();
+		listaTextos = new ArrayList<String>(copia.length);
+
+		for (IdentificaciónIPv4 resultado : copia) {
 			listaTextos.add(resultado.toString());
 		}
 		return listaTextos;
@@ -95,12 +463,169 @@ public class RedIPv4 {
 	 * @return la lista de textos correspondiente
 	 */
 	public List<String> generarListadoCSV() {
+		IdentificaciónIPv4[] copia;
 		List<String> listaTextos;
-		listaTextos = new ArrayList<String>(lista.size());
 
-		for (IdentificaciónIPv4 resultado : lista) {
+		copia = copiarElementos();
+		listaTextos = new ArrayList<String>(copia.length);
+
+		for (IdentificaciónIPv4 resultado : copia) {
 			listaTextos.add(resultado.toStringCSV());
 		}
 		return listaTextos;
 	}
+
+	/**
+	 * Incorpora las identificaciones leídas de un flujo en formato pseudo CSV,
+	 * línea a línea y sin cargar antes el contenido completo. No cierra el
+	 * flujo.
+	 * 
+	 * @param entrada el flujo de caracteres
+	 * @return el número de líneas con datos leídas
+	 * @throws IOException        si se produce algún error de lectura
+	 * @throws LíneaCSVException si alguna línea está mal formada; las anteriores
+	 *                            quedan incorporadas
+	 * @see FlujoCSVIPv4#importar(Reader, java.util.function.Consumer)
+	 */
+	public long importarCSV(Reader entrada) throws IOException {
+		return FlujoCSVIPv4.importar(entrada, this::agregarElemento);
+	}
+
+	/**
+	 * Escribe todos los elementos en un flujo en formato pseudo CSV, línea a línea
+	 * y sin generar antes el listado completo. No cierra el flujo.
+	 * 
+	 * @param salida el flujo de caracteres
+	 * @return el número de líneas escritas
+	 * @throws IOException si se produce algún error de escritura
+	 * @see FlujoCSVIPv4#exportar(Iterable, Writer)
+	 */
+	public long exportarCSV(Writer salida) throws IOException {
+		return FlujoCSVIPv4.exportar(instantánea(), salida);
+	}
+
+	/**
+	 * Facilita los elementos empaquetados como registros —dirección y longitud de
+	 * máscara— en una tabla de tipo primitivo, en su orden actual.
+	 * 
+	 * @return la tabla de registros correspondiente
+	 * @see RegistroIPv4
+	 */
+	public long[] generarRegistros() {
+		IdentificaciónIPv4[] copia;
+		long[] registros;
+
+		copia = copiarElementos();
+		registros = new long[copia.length];
+		for (int i = 0; i < copia.length; i++) {
+			registros[i] = copia[i].getRegistro();
+		}
+		return registros;
+	}
+
+	/**
+	 * Facilita el conjunto de direcciones cubiertas por las redes de todos los
+	 * elementos, con las redes solapadas o contiguas ya fundidas.
+	 * 
+	 * @return el conjunto de rangos correspondiente
+	 */
+	public ConjuntoRangosIPv4 generarRangos() {
+		long[] registros = generarRegistros();
+		return ConjuntoRangosIPv4.of(registros, registros.length);
+	}
+
+	/**
+	 * Facilita una instantánea de los elementos ordenada por red, con búsquedas
+	 * binarias de vecinos, tramos contenidos en una red y solapamientos.
+	 *
+	 * @return la instantánea ordenada correspondiente
+	 */
+	public RedIPv4Ordenada generarOrdenada() {
+		long[] registros = generarRegistros();
+		return RedIPv4Ordenada.of(registros, registros.length);
+	}
+
+	/**
+	 * Guarda todos los elementos en un archivo en formato de instantánea binaria,
+	 * sustituyendo su contenido anterior.
+	 * 
+	 * @param archivo la ruta del archivo
+	 * @throws IOException si se produce algún error de escritura
+	 * @see InstantáneaBinariaIPv4
+	 */
+	public void exportarBinario(Path archivo) throws IOException {
+		long[] registros = generarRegistros();
+		InstantáneaBinariaIPv4.guardar(registros, registros.length, archivo);
+	}
+
+	/**
+	 * Incorpora todos los elementos de una instantánea binaria, comprobando antes
+	 * todos sus registros, pues de todos modos se leen enteros. Para consultar la
+	 * instantánea sin crear los elementos, véase
+	 * {@link InstantáneaBinariaIPv4#abrir(Path)}.
+	 * 
+	 * @param archivo la ruta del archivo
+	 * @return el número de registros leídos
+	 * @throws IOException si no se puede leer el archivo o su formato no es
+	 *                     válido
+	 */
+	public long importarBinario(Path archivo) throws IOException {
+		InstantáneaBinariaIPv4 instantánea;
+
+		instantánea = InstantáneaBinariaIPv4.abrir(archivo, true);
+		for (int i = 0; i < instantánea.size(); i++) {
+			agregarElemento(instantánea.getElemento(i));
+		}
+		return instantánea.size();
+	}
+
+	/**
+	 * Copia los elementos almacenados con una lectura optimista, recurriendo al
+	 * cerrojo de lectura si coincide con una modificación o si hay lápidas.
+	 * 
+	 * @return la copia de los elementos, sin posiciones libres
+	 */
+	private IdentificaciónIPv4[] copiarElementos() {
+		IdentificaciónIPv4[] tabla, copia;
+		boolean directa;
+		int n;
+		long sello;
+
+		sello = cerrojo.tryOptimisticRead();
+		directa = elementos.sinLápidas();
+		tabla = elementos.casillas();
+		n = elementos.size();
+		copia = Arrays.copyOf(tabla, Math.min(n, tabla.length));
+
+		if (!directa || !cerrojo.validate(sello)) {
+			sello = cerrojo.readLock();
+			try {
+				copia = elementos.copiar();
+			} finally {
+				cerrojo.unlockRead(sello);
+			}
+		}
+
+		return copia;
+	}
+
+	/**
+	 * Calcula la dirección de red empaquetada de un elemento.
+	 * 
+	 * @param elemento el elemento a consultar
+	 * @return la dirección de red
+	 */
+	private static int red(IdentificaciónIPv4 elemento) {
+		return RegistroIPv4.red(elemento.getRegistro());
+	}
+
+	/**
+	 * Calcula la longitud en formato CIDR de la máscara de un elemento.
+	 * 
+	 * @param elemento el elemento a consultar
+	 * @return la longitud de la máscara
+	 */
+	private static int máscaraCIDR(IdentificaciónIPv4 elemento) {
+		return elemento.getMáscaraCIDR();
+	}
 }
@@ -0,0 +1,395 @@
+package jcolonia.daw.redipv4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Instantánea inmutable de una colección de identificaciones IPv4 ordenada por
+ * red, para auditorías de inventarios grandes: qué elementos caen dentro de
+ * una red, cuál es la red siguiente a otra o qué elementos se solapan con una
+ * red dada, todo mediante búsquedas binarias en lugar de recorridos completos.
+ *
+ * <div>Los elementos se guardan como {@link RegistroIPv4 registros}
+ * empaquetados en una única tabla de tipo primitivo —ocho bytes por elemento—
+ * en el orden natural de los registros: por dirección de red sin signo, luego
+ * por longitud de máscara y, por último, por dirección completa. En ese orden,
+ * los elementos contenidos en una red ocupan un tramo contiguo a continuación
+ * de ella, de modo que {@link #contenidas(int, int)} devuelve una vista sin
+ * copiar nada.</div>
+ *
+ * <div>Los objetos {@link IdentificaciónIPv4} se crean solo al devolverlos.
+ * Para reflejar cambios posteriores de la colección original hay que crear
+ * otra instantánea: véase {@link RedIPv4#generarOrdenada()}.</div>
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class RedIPv4Ordenada {
+	/**
+	 * Registros ordenados, compartidos con las vistas obtenidas de esta
+	 * instantánea.
+	 */
+	private final long[] registros;
+
+	/**
+	 * Primera posición de esta vista, incluida.
+	 */
+	private final int desde;
+
+	/**
+	 * Última posición de esta vista, excluida.
+	 */
+	private final int hasta;
+
+	/**
+	 * Mapa de bits de las longitudes de máscara presentes en la tabla completa:
+	 * el bit <i>n</i> indica si hay algún registro con máscara <i>/n</i>.
+	 */
+	private final long longitudes;
+
+	/**
+	 * Crea una vista sobre una tabla ya ordenada.
+	 *
+	 * @param registros  los registros ordenados
+	 * @param desde      la primera posición, incluida
+	 * @param hasta      la última posición, excluida
+	 * @param longitudes el mapa de bits de las longitudes de máscara presentes
+	 */
+	private RedIPv4Ordenada(long[] registros, int desde, int hasta, long longitudes) {
+		this.registros = registros;
+		this.desde = desde;
+		this.hasta = hasta;
+		this.longitudes = longitudes;
+	}
+
+	/**
+	 * Crea una instantánea a partir de una tabla de registros, que no se
+	 * modifica.
+	 *
+	 * @param registros la tabla de registros, en cualquier orden
+	 * @param número    el número de registros a tomar desde el principio
+	 * @return la instantánea ordenada
+	 * @throws IndexOutOfBoundsException si el número excede el tamaño de la tabla
+	 */
+	public static RedIPv4Ordenada of(long[] registros, int número) {
+		long[] copia;
+		long longitudes = 0;
+
+		Objects.checkFromIndexSize(0, número, registros.length);
+		copia = Arrays.copyOf(registros, número);
+		RegistroIPv4.ordenar(copia, 0, número);
+		for (long registro : copia) {
+			longitudes |= 1L << RegistroIPv4.máscaraCIDR(registro);
+		}
+
+		return new RedIPv4Ordenada(copia, 0, número, longitudes);
+	}
+
+	/**
+	 * Devuelve el número de elementos.
+	 *
+	 * @return el número de elementos
+	 */
+	public int size() {
+		return hasta - desde;
+	}
+
+	/**
+	 * Indica si no hay elementos.
+	 *
+	 * @return si está vacía o no
+	 */
+	public boolean isEmpty() {
+		return hasta == desde;
+	}
+
+	/**
+	 * Facilita el registro de una posición.
+	 *
+	 * @param pos la posición, desde 0
+	 * @return el registro empaquetado
+	 * @throws IndexOutOfBoundsException si la posición no existe
+	 */
+	public long getRegistro(int pos) {
+		return registros[desde + Objects.checkIndex(pos, size())];
+	}
+
+	/**
+	 * Facilita el elemento de una posición.
+	 *
+	 * @param pos la posición, desde 0
+	 * @return el elemento correspondiente
+	 * @throws IndexOutOfBoundsException si la posición no existe
+	 */
+	public IdentificaciónIPv4 getElemento(int pos) {
+		return elemento(desde + Objects.checkIndex(pos, size()));
+	}
+
+	/**
+	 * Localiza el último elemento que no va detrás de una identificación dada en
+	 * el orden de la colección.
+	 *
+	 * @param dirección   la dirección empaquetada de la identificación
+	 * @param máscaraCIDR la longitud de su máscara
+	 * @return el elemento encontrado, o <code>null</code> si todos van detrás
+	 * @throws NúmeroIPv4Exception si la máscara está fuera de rango
+	 */
+	public IdentificaciónIPv4 suelo(int dirección, int máscaraCIDR) {
+		return elementoEn(límite(RegistroIPv4.of(dirección, máscaraCIDR), true) - 1);
+	}
+
+	/**
+	 * Localiza el último elemento que va delante de una identificación dada en el
+	 * orden de la colección.
+	 *
+	 * @param dirección   la dirección empaquetada de la identificación
+	 * @param máscaraCIDR la longitud de su máscara
+	 * @return el elemento encontrado, o <code>null</code> si ninguno va delante
+	 * @throws NúmeroIPv4Exception si la máscara está fuera de rango
+	 */
+	public IdentificaciónIPv4 anterior(int dirección, int máscaraCIDR) {
+		return elementoEn(límite(RegistroIPv4.of(dirección, máscaraCIDR), false) - 1);
+	}
+
+	/**
+	 * Localiza el primer elemento que no va delante de una identificación dada en
+	 * el orden de la colección.
+	 *
+	 * @param dirección   la dirección empaquetada de la identificación
+	 * @param máscaraCIDR la longitud de su máscara
+	 * @return el elemento encontrado, o <code>null</code> si todos van delante
+	 * @throws NúmeroIPv4Exception si la máscara está fuera de rango
+	 */
+	public IdentificaciónIPv4 techo(int dirección, int máscaraCIDR) {
+		return elementoEn(límite(RegistroIPv4.of(dirección, máscaraCIDR), false));
+	}
+
+	/**
+	 * Localiza el primer elemento que va detrás de una identificación dada en el
+	 * orden de la colección: por ejemplo, la red siguiente a otra.
+	 *
+	 * @param dirección   la dirección empaquetada de la identificación
+	 * @param máscaraCIDR la longitud de su máscara
+	 * @return el elemento encontrado, o <code>null</code> si ninguno va detrás
+	 * @throws NúmeroIPv4Exception si la máscara está fuera de rango
+	 */
+	public IdentificaciónIPv4 posterior(int dirección, int máscaraCIDR) {
+		return elementoEn(límite(RegistroIPv4.of(dirección, máscaraCIDR), true));
+	}
+
+	/**
+	 * Obtiene la vista de los elementos cuya red está contenida en una red dada,
+	 * incluidos los de la misma red. No copia los elementos.
+	 *
+	 * @param red         cualquier dirección de la red, empaquetada
+	 * @param máscaraCIDR la longitud de su máscara
+	 * @return la vista correspondiente, posiblemente vacía
+	 * @throws NúmeroIPv4Exception si la máscara está fuera de rango
+	 */
+	public RedIPv4Ordenada contenidas(int red, int máscaraCIDR) {
+		int inicio, fin;
+
+		red = EnteroIPv4.red(red, máscaraCIDR);
+		inicio = límiteRed(red, máscaraCIDR);
+		fin = (EnteroIPv4.difusión(red, máscaraCIDR) == -1) ? hasta
+				: límiteRed(EnteroIPv4.difusión(red, máscaraCIDR) + 1, 0);
+
+		return new RedIPv4Ordenada(registros, inicio, fin, longitudes);
+	}
+
+	/**
+	 * Obtiene la vista de los elementos cuya dirección de red está en un rango. No
+	 * copia los elementos.
+	 *
+	 * @param inicio la primera dirección de red, empaquetada
+	 * @param fin    la última dirección de red, empaquetada e incluida
+	 * @return la vista correspondiente, posiblemente vacía
+	 * @throws NúmeroIPv4Exception si el inicio es posterior al fin
+	 */
+	public RedIPv4Ordenada entre(int inicio, int fin) {
+		if (Integer.compareUnsigned(inicio, fin) > 0) {
+			throw new NúmeroIPv4Exception(String.format("Rango invertido: %s-%s", EscritorIPv4.toString(inicio),
+					EscritorIPv4.toString(fin)));
+		}
+
+		return new RedIPv4Ordenada(registros, límiteRed(inicio, 0), (fin == -1) ? hasta : límiteRed(fin + 1, 0),
+				longitudes);
+	}
+
+	/**
+	 * Localiza los elementos cuya red contiene a una red dada o coincide con ella,
+	 * de la más amplia a la más específica. Realiza una búsqueda binaria por cada
+	 * longitud de máscara presente.
+	 *
+	 * @param red         cualquier dirección de la red, empaquetada
+	 * @param máscaraCIDR la longitud de su máscara
+	 * @return la lista de elementos, posiblemente vacía
+	 * @throws NúmeroIPv4Exception si la máscara está fuera de rango
+	 */
+	public List<IdentificaciónIPv4> contenedoras(int red, int máscaraCIDR) {
+		List<IdentificaciónIPv4> resultado = new ArrayList<>();
+		long pendientes;
+		int longitud;
+
+		EnteroIPv4.verificarMáscaraCIDR(máscaraCIDR);
+		pendientes = longitudes & (-1L >>> (Long.SIZE - 1 - máscaraCIDR));
+		while (pendientes != 0) {
+			longitud = Long.numberOfTrailingZeros(pendientes);
+			pendientes &= pendientes - 1;
+			for (int pos = límiteRed(EnteroIPv4.red(red, longitud), longitud); pos < hasta
+					&& RegistroIPv4.compararRed(registros[pos], EnteroIPv4.red(red, longitud), longitud) == 0; pos++) {
+				resultado.add(elemento(pos));
+			}
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Comprueba si algún elemento se solapa con una red dada: si la contiene, está
+	 * contenido en ella o coincide con ella.
+	 *
+	 * @param red         cualquier dirección de la red, empaquetada
+	 * @param máscaraCIDR la longitud de su máscara
+	 * @return si hay solapamiento o no
+	 * @throws NúmeroIPv4Exception si la máscara está fuera de rango
+	 */
+	public boolean solapa(int red, int máscaraCIDR) {
+		boolean resultado = !contenidas(red, máscaraCIDR).isEmpty();
+		long pendientes = longitudes & ((1L << máscaraCIDR) - 1);
+		int longitud;
+
+		while (!resultado && pendientes != 0) {
+			longitud = Long.numberOfTrailingZeros(pendientes);
+			pendientes &= pendientes - 1;
+			resultado = buscarExacta(EnteroIPv4.red(red, longitud), longitud) >= 0;
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Localiza el elemento cuya red es la más específica entre las que contienen
+	 * una dirección.
+	 *
+	 * @param dirección la dirección empaquetada a consultar
+	 * @return el elemento correspondiente, o <code>null</code> si ninguna red
+	 *         contiene la dirección
+	 */
+	public IdentificaciónIPv4 buscarRuta(int dirección) {
+		long pendientes = longitudes;
+		int longitud, pos = -1;
+
+		while (pendientes != 0 && pos < 0) {
+			longitud = Long.SIZE - 1 - Long.numberOfLeadingZeros(pendientes);
+			pendientes &= ~(1L << longitud);
+			pos = buscarExacta(EnteroIPv4.red(dirección, longitud), longitud);
+		}
+
+		return elementoEn(pos);
+	}
+
+	/**
+	 * Facilita los registros en orden.
+	 *
+	 * @return el flujo de registros empaquetados
+	 */
+	public LongStream registros() {
+		return Arrays.stream(registros, desde, hasta);
+	}
+
+	/**
+	 * Facilita los elementos en orden, creados según se piden.
+	 *
+	 * @return el flujo de elementos
+	 */
+	public Stream<IdentificaciónIPv4> elementos() {
+		return IntStream.range(desde, hasta).mapToObj(this::elemento);
+	}
+
+	/**
+	 * Localiza la primera posición de la vista cuyo registro va detrás de una
+	 * clave —o no va delante, si no se incluye la clave—.
+	 *
+	 * @param clave    el registro de referencia
+	 * @param incluida si las posiciones iguales a la clave quedan antes del límite
+	 * @return la posición encontrada, entre {@link #desde} y {@link #hasta}
+	 */
+	private int límite(long clave, boolean incluida) {
+		int inferior = desde, superior = hasta, medio, comparación;
+
+		while (inferior < superior) {
+			medio = (inferior + superior) >>> 1;
+			comparación = RegistroIPv4.comparar(registros[medio], clave);
+			if (comparación < 0 || (incluida && comparación == 0)) {
+				inferior = medio + 1;
+			} else {
+				superior = medio;
+			}
+		}
+
+		return inferior;
+	}
+
+	/**
+	 * Localiza la primera posición de la vista cuya red no va delante de una red
+	 * dada.
+	 *
+	 * @param red         la dirección de red empaquetada
+	 * @param máscaraCIDR la longitud de la máscara
+	 * @return la posición encontrada, entre {@link #desde} y {@link #hasta}
+	 */
+	private int límiteRed(int red, int máscaraCIDR) {
+		int inferior = desde, superior = hasta, medio;
+
+		while (inferior < superior) {
+			medio = (inferior + superior) >>> 1;
+			if (RegistroIPv4.compararRed(registros[medio], red, máscaraCIDR) < 0) {
+				inferior = medio + 1;
+			} else {
+				superior = medio;
+			}
+		}
+
+		return inferior;
+	}
+
+	/**
+	 * Localiza un registro con una red y una máscara exactas.
+	 *
+	 * @param red         la dirección de red empaquetada
+	 * @param máscaraCIDR la longitud de la máscara
+	 * @return la posición del primer registro con esa red, o -1 si no hay ninguno
+	 */
+	private int buscarExacta(int red, int máscaraCIDR) {
+		int pos = límiteRed(red, máscaraCIDR);
+		return (pos < hasta && RegistroIPv4.compararRed(registros[pos], red, máscaraCIDR) == 0) ? pos : -1;
+	}
+
+	/**
+	 * Crea el elemento de una posición de la vista, si existe.
+	 *
+	 * @param pos la posición absoluta en la tabla de registros
+	 * @return el elemento, o <code>null</code> si la posición queda fuera de la
+	 *         vista
+	 */
+	private IdentificaciónIPv4 elementoEn(int pos) {
+		return (pos >= desde && pos < hasta) ? elemento(pos) : null;
+	}
+
+	/**
+	 * Crea el elemento de una posición de la tabla de registros.
+	 *
+	 * @param pos la posición absoluta
+	 * @return el elemento correspondiente
+	 */
+	private IdentificaciónIPv4 elemento(int pos) {
+		long registro = registros[pos];
+		return IdentificaciónIPv4.ofRegistro(registro);
+	}
+}
@@ -0,0 +1,205 @@
+package jcolonia.daw.redipv4;
+
+/**
+ * Operaciones sobre identificaciones IPv4 —dirección y máscara— empaquetadas en
+ * un único entero largo: la dirección en los 32 bits altos y la longitud de la
+ * máscara en formato CIDR en los bits bajos. Permite manejar grandes
+ * inventarios en tablas de tipos primitivos, sin crear un objeto por elemento.
+ *
+ * <div>El orden natural de los registros es el de las redes: primero por
+ * dirección de red sin signo, después por longitud de máscara —la red que
+ * contiene a otra va delante— y, por último, por dirección completa. Con este
+ * orden, las redes contenidas en otra quedan a continuación de ella.</div>
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class RegistroIPv4 {
+	/**
+	 * Tamaño por debajo del cual la ordenación emplea inserción directa.
+	 */
+	private static final int UMBRAL_INSERCIÓN = 24;
+
+	/**
+	 * Clase de utilidad: no se crean objetos.
+	 */
+	private RegistroIPv4() {
+	}
+
+	/**
+	 * Empaqueta una dirección y una longitud de máscara.
+	 *
+	 * @param dirección   la dirección empaquetada
+	 * @param máscaraCIDR la longitud de la máscara
+	 * @return el registro empaquetado
+	 * @throws NúmeroIPv4Exception si la longitud de máscara está fuera de rango
+	 */
+	public static long of(int dirección, int máscaraCIDR) {
+		EnteroIPv4.verificarMáscaraCIDR(máscaraCIDR);
+		return (long) dirección << 32 | máscaraCIDR;
+	}
+
+	/**
+	 * Extrae la dirección de un registro.
+	 *
+	 * @param registro el registro empaquetado
+	 * @return la dirección empaquetada
+	 */
+	public static int dirección(long registro) {
+		return (int) (registro >>> 32);
+	}
+
+	/**
+	 * Extrae la longitud de máscara de un registro.
+	 *
+	 * @param registro el registro empaquetado
+	 * @return la longitud de la máscara, de 0 a 32
+	 */
+	public static int máscaraCIDR(long registro) {
+		return (int) registro & 0x3F;
+	}
+
+	/**
+	 * Calcula la dirección de red de un registro.
+	 *
+	 * @param registro el registro empaquetado
+	 * @return la dirección de red empaquetada
+	 */
+	public static int red(long registro) {
+		return EnteroIPv4.red(dirección(registro), máscaraCIDR(registro));
+	}
+
+	/**
+	 * Calcula la dirección de difusión de un registro.
+	 *
+	 * @param registro el registro empaquetado
+	 * @return la dirección de difusión empaquetada
+	 */
+	public static int difusión(long registro) {
+		return EnteroIPv4.difusión(dirección(registro), máscaraCIDR(registro));
+	}
+
+	/**
+	 * Compara dos registros según su orden natural: red, longitud de máscara y
+	 * dirección.
+	 *
+	 * @param registro1 el primer registro
+	 * @param registro2 el segundo registro
+	 * @return un valor negativo, cero o positivo si el primero va delante, es
+	 *         igual o va detrás del segundo
+	 */
+	public static int comparar(long registro1, long registro2) {
+		int resultado;
+
+		resultado = Integer.compareUnsigned(red(registro1), red(registro2));
+		if (resultado == 0) {
+			resultado = Integer.compare(máscaraCIDR(registro1), máscaraCIDR(registro2));
+		}
+		if (resultado == 0) {
+			resultado = Integer.compareUnsigned(dirección(registro1), dirección(registro2));
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Compara la red de un registro con una red dada, sin tener en cuenta la
+	 * dirección completa. Es el criterio de las búsquedas binarias.
+	 *
+	 * @param registro    el registro
+	 * @param red         la dirección de red empaquetada
+	 * @param máscaraCIDR la longitud de la máscara
+	 * @return un valor negativo, cero o positivo si el registro va delante, tiene
+	 *         la misma red o va detrás
+	 */
+	public static int compararRed(long registro, int red, int máscaraCIDR) {
+		int resultado;
+
+		resultado = Integer.compareUnsigned(red(registro), red);
+		if (resultado == 0) {
+			resultado = Integer.compare(máscaraCIDR(registro), máscaraCIDR);
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Ordena un fragmento de una tabla de registros según su orden natural. Emplea
+	 * ordenación rápida con partición en tres partes —menores, iguales y mayores
+	 * que el pivote—, que se comporta bien con muchos registros repetidos.
+	 *
+	 * @param registros la tabla de registros
+	 * @param desde     la posición inicial, incluida
+	 * @param hasta     la posición final, excluida
+	 */
+	public static void ordenar(long[] registros, int desde, int hasta) {
+		long pivote;
+		int menores, mayores, i, comparación;
+
+		while (hasta - desde > UMBRAL_INSERCIÓN) {
+			pivote = mediana(registros[desde], registros[(desde + hasta) >>> 1], registros[hasta - 1]);
+
+			menores = desde;
+			mayores = hasta - 1;
+			i = desde;
+			while (i <= mayores) {
+				comparación = comparar(registros[i], pivote);
+				if (comparación < 0) {
+					intercambiar(registros, menores++, i++);
+				} else if (comparación > 0) {
+					intercambiar(registros, i, mayores--);
+				} else {
+					i++;
+				}
+			}
+
+			// Recursión sobre la parte menor para acotar la profundidad de la pila
+			if (menores - desde < hasta - mayores - 1) {
+				ordenar(registros, desde, menores);
+				desde = mayores + 1;
+			} else {
+				ordenar(registros, mayores + 1, hasta);
+				hasta = menores;
+			}
+		}
+
+		for (int j = desde + 1; j < hasta; j++) {
+			for (int k = j; k > desde && comparar(registros[k - 1], registros[k]) > 0; k--) {
+				intercambiar(registros, k - 1, k);
+			}
+		}
+	}
+
+	/**
+	 * Selecciona el valor intermedio de tres registros.
+	 *
+	 * @param a el primer registro
+	 * @param b el segundo registro
+	 * @param c el tercer registro
+	 * @return el registro intermedio según el orden natural
+	 */
+	private static long mediana(long a, long b, long c) {
+		long resultado;
+
+		if (comparar(a, b) < 0) {
+			resultado = (comparar(b, c) < 0) ? b : (comparar(a, c) < 0) ? c : a;
+		} else {
+			resultado = (comparar(a, c) < 0) ? a : (comparar(b, c) < 0) ? c : b;
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Intercambia dos posiciones de una tabla.
+	 *
+	 * @param registros la tabla de registros
+	 * @param i         la primera posición
+	 * @param j         la segunda posición
+	 */
+	private static void intercambiar(long[] registros, int i, int j) {
+		long auxiliar = registros[i];
+		registros[i] = registros[j];
+		registros[j] = auxiliar;
+	}
+}
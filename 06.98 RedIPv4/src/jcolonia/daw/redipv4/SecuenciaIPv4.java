@@ -0,0 +1,235 @@
+package jcolonia.daw.redipv4;
+
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Secuencia perezosa de direcciones IPv4 empaquetadas separadas por un paso
+ * constante: los equipos de una red, las subredes de un prefijo más largo
+ * dentro de un bloque o cualquier rango de direcciones. No crea ninguna lista
+ * ni ningún objeto por dirección, de modo que recorrer los 16 millones de
+ * equipos de una red <code>/8</code> no ocupa memoria.
+ *
+ * <div>Como {@link Spliterator}, se divide siempre por la mitad, de modo que los
+ * flujos paralelos reparten el trabajo a partes iguales entre todos los
+ * núcleos:
+ * <code>SecuenciaIPv4.hosts(red, true).flujo().parallel().filter(…)</code>.
+ * Las direcciones se facilitan en orden creciente sin signo; no se declara la
+ * característica {@link #SORTED} porque ese orden no coincide con el natural
+ * de los <code>int</code>.</div>
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class SecuenciaIPv4 implements Spliterator.OfInt {
+	/**
+	 * Características de todas las secuencias.
+	 */
+	private static final int CARACTERÍSTICAS = ORDERED | DISTINCT | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+
+	/**
+	 * Siguiente dirección, como valor sin signo.
+	 */
+	private long siguiente;
+
+	/**
+	 * Número de direcciones pendientes.
+	 */
+	private long restantes;
+
+	/**
+	 * Distancia entre direcciones consecutivas, como valor sin signo.
+	 */
+	private final long paso;
+
+	/**
+	 * Crea una secuencia.
+	 *
+	 * @param primera la primera dirección, como valor sin signo
+	 * @param número  el número de direcciones
+	 * @param paso    la distancia entre direcciones consecutivas
+	 */
+	private SecuenciaIPv4(long primera, long número, long paso) {
+		siguiente = primera;
+		restantes = número;
+		this.paso = paso;
+	}
+
+	/**
+	 * Crea la secuencia de todas las direcciones de un rango.
+	 *
+	 * @param inicio la primera dirección empaquetada
+	 * @param fin    la última dirección empaquetada, incluida
+	 * @return la secuencia correspondiente
+	 * @throws NúmeroIPv4Exception si el inicio es posterior al fin
+	 */
+	public static SecuenciaIPv4 rango(int inicio, int fin) {
+		if (Integer.compareUnsigned(inicio, fin) > 0) {
+			throw new NúmeroIPv4Exception(String.format("Rango invertido: %s-%s", EscritorIPv4.toString(inicio),
+					EscritorIPv4.toString(fin)));
+		}
+		return new SecuenciaIPv4(EnteroIPv4.toLong(inicio), EnteroIPv4.toLong(fin) - EnteroIPv4.toLong(inicio) + 1,
+				1);
+	}
+
+	/**
+	 * Crea la secuencia de las direcciones de equipo de una red.
+	 *
+	 * <div>Si se piden solo las utilizables, se excluyen la dirección de red y la
+	 * de difusión, salvo en las redes <code>/31</code> —enlaces punto a punto,
+	 * RFC&nbsp;3021— y <code>/32</code>, donde todas lo son.</div>
+	 *
+	 * @param dirección       cualquier dirección de la red, empaquetada
+	 * @param máscaraCIDR     la longitud del prefijo, de 0 a 32
+	 * @param soloUtilizables si se excluyen las direcciones de red y de difusión
+	 * @return la secuencia correspondiente
+	 * @throws NúmeroIPv4Exception si la máscara está fuera de rango
+	 */
+	public static SecuenciaIPv4 hosts(int dirección, int máscaraCIDR, boolean soloUtilizables) {
+		long primera, número;
+
+		EnteroIPv4.verificarMáscaraCIDR(máscaraCIDR);
+		primera = EnteroIPv4.toLong(EnteroIPv4.red(dirección, máscaraCIDR));
+		número = 1L << (EnteroIPv4.BITS - máscaraCIDR);
+		if (soloUtilizables && máscaraCIDR < EnteroIPv4.BITS - 1) {
+			primera++;
+			número -= 2;
+		}
+
+		return new SecuenciaIPv4(primera, número, 1);
+	}
+
+	/**
+	 * Crea la secuencia de las direcciones de equipo de una red. Véase
+	 * {@link #hosts(int, int, boolean)}.
+	 *
+	 * @param red             la identificación de la red
+	 * @param soloUtilizables si se excluyen las direcciones de red y de difusión
+	 * @return la secuencia correspondiente
+	 */
+	public static SecuenciaIPv4 hosts(IdentificaciónIPv4 red, boolean soloUtilizables) {
+		return hosts(RegistroIPv4.dirección(red.getRegistro()), red.getMáscaraCIDR(), soloUtilizables);
+	}
+
+	/**
+	 * Crea la secuencia de las direcciones de red de todas las subredes de un
+	 * prefijo más largo contenidas en una red: por ejemplo, las 256 redes
+	 * <code>/24</code> de un bloque <code>/16</code>.
+	 *
+	 * @param dirección       cualquier dirección de la red, empaquetada
+	 * @param máscaraCIDR     la longitud del prefijo de la red, de 0 a 32
+	 * @param máscaraSubredes la longitud del prefijo de las subredes, de
+	 *                        <code>máscaraCIDR</code> a 32
+	 * @return la secuencia correspondiente
+	 * @throws NúmeroIPv4Exception si alguna máscara está fuera de rango o las
+	 *                             subredes son más cortas que la red
+	 */
+	public static SecuenciaIPv4 subredes(int dirección, int máscaraCIDR, int máscaraSubredes) {
+		EnteroIPv4.verificarMáscaraCIDR(máscaraCIDR);
+		EnteroIPv4.verificarMáscaraCIDR(máscaraSubredes);
+		if (máscaraSubredes < máscaraCIDR) {
+			throw new NúmeroIPv4Exception(
+					String.format("Subredes «/%d» más amplias que la red «/%d»", máscaraSubredes, máscaraCIDR));
+		}
+
+		return new SecuenciaIPv4(EnteroIPv4.toLong(EnteroIPv4.red(dirección, máscaraCIDR)),
+				1L << (máscaraSubredes - máscaraCIDR), 1L << (EnteroIPv4.BITS - máscaraSubredes));
+	}
+
+	/**
+	 * Crea la secuencia de las subredes de una red. Véase
+	 * {@link #subredes(int, int, int)}.
+	 *
+	 * @param red             la identificación de la red
+	 * @param máscaraSubredes la longitud del prefijo de las subredes
+	 * @return la secuencia correspondiente
+	 */
+	public static SecuenciaIPv4 subredes(IdentificaciónIPv4 red, int máscaraSubredes) {
+		return subredes(RegistroIPv4.dirección(red.getRegistro()), red.getMáscaraCIDR(), máscaraSubredes);
+	}
+
+	/**
+	 * Crea un flujo secuencial sobre las direcciones pendientes. Para repartirlo
+	 * entre varios hilos basta con {@link IntStream#parallel()}.
+	 *
+	 * @return el flujo de direcciones empaquetadas
+	 */
+	public IntStream flujo() {
+		return StreamSupport.intStream(this, false);
+	}
+
+	/**
+	 * Facilita la siguiente dirección.
+	 *
+	 * @return la dirección empaquetada
+	 * @throws NoSuchElementException si no quedan direcciones
+	 */
+	public int siguiente() {
+		int resultado;
+
+		if (restantes == 0) {
+			throw new NoSuchElementException();
+		}
+		resultado = (int) siguiente;
+		siguiente += paso;
+		restantes--;
+
+		return resultado;
+	}
+
+	@Override
+	public boolean tryAdvance(IntConsumer acción) {
+		boolean avanza = restantes > 0;
+
+		if (avanza) {
+			acción.accept(siguiente());
+		}
+
+		return avanza;
+	}
+
+	@Override
+	public void forEachRemaining(IntConsumer acción) {
+		long valor = siguiente, número = restantes;
+
+		siguiente += número * paso;
+		restantes = 0;
+		for (long i = 0; i < número; i++) {
+			acción.accept((int) valor);
+			valor += paso;
+		}
+	}
+
+	/**
+	 * Separa la primera mitad de las direcciones pendientes en otra secuencia.
+	 *
+	 * @return la secuencia con la primera mitad, o <code>null</code> si quedan
+	 *         menos de dos direcciones
+	 */
+	@Override
+	public SecuenciaIPv4 trySplit() {
+		SecuenciaIPv4 prefijo = null;
+		long mitad = restantes >>> 1;
+
+		if (mitad > 0) {
+			prefijo = new SecuenciaIPv4(siguiente, mitad, paso);
+			siguiente += mitad * paso;
+			restantes -= mitad;
+		}
+
+		return prefijo;
+	}
+
+	@Override
+	public long estimateSize() {
+		return restantes;
+	}
+
+	@Override
+	public int characteristics() {
+		return CARACTERÍSTICAS;
+	}
+}
@@ -0,0 +1,194 @@
+package jcolonia.daw.redipv4;
+
+import java.util.Arrays;
+
+/**
+ * Versión compilada e inmutable de una {@link TablaRutasIPv4}, orientada a
+ * consultas masivas. Sigue el esquema DIR-24-8: un primer nivel indexado por los
+ * 24 bits más significativos de la dirección y, solo para los bloques «/24» que
+ * contienen rutas más específicas, un segundo nivel de 256 posiciones indexado
+ * por el último byte. Cualquier consulta se resuelve así con uno o dos accesos a
+ * tablas de enteros, sin recorrer ningún árbol.
+ *
+ * <div>A cambio, el primer nivel ocupa siempre 2<sup>24</sup> enteros —64 MB— y
+ * construir la tabla cuesta tiempo proporcional a las direcciones cubiertas por
+ * las rutas. Está pensada para conjuntos de rutas que cambian poco y se
+ * consultan mucho; cuando cambian, se compila una tabla nueva y se sustituye la
+ * anterior.</div>
+ *
+ * <div>Cada posición de las tablas guarda el índice —más uno— del valor de la
+ * ruta en {@link #valores}, o cero si ninguna ruta cubre esa dirección. En el
+ * primer nivel, las posiciones con el bit de signo activo remiten en cambio a un
+ * bloque del segundo nivel.</div>
+ *
+ * @param <V> el tipo de valor asociado a cada ruta
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public final class TablaRutasCompiladaIPv4<V> {
+	/**
+	 * Número de bits de la dirección usados para indexar el primer nivel.
+	 */
+	private static final int BITS_NIVEL1 = 24;
+
+	/**
+	 * Número de posiciones de cada bloque del segundo nivel.
+	 */
+	private static final int TAMAÑO_BLOQUE = 1 << (EnteroIPv4.BITS - BITS_NIVEL1);
+
+	/**
+	 * Marca de las posiciones del primer nivel que remiten al segundo.
+	 */
+	private static final int MARCA_NIVEL2 = 0x8000_0000;
+
+	/**
+	 * Primer nivel: una posición por cada bloque «/24».
+	 */
+	private final int[] nivel1;
+
+	/**
+	 * Segundo nivel: bloques consecutivos de {@value #TAMAÑO_BLOQUE} posiciones.
+	 */
+	private final int[] nivel2;
+
+	/**
+	 * Valores de las rutas, en el orden de numeración usado en las tablas.
+	 */
+	private final Object[] valores;
+
+	/**
+	 * Versión de la tabla de rutas de origen.
+	 */
+	private final long versión;
+
+	/**
+	 * Crea la tabla con sus datos ya calculados.
+	 *
+	 * @param nivel1  el primer nivel
+	 * @param nivel2  el segundo nivel
+	 * @param valores los valores de las rutas
+	 * @param versión la versión de la tabla de origen
+	 */
+	private TablaRutasCompiladaIPv4(int[] nivel1, int[] nivel2, Object[] valores, long versión) {
+		this.nivel1 = nivel1;
+		this.nivel2 = nivel2;
+		this.valores = valores;
+		this.versión = versión;
+	}
+
+	/**
+	 * Compila una tabla de rutas. Trabaja sobre una {@link TablaRutasIPv4#copiar()
+	 * copia} de la tabla, por lo que esta puede seguir modificándose mientras
+	 * tanto sin afectar al resultado.
+	 *
+	 * @param <V>   el tipo de valor asociado a cada ruta
+	 * @param tabla la tabla de rutas de origen
+	 * @return la tabla compilada
+	 */
+	public static <V> TablaRutasCompiladaIPv4<V> compilar(TablaRutasIPv4<V> tabla) {
+		TablaRutasIPv4<V> copia;
+		int[] porLongitud, redes, longitudes, nivel1, nivel2;
+		Object[] valores;
+		int númBloques = 0;
+		int red, longitud, desde, índice, bloque;
+
+		copia = tabla.copiar();
+
+		// Numeración de las rutas agrupadas por longitud de máscara creciente
+		porLongitud = new int[EnteroIPv4.BITS + 3];
+		copia.recorrer((r, m, v) -> porLongitud[m + 2]++);
+		for (int i = 2; i < porLongitud.length; i++) {
+			porLongitud[i] += porLongitud[i - 1];
+		}
+
+		redes = new int[copia.size()];
+		longitudes = new int[copia.size()];
+		valores = new Object[copia.size()];
+		copia.recorrer((r, m, v) -> {
+			int pos = porLongitud[m + 1]++;
+			redes[pos] = r;
+			longitudes[pos] = m;
+			valores[pos] = v;
+		});
+
+		// Pintado de las rutas, de las menos específicas a las más específicas
+		nivel1 = new int[1 << BITS_NIVEL1];
+		nivel2 = new int[0];
+		for (int i = 0; i < redes.length; i++) {
+			red = redes[i];
+			longitud = longitudes[i];
+			índice = i + 1;
+
+			if (longitud <= BITS_NIVEL1) {
+				desde = red >>> (EnteroIPv4.BITS - BITS_NIVEL1);
+				Arrays.fill(nivel1, desde, desde + (1 << (BITS_NIVEL1 - longitud)), índice);
+			} else {
+				desde = red >>> (EnteroIPv4.BITS - BITS_NIVEL1);
+				if ((nivel1[desde] & MARCA_NIVEL2) == 0) { // Nuevo bloque heredando la ruta del «/24»
+					bloque = númBloques++;
+					if (nivel2.length < númBloques * TAMAÑO_BLOQUE) {
+						nivel2 = Arrays.copyOf(nivel2, Math.max(TAMAÑO_BLOQUE, nivel2.length * 2));
+					}
+					Arrays.fill(nivel2, bloque * TAMAÑO_BLOQUE, númBloques * TAMAÑO_BLOQUE, nivel1[desde]);
+					nivel1[desde] = MARCA_NIVEL2 | bloque;
+				}
+				bloque = nivel1[desde] & ~MARCA_NIVEL2;
+				desde = bloque * TAMAÑO_BLOQUE + (red & (TAMAÑO_BLOQUE - 1));
+				Arrays.fill(nivel2, desde, desde + (1 << (EnteroIPv4.BITS - longitud)), índice);
+			}
+		}
+		nivel2 = Arrays.copyOf(nivel2, númBloques * TAMAÑO_BLOQUE);
+
+		return new TablaRutasCompiladaIPv4<V>(nivel1, nivel2, valores, copia.getVersión());
+	}
+
+	/**
+	 * Localiza la ruta más específica que contiene una dirección, con uno o dos
+	 * accesos a memoria.
+	 *
+	 * @param dirección la dirección empaquetada a consultar
+	 * @return el valor de la ruta, o <code>null</code> si ninguna la contiene
+	 */
+	@SuppressWarnings("unchecked")
+	public V buscar(int dirección) {
+		int entrada;
+
+		entrada = nivel1[dirección >>> (EnteroIPv4.BITS - BITS_NIVEL1)];
+		if ((entrada & MARCA_NIVEL2) != 0) {
+			entrada = nivel2[(entrada & ~MARCA_NIVEL2) * TAMAÑO_BLOQUE + (dirección & (TAMAÑO_BLOQUE - 1))];
+		}
+
+		return (entrada == 0) ? null : (V) valores[entrada - 1];
+	}
+
+	/**
+	 * Localiza la ruta más específica que contiene una dirección. Véase
+	 * {@link #buscar(int)}.
+	 *
+	 * @param dirección la dirección a consultar
+	 * @return el valor de la ruta, o <code>null</code> si ninguna la contiene
+	 */
+	public V buscar(NúmeroIPv4 dirección) {
+		return buscar(dirección.valor());
+	}
+
+	/**
+	 * Devuelve el número de rutas compiladas.
+	 *
+	 * @return el número de rutas
+	 */
+	public int size() {
+		return valores.length;
+	}
+
+	/**
+	 * Facilita la versión de la tabla de rutas de la que procede.
+	 *
+	 * @return la versión correspondiente
+	 * @see TablaRutasIPv4#getVersión()
+	 */
+	public long getVersión() {
+		return versión;
+	}
+}
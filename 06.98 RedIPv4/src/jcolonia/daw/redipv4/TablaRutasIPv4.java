@@ -0,0 +1,570 @@
+package jcolonia.daw.redipv4;
+
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * Tabla de rutas IPv4 con búsqueda del prefijo más largo —<i>longest prefix
+ * match</i>—. Cada ruta se identifica por una dirección de red y una longitud
+ * de máscara en formato CIDR, y lleva asociado un valor: el siguiente salto, la
+ * interfaz de salida, la propia identificación…
+ *
+ * <div>Se organiza como un árbol binario compacto —árbol Patricia—: cada nodo
+ * guarda un prefijo completo y solo existen nodos donde las rutas se bifurcan,
+ * de modo que cualquier operación recorre como mucho 33 nodos.</div>
+ *
+ * <div>Los nodos son inmutables. Las modificaciones copian únicamente el camino
+ * desde la raíz hasta el nodo afectado y publican la nueva raíz de una sola
+ * vez, por lo que las consultas no bloquean nunca: cada una trabaja sobre la
+ * versión del árbol vigente al empezar. Las modificaciones se serializan entre
+ * sí.</div>
+ *
+ * <div>Para cargas masivas, {@link #construir(long[], int, IntFunction)} crea
+ * el árbol de una tabla directamente a partir de sus rutas ordenadas y
+ * {@link #agregarTodas(TablaRutasIPv4)} la funde con otra publicando el
+ * resultado una sola vez, sin copiar un camino por cada ruta.</div>
+ *
+ * @param <V> el tipo de valor asociado a cada ruta
+ *
+ * @version 0.2 (20261018001)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+public class TablaRutasIPv4<V> {
+	/**
+	 * Acción a aplicar sobre cada ruta de la tabla en un recorrido.
+	 *
+	 * @param <V> el tipo de valor asociado a cada ruta
+	 * @see TablaRutasIPv4#recorrer(ConsumidorRuta)
+	 */
+	@FunctionalInterface
+	public interface ConsumidorRuta<V> {
+		/**
+		 * Procesa una ruta.
+		 *
+		 * @param red         la dirección de red empaquetada
+		 * @param máscaraCIDR la longitud de la máscara
+		 * @param valor       el valor asociado
+		 */
+		void aceptar(int red, int máscaraCIDR, V valor);
+	}
+
+	/**
+	 * Nodo inmutable del árbol. Los nodos sin valor son solo puntos de
+	 * bifurcación y tienen siempre dos hijos.
+	 *
+	 * @param <V> el tipo de valor asociado a cada ruta
+	 */
+	private static final class Nodo<V> {
+		/** Prefijo del nodo, con los bits de la parte de nodo a cero. */
+		final int red;
+		/** Longitud del prefijo, de 0 a 32. */
+		final int longitud;
+		/** Valor asociado a la ruta, o <code>null</code> si es una bifurcación. */
+		final V valor;
+		/** Subárbol cuyo siguiente bit tras el prefijo es 0. */
+		final Nodo<V> cero;
+		/** Subárbol cuyo siguiente bit tras el prefijo es 1. */
+		final Nodo<V> uno;
+
+		/**
+		 * Crea un nodo con todos sus datos.
+		 *
+		 * @param red      el prefijo, ya normalizado
+		 * @param longitud la longitud del prefijo
+		 * @param valor    el valor asociado, o <code>null</code>
+		 * @param cero     el subárbol del bit 0
+		 * @param uno      el subárbol del bit 1
+		 */
+		Nodo(int red, int longitud, V valor, Nodo<V> cero, Nodo<V> uno) {
+			this.red = red;
+			this.longitud = longitud;
+			this.valor = valor;
+			this.cero = cero;
+			this.uno = uno;
+		}
+
+		/**
+		 * Facilita uno de los dos subárboles.
+		 *
+		 * @param bit 0 o 1
+		 * @return el subárbol correspondiente
+		 */
+		Nodo<V> hijo(int bit) {
+			return bit == 0 ? cero : uno;
+		}
+
+		/**
+		 * Crea una copia del nodo sustituyendo uno de sus subárboles.
+		 *
+		 * @param bit   el subárbol a sustituir, 0 o 1
+		 * @param nuevo el nuevo subárbol
+		 * @return la copia modificada
+		 */
+		Nodo<V> conHijo(int bit, Nodo<V> nuevo) {
+			return bit == 0 ? new Nodo<>(red, longitud, valor, nuevo, uno) : new Nodo<>(red, longitud, valor, cero, nuevo);
+		}
+	}
+
+	/**
+	 * Raíz del árbol vigente. Se sustituye completa en cada modificación.
+	 */
+	private volatile Nodo<V> raíz;
+
+	/**
+	 * Número de rutas almacenadas.
+	 */
+	private volatile int tamaño;
+
+	/**
+	 * Contador de modificaciones, para distinguir versiones del árbol.
+	 */
+	private volatile long versión;
+
+	/**
+	 * Crea una tabla inicialmente vacía.
+	 */
+	public TablaRutasIPv4() {
+		raíz = null;
+		tamaño = 0;
+		versión = 0;
+	}
+
+	/**
+	 * Crea una copia independiente de la tabla. Al ser los nodos inmutables, la
+	 * copia comparte el árbol con el original y se obtiene de forma inmediata;
+	 * las modificaciones posteriores de cualquiera de las dos no afectan a la
+	 * otra.
+	 *
+	 * @return la copia
+	 */
+	public synchronized TablaRutasIPv4<V> copiar() {
+		TablaRutasIPv4<V> copia;
+
+		copia = new TablaRutasIPv4<V>();
+		copia.raíz = raíz;
+		copia.tamaño = tamaño;
+		copia.versión = versión;
+
+		return copia;
+	}
+
+	/**
+	 * Crea una tabla con las rutas indicadas, construyendo el árbol de una sola
+	 * pasada y en tiempo lineal.
+	 *
+	 * @param <V>       el tipo de valor asociado a cada ruta
+	 * @param registros las rutas, como {@link RegistroIPv4 registros} con la
+	 *                  dirección de red ya normalizada, en su orden natural y sin
+	 *                  repetir
+	 * @param n         el número de rutas
+	 * @param valores   el valor asociado a la ruta de cada posición
+	 * @return la tabla creada
+	 * @throws IllegalArgumentException si las rutas no están normalizadas u
+	 *                                  ordenadas, o se repite alguna
+	 * @throws NullPointerException     si algún valor es nulo
+	 * @see RegistroIPv4#comparar(long, long)
+	 */
+	public static <V> TablaRutasIPv4<V> construir(long[] registros, int n, IntFunction<? extends V> valores) {
+		TablaRutasIPv4<V> tabla;
+
+		Objects.checkFromToIndex(0, n, registros.length);
+		for (int i = 0; i < n; i++) {
+			if (RegistroIPv4.dirección(registros[i]) != RegistroIPv4.red(registros[i])
+					|| (i > 0 && RegistroIPv4.comparar(registros[i - 1], registros[i]) >= 0)) {
+				throw new IllegalArgumentException(String.format("Ruta no normalizada o fuera de orden: %d", i));
+			}
+		}
+
+		tabla = new TablaRutasIPv4<V>();
+		tabla.raíz = construir(registros, 0, n, valores);
+		tabla.tamaño = n;
+
+		return tabla;
+	}
+
+	/**
+	 * Incorpora todas las rutas de otra tabla. Si una ruta está en las dos, se
+	 * queda con el valor de la otra. El resultado se publica de una sola vez y
+	 * solo se copian los caminos donde se entrelazan los dos árboles; si esta
+	 * tabla está vacía, pasa a compartir directamente el árbol de la otra.
+	 *
+	 * @param otra la tabla a incorporar, que no se modifica
+	 */
+	@SuppressWarnings("unchecked") // Los nodos son inmutables: pueden compartirse
+	public void agregarTodas(TablaRutasIPv4<? extends V> otra) {
+		TablaRutasIPv4<? extends V> copia;
+		int[] repetidas = { 0 };
+
+		copia = otra.copiar(); // Instantánea coherente de raíz y tamaño
+		if (copia.raíz != null) {
+			synchronized (this) {
+				raíz = unir(raíz, (Nodo<V>) copia.raíz, repetidas);
+				tamaño += copia.tamaño - repetidas[0];
+				versión++;
+			}
+		}
+	}
+
+	/**
+	 * Incorpora una ruta o sustituye el valor de una ya existente. Los bits de la
+	 * parte de nodo de la dirección se descartan.
+	 *
+	 * @param red         la dirección de red empaquetada
+	 * @param máscaraCIDR la longitud de la máscara
+	 * @param valor       el valor asociado
+	 * @return el valor anterior de la ruta, o <code>null</code> si no existía
+	 * @throws NúmeroIPv4Exception si la longitud de máscara está fuera de rango
+	 */
+	public synchronized V agregar(int red, int máscaraCIDR, V valor) {
+		V anterior;
+		int prefijo;
+
+		Objects.requireNonNull(valor, "Valor nulo");
+		prefijo = EnteroIPv4.red(red, máscaraCIDR);
+
+		anterior = buscarExacta(prefijo, máscaraCIDR);
+		raíz = insertar(raíz, prefijo, máscaraCIDR, valor);
+		if (anterior == null) {
+			tamaño++;
+		}
+		versión++;
+
+		return anterior;
+	}
+
+	/**
+	 * Retira una ruta de la tabla.
+	 *
+	 * @param red         la dirección de red empaquetada
+	 * @param máscaraCIDR la longitud de la máscara
+	 * @return el valor que tenía la ruta, o <code>null</code> si no existía
+	 * @throws NúmeroIPv4Exception si la longitud de máscara está fuera de rango
+	 */
+	public synchronized V eliminar(int red, int máscaraCIDR) {
+		V anterior;
+		int prefijo;
+
+		prefijo = EnteroIPv4.red(red, máscaraCIDR);
+
+		anterior = buscarExacta(prefijo, máscaraCIDR);
+		if (anterior != null) {
+			raíz = retirar(raíz, prefijo, máscaraCIDR);
+			tamaño--;
+			versión++;
+		}
+
+		return anterior;
+	}
+
+	/**
+	 * Elimina todas las rutas.
+	 */
+	public synchronized void vaciar() {
+		raíz = null;
+		tamaño = 0;
+		versión++;
+	}
+
+	/**
+	 * Devuelve el número de rutas almacenadas.
+	 *
+	 * @return el número de rutas
+	 */
+	public int size() {
+		return tamaño;
+	}
+
+	/**
+	 * Facilita el número de modificaciones realizadas sobre la tabla, que permite
+	 * ordenar las sucesivas versiones de una misma tabla. Las copias conservan la
+	 * versión del original en el momento de copiarse.
+	 *
+	 * @return el contador de modificaciones
+	 */
+	public long getVersión() {
+		return versión;
+	}
+
+	/**
+	 * Localiza la ruta más específica —la de máscara más larga— que contiene una
+	 * dirección. No bloquea.
+	 *
+	 * @param dirección la dirección empaquetada a consultar
+	 * @return el valor de la ruta, o <code>null</code> si ninguna la contiene
+	 */
+	public V buscar(int dirección) {
+		Nodo<V> nodo = raíz;
+		V mejor = null;
+
+		while (nodo != null && EnteroIPv4.mismaRed(nodo.red, dirección, nodo.longitud)) {
+			if (nodo.valor != null) {
+				mejor = nodo.valor;
+			}
+			nodo = (nodo.longitud == EnteroIPv4.BITS) ? null : nodo.hijo(bit(dirección, nodo.longitud));
+		}
+
+		return mejor;
+	}
+
+	/**
+	 * Localiza la ruta más específica que contiene una dirección. Véase
+	 * {@link #buscar(int)}.
+	 *
+	 * @param dirección la dirección a consultar
+	 * @return el valor de la ruta, o <code>null</code> si ninguna la contiene
+	 */
+	public V buscar(NúmeroIPv4 dirección) {
+		return buscar(dirección.valor());
+	}
+
+	/**
+	 * Localiza una ruta concreta. No bloquea.
+	 *
+	 * @param red         la dirección de red empaquetada
+	 * @param máscaraCIDR la longitud de la máscara
+	 * @return el valor de la ruta, o <code>null</code> si no existe
+	 * @throws NúmeroIPv4Exception si la longitud de máscara está fuera de rango
+	 */
+	public V buscarExacta(int red, int máscaraCIDR) {
+		Nodo<V> nodo = raíz;
+		int prefijo;
+		V resultado = null;
+
+		prefijo = EnteroIPv4.red(red, máscaraCIDR);
+		while (nodo != null && nodo.longitud <= máscaraCIDR && EnteroIPv4.mismaRed(nodo.red, prefijo, nodo.longitud)) {
+			if (nodo.longitud == máscaraCIDR) {
+				resultado = nodo.valor;
+				nodo = null;
+			} else {
+				nodo = nodo.hijo(bit(prefijo, nodo.longitud));
+			}
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Recorre todas las rutas en orden: por dirección de red y, a igual dirección,
+	 * de la máscara más corta a la más larga. Trabaja sobre la versión del árbol
+	 * vigente al empezar, sin bloquear.
+	 *
+	 * @param acción la acción a aplicar sobre cada ruta
+	 */
+	public void recorrer(ConsumidorRuta<? super V> acción) {
+		recorrer(raíz, acción);
+	}
+
+	/**
+	 * Recorrido recursivo en preorden de un subárbol.
+	 *
+	 * @param <V>    el tipo de valor asociado a cada ruta
+	 * @param nodo   la raíz del subárbol
+	 * @param acción la acción a aplicar sobre cada ruta
+	 */
+	private static <V> void recorrer(Nodo<V> nodo, ConsumidorRuta<? super V> acción) {
+		if (nodo != null) {
+			if (nodo.valor != null) {
+				acción.aceptar(nodo.red, nodo.longitud, nodo.valor);
+			}
+			recorrer(nodo.cero, acción);
+			recorrer(nodo.uno, acción);
+		}
+	}
+
+	/**
+	 * Construye el subárbol de un tramo de rutas ordenadas. La primera ruta del
+	 * tramo es su raíz si contiene a todas las demás; si no, la raíz es una
+	 * bifurcación en el primer bit en que difieren la primera y la última.
+	 *
+	 * @param <V>       el tipo de valor asociado a cada ruta
+	 * @param registros las rutas ordenadas
+	 * @param desde     la primera ruta del tramo, incluida
+	 * @param hasta     la última ruta del tramo, excluida
+	 * @param valores   el valor asociado a la ruta de cada posición
+	 * @return la raíz del subárbol, o <code>null</code> si el tramo está vacío
+	 */
+	private static <V> Nodo<V> construir(long[] registros, int desde, int hasta, IntFunction<? extends V> valores) {
+		Nodo<V> resultado;
+		V valor;
+		int red, longitud, común, inicio, mitad;
+
+		if (desde == hasta) {
+			resultado = null;
+		} else {
+			red = RegistroIPv4.red(registros[desde]);
+			longitud = RegistroIPv4.máscaraCIDR(registros[desde]);
+			común = longitudComún(red, RegistroIPv4.red(registros[hasta - 1]));
+
+			if (longitud <= común) { // La primera ruta contiene a todas
+				valor = Objects.requireNonNull(valores.apply(desde), "Valor nulo");
+				inicio = desde + 1;
+			} else {
+				valor = null;
+				longitud = común;
+				red = EnteroIPv4.red(red, común);
+				inicio = desde;
+			}
+
+			if (inicio == hasta) {
+				resultado = new Nodo<>(red, longitud, valor, null, null);
+			} else {
+				// Primera ruta del tramo con el bit siguiente al prefijo a 1
+				mitad = inicio;
+				for (int salto = Integer.highestOneBit(hasta - inicio); salto > 0; salto >>= 1) {
+					if (mitad + salto <= hasta && bit(RegistroIPv4.red(registros[mitad + salto - 1]), longitud) == 0) {
+						mitad += salto;
+					}
+				}
+				resultado = new Nodo<>(red, longitud, valor, construir(registros, inicio, mitad, valores),
+						construir(registros, mitad, hasta, valores));
+			}
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Une dos subárboles copiando solo los caminos donde se entrelazan. Si una
+	 * ruta está en los dos, se queda con el valor del segundo.
+	 *
+	 * @param <V>       el tipo de valor asociado a cada ruta
+	 * @param actual    la raíz del primer subárbol, o <code>null</code>
+	 * @param nuevo     la raíz del segundo subárbol, o <code>null</code>
+	 * @param repetidas contador, en su única posición, de las rutas presentes en
+	 *                  los dos subárboles
+	 * @return la raíz del subárbol unido
+	 */
+	private static <V> Nodo<V> unir(Nodo<V> actual, Nodo<V> nuevo, int[] repetidas) {
+		Nodo<V> resultado;
+		int común, bit;
+
+		if (actual == null) {
+			resultado = nuevo;
+		} else if (nuevo == null) {
+			resultado = actual;
+		} else {
+			común = Math.min(longitudComún(actual.red, nuevo.red), Math.min(actual.longitud, nuevo.longitud));
+
+			if (común == actual.longitud && común == nuevo.longitud) { // Mismo prefijo
+				if (actual.valor != null && nuevo.valor != null) {
+					repetidas[0]++;
+				}
+				resultado = new Nodo<>(nuevo.red, común, (nuevo.valor != null) ? nuevo.valor : actual.valor,
+						unir(actual.cero, nuevo.cero, repetidas), unir(actual.uno, nuevo.uno, repetidas));
+			} else if (común == actual.longitud) { // El nuevo cuelga del actual
+				bit = bit(nuevo.red, común);
+				resultado = actual.conHijo(bit, unir(actual.hijo(bit), nuevo, repetidas));
+			} else if (común == nuevo.longitud) { // El actual cuelga del nuevo
+				bit = bit(actual.red, común);
+				resultado = nuevo.conHijo(bit, unir(actual, nuevo.hijo(bit), repetidas));
+			} else { // Divergen: nueva bifurcación en el primer bit distinto
+				bit = bit(nuevo.red, común);
+				resultado = (bit == 0) ? new Nodo<>(EnteroIPv4.red(nuevo.red, común), común, null, nuevo, actual)
+						: new Nodo<>(EnteroIPv4.red(nuevo.red, común), común, null, actual, nuevo);
+			}
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Inserta una ruta en un subárbol copiando el camino afectado.
+	 *
+	 * @param <V>      el tipo de valor asociado a cada ruta
+	 * @param nodo     la raíz del subárbol, o <code>null</code>
+	 * @param red      el prefijo, ya normalizado
+	 * @param longitud la longitud del prefijo
+	 * @param valor    el valor asociado
+	 * @return la raíz del nuevo subárbol
+	 */
+	private static <V> Nodo<V> insertar(Nodo<V> nodo, int red, int longitud, V valor) {
+		Nodo<V> resultado, hoja;
+		int común, bit;
+
+		if (nodo == null) {
+			resultado = new Nodo<>(red, longitud, valor, null, null);
+		} else {
+			común = Math.min(longitudComún(nodo.red, red), Math.min(nodo.longitud, longitud));
+
+			if (común == nodo.longitud && común == longitud) { // Misma ruta: se sustituye el valor
+				resultado = new Nodo<>(red, longitud, valor, nodo.cero, nodo.uno);
+			} else if (común == nodo.longitud) { // La nueva ruta cuelga de este nodo
+				bit = bit(red, nodo.longitud);
+				resultado = nodo.conHijo(bit, insertar(nodo.hijo(bit), red, longitud, valor));
+			} else if (común == longitud) { // La nueva ruta contiene a este nodo
+				bit = bit(nodo.red, longitud);
+				resultado = (bit == 0) ? new Nodo<>(red, longitud, valor, nodo, null)
+						: new Nodo<>(red, longitud, valor, null, nodo);
+			} else { // Divergen: nueva bifurcación en el primer bit distinto
+				hoja = new Nodo<>(red, longitud, valor, null, null);
+				bit = bit(red, común);
+				resultado = (bit == 0) ? new Nodo<>(EnteroIPv4.red(red, común), común, null, hoja, nodo)
+						: new Nodo<>(EnteroIPv4.red(red, común), común, null, nodo, hoja);
+			}
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Retira una ruta existente de un subárbol copiando el camino afectado y
+	 * eliminando las bifurcaciones que dejen de ser necesarias.
+	 *
+	 * @param <V>      el tipo de valor asociado a cada ruta
+	 * @param nodo     la raíz del subárbol
+	 * @param red      el prefijo, ya normalizado
+	 * @param longitud la longitud del prefijo
+	 * @return la raíz del nuevo subárbol, o <code>null</code> si queda vacío
+	 */
+	private static <V> Nodo<V> retirar(Nodo<V> nodo, int red, int longitud) {
+		Nodo<V> resultado, hijo, nuevoHijo;
+		int bit;
+
+		if (nodo == null) {
+			resultado = null;
+		} else if (nodo.longitud == longitud && nodo.red == red) {
+			if (nodo.cero != null && nodo.uno != null) {
+				resultado = new Nodo<>(red, longitud, null, nodo.cero, nodo.uno);
+			} else {
+				resultado = (nodo.cero != null) ? nodo.cero : nodo.uno;
+			}
+		} else if (nodo.longitud < longitud && EnteroIPv4.mismaRed(nodo.red, red, nodo.longitud)) {
+			bit = bit(red, nodo.longitud);
+			hijo = nodo.hijo(bit);
+			nuevoHijo = retirar(hijo, red, longitud);
+			if (nuevoHijo == hijo) {
+				resultado = nodo;
+			} else if (nodo.valor == null && nuevoHijo == null) { // Bifurcación innecesaria
+				resultado = nodo.hijo(1 - bit);
+			} else {
+				resultado = nodo.conHijo(bit, nuevoHijo);
+			}
+		} else {
+			resultado = nodo;
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * Calcula el número de bits iniciales coincidentes entre dos direcciones.
+	 *
+	 * @param valor1 la primera dirección empaquetada
+	 * @param valor2 la segunda dirección empaquetada
+	 * @return el número de bits coincidentes, de 0 a 32
+	 */
+	private static int longitudComún(int valor1, int valor2) {
+		return Integer.numberOfLeadingZeros(valor1 ^ valor2);
+	}
+
+	/**
+	 * Extrae un bit de una dirección, contando desde el más significativo.
+	 *
+	 * @param valor    la dirección empaquetada
+	 * @param posición la posición del bit, de 0 a 31
+	 * @return el bit correspondiente, 0 o 1
+	 */
+	private static int bit(int valor, int posición) {
+		return (valor >>> (EnteroIPv4.BITS - 1 - posición)) & 1;
+	}
+}
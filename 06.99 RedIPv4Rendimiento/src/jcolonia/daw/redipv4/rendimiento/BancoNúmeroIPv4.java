@@ -0,0 +1,228 @@
+package jcolonia.daw.redipv4.rendimiento;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jcolonia.daw.redipv4.CachéIPv4;
+import jcolonia.daw.redipv4.LotesIPv4;
+import jcolonia.daw.redipv4.NúmeroIPv4;
+
+/**
+ * Medidas de las operaciones básicas de {@link NúmeroIPv4}: construcción,
+ * análisis de textos, aplicación de máscaras —con la longitud o con otro
+ * número— y conversión a texto; también de las mismas operaciones por lotes
+ * con {@link LotesIPv4} y de la obtención de números desde una
+ * {@link CachéIPv4}.
+ *
+ * <div>Los datos de entrada se preparan de antemano en tablas de
+ * {@value #MUESTRAS} posiciones que cada medida recorre de una en una, para que
+ * el compilador no pueda tratarlos como constantes. Cada medida devuelve su
+ * resultado para que JMH lo consuma y no se elimine como código muerto.</div>
+ *
+ * @version 0.3 (20261018002)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancoNúmeroIPv4 {
+	/**
+	 * Número de muestras de entrada. Potencia de dos, para recorrerlas con una
+	 * máscara de bits.
+	 */
+	static final int MUESTRAS = 1024;
+
+	/**
+	 * Semilla fija de los datos aleatorios, para repetir las mismas medidas.
+	 */
+	static final long SEMILLA = 20261018L;
+
+	/** Direcciones empaquetadas aleatorias. */
+	private int[] valores;
+	/** Longitudes de máscara aleatorias, de 0 a 32. */
+	private int[] longitudes;
+	/** Los números de {@link #valores}. */
+	private NúmeroIPv4[] números;
+	/** Las máscaras de {@link #longitudes}. */
+	private NúmeroIPv4[] máscaras;
+	/** Los textos de {@link #números}. */
+	private String[] textos;
+	/** Caché con capacidad para todas las muestras. */
+	private CachéIPv4 caché;
+	/** Tabla de destino de las operaciones por lotes. */
+	private int[] destino;
+	/** Tabla de bits del resultado de las operaciones por lotes. */
+	private long[] resultado;
+	/** Muestra que corresponde a la próxima operación. */
+	private int pos;
+
+	/**
+	 * Prepara los datos de entrada.
+	 */
+	@Setup
+	public void preparar() {
+		Random aleatorio = new Random(SEMILLA);
+
+		valores = new int[MUESTRAS];
+		longitudes = new int[MUESTRAS];
+		números = new NúmeroIPv4[MUESTRAS];
+		máscaras = new NúmeroIPv4[MUESTRAS];
+		textos = new String[MUESTRAS];
+		for (int i = 0; i < MUESTRAS; i++) {
+			valores[i] = aleatorio.nextInt();
+			longitudes[i] = aleatorio.nextInt(33);
+			números[i] = new NúmeroIPv4(valores[i]);
+			máscaras[i] = NúmeroIPv4.máscara(longitudes[i]);
+			textos[i] = números[i].toString();
+		}
+
+		caché = new CachéIPv4(2 * MUESTRAS);
+		destino = new int[MUESTRAS];
+		resultado = new long[LotesIPv4.palabras(MUESTRAS)];
+	}
+
+	/**
+	 * Avanza a la muestra siguiente.
+	 *
+	 * @return la posición de la muestra
+	 */
+	private int siguiente() {
+		pos = (pos + 1) & (MUESTRAS - 1);
+		return pos;
+	}
+
+	/**
+	 * Construcción a partir del valor empaquetado.
+	 *
+	 * @return el número creado
+	 */
+	@Benchmark
+	public NúmeroIPv4 construirDesdeEntero() {
+		return new NúmeroIPv4(valores[siguiente()]);
+	}
+
+	/**
+	 * Construcción a partir de los cuatro bytes.
+	 *
+	 * @return el número creado
+	 */
+	@Benchmark
+	public NúmeroIPv4 construirDesdeBytes() {
+		int valor = valores[siguiente()];
+		return new NúmeroIPv4(valor >>> 24, valor >>> 16 & 0xFF, valor >>> 8 & 0xFF, valor & 0xFF);
+	}
+
+	/**
+	 * Análisis de un texto con puntos.
+	 *
+	 * @return el número analizado
+	 */
+	@Benchmark
+	public NúmeroIPv4 analizarTexto() {
+		return NúmeroIPv4.of(textos[siguiente()]);
+	}
+
+	/**
+	 * Obtención desde la caché a partir del valor empaquetado.
+	 *
+	 * @return el número obtenido
+	 */
+	@Benchmark
+	public NúmeroIPv4 cachéDesdeEntero() {
+		return caché.of(valores[siguiente()]);
+	}
+
+	/**
+	 * Obtención desde la caché a partir de un texto.
+	 *
+	 * @return el número obtenido
+	 */
+	@Benchmark
+	public NúmeroIPv4 cachéDesdeTexto() {
+		return caché.of(textos[siguiente()]);
+	}
+
+	/**
+	 * Aplicación de una máscara dada por su longitud.
+	 *
+	 * @return el número resultante
+	 */
+	@Benchmark
+	public NúmeroIPv4 aplicarMáscaraLongitud() {
+		int i = siguiente();
+		return números[i].aplicarMáscara(longitudes[i]);
+	}
+
+	/**
+	 * Aplicación de una máscara dada como número.
+	 *
+	 * @return el número resultante
+	 */
+	@Benchmark
+	public NúmeroIPv4 aplicarMáscaraNúmero() {
+		int i = siguiente();
+		return números[i].aplicarMáscara(máscaras[i]);
+	}
+
+	/**
+	 * Obtención de la máscara de una longitud.
+	 *
+	 * @return la máscara
+	 */
+	@Benchmark
+	public NúmeroIPv4 máscara() {
+		return NúmeroIPv4.máscara(longitudes[siguiente()]);
+	}
+
+	/**
+	 * Conversión a texto con puntos.
+	 *
+	 * @return el texto
+	 */
+	@Benchmark
+	public String convertirTexto() {
+		return números[siguiente()].toString();
+	}
+
+	/**
+	 * Aplicación por lotes de una máscara a todas las muestras. El tiempo se
+	 * expresa por dirección.
+	 *
+	 * @return una de las direcciones resultantes
+	 */
+	@Benchmark
+	@OperationsPerInvocation(MUESTRAS)
+	public int lotesAplicarMáscara() {
+		int i = siguiente();
+		LotesIPv4.aplicarMáscara(valores, 0, destino, 0, MUESTRAS, longitudes[i]);
+		return destino[i];
+	}
+
+	/**
+	 * Comprobación por lotes de la pertenencia de todas las muestras a una red.
+	 * El tiempo se expresa por dirección.
+	 *
+	 * @return el número de direcciones de la red
+	 */
+	@Benchmark
+	@OperationsPerInvocation(MUESTRAS)
+	public int lotesEnRed() {
+		int i = siguiente();
+		return LotesIPv4.enRed(valores, 0, MUESTRAS, valores[i], longitudes[i], resultado);
+	}
+}
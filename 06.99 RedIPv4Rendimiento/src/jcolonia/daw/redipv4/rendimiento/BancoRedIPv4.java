@@ -0,0 +1,231 @@
+package jcolonia.daw.redipv4.rendimiento;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jcolonia.daw.redipv4.IdentificaciónIPv4;
+import jcolonia.daw.redipv4.NúmeroIPv4;
+import jcolonia.daw.redipv4.RedIPv4;
+
+/**
+ * Medidas de las operaciones de {@link RedIPv4} para distintos tamaños de la
+ * colección: incorporación, consulta por posición, eliminación, recorrido,
+ * búsqueda de rutas y exportación CSV.
+ *
+ * <div>Las operaciones sobre la colección completa se expresan en milisegundos
+ * por llamada; las puntuales, en nanosegundos. Los datos se generan con una
+ * semilla fija, de modo que todas las ejecuciones miden lo mismo.</div>
+ *
+ * <div>Los tamaños grandes necesitan bastante memoria: con diez millones de
+ * elementos conviene añadir <code>-jvmArgsAppend -Xmx8g</code> o más.</div>
+ *
+ * @version 0.3 (20261018002)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancoRedIPv4 {
+	/**
+	 * Número de posiciones y direcciones de consulta preparadas. Potencia de
+	 * dos, para recorrerlas con una máscara de bits.
+	 */
+	private static final int CONSULTAS = 1024;
+
+	/**
+	 * Número de elementos de la colección.
+	 */
+	@Param({ "1000", "10000", "100000", "1000000", "10000000" })
+	private int tamaño;
+
+	/** Elementos aleatorios con los que se llena la colección. */
+	private IdentificaciónIPv4[] elementos;
+	/** Posiciones aleatorias de la colección. */
+	private int[] posiciones;
+	/** Direcciones empaquetadas aleatorias. */
+	private int[] direcciones;
+	/** Los números de {@link #direcciones}. */
+	private NúmeroIPv4[] números;
+	/** Colección llena con {@link #elementos}. */
+	private RedIPv4 red;
+	/** Consulta que corresponde a la próxima operación. */
+	private int pos;
+
+	/**
+	 * Colección con el modo de rutas compiladas activo. Solo se prepara para las
+	 * medidas que la emplean, pues cada cambio posterior volvería a compilar.
+	 */
+	@State(Scope.Benchmark)
+	public static class Compilada {
+		/**
+		 * Activa el modo de rutas compiladas sobre la colección ya llena,
+		 * compilando en el propio hilo.
+		 *
+		 * @param banco el estado principal, ya preparado
+		 */
+		@Setup
+		public void preparar(BancoRedIPv4 banco) {
+			banco.red.activarRutasCompiladas(Runnable::run);
+		}
+	}
+
+	/**
+	 * Genera los datos y llena la colección.
+	 */
+	@Setup
+	public void preparar() {
+		Random aleatorio = new Random(BancoNúmeroIPv4.SEMILLA);
+
+		elementos = new IdentificaciónIPv4[tamaño];
+		for (int i = 0; i < tamaño; i++) {
+			// Máscaras entre /8 y /32, como en un inventario real
+			elementos[i] = IdentificaciónIPv4.of(new NúmeroIPv4(aleatorio.nextInt()), 8 + aleatorio.nextInt(25));
+		}
+
+		posiciones = new int[CONSULTAS];
+		direcciones = new int[CONSULTAS];
+		números = new NúmeroIPv4[CONSULTAS];
+		for (int i = 0; i < CONSULTAS; i++) {
+			posiciones[i] = aleatorio.nextInt(tamaño);
+			direcciones[i] = aleatorio.nextInt();
+			números[i] = new NúmeroIPv4(direcciones[i]);
+		}
+
+		red = new RedIPv4();
+		red.agregarElementos(elementos);
+	}
+
+	/**
+	 * Avanza a la consulta siguiente.
+	 *
+	 * @return la posición de la consulta
+	 */
+	private int siguiente() {
+		pos = (pos + 1) & (CONSULTAS - 1);
+		return pos;
+	}
+
+	/**
+	 * Llenado de una colección nueva elemento a elemento.
+	 *
+	 * @return la colección llena
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public RedIPv4 agregarElemento() {
+		RedIPv4 nueva = new RedIPv4();
+
+		for (IdentificaciónIPv4 elemento : elementos) {
+			nueva.agregarElemento(elemento);
+		}
+		return nueva;
+	}
+
+	/**
+	 * Llenado de una colección nueva con una carga masiva.
+	 *
+	 * @return la colección llena
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public RedIPv4 agregarElementos() {
+		RedIPv4 nueva = new RedIPv4();
+
+		nueva.agregarElementos(elementos);
+		return nueva;
+	}
+
+	/**
+	 * Consulta por posición.
+	 *
+	 * @return el elemento consultado
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public IdentificaciónIPv4 getElemento() {
+		return red.getElemento(posiciones[siguiente()]);
+	}
+
+	/**
+	 * Eliminación de un elemento seguida de su nueva incorporación al final, que
+	 * mantiene el tamaño de la colección.
+	 *
+	 * @return si el elemento estaba en la colección
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public boolean eliminarAgregarElemento() {
+		IdentificaciónIPv4 elemento = elementos[posiciones[siguiente()]];
+		boolean eliminado;
+
+		eliminado = red.eliminarElemento(elemento);
+		red.agregarElemento(elemento);
+		return eliminado;
+	}
+
+	/**
+	 * Recorrido completo de una instantánea.
+	 *
+	 * @param sumidero el consumidor de JMH
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void instantáneaRecorrer(Blackhole sumidero) {
+		for (IdentificaciónIPv4 elemento : red.instantánea()) {
+			sumidero.consume(elemento);
+		}
+	}
+
+	/**
+	 * Búsqueda de la ruta de una dirección en la tabla de rutas.
+	 *
+	 * @return el elemento encontrado, o <code>null</code>
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public IdentificaciónIPv4 buscarRuta() {
+		return red.buscarRuta(números[siguiente()]);
+	}
+
+	/**
+	 * Búsqueda de la ruta de una dirección empaquetada en la tabla compilada.
+	 *
+	 * @param compilada el estado con el modo de rutas compiladas activo
+	 * @return el elemento encontrado, o <code>null</code>
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public IdentificaciónIPv4 buscarRutaCompilada(Compilada compilada) {
+		return red.buscarRutaCompilada(direcciones[siguiente()]);
+	}
+
+	/**
+	 * Exportación completa en formato pseudo CSV a un flujo que descarta los
+	 * caracteres.
+	 *
+	 * @return el número de líneas escritas
+	 * @throws IOException si se produce algún error de escritura
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public long exportarCSV() throws IOException {
+		return red.exportarCSV(Writer.nullWriter());
+	}
+}
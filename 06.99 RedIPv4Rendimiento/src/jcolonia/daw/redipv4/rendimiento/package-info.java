@@ -0,0 +1,24 @@
+/**
+ * Medidas de rendimiento de la aplicación «Red IPv4» con JMH: tiempo por
+ * operación y, con el perfilador de recolección, memoria asignada por
+ * operación, para comparar el antes y el después de cada cambio.
+ *
+ * <div>El proyecto se construye con Maven, que compila las medidas junto con
+ * las fuentes de «06.98 RedIPv4» y genera un jar ejecutable:
+ * <ul>
+ * <li><code>mvn package</code>: genera <code>target/benchmarks.jar</code>.</li>
+ * <li><code>java -jar target/benchmarks.jar -prof gc</code>: ejecuta todas las
+ * medidas; <code>-prof gc</code> añade a cada una los bytes asignados por
+ * operación (<code>gc.alloc.rate.norm</code>) y el número de
+ * recolecciones.</li>
+ * <li><code>java -jar target/benchmarks.jar BancoRedIPv4.agregar -p tamaño=1000,1000000 -prof gc -rf csv -rff base.csv</code>:
+ * solo las medidas cuyo nombre encaja con la expresión, para los tamaños
+ * indicados, guardando los resultados en un archivo CSV.</li>
+ * <li><code>java -jar target/benchmarks.jar -h</code>: resto de opciones.</li>
+ * </ul>
+ * </div>
+ *
+ * @version 0.3 (20261018002)
+ * @author <a href="mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ */
+package jcolonia.daw.redipv4.rendimiento;
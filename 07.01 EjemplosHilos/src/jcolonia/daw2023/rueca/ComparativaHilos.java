@@ -0,0 +1,172 @@
+package jcolonia.daw2023.rueca;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Comparativa de escalabilidad entre hilos de plataforma y virtuales: lanza el
+ * número indicado de hilos, cada uno con una tarea que se limita a esperar
+ * —como si aguardara una respuesta de red o de disco—, y mide el tiempo de
+ * creación, el tiempo hasta que terminan todos y el pico de memoria residente
+ * del proceso.
+ *
+ * <div>El pico de memoria se toma de la línea <code>VmHWM</code> de
+ * <code>/proc/self/status</code>, así que solo está disponible en Linux. Como
+ * es un máximo de todo el proceso, cada modo se mide en una máquina virtual
+ * distinta: sin modo, el programa se lanza a sí mismo una vez por cada
+ * modo.</div>
+ *
+ * <div>Con muchos hilos de plataforma es fácil agotar la memoria o el límite
+ * de hilos del sistema: la creación se detiene en el primer fallo y se informa
+ * de cuántos hilos llegaron a crearse.</div>
+ *
+ * @author <a href= "mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ * @version 1.3 (20261018)
+ */
+public class ComparativaHilos {
+	/** Número predeterminado de hilos. */
+	private static final int NÚM_HILOS = 10_000;
+
+	/** Espera predeterminada de cada tarea, en milisegundos. */
+	private static final long PAUSA_MS = 1_000;
+
+	/** Archivo de estado del proceso, con el pico de memoria residente. */
+	private static final Path ESTADO_PROCESO = Path.of("/proc/self/status");
+
+	/**
+	 * Mide un modo en esta misma máquina virtual y muestra el resultado en una
+	 * línea.
+	 *
+	 * @param modo        el modo de los hilos
+	 * @param númeroHilos el número de hilos a lanzar
+	 * @param pausa       la espera de cada tarea, en milisegundos
+	 * @throws InterruptedException si se interrumpe la espera
+	 */
+	public static void medir(ModoHilos modo, int númeroHilos, long pausa) throws InterruptedException {
+		Thread[] hilos = new Thread[númeroHilos];
+		ThreadFactory fábrica;
+		Runnable tarea;
+		Throwable fallo = null;
+		long inicio, creación, fin;
+		int creados = 0;
+
+		tarea = () -> {
+			try {
+				Thread.sleep(pausa);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+
+		fábrica = modo.fábrica("comparativa-");
+		inicio = System.nanoTime();
+		try {
+			while (creados < númeroHilos) {
+				hilos[creados] = fábrica.newThread(tarea);
+				hilos[creados].start();
+				creados++;
+			}
+		} catch (OutOfMemoryError | RuntimeException e) {
+			fallo = e;
+		}
+		creación = System.nanoTime();
+
+		for (int i = 0; i < creados; i++) {
+			hilos[i].join();
+		}
+		fin = System.nanoTime();
+
+		System.out.printf("%-10s %,10d hilos · creación %,10.1f ms (%,7.2f µs/hilo) · terminados %,10.1f ms"
+				+ " · pico de memoria %s%n", modo, creados, (creación - inicio) / 1e6,
+				(creación - inicio) / 1e3 / Math.max(creados, 1), (fin - inicio) / 1e6, textoMemoria(memoriaPico()));
+		if (fallo != null) {
+			System.out.printf("%-10s creación detenida tras %,d hilos: %s%n", modo, creados, fallo);
+		}
+	}
+
+	/**
+	 * Consulta el pico de memoria residente del proceso.
+	 *
+	 * @return el pico en KiB, o -1 si no está disponible
+	 */
+	public static long memoriaPico() {
+		long pico = -1;
+
+		try {
+			for (String línea : Files.readAllLines(ESTADO_PROCESO)) {
+				if (línea.startsWith("VmHWM:")) {
+					pico = Long.parseLong(línea.substring(6).replace("kB", "").trim());
+				}
+			}
+		} catch (IOException | NumberFormatException e) {
+			pico = -1;
+		}
+
+		return pico;
+	}
+
+	/**
+	 * Compone el texto de una cantidad de memoria.
+	 *
+	 * @param kib la cantidad en KiB, o -1 si no está disponible
+	 * @return el texto correspondiente
+	 */
+	private static String textoMemoria(long kib) {
+		return (kib < 0) ? "no disponible" : String.format("%,.1f MiB", kib / 1024.0);
+	}
+
+	/**
+	 * Mide un modo en una máquina virtual nueva, con la misma ruta de clases, y
+	 * espera a que termine. La salida se comparte con la de este programa.
+	 *
+	 * @param modo        el modo de los hilos
+	 * @param númeroHilos el número de hilos a lanzar
+	 * @param pausa       la espera de cada tarea, en milisegundos
+	 * @throws IOException          si no se puede lanzar el proceso
+	 * @throws InterruptedException si se interrumpe la espera
+	 */
+	private static void medirAparte(ModoHilos modo, int númeroHilos, long pausa)
+			throws IOException, InterruptedException {
+		List<String> orden = new ArrayList<>();
+
+		orden.add(ProcessHandle.current().info().command().orElse("java"));
+		orden.add("-cp");
+		orden.add(System.getProperty("java.class.path"));
+		orden.add(ComparativaHilos.class.getName());
+		orden.add(modo.name());
+		orden.add(Integer.toString(númeroHilos));
+		orden.add(Long.toString(pausa));
+
+		new ProcessBuilder(orden).inheritIO().start().waitFor();
+	}
+
+	/**
+	 * Lanza la comparativa.
+	 *
+	 * @param argumentos opciones de ejecución del programa, todas opcionales: el
+	 *                   modo —«plataforma», «virtual» o «ambos»—, el número de
+	 *                   hilos y la espera de cada tarea en milisegundos
+	 * @throws IOException          si no se puede lanzar alguna medida aparte
+	 * @throws InterruptedException si se interrumpe la espera
+	 */
+	public static void main(String[] argumentos) throws IOException, InterruptedException {
+		int númeroHilos;
+		long pausa;
+
+		númeroHilos = ModoHilos.númeroHilos(argumentos, NÚM_HILOS);
+		pausa = (argumentos.length > 2) ? Long.parseLong(argumentos[2]) : PAUSA_MS;
+
+		if (argumentos.length == 0 || argumentos[0].equalsIgnoreCase("ambos")) {
+			System.out.printf("Comparativa: %,d hilos con una espera de %,d ms cada uno%n", númeroHilos, pausa);
+			for (ModoHilos modo : ModoHilos.values()) {
+				medirAparte(modo, númeroHilos, pausa);
+			}
+		} else {
+			medir(ModoHilos.of(argumentos[0]), númeroHilos, pausa);
+		}
+	}
+}
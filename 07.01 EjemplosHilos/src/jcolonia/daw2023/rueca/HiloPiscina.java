@@ -0,0 +1,120 @@
+package jcolonia.daw2023.rueca;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Ejemplo de ejecución de tareas sobre un conjunto acotado de hilos
+ * reutilizables —una {@link PiscinaHilos}— en lugar de crear un hilo por
+ * tarea. Cada tarea implementa la interface {@link java.util.concurrent.Callable
+ * Callable} y devuelve un resultado, que el programa recoge antes de terminar.
+ *
+ * @author <a href= "mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ * @version 1.3 (20261018)
+ */
+public class HiloPiscina implements Callable<Integer> {
+	/** Número de tareas a crear en la demostración. */
+	private static final int MÁX_TAREAS;
+
+	/** Contador de tareas creadas hasta el momento. */
+	private static int númTareas;
+
+	/** Registro compartido por todas las tareas para sus mensajes. */
+	private static RegistroAsíncrono salida;
+
+	/** Referencia al hilo en ejecución. */
+	private Thread hilo;
+	/**
+	 * Número que identifica cada objeto. Emplea valores enteros consecutivos: 1, 2,
+	 * 3…
+	 */
+	private int id;
+
+	static {
+		MÁX_TAREAS = 20;
+
+		númTareas = 0;
+	}
+
+	/**
+	 * Establece el identificador según el orden de creación. La tarea no se
+	 * ejecuta hasta que no la recoja alguno de los hilos de la piscina.
+	 */
+	public HiloPiscina() {
+		id = ++númTareas;
+	}
+
+	/**
+	 * Se ejecuta en alguno de los hilos de la piscina enviando sencillos mensajes
+	 * de activación e identificación a la salida estándar. El mismo hilo ejecuta
+	 * varias tareas, una tras otra. Cada línea lleva delante el identificador
+	 * del hilo y el número del mensaje.
+	 *
+	 * @return el identificador de la tarea
+	 */
+	@Override
+	public Integer call() {
+		hilo = Thread.currentThread();
+
+		salida.registrarFormato("Activado %s con id=%d", hilo, hilo.threadId());
+		fichar();
+
+		hilo = null;
+		return id;
+	}
+
+	/**
+	 * Envía un mensaje de identificación a la salida estándar.
+	 */
+	private void fichar() {
+		salida.registrarFormato("\t→ Tarea %d", id);
+	}
+
+	/**
+	 * Ejecutable de ejemplo que crea varias tareas, las ejecuta en una piscina de
+	 * hilos, recoge sus resultados y muestra las estadísticas de la piscina.
+	 *
+	 * @param argumentos opciones de ejecución del programa –ambas opcionales–: el
+	 *                   número de tareas y el número de hilos de trabajo
+	 * @throws InterruptedException si se interrumpe la espera
+	 * @throws ExecutionException   si alguna tarea termina con una excepción
+	 * @throws IOException          si falla la escritura de los mensajes
+	 * @see PiscinaHilos#paralelismoPredeterminado()
+	 * @see RegistroAsíncrono
+	 */
+	public static void main(String[] argumentos) throws InterruptedException, ExecutionException, IOException {
+		PiscinaHilos piscina;
+		List<Integer> resultados;
+		int númeroTareas, paralelismo;
+		long suma = 0;
+
+		númeroTareas = (argumentos.length > 0) ? Integer.parseInt(argumentos[0]) : MÁX_TAREAS;
+		paralelismo = (argumentos.length > 1) ? Integer.parseInt(argumentos[1])
+				: PiscinaHilos.paralelismoPredeterminado();
+		List<HiloPiscina> listaTareas = new ArrayList<>(númeroTareas);
+
+		System.out.printf("Máximo de tareas: %d · hilos de trabajo: %d%n", númeroTareas, paralelismo);
+
+		for (int i = 1; i <= númeroTareas; i++) {
+			listaTareas.add(new HiloPiscina());
+		}
+
+		salida = RegistroAsíncrono.consola(PolíticaDesbordamiento.BLOQUEAR, true);
+		piscina = new PiscinaHilos(paralelismo);
+		try {
+			resultados = piscina.ejecutarTodas(listaTareas);
+		} finally {
+			piscina.close();
+			salida.close();
+		}
+
+		for (int resultado : resultados) {
+			suma += resultado;
+		}
+		System.out.printf("Resultados recogidos: %d (suma de identificadores: %d)%n", resultados.size(), suma);
+		System.out.println(piscina.getEstadísticas());
+	}
+}
@@ -1,5 +1,6 @@
 package jcolonia.daw2023.rueca;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,6 +18,9 @@ public class HiloRunnable implements Runnable {
 	/** Contador de hilos creados hasta el momento. */
 	private static int númHilos;
 
+	/** Registro compartido por todos los hilos para sus mensajes. */
+	private static RegistroAsíncrono salida;
+
 	/** Referencia al hilo en ejecución. */
 	private Thread hilo;
 	/**
@@ -46,13 +50,16 @@ public class HiloRunnable implements Runnable {
 	 * Se ejecuta en cada hilo enviando sencillos mensajes de creación e
 	 * identificación a la salida estándar. El orden de visualización de los
 	 * mensajes de cada hilo es cambiante entre ejecuciones y difícilmente
-	 * predecible: se visualizarán mezclados y desordenados.
+	 * predecible: se visualizarán mezclados y desordenados. Cada línea lleva
+	 * delante el identificador del hilo y el número del mensaje.
+	 *
+	 * @see RegistroAsíncrono
 	 */
 	@Override
 	public void run() {
 		hilo = Thread.currentThread();
 
-		System.out.printf("Activado %s con id=%d%n", hilo, hilo.threadId());
+		salida.registrarFormato("Activado %s con id=%d", hilo, hilo.threadId());
 		fichar();
 
 		hilo = null;
@@ -62,30 +69,49 @@ public class HiloRunnable implements Runnable {
 	 * Envía un mensaje de identificación a la salida estándar.
 	 */
 	private void fichar() {
-		System.out.printf("\t→ Hilo %d%n", id);
+		salida.registrarFormato("\t→ Hilo %d", id);
 	}
 
 	/**
 	 * Ejecutable de ejemplo que crea varios objetos y activa los hilos
-	 * correspondientes.
+	 * correspondientes, en el modo indicado. Espera a que terminen todos, ya que
+	 * los hilos virtuales no mantienen activo el programa por sí mismos, y
+	 * cierra el registro para que se escriban todos los mensajes.
 	 * 
-	 * @param argumentos opciones de ejecución del programa –no se usan–
+	 * @param argumentos opciones de ejecución del programa –ambas opcionales–: el
+	 *                   modo, «plataforma» o «virtual», y el número de hilos
+	 * @throws InterruptedException si se interrumpe la espera
+	 * @throws IOException          si falla la escritura de los mensajes
+	 * @see ModoHilos
 	 */
-	public static void main(String[] argumentos) {
+	public static void main(String[] argumentos) throws InterruptedException, IOException {
 		ThreadGroup canastillo;
 		Thread hilo;
 		String nombre;
-
-		List<Thread> listaHilos = new ArrayList<>(MÁX_HILOS);
-
-		System.out.printf("Máximo de hilos: %d%n", MÁX_HILOS);
-
-		canastillo = new ThreadGroup("demo");
-		for (int i = 1; i <= MÁX_HILOS; i++) {
-			nombre = String.format("Hilo «%d»", i);
-			hilo = new Thread(canastillo, new HiloRunnable(), nombre);
-			listaHilos.add(hilo);
-			hilo.start();
+		ModoHilos modo;
+		int númeroHilos;
+
+		modo = ModoHilos.of(argumentos);
+		númeroHilos = ModoHilos.númeroHilos(argumentos, MÁX_HILOS);
+		List<Thread> listaHilos = new ArrayList<>(númeroHilos);
+
+		System.out.printf("Máximo de hilos: %d (%s)%n", númeroHilos, modo);
+
+		salida = RegistroAsíncrono.consola(PolíticaDesbordamiento.BLOQUEAR, true);
+		try {
+			canastillo = new ThreadGroup("demo");
+			for (int i = 1; i <= númeroHilos; i++) {
+				nombre = String.format("Hilo «%d»", i);
+				hilo = modo.crear(canastillo, nombre, new HiloRunnable());
+				listaHilos.add(hilo);
+				hilo.start();
+			}
+
+			for (Thread pendiente : listaHilos) {
+				pendiente.join();
+			}
+		} finally {
+			salida.close();
 		}
 	}
 }
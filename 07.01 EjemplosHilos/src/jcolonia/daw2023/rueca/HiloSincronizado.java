@@ -1,11 +1,13 @@
 package jcolonia.daw2023.rueca;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Ejemplo de creación de hilos sobre una clase que implemente la interface
- * {@link java.lang.Runnable Runnable} y con un bloque sincronizado.
+ * {@link java.lang.Runnable Runnable} y con una sección ordenada por turnos
+ * mediante un {@link SecuenciadorOrdenado}.
  * 
  * @author <a href= "mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
  * @version 1.2 (20240507)
@@ -17,11 +19,14 @@ public class HiloSincronizado implements Runnable {
 	/** Contador de hilos creados hasta el momento. */
 	private static int númHilos;
 
-	/** Numero de secuencia, para ordenar los mensajes de identificación. */
-	private static Integer turno;
+	/** Registro compartido por todos los hilos para sus mensajes. */
+	private static RegistroAsíncrono salida;
 
-	/** Objeto básico usado solo como monitor para el bloque sincronizado. */
-	private static Object bloqueo;
+	/**
+	 * Secuenciador de turnos, para ordenar los mensajes de identificación. Solo
+	 * despierta al hilo del turno siguiente, en lugar de a todos los que esperan.
+	 */
+	private static SecuenciadorOrdenado secuenciador;
 
 	/** Referencia al hilo en ejecución. */
 	private Thread hilo;
@@ -38,8 +43,6 @@ public class HiloSincronizado implements Runnable {
 		MÁX_HILOS = 20;
 
 		númHilos = 0;
-		turno = 1;
-		bloqueo = new Object();
 	}
 
 	/**
@@ -53,14 +56,17 @@ public class HiloSincronizado implements Runnable {
 	/**
 	 * Se ejecuta en cada hilo enviando sencillos mensajes de creación e
 	 * identificación a la salida estándar. El orden de visualización de los
-	 * mensajes de cada hilo coincide con el orden de creación, según el
-	 * identificador.
+	 * mensajes de identificación coincide con el orden de creación, según el
+	 * identificador: el registro los escribe en el mismo orden en que se
+	 * encolan.
+	 *
+	 * @see RegistroAsíncrono
 	 */
 	@Override
 	public void run() {
 		hilo = Thread.currentThread();
 
-		System.out.printf("Activado %s con id=%d%n", hilo, hilo.threadId());
+		salida.registrarFormato("Activado %s con id=%d", hilo, hilo.threadId());
 		try {
 			fichar();
 		} catch (InterruptedException e) {
@@ -70,45 +76,62 @@ public class HiloSincronizado implements Runnable {
 	}
 
 	/**
-	 * Envía un mensaje de identificación a la salida estándar, incrementa el número
-	 * de secuencia y lo notifica al resto de hilos. Mantiene los hilos en espera
-	 * hasta que no se alcance su «turno».
+	 * Envía un mensaje de identificación a la salida estándar y cede el turno al
+	 * hilo siguiente. Mantiene los hilos en espera hasta que no se alcance su
+	 * «turno».
 	 * 
 	 * @throws InterruptedException en caso de que se aborte la espera
 	 */
-
 	private void fichar() throws InterruptedException {
-		synchronized (bloqueo) {
-			while (turno < id) {
-				bloqueo.wait();
-			}
-			System.out.printf("\t→ Hilo %d%n", id);
-			turno++;
-			bloqueo.notifyAll();
+		secuenciador.esperarTurno(id);
+		try {
+			salida.registrarFormato("\t→ Hilo %d", id);
+		} finally {
+			secuenciador.terminarTurno(id);
 		}
 	}
 
 	/**
 	 * Ejecutable de ejemplo que crea varios objetos y activa los hilos
-	 * correspondientes.
+	 * correspondientes, en el modo indicado. Espera a que terminen todos, ya que
+	 * los hilos virtuales no mantienen activo el programa por sí mismos, y
+	 * cierra el registro para que se escriban todos los mensajes.
 	 * 
-	 * @param argumentos opciones de ejecución del programa –no se usan–
+	 * @param argumentos opciones de ejecución del programa –ambas opcionales–: el
+	 *                   modo, «plataforma» o «virtual», y el número de hilos
+	 * @throws InterruptedException si se interrumpe la espera
+	 * @throws IOException          si falla la escritura de los mensajes
+	 * @see ModoHilos
 	 */
-	public static void main(String[] argumentos) {
+	public static void main(String[] argumentos) throws InterruptedException, IOException {
 		ThreadGroup canastillo;
 		Thread hilo;
 		String nombre;
+		ModoHilos modo;
+		int númeroHilos;
 
-		List<Thread> listaHilos = new ArrayList<>(MÁX_HILOS);
+		modo = ModoHilos.of(argumentos);
+		númeroHilos = ModoHilos.númeroHilos(argumentos, MÁX_HILOS);
+		List<Thread> listaHilos = new ArrayList<>(númeroHilos);
 
-		System.out.printf("Máximo de hilos: %d%n", MÁX_HILOS);
+		System.out.printf("Máximo de hilos: %d (%s)%n", númeroHilos, modo);
 
-		canastillo = new ThreadGroup("demo");
-		for (int i = 1; i <= MÁX_HILOS; i++) {
-			nombre = String.format("Hilo «%d»", i);
-			hilo = new Thread(canastillo, new HiloSincronizado(), nombre);
-			listaHilos.add(hilo);
-			hilo.start();
+		secuenciador = new SecuenciadorOrdenado(1, númeroHilos);
+		salida = RegistroAsíncrono.consola(PolíticaDesbordamiento.BLOQUEAR, false);
+		try {
+			canastillo = new ThreadGroup("demo");
+			for (int i = 1; i <= númeroHilos; i++) {
+				nombre = String.format("Hilo «%d»", i);
+				hilo = modo.crear(canastillo, nombre, new HiloSincronizado());
+				listaHilos.add(hilo);
+				hilo.start();
+			}
+
+			for (Thread pendiente : listaHilos) {
+				pendiente.join();
+			}
+		} finally {
+			salida.close();
 		}
 	}
 }
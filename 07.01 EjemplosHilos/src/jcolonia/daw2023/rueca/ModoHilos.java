@@ -0,0 +1,110 @@
+package jcolonia.daw2023.rueca;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Modos de ejecución de los hilos de las demostraciones: hilos de plataforma
+ * —uno por cada hilo del sistema operativo, con su propia pila— o hilos
+ * virtuales —gestionados por la máquina virtual sobre unos pocos hilos de
+ * plataforma, adecuados para tareas que pasan la mayor parte del tiempo
+ * esperando—.
+ *
+ * <div>Los hilos virtuales no admiten grupos de hilos propios: pertenecen
+ * todos a un mismo grupo fijo, por lo que el {@link ThreadGroup} indicado solo
+ * se aplica a los hilos de plataforma.</div>
+ *
+ * @author <a href= "mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ * @version 1.3 (20261018)
+ */
+public enum ModoHilos {
+	/** Hilos de plataforma, uno por cada hilo del sistema operativo. */
+	PLATAFORMA,
+	/** Hilos virtuales, repartidos sobre unos pocos hilos de plataforma. */
+	VIRTUAL;
+
+	/**
+	 * Crea un hilo sin iniciarlo.
+	 *
+	 * @param grupo  el grupo de hilos, solo para los hilos de plataforma
+	 * @param nombre el nombre del hilo
+	 * @param tarea  la tarea a ejecutar
+	 * @return el nuevo hilo, pendiente de {@link Thread#start()}
+	 */
+	public Thread crear(ThreadGroup grupo, String nombre, Runnable tarea) {
+		Thread hilo;
+
+		switch (this) {
+		case VIRTUAL:
+			hilo = Thread.ofVirtual().name(nombre).unstarted(tarea);
+			break;
+		default:
+			hilo = Thread.ofPlatform().group(grupo).name(nombre).unstarted(tarea);
+			break;
+		}
+		return hilo;
+	}
+
+	/**
+	 * Facilita una fábrica de hilos de este modo, numerados a partir de 1.
+	 *
+	 * @param prefijo el inicio del nombre de cada hilo, antes del número
+	 * @return la fábrica de hilos
+	 */
+	public ThreadFactory fábrica(String prefijo) {
+		ThreadFactory fábrica;
+
+		switch (this) {
+		case VIRTUAL:
+			fábrica = Thread.ofVirtual().name(prefijo, 1).factory();
+			break;
+		default:
+			fábrica = Thread.ofPlatform().name(prefijo, 1).factory();
+			break;
+		}
+		return fábrica;
+	}
+
+	/**
+	 * Obtiene un modo a partir de su nombre, sin distinguir mayúsculas de
+	 * minúsculas.
+	 *
+	 * @param texto el nombre del modo: «plataforma» o «virtual»
+	 * @return el modo correspondiente
+	 * @throws IllegalArgumentException si no corresponde a ningún modo
+	 */
+	public static ModoHilos of(String texto) {
+		return valueOf(texto.trim().toUpperCase(Locale.ROOT));
+	}
+
+	/**
+	 * Obtiene el modo de las opciones de ejecución de una demostración: el
+	 * primer argumento, si lo hay.
+	 *
+	 * @param argumentos las opciones de ejecución
+	 * @return el modo indicado o, si no se indica, {@link #PLATAFORMA}
+	 * @throws IllegalArgumentException si no corresponde a ningún modo
+	 */
+	public static ModoHilos of(String[] argumentos) {
+		return (argumentos.length > 0) ? of(argumentos[0]) : PLATAFORMA;
+	}
+
+	/**
+	 * Obtiene el número de hilos de las opciones de ejecución de una
+	 * demostración: el segundo argumento, si lo hay.
+	 *
+	 * @param argumentos     las opciones de ejecución
+	 * @param predeterminado el número a emplear si no se indica
+	 * @return el número de hilos
+	 * @throws IllegalArgumentException si no es un número positivo
+	 */
+	public static int númeroHilos(String[] argumentos, int predeterminado) {
+		int número;
+
+		número = (argumentos.length > 1) ? Integer.parseInt(argumentos[1].replace("_", "")) : predeterminado;
+		if (número <= 0) {
+			throw new IllegalArgumentException(String.format("Número de hilos no válido: %d", número));
+		}
+		return número;
+	}
+}
@@ -0,0 +1,474 @@
+package jcolonia.daw2023.rueca;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Conjunto acotado de hilos de trabajo reutilizables: un número fijo de hilos
+ * de plataforma ejecuta las tareas que se le envían, en lugar de crear un hilo
+ * nuevo por tarea. Cada envío devuelve un {@link Future} con el que recoger el
+ * resultado o cancelar la tarea, y los envíos por lotes esperan a que termine
+ * el lote completo —o lo cancelan al agotar el plazo—.
+ *
+ * <div>La cola de tareas pendientes también está acotada: cuando se llena, el
+ * hilo que envía espera a que haya sitio. Así se frena a los productores en
+ * lugar de acumular tareas sin límite. Cada envío reserva antes un hueco de la
+ * cola, lo que permite limitar también esa espera en los lotes con plazo, y
+ * después entrega la tarea al ejecutor, que decide si iniciar un hilo o
+ * rechazarla; el hueco se libera cuando un hilo de trabajo la recoge.</div>
+ *
+ * <div>Lleva la cuenta de las tareas completadas, fallidas y canceladas, del
+ * tiempo de respuesta de cada una —desde el envío hasta el final, incluida la
+ * espera en la cola— y del rendimiento global: véase
+ * {@link #getEstadísticas()}.</div>
+ *
+ * @author <a href= "mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ * @version 1.4 (20261018)
+ */
+public final class PiscinaHilos implements AutoCloseable {
+	/** Tareas pendientes admitidas en la cola por cada hilo de trabajo. */
+	private static final int COLA_POR_HILO = 16;
+
+	/**
+	 * Resumen de la actividad de una piscina.
+	 *
+	 * @param completadas      número de tareas terminadas con éxito
+	 * @param fallidas         número de tareas terminadas con una excepción
+	 * @param canceladas       número de tareas canceladas
+	 * @param segundos         tiempo transcurrido desde la creación de la
+	 *                         piscina
+	 * @param latenciaMediaMs  tiempo de respuesta medio de las tareas
+	 *                         terminadas, en milisegundos
+	 * @param latenciaMáximaMs tiempo de respuesta máximo de las tareas
+	 *                         terminadas, en milisegundos
+	 */
+	public record Estadísticas(long completadas, long fallidas, long canceladas, double segundos,
+			double latenciaMediaMs, double latenciaMáximaMs) {
+		/**
+		 * Calcula el rendimiento: tareas terminadas, con éxito o no, por segundo.
+		 *
+		 * @return el número de tareas por segundo
+		 */
+		public double rendimiento() {
+			return (segundos > 0) ? (completadas + fallidas) / segundos : 0;
+		}
+
+		/**
+		 * Proporciona un resumen en una línea de texto.
+		 *
+		 * @return el texto correspondiente
+		 */
+		@Override
+		public String toString() {
+			return String.format("%,d completadas, %,d fallidas, %,d canceladas · %,.1f tareas/s"
+					+ " · latencia media %,.3f ms, máxima %,.3f ms", completadas, fallidas, canceladas, rendimiento(),
+					latenciaMediaMs, latenciaMáximaMs);
+		}
+	}
+
+	/**
+	 * Tarea que anota su tiempo de respuesta y su resultado en las estadísticas
+	 * de la piscina al terminar, de cualquier forma.
+	 *
+	 * @param <T> el tipo del resultado
+	 */
+	private final class TareaMedida<T> extends FutureTask<T> {
+		/** Instante del envío, en nanosegundos. */
+		private final long envío;
+
+		/**
+		 * Crea una tarea medida.
+		 *
+		 * @param tarea la tarea a ejecutar
+		 */
+		TareaMedida(Callable<T> tarea) {
+			super(tarea);
+			envío = System.nanoTime();
+		}
+
+		/**
+		 * Libera el hueco de la cola al empezar, pues la tarea ya ha salido de
+		 * ella, y después la ejecuta; si estaba cancelada, no hace nada más.
+		 */
+		@Override
+		public void run() {
+			huecos.release();
+			super.run();
+		}
+
+		@Override
+		protected void done() {
+			long latencia;
+
+			if (isCancelled()) {
+				canceladas.increment();
+			} else {
+				latencia = System.nanoTime() - envío;
+				sumaLatencias.add(latencia);
+				latenciaMáxima.accumulateAndGet(latencia, Math::max);
+				if (state() == State.SUCCESS) {
+					completadas.increment();
+				} else {
+					fallidas.increment();
+				}
+			}
+		}
+	}
+
+	/** Ejecutor subyacente, con hilos y cola acotados. */
+	private final ThreadPoolExecutor ejecutor;
+
+	/**
+	 * Huecos libres de la cola de tareas pendientes. Se reserva uno antes de
+	 * cada envío, de modo que el ejecutor siempre encuentra sitio en la cola.
+	 */
+	private final Semaphore huecos;
+
+	/** Número de hilos de trabajo. */
+	private final int paralelismo;
+
+	/** Instante de creación, en nanosegundos. */
+	private final long inicio;
+
+	/** Número de tareas terminadas con éxito. */
+	private final LongAdder completadas;
+
+	/** Número de tareas terminadas con una excepción. */
+	private final LongAdder fallidas;
+
+	/** Número de tareas canceladas. */
+	private final LongAdder canceladas;
+
+	/** Suma de los tiempos de respuesta, en nanosegundos. */
+	private final LongAdder sumaLatencias;
+
+	/** Tiempo de respuesta máximo, en nanosegundos. */
+	private final AtomicLong latenciaMáxima;
+
+	/**
+	 * Crea una piscina con el paralelismo predeterminado.
+	 *
+	 * @see #paralelismoPredeterminado()
+	 */
+	public PiscinaHilos() {
+		this(paralelismoPredeterminado());
+	}
+
+	/**
+	 * Crea una piscina con una cola de {@value #COLA_POR_HILO} tareas pendientes
+	 * por hilo.
+	 *
+	 * @param paralelismo el número de hilos de trabajo
+	 * @throws IllegalArgumentException si no es positivo
+	 */
+	public PiscinaHilos(int paralelismo) {
+		this(paralelismo, paralelismo * COLA_POR_HILO);
+	}
+
+	/**
+	 * Crea una piscina.
+	 *
+	 * @param paralelismo   el número de hilos de trabajo
+	 * @param capacidadCola el número máximo de tareas pendientes
+	 * @throws IllegalArgumentException si alguno de los valores no es positivo
+	 */
+	public PiscinaHilos(int paralelismo, int capacidadCola) {
+		if (paralelismo <= 0 || capacidadCola <= 0) {
+			throw new IllegalArgumentException(
+					String.format("Piscina no válida: %d hilos, cola de %d", paralelismo, capacidadCola));
+		}
+
+		this.paralelismo = paralelismo;
+		huecos = new Semaphore(capacidadCola);
+		ejecutor = new ThreadPoolExecutor(paralelismo, paralelismo, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(capacidadCola), ModoHilos.PLATAFORMA.fábrica("piscina-"));
+		ejecutor.prestartAllCoreThreads();
+		inicio = System.nanoTime();
+		completadas = new LongAdder();
+		fallidas = new LongAdder();
+		canceladas = new LongAdder();
+		sumaLatencias = new LongAdder();
+		latenciaMáxima = new AtomicLong();
+	}
+
+	/**
+	 * Calcula el paralelismo predeterminado a partir del número de procesadores:
+	 * dos menos que procesadores, para dejar sitio al resto del programa, con un
+	 * mínimo de cuatro.
+	 *
+	 * @return el número de hilos de trabajo
+	 */
+	public static int paralelismoPredeterminado() {
+		int númProcesadores = Runtime.getRuntime().availableProcessors();
+		return númProcesadores < 4 ? 4 : númProcesadores - 2;
+	}
+
+	/**
+	 * Envía una tarea con resultado. Si la cola está llena, espera a que haya
+	 * sitio.
+	 *
+	 * @param <T>   el tipo del resultado
+	 * @param tarea la tarea a ejecutar
+	 * @return el resultado futuro de la tarea
+	 * @throws InterruptedException       si se interrumpe la espera
+	 * @throws RejectedExecutionException si la piscina está cerrada
+	 */
+	public <T> Future<T> enviar(Callable<T> tarea) throws InterruptedException {
+		TareaMedida<T> medida = new TareaMedida<>(tarea);
+
+		encolar(medida, Long.MAX_VALUE);
+		return medida;
+	}
+
+	/**
+	 * Envía una tarea sin resultado. Si la cola está llena, espera a que haya
+	 * sitio.
+	 *
+	 * @param tarea la tarea a ejecutar
+	 * @return el resultado futuro de la tarea, siempre <code>null</code>
+	 * @throws InterruptedException       si se interrumpe la espera
+	 * @throws RejectedExecutionException si la piscina está cerrada
+	 */
+	public Future<?> enviar(Runnable tarea) throws InterruptedException {
+		return enviar(() -> {
+			tarea.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Ejecuta un lote de tareas y espera a que terminen todas.
+	 *
+	 * @param <T>    el tipo de los resultados
+	 * @param tareas las tareas a ejecutar
+	 * @return los resultados, en el orden de las tareas
+	 * @throws InterruptedException si se interrumpe la espera; se cancelan las
+	 *                              tareas pendientes
+	 * @throws ExecutionException   si alguna tarea termina con una excepción; se
+	 *                              cancelan las tareas pendientes
+	 * @throws RejectedExecutionException si la piscina está cerrada
+	 */
+	public <T> List<T> ejecutarTodas(Collection<? extends Callable<T>> tareas)
+			throws InterruptedException, ExecutionException {
+		List<T> resultados = new ArrayList<>(tareas.size());
+		List<Future<T>> futuros;
+		boolean terminado = false;
+
+		futuros = enviarTodas(tareas, Long.MAX_VALUE);
+		try {
+			for (Future<T> futuro : futuros) {
+				resultados.add(futuro.get());
+			}
+			terminado = true;
+		} finally {
+			if (!terminado) {
+				cancelar(futuros);
+			}
+		}
+
+		return resultados;
+	}
+
+	/**
+	 * Ejecuta un lote de tareas y espera a que terminen todas, como mucho hasta
+	 * agotar un plazo. Las tareas que no hayan terminado entonces se cancelan,
+	 * incluidas las que no hayan llegado a entrar en la cola.
+	 *
+	 * @param <T>    el tipo de los resultados
+	 * @param tareas las tareas a ejecutar
+	 * @param plazo  el tiempo máximo de espera
+	 * @param unidad la unidad del plazo
+	 * @return los resultados futuros, en el orden de las tareas, todos ya
+	 *         terminados o cancelados
+	 * @throws InterruptedException       si se interrumpe la espera; se cancelan
+	 *                                    las tareas pendientes
+	 * @throws RejectedExecutionException si la piscina está cerrada
+	 */
+	public <T> List<Future<T>> ejecutarTodas(Collection<? extends Callable<T>> tareas, long plazo, TimeUnit unidad)
+			throws InterruptedException {
+		List<Future<T>> futuros;
+		long límite = límite(plazo, unidad);
+		boolean terminado = false;
+
+		futuros = enviarTodas(tareas, límite);
+		try {
+			for (Future<T> futuro : futuros) {
+				try {
+					if (límite == Long.MAX_VALUE) {
+						futuro.get();
+					} else {
+						futuro.get(Math.max(0, límite - System.nanoTime()), TimeUnit.NANOSECONDS);
+					}
+				} catch (ExecutionException | CancellationException e) {
+					// Terminada igualmente: el fallo se consulta en su futuro
+				}
+			}
+			terminado = true;
+		} catch (TimeoutException e) {
+			// Plazo agotado: se cancela el resto
+		} finally {
+			if (!terminado) {
+				cancelar(futuros);
+			}
+		}
+
+		return futuros;
+	}
+
+	/**
+	 * Cancela todas las tareas de un lote que no hayan terminado, interrumpiendo
+	 * las que estén en marcha.
+	 *
+	 * @param futuros los resultados futuros del lote
+	 * @return el número de tareas canceladas
+	 */
+	public int cancelar(Collection<? extends Future<?>> futuros) {
+		int total = 0;
+
+		for (Future<?> futuro : futuros) {
+			if (futuro.cancel(true)) {
+				total++;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Consulta el número de hilos de trabajo.
+	 *
+	 * @return el paralelismo
+	 */
+	public int getParalelismo() {
+		return paralelismo;
+	}
+
+	/**
+	 * Resume la actividad de la piscina hasta el momento. Cada tarea se
+	 * contabiliza justo después de entregar su resultado, así que las recién
+	 * terminadas pueden faltar todavía; tras {@link #close()} están todas.
+	 *
+	 * @return las estadísticas
+	 */
+	public Estadísticas getEstadísticas() {
+		long terminadas, suma;
+
+		suma = sumaLatencias.sum();
+		terminadas = completadas.sum() + fallidas.sum();
+		return new Estadísticas(completadas.sum(), fallidas.sum(), canceladas.sum(),
+				(System.nanoTime() - inicio) / 1e9, (terminadas > 0) ? suma / 1e6 / terminadas : 0,
+				latenciaMáxima.get() / 1e6);
+	}
+
+	/**
+	 * Deja de admitir tareas y espera a que terminen las ya enviadas.
+	 */
+	@Override
+	public void close() {
+		ejecutor.close();
+	}
+
+	/**
+	 * Calcula el instante límite de un plazo contado desde ahora. Los plazos
+	 * negativos equivalen a cero y los que desbordarían la suma —por ejemplo,
+	 * {@link Long#MAX_VALUE} en cualquier unidad— a esperar sin límite.
+	 *
+	 * @param plazo  el tiempo máximo de espera
+	 * @param unidad la unidad del plazo
+	 * @return el instante límite, según {@link System#nanoTime()}, o
+	 *         {@link Long#MAX_VALUE} para esperar sin límite
+	 */
+	private static long límite(long plazo, TimeUnit unidad) {
+		long nanos = Math.max(0, unidad.toNanos(plazo)), ahora = System.nanoTime();
+
+		return (nanos >= Long.MAX_VALUE - Math.max(0, ahora)) ? Long.MAX_VALUE : ahora + nanos;
+	}
+
+	/**
+	 * Envía todas las tareas de un lote, esperando si la cola está llena como
+	 * mucho hasta un límite. Las que no entran en la cola antes del límite se
+	 * cancelan sin ejecutarse. Si el envío falla, cancela las ya enviadas.
+	 *
+	 * @param <T>    el tipo de los resultados
+	 * @param tareas las tareas a ejecutar
+	 * @param límite el instante límite, según {@link System#nanoTime()}, o
+	 *               {@link Long#MAX_VALUE} para esperar sin límite
+	 * @return los resultados futuros, en el orden de las tareas
+	 * @throws InterruptedException       si se interrumpe la espera
+	 * @throws RejectedExecutionException si la piscina está cerrada
+	 */
+	private <T> List<Future<T>> enviarTodas(Collection<? extends Callable<T>> tareas, long límite)
+			throws InterruptedException {
+		List<Future<T>> futuros = new ArrayList<>(tareas.size());
+		TareaMedida<T> medida;
+		boolean enviadas = false;
+
+		try {
+			for (Callable<T> tarea : tareas) {
+				medida = new TareaMedida<>(tarea);
+				futuros.add(medida);
+				encolar(medida, límite);
+			}
+			enviadas = true;
+		} finally {
+			if (!enviadas) {
+				cancelar(futuros);
+			}
+		}
+		return futuros;
+	}
+
+	/**
+	 * Entrega una tarea al ejecutor tras reservar un hueco en la cola, esperando
+	 * si está llena como mucho hasta un límite. Si no hay sitio antes del límite,
+	 * la tarea se cancela. La entrega pasa por
+	 * {@link ThreadPoolExecutor#execute(Runnable)}, que inicia un hilo si hace
+	 * falta y rechaza la tarea si la piscina está cerrada, incluso si se cierra
+	 * mientras tanto.
+	 *
+	 * @param tarea  la tarea a entregar
+	 * @param límite el instante límite, según {@link System#nanoTime()}, o
+	 *               {@link Long#MAX_VALUE} para esperar sin límite
+	 * @throws InterruptedException       si se interrumpe la espera
+	 * @throws RejectedExecutionException si la piscina está cerrada
+	 */
+	private void encolar(TareaMedida<?> tarea, long límite) throws InterruptedException {
+		boolean reservado;
+
+		if (ejecutor.isShutdown()) {
+			throw new RejectedExecutionException("Piscina cerrada");
+		}
+
+		if (límite == Long.MAX_VALUE) {
+			huecos.acquire();
+			reservado = true;
+		} else {
+			reservado = huecos.tryAcquire(límite - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		if (!reservado) {
+			tarea.cancel(false);
+		} else {
+			try {
+				ejecutor.execute(tarea);
+			} catch (RejectedExecutionException e) {
+				huecos.release();
+				tarea.cancel(false);
+				throw e;
+			}
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package jcolonia.daw2023.rueca;
+
+/**
+ * Comportamiento de un {@link RegistroAsíncrono} cuando un hilo intenta
+ * registrar un mensaje con la cola llena, es decir, cuando los mensajes llegan
+ * más deprisa de lo que se pueden escribir.
+ *
+ * @author <a href= "mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ * @version 1.3 (20261018)
+ */
+public enum PolíticaDesbordamiento {
+	/**
+	 * El hilo duerme hasta que se libere espacio. No se pierde ningún mensaje,
+	 * pero los hilos quedan frenados al ritmo de la escritura.
+	 */
+	BLOQUEAR,
+	/**
+	 * El mensaje se descarta y el hilo continúa de inmediato. Los descartes se
+	 * cuentan y dejan un hueco en la numeración de su hilo.
+	 */
+	DESCARTAR,
+	/**
+	 * El hilo reintenta sin dormir hasta que se libere espacio. Responde antes
+	 * que {@link #BLOQUEAR}, a costa de ocupar el procesador mientras espera:
+	 * solo conviene con pocos hilos y esperas muy breves.
+	 */
+	GIRAR;
+}
@@ -0,0 +1,501 @@
+package jcolonia.daw2023.rueca;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro de mensajes para muchos hilos a la vez: cada hilo deja sus líneas,
+ * ya compuestas, en una cola circular sin bloqueos y un único hilo de escritura
+ * las recoge por lotes y las vuelca a un canal de salida.
+ *
+ * <div>Con {@link System#out} cada {@code printf} toma el cerrojo interno del
+ * {@link java.io.PrintStream PrintStream} y escribe en el momento: con muchos
+ * hilos, el cerrojo se convierte en el cuello de botella y falsea cualquier
+ * medida de tiempos. Aquí cada hilo compone su texto por su cuenta, reserva un
+ * hueco de la cola con una única operación atómica y sigue adelante; la
+ * codificación y las escrituras en el canal quedan para el hilo de escritura,
+ * que agrupa en cada escritura todas las líneas acumuladas.</div>
+ *
+ * <div>Si la cola se llena, se aplica la {@link PolíticaDesbordamiento política
+ * de desbordamiento} elegida. Cada hilo numera sus mensajes —1, 2, 3…— y, si se
+ * pide, cada línea se escribe precedida de <code>[hilo·número]</code>, con el
+ * identificador del hilo: las líneas de un mismo hilo salen siempre en orden,
+ * y la numeración permite reconstruir su secuencia y detectar los
+ * descartes.</div>
+ *
+ * <div>Hay que cerrar el registro con {@link #close()} para que se escriba todo
+ * lo pendiente: el hilo de escritura es un hilo demonio y no retrasa el final
+ * del programa. Al cerrarlo no se cierra el canal.</div>
+ *
+ * @author <a href= "mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ * @version 1.3 (20261018)
+ */
+public final class RegistroAsíncrono implements AutoCloseable {
+	/** Capacidad predeterminada de la cola, en mensajes. */
+	private static final int CAPACIDAD_PREDETERMINADA = 8192;
+
+	/** Tamaño del búfer de salida, en bytes. */
+	private static final int TAMAÑO_SALIDA = 64 * 1024;
+
+	/** Máximo de mensajes recogidos antes de avisar a los hilos bloqueados. */
+	private static final int LOTE_MÁX = 256;
+
+	/** Tiempo máximo que el hilo de escritura duerme sin mensajes. */
+	private static final long ESPERA_MÁX_NS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * Estado de cada hueco de la cola: si coincide con la posición que le toca,
+	 * está libre; si la supera en uno, contiene un mensaje listo para escribir.
+	 */
+	private final AtomicLongArray secuencias;
+
+	/** Texto de cada hueco. */
+	private final String[] textos;
+
+	/** Identificador del hilo que ha dejado el mensaje de cada hueco. */
+	private final long[] productores;
+
+	/** Número del mensaje de cada hueco dentro de los de su hilo. */
+	private final long[] números;
+
+	/** Máscara que reduce una posición a un hueco de la cola. */
+	private final int máscara;
+
+	/** Siguiente posición a reservar por los hilos que registran. */
+	private final AtomicLong cola;
+
+	/**
+	 * Siguiente posición a escribir. Solo la usa el hilo de escritura.
+	 */
+	private long cabeza;
+
+	/** Qué hacer con la cola llena. */
+	private final PolíticaDesbordamiento política;
+
+	/** Si cada línea lleva delante el hilo y el número del mensaje. */
+	private final boolean numerar;
+
+	/** Contador de mensajes de cada hilo. */
+	private final ThreadLocal<long[]> contadores;
+
+	/** Hilos dormidos a la espera de hueco en la cola. */
+	private final Queue<Thread> bloqueados;
+
+	/** Canal de destino. */
+	private final WritableByteChannel canal;
+
+	/** Codificador de los textos. Solo lo usa el hilo de escritura. */
+	private final CharsetEncoder codificador;
+
+	/** Búfer de salida. Solo lo usa el hilo de escritura. */
+	private final ByteBuffer salida;
+
+	/** Línea en composición. Solo la usa el hilo de escritura. */
+	private final StringBuilder línea;
+
+	/** Hilo de escritura. */
+	private final Thread consumidor;
+
+	/** Si el hilo de escritura está dormido a la espera de mensajes. */
+	private volatile boolean dormido;
+
+	/** Si se ha pedido el cierre. */
+	private volatile boolean cerrado;
+
+	/** Si el hilo de escritura ha terminado. */
+	private volatile boolean terminado;
+
+	/** Mensajes escritos. Solo lo modifica el hilo de escritura. */
+	private volatile long escritos;
+
+	/** Escrituras en el canal. Solo lo modifica el hilo de escritura. */
+	private volatile long escrituras;
+
+	/** Mensajes descartados. */
+	private final LongAdder descartados;
+
+	/** Primer fallo de escritura, si lo ha habido. */
+	private volatile IOException fallo;
+
+	/**
+	 * Crea un registro y pone en marcha su hilo de escritura.
+	 *
+	 * @param canal     el canal de destino
+	 * @param juego     el juego de caracteres de la salida
+	 * @param capacidad el número de mensajes que caben en la cola; se redondea a
+	 *                  la siguiente potencia de dos
+	 * @param política  qué hacer cuando la cola está llena
+	 * @param numerar   si cada línea se precede del hilo y el número del mensaje
+	 * @throws IllegalArgumentException si la capacidad no es positiva o supera
+	 *                                  2<sup>30</sup>
+	 */
+	public RegistroAsíncrono(WritableByteChannel canal, Charset juego, int capacidad,
+			PolíticaDesbordamiento política, boolean numerar) {
+		int tamaño;
+
+		if (capacidad <= 0 || capacidad > 1 << 30) {
+			throw new IllegalArgumentException(String.format("Capacidad no válida: %d", capacidad));
+		}
+		tamaño = Math.max(1, Integer.highestOneBit(capacidad - 1) << 1);
+
+		secuencias = new AtomicLongArray(tamaño);
+		for (int i = 0; i < tamaño; i++) {
+			secuencias.set(i, i);
+		}
+		textos = new String[tamaño];
+		productores = new long[tamaño];
+		números = new long[tamaño];
+		máscara = tamaño - 1;
+		cola = new AtomicLong();
+		cabeza = 0;
+
+		this.política = política;
+		this.numerar = numerar;
+		contadores = ThreadLocal.withInitial(() -> new long[1]);
+		bloqueados = new ConcurrentLinkedQueue<>();
+		descartados = new LongAdder();
+
+		this.canal = canal;
+		codificador = juego.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		salida = ByteBuffer.allocateDirect(TAMAÑO_SALIDA);
+		línea = new StringBuilder();
+
+		consumidor = Thread.ofPlatform().name("registro-asíncrono").daemon(true).unstarted(this::consumir);
+		consumidor.start();
+	}
+
+	/**
+	 * Crea un registro sobre la salida estándar, con la capacidad
+	 * predeterminada de {@value #CAPACIDAD_PREDETERMINADA} mensajes. Escribe
+	 * directamente en el descriptor de la salida, sin pasar por
+	 * {@link System#out}: no conviene mezclar ambos mientras esté abierto.
+	 *
+	 * @param política qué hacer cuando la cola está llena
+	 * @param numerar  si cada línea se precede del hilo y el número del mensaje
+	 * @return el registro, ya en marcha
+	 */
+	public static RegistroAsíncrono consola(PolíticaDesbordamiento política, boolean numerar) {
+		System.out.flush();
+		return new RegistroAsíncrono(Channels.newChannel(new FileOutputStream(FileDescriptor.out)),
+				System.out.charset(), CAPACIDAD_PREDETERMINADA, política, numerar);
+	}
+
+	/**
+	 * Registra una línea. No añade más separador de línea que el del final.
+	 *
+	 * @param texto el contenido de la línea
+	 * @return si se ha encolado: solo puede no hacerlo con la política
+	 *         {@link PolíticaDesbordamiento#DESCARTAR DESCARTAR}, si se
+	 *         interrumpe la espera con {@link PolíticaDesbordamiento#BLOQUEAR
+	 *         BLOQUEAR} —se conserva la marca de interrupción— o si el registro
+	 *         se cierra mientras se espera
+	 * @throws IllegalStateException si el registro ya está cerrado
+	 */
+	public boolean registrar(String texto) {
+		long[] contador = contadores.get();
+		long productor = Thread.currentThread().threadId();
+		long número = ++contador[0];
+		boolean encolado;
+
+		if (cerrado) {
+			throw new IllegalStateException("Registro cerrado");
+		}
+
+		encolado = intentar(texto, productor, número);
+		if (!encolado) {
+			switch (política) {
+			case BLOQUEAR:
+				encolado = esperarHueco(texto, productor, número);
+				break;
+			case GIRAR:
+				while (!encolado && !terminado) {
+					Thread.onSpinWait();
+					encolado = intentar(texto, productor, número);
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		if (!encolado) {
+			descartados.increment();
+		} else if (dormido) {
+			dormido = false;
+			LockSupport.unpark(consumidor);
+		}
+		return encolado;
+	}
+
+	/**
+	 * Registra una línea compuesta al estilo de
+	 * {@link String#format(String, Object...)}. El formato se aplica en el hilo
+	 * que registra y no necesita <code>%n</code> final.
+	 *
+	 * @param formato el formato de la línea
+	 * @param valores los valores a componer
+	 * @return si se ha encolado, como en {@link #registrar(String)}
+	 * @throws IllegalStateException si el registro ya está cerrado
+	 */
+	public boolean registrarFormato(String formato, Object... valores) {
+		return registrar(String.format(formato, valores));
+	}
+
+	/**
+	 * Consulta cuántos mensajes se han escrito hasta el momento.
+	 *
+	 * @return el número de mensajes escritos
+	 */
+	public long getEscritos() {
+		return escritos;
+	}
+
+	/**
+	 * Consulta cuántas escrituras se han hecho en el canal: con mucho
+	 * movimiento, cada una lleva muchos mensajes.
+	 *
+	 * @return el número de escrituras
+	 */
+	public long getEscrituras() {
+		return escrituras;
+	}
+
+	/**
+	 * Consulta cuántos mensajes se han descartado por falta de hueco.
+	 *
+	 * @return el número de mensajes descartados
+	 */
+	public long getDescartados() {
+		return descartados.sum();
+	}
+
+	/**
+	 * Cierra el registro: espera a que se escriba todo lo pendiente y detiene
+	 * el hilo de escritura. Los mensajes que se registren a la vez que se
+	 * cierra pueden perderse. No cierra el canal.
+	 *
+	 * @throws IOException si ha fallado alguna escritura; los mensajes
+	 *                     posteriores al fallo se han perdido
+	 */
+	@Override
+	public void close() throws IOException {
+		boolean interrumpido = false;
+
+		cerrado = true;
+		LockSupport.unpark(consumidor);
+		while (consumidor.isAlive()) {
+			try {
+				consumidor.join();
+			} catch (InterruptedException e) {
+				interrumpido = true;
+			}
+		}
+		if (interrumpido) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (fallo != null) {
+			throw new IOException("Fallo al escribir el registro", fallo);
+		}
+	}
+
+	/**
+	 * Intenta reservar un hueco y dejar en él un mensaje.
+	 *
+	 * @param texto     el contenido del mensaje
+	 * @param productor el identificador del hilo
+	 * @param número    el número del mensaje dentro de los del hilo
+	 * @return si se ha encolado o si, por el contrario, la cola está llena
+	 */
+	private boolean intentar(String texto, long productor, long número) {
+		long posición = cola.get(), diferencia;
+		boolean reservado = false, llena = false;
+		int hueco;
+
+		while (!reservado && !llena) {
+			diferencia = secuencias.get((int) posición & máscara) - posición;
+			if (diferencia == 0) {
+				reservado = cola.compareAndSet(posición, posición + 1);
+				if (!reservado) {
+					posición = cola.get();
+				}
+			} else if (diferencia < 0) { // Aún sin escribir desde la vuelta anterior
+				llena = true;
+			} else { // Reservado por otro hilo
+				posición = cola.get();
+			}
+		}
+
+		if (reservado) {
+			hueco = (int) posición & máscara;
+			textos[hueco] = texto;
+			productores[hueco] = productor;
+			números[hueco] = número;
+			secuencias.set(hueco, posición + 1);
+		}
+		return reservado;
+	}
+
+	/**
+	 * Duerme hasta poder encolar un mensaje. El hilo de escritura despierta a
+	 * los hilos en espera cada vez que libera huecos.
+	 *
+	 * @param texto     el contenido del mensaje
+	 * @param productor el identificador del hilo
+	 * @param número    el número del mensaje dentro de los del hilo
+	 * @return si se ha encolado o si, por el contrario, se ha interrumpido la
+	 *         espera o ha terminado el hilo de escritura
+	 */
+	private boolean esperarHueco(String texto, long productor, long número) {
+		Thread hilo = Thread.currentThread();
+		boolean encolado = false, interrumpido = false;
+
+		bloqueados.add(hilo);
+		try {
+			// Se reintenta tras apuntarse: o lo ve el hilo de escritura, o el hueco ya está libre
+			while (!interrumpido && !terminado && !(encolado = intentar(texto, productor, número))) {
+				LockSupport.park(this);
+				interrumpido = Thread.interrupted();
+			}
+		} finally {
+			bloqueados.remove(hilo);
+		}
+
+		if (interrumpido) {
+			hilo.interrupt();
+		}
+		return encolado;
+	}
+
+	/**
+	 * Bucle del hilo de escritura: recoge mensajes mientras los haya, vuelca el
+	 * búfer cuando se queda sin ellos y, entonces, duerme hasta que llegue
+	 * alguno o se cierre el registro.
+	 */
+	private void consumir() {
+		boolean fin = false;
+
+		try {
+			while (!fin) {
+				if (recoger() == 0) {
+					vaciar();
+					if (cerrado) {
+						fin = (cola.get() == cabeza);
+					} else {
+						dormir();
+					}
+				}
+			}
+		} finally {
+			terminado = true;
+			despertarBloqueados();
+		}
+	}
+
+	/**
+	 * Recoge los mensajes disponibles, hasta {@value #LOTE_MÁX}, y los pasa al
+	 * búfer de salida.
+	 *
+	 * @return el número de mensajes recogidos
+	 */
+	private int recoger() {
+		int recogidos = 0, hueco = (int) cabeza & máscara;
+
+		while (recogidos < LOTE_MÁX && secuencias.get(hueco) == cabeza + 1) {
+			línea.setLength(0);
+			if (numerar) {
+				línea.append('[').append(productores[hueco]).append('·').append(números[hueco]).append("] ");
+			}
+			línea.append(textos[hueco]).append(System.lineSeparator());
+			textos[hueco] = null;
+			secuencias.set(hueco, cabeza + máscara + 1);
+
+			codificar(línea);
+			cabeza++;
+			recogidos++;
+			hueco = (int) cabeza & máscara;
+		}
+
+		if (recogidos > 0) {
+			escritos = escritos + recogidos;
+			despertarBloqueados();
+		}
+		return recogidos;
+	}
+
+	/**
+	 * Duerme el hilo de escritura hasta que llegue un mensaje, se cierre el
+	 * registro o pase {@link #ESPERA_MÁX_NS}.
+	 */
+	private void dormir() {
+		dormido = true;
+		// Se comprueba tras avisar: o lo ve quien registra, o el mensaje ya está
+		if (secuencias.get((int) cabeza & máscara) != cabeza + 1 && !cerrado) {
+			LockSupport.parkNanos(this, ESPERA_MÁX_NS);
+		}
+		dormido = false;
+	}
+
+	/**
+	 * Despierta a los hilos que esperan hueco en la cola.
+	 */
+	private void despertarBloqueados() {
+		for (Thread hilo : bloqueados) {
+			LockSupport.unpark(hilo);
+		}
+	}
+
+	/**
+	 * Codifica un texto en el búfer de salida, volcándolo al canal cada vez que
+	 * se llena.
+	 *
+	 * @param texto el texto a codificar
+	 */
+	private void codificar(CharSequence texto) {
+		CharBuffer entrada = CharBuffer.wrap(texto);
+		CoderResult resultado;
+
+		do {
+			resultado = codificador.encode(entrada, salida, false);
+			if (resultado.isOverflow()) {
+				vaciar();
+			}
+		} while (resultado.isOverflow());
+	}
+
+	/**
+	 * Vuelca al canal el contenido del búfer de salida. Tras un fallo de
+	 * escritura, se limita a descartarlo.
+	 */
+	private void vaciar() {
+		salida.flip();
+		try {
+			if (salida.hasRemaining() && fallo == null) {
+				while (salida.hasRemaining()) {
+					canal.write(salida);
+				}
+				escrituras = escrituras + 1;
+			}
+		} catch (IOException e) {
+			fallo = e;
+		}
+		salida.clear();
+	}
+}
@@ -0,0 +1,223 @@
+package jcolonia.daw2023.rueca;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Secuenciador de turnos: permite que varios hilos ejecuten una parte de su
+ * trabajo en un orden fijado de antemano —turno 1, turno 2, turno 3…— aunque
+ * lleguen en cualquier orden. Sirve, por ejemplo, para confirmar en orden los
+ * resultados de un trabajo hecho en paralelo.
+ *
+ * <div>A diferencia del esquema clásico con {@link Object#wait()} y
+ * {@link Object#notifyAll()} sobre un único monitor —que despierta a todos los
+ * hilos en espera en cada turno para que solo uno continúe—, cada hilo espera
+ * dormido con {@link LockSupport#park(Object)} en la posición de su turno
+ * dentro de una tabla circular. Al terminar un turno solo se despierta a quien
+ * espera el siguiente: aproximadamente un despertar por turno, sea cual sea el
+ * número de participantes.</div>
+ *
+ * <div>Si hay turnos en espera separados por un múltiplo de la capacidad,
+ * comparten posición: al despertar, el que no tiene el turno vuelve a dormir.
+ * Basta con una capacidad igual o superior al número de hilos que pueden
+ * esperar a la vez para que no ocurra.</div>
+ *
+ * @author <a href= "mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
+ * @version 1.3 (20261018)
+ */
+public final class SecuenciadorOrdenado {
+	/** Capacidad predeterminada de la tabla de esperas. */
+	private static final int CAPACIDAD_PREDETERMINADA = 1024;
+
+	/**
+	 * Hilo en espera de un turno, apilado en la posición correspondiente de la
+	 * tabla.
+	 */
+	private static final class Espera {
+		/** Hilo dormido, o {@code null} si ya ha dejado de esperar. */
+		private volatile Thread hilo;
+
+		/** Si sigue apilada o ya se ha retirado de la tabla para despertarla. */
+		private volatile boolean apilada;
+
+		/** Siguiente espera de la misma posición. */
+		private Espera siguiente;
+
+		/**
+		 * Crea una espera del hilo actual.
+		 */
+		Espera() {
+			hilo = Thread.currentThread();
+			apilada = true;
+		}
+	}
+
+	/** Turno en curso: el único que puede ejecutarse ahora. */
+	private final AtomicLong actual;
+
+	/** Pilas de esperas, una por posición de la tabla circular. */
+	private final AtomicReferenceArray<Espera> esperas;
+
+	/** Máscara que reduce un turno a una posición de la tabla. */
+	private final int máscara;
+
+	/** Número de hilos despertados al terminar los turnos. */
+	private final LongAdder despertares;
+
+	/**
+	 * Crea un secuenciador que empieza por el turno 1, con capacidad para
+	 * {@value #CAPACIDAD_PREDETERMINADA} esperas sin colisiones.
+	 */
+	public SecuenciadorOrdenado() {
+		this(1, CAPACIDAD_PREDETERMINADA);
+	}
+
+	/**
+	 * Crea un secuenciador.
+	 *
+	 * @param primerTurno el primer turno
+	 * @param capacidad   el número de esperas simultáneas sin colisiones; se
+	 *                    redondea a la siguiente potencia de dos
+	 * @throws IllegalArgumentException si la capacidad no es positiva o supera
+	 *                                  2<sup>30</sup>
+	 */
+	public SecuenciadorOrdenado(long primerTurno, int capacidad) {
+		int tamaño;
+
+		if (capacidad <= 0 || capacidad > 1 << 30) {
+			throw new IllegalArgumentException(String.format("Capacidad no válida: %d", capacidad));
+		}
+		tamaño = Math.max(1, Integer.highestOneBit(capacidad - 1) << 1);
+
+		actual = new AtomicLong(primerTurno);
+		esperas = new AtomicReferenceArray<>(tamaño);
+		máscara = tamaño - 1;
+		despertares = new LongAdder();
+	}
+
+	/**
+	 * Espera, dormido, hasta que llegue un turno. Vuelve de inmediato si ya es
+	 * el turno en curso. Tras esperarlo hay que terminarlo siempre con
+	 * {@link #terminarTurno(long)}; si no, el resto de turnos no llegará nunca.
+	 *
+	 * @param turno el turno a esperar
+	 * @throws InterruptedException  si se interrumpe la espera; el turno queda
+	 *                               pendiente
+	 * @throws IllegalStateException si el turno ya ha pasado
+	 */
+	public void esperarTurno(long turno) throws InterruptedException {
+		Espera espera = null;
+		boolean interrumpido = false;
+		long enCurso;
+
+		while (actual.get() < turno && !interrumpido) {
+			if (espera == null || !espera.apilada) {
+				espera = apilar(turno);
+			} else {
+				LockSupport.park(this);
+				interrumpido = Thread.interrupted();
+			}
+		}
+		if (espera != null) {
+			espera.hilo = null;
+		}
+
+		enCurso = actual.get();
+		if (enCurso < turno) {
+			throw new InterruptedException(String.format("Espera del turno %d interrumpida", turno));
+		}
+		if (interrumpido) { // El turno ha llegado a la vez: se conserva la marca
+			Thread.currentThread().interrupt();
+		}
+		if (enCurso != turno) {
+			throw new IllegalStateException(String.format("El turno %d ya ha pasado", turno));
+		}
+	}
+
+	/**
+	 * Da por terminado el turno en curso y despierta a quien espere el
+	 * siguiente.
+	 *
+	 * @param turno el turno en curso
+	 * @throws IllegalStateException si no es el turno en curso
+	 */
+	public void terminarTurno(long turno) {
+		Espera espera, siguiente;
+		Thread hilo;
+
+		if (actual.get() != turno) {
+			throw new IllegalStateException(
+					String.format("No es el turno %d sino el %d", turno, actual.get()));
+		}
+		actual.set(turno + 1);
+
+		espera = esperas.getAndSet((int) (turno + 1) & máscara, null);
+		while (espera != null) {
+			siguiente = espera.siguiente;
+			espera.apilada = false;
+			hilo = espera.hilo;
+			if (hilo != null) {
+				LockSupport.unpark(hilo);
+				despertares.increment();
+			}
+			espera = siguiente;
+		}
+	}
+
+	/**
+	 * Ejecuta una acción en su turno: espera a que llegue, la ejecuta y da el
+	 * turno por terminado, aunque la acción falle.
+	 *
+	 * @param turno  el turno de la acción
+	 * @param acción la acción a ejecutar
+	 * @throws InterruptedException  si se interrumpe la espera; el turno queda
+	 *                               pendiente
+	 * @throws IllegalStateException si el turno ya ha pasado
+	 */
+	public void ejecutar(long turno, Runnable acción) throws InterruptedException {
+		esperarTurno(turno);
+		try {
+			acción.run();
+		} finally {
+			terminarTurno(turno);
+		}
+	}
+
+	/**
+	 * Consulta el turno en curso.
+	 *
+	 * @return el turno
+	 */
+	public long getTurno() {
+		return actual.get();
+	}
+
+	/**
+	 * Consulta cuántos hilos se han despertado al terminar los turnos. Sin
+	 * colisiones, no supera el número de turnos terminados.
+	 *
+	 * @return el número de despertares
+	 */
+	public long getDespertares() {
+		return despertares.sum();
+	}
+
+	/**
+	 * Apila una espera del hilo actual en la posición de su turno.
+	 *
+	 * @param turno el turno esperado
+	 * @return la espera apilada
+	 */
+	private Espera apilar(long turno) {
+		Espera espera = new Espera();
+		int posición = (int) turno & máscara;
+
+		do {
+			espera.siguiente = esperas.get(posición);
+		} while (!esperas.compareAndSet(posición, espera.siguiente, espera));
+
+		return espera;
+	}
+}
@@ -15,6 +15,12 @@
  * Para evitar conflictos habrá que arbitrar zonas de bloqueo en el código para
  * que en cada momento solo las pueda ejecutar un único hilo y los demás esperen
  * su turno.</div>
+ * <div>Las demostraciones admiten como opciones el modo de ejecución —hilos de
+ * plataforma o virtuales, véase {@link jcolonia.daw2023.rueca.ModoHilos
+ * ModoHilos}— y el número de hilos; {@link jcolonia.daw2023.rueca.ComparativaHilos
+ * ComparativaHilos} mide cómo escala cada modo. Para que la salida no frene a
+ * los hilos, {@link jcolonia.daw2023.rueca.RegistroAsíncrono RegistroAsíncrono}
+ * recoge sus mensajes sin bloqueos y los escribe por lotes.</div>
  * 
  * @author <a href= "mailto:dmartin.jcolonia@gmail.com">David H. Martín</a>
  * @version 1.2 (20240507)